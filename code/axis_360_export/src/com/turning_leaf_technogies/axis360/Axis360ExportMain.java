@@ -4,6 +4,7 @@ import com.turning_leaf_technologies.config.ConfigUtil;
 import com.turning_leaf_technologies.file.JarUtil;
 import com.turning_leaf_technologies.indexing.IndexingUtils;
 import com.turning_leaf_technologies.logging.LoggingUtil;
+import com.turning_leaf_technologies.net.NetworkUtils;
 import com.turning_leaf_technologies.strings.StringUtils;
 import org.apache.logging.log4j.Logger;
 import org.ini4j.Ini;
@@ -77,6 +78,8 @@ public class Axis360ExportMain {
 						long elapsedTime = endTime - startTime.getTime();
 						logger.info("Elapsed Minutes " + (elapsedTime / 60000));
 
+						logEntry.addNote(NetworkUtils.getEndpointStatistics());
+						NetworkUtils.resetEndpointStatistics();
 						logEntry.setFinished();
 					});
 					numSettingsAdded++;
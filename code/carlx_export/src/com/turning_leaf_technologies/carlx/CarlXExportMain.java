@@ -172,6 +172,8 @@ public class CarlXExportMain {
 					processRecordsToReload(indexingProfile, logEntry);
 				}
 
+				logEntry.addNote(NetworkUtils.getEndpointStatistics());
+				NetworkUtils.resetEndpointStatistics();
 				logEntry.setFinished();
 
 				try{
@@ -240,6 +240,8 @@ public class CloudLibraryExporter {
 		long elapsedTime = (endTime / 1000) - startTimeForLogging;
 		logger.info("Elapsed Minutes " + (elapsedTime / 60));
 
+		logEntry.addNote(NetworkUtils.getEndpointStatistics());
+		NetworkUtils.resetEndpointStatistics();
 		logEntry.setFinished();
 
 		return numChanges;
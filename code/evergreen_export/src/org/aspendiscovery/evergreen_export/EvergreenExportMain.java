@@ -191,6 +191,8 @@ public class EvergreenExportMain {
 					logEntry.incErrors("Error updating when the records were last indexed", e);
 				}
 
+				logEntry.addNote(NetworkUtils.getEndpointStatistics());
+				NetworkUtils.resetEndpointStatistics();
 				logEntry.setFinished();
 
 				Date currentTime = new Date();
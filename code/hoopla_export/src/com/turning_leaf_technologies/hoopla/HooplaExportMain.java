@@ -120,6 +120,8 @@ public class HooplaExportMain {
 			logger.info("Elapsed Minutes " + (elapsedTime / 60000));
 
 			//Mark that indexing has finished
+			logEntry.addNote(NetworkUtils.getEndpointStatistics());
+			NetworkUtils.resetEndpointStatistics();
 			logEntry.setFinished();
 
 			//Check to see if the jar has changes, and if so quit
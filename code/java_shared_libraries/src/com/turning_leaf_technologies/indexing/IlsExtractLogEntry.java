@@ -118,14 +118,14 @@ public class IlsExtractLogEntry implements BaseLogEntry {
 		this.saveResults();
 	}
 
-	public void incErrors(String note) {
+	public synchronized void incErrors(String note) {
 		this.addNote("ERROR: " + note);
 		numErrors++;
 		this.saveResults();
 		logger.error(note);
 	}
 
-	public void incErrors(String note, Exception e){
+	public synchronized void incErrors(String note, Exception e){
 		this.addNote("ERROR: " + note + " " + e.toString());
 		numErrors++;
 		this.saveResults();
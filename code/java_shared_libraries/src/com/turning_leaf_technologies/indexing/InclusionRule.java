@@ -95,6 +95,28 @@ class InclusionRule {
 	//private final HashMap<String, HashMap<String, HashMap<String, HashMap<String, HashMap<String, Boolean>>>>> locationCodeCache = new HashMap<>();
 	HashMap<String, Boolean> inclusionCache = new HashMap<>();
 	boolean isItemIncluded(String recordType, String locationCode, String subLocationCode, String iType, TreeSet<String> audiences, String audiencesAsString, String format, boolean isHoldable, boolean isOnOrder, boolean isEContent, Record marcRecord){
+		if (!isItemIncludedWithoutMarcCheck(recordType, locationCode, subLocationCode, iType, audiences, audiencesAsString, format, isHoldable, isOnOrder, isEContent)){
+			return false;
+		}
+		//Make sure not to cache marc tag determination
+		if (hasMarcCondition()) {
+			boolean hasMatch = false;
+			Set<String> marcValuesToCheck = MarcUtil.getFieldList(marcRecord, marcTagToMatch);
+			for (String marcValueToCheck : marcValuesToCheck) {
+				if (marcValueToMatchPattern.matcher(marcValueToCheck).matches()) {
+					hasMatch = true;
+					break;
+				}
+			}
+			return hasMatch && includeExcludeMatches;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks everything about the item except for the MARC tag condition which varies by record.
+	 */
+	boolean isItemIncludedWithoutMarcCheck(String recordType, String locationCode, String subLocationCode, String iType, TreeSet<String> audiences, String audiencesAsString, String format, boolean isHoldable, boolean isOnOrder, boolean isEContent){
 		//Do the quick checks first
 		if (!isEContent && (includeHoldableOnly && !isHoldable)){
 			return false;
@@ -190,18 +212,6 @@ class InclusionRule {
 		}else{
 			isIncluded = cachedInclusion;
 		}
-		//Make sure not to cache marc tag determination
-		if (isIncluded && marcTagToMatch.length() > 0) {
-			boolean hasMatch = false;
-			Set<String> marcValuesToCheck = MarcUtil.getFieldList(marcRecord, marcTagToMatch);
-			for (String marcValueToCheck : marcValuesToCheck) {
-				if (marcValueToMatchPattern.matcher(marcValueToCheck).matches()) {
-					hasMatch = true;
-					break;
-				}
-			}
-			isIncluded = hasMatch && includeExcludeMatches;
-		}
 		//Make sure that we are not excluding the result
 		if (isIncluded && locationCode.length() > 0 && locationsToExcludePattern != null) {
 			isIncluded = !locationsToExcludePattern.matcher(locationCode).matches();
@@ -212,8 +222,16 @@ class InclusionRule {
 		return isIncluded;
 	}
 
+	boolean hasMarcCondition(){
+		return marcTagToMatch.length() > 0;
+	}
+
+	boolean isUrlRewritten(){
+		return urlToMatch != null && urlToMatch.length() > 0 && urlReplacement != null && urlReplacement.length() > 0;
+	}
+
 	String getLocalUrl(String url){
-		if (urlToMatch == null || urlToMatch.length() == 0 || urlReplacement == null || urlReplacement.length() == 0){
+		if (!isUrlRewritten()){
 			return url;
 		}else{
 			return url.replaceFirst(urlToMatch, urlReplacement);
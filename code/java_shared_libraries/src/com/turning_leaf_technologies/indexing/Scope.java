@@ -10,6 +10,9 @@ import java.util.regex.Pattern;
 
 public class Scope implements Comparable<Scope>{
 	private long id;
+	//Position of the scope within the ScopeInclusionIndex it was loaded into, -1 if it has not been indexed
+	private int ordinal = -1;
+	private ScopeInclusionIndex inclusionIndex;
 
 	private String scopeName;
 	private String facetLabel;
@@ -129,6 +132,39 @@ public class Scope implements Comparable<Scope>{
 		return false;
 	}
 
+	/**
+	 * Determine if the item is included by the inclusion rules for the scope without looking at the MARC record.
+	 * Ownership rules are not checked.
+	 *
+	 * @return true or false if the result is the same for every record, null if the result depends on the MARC record
+	 *         or the url of the item will be rewritten.
+	 */
+	Boolean isItemIncludedWithoutRecord(String recordType, String locationCode, String subLocationCode, String iType, TreeSet<String> audiences, String audiencesAsString, String format, boolean isHoldable, boolean isOnOrder, boolean isEContent){
+		for(InclusionRule curRule: inclusionRules){
+			if (curRule.isItemIncludedWithoutMarcCheck(recordType, locationCode, subLocationCode, iType, audiences, audiencesAsString, format, isHoldable, isOnOrder, isEContent)){
+				//The first rule that matches determines the url, and a rule with a MARC condition may not match the record
+				if (curRule.hasMarcCondition() || curRule.isUrlRewritten()){
+					return null;
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int getOrdinal() {
+		return ordinal;
+	}
+
+	public ScopeInclusionIndex getInclusionIndex() {
+		return inclusionIndex;
+	}
+
+	void setInclusionIndex(ScopeInclusionIndex inclusionIndex, int ordinal) {
+		this.inclusionIndex = inclusionIndex;
+		this.ordinal = ordinal;
+	}
+
 	public String getFacetLabel() {
 		return facetLabel;
 	}
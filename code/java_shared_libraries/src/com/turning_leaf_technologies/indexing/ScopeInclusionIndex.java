@@ -0,0 +1,179 @@
+package com.turning_leaf_technologies.indexing;
+
+import org.marc4j.marc.Record;
+
+import java.util.*;
+
+/**
+ * Decision table for which scopes include an item.
+ *
+ * Whether or not a scope includes an item depends on the record type, location, sub location, iType, audiences,
+ * format and whether the item is holdable, on order, or eContent.  Rather than checking the rules for every scope
+ * for each item, the scopes that own and include each combination of those values are stored as bit sets
+ * (indexed by the ordinal of the scope) the first time the combination is seen.  Items with the same values then
+ * only need to visit the scopes that include them.
+ *
+ * Scopes whose decision depends on the MARC record or that rewrite urls are flagged so they can still be checked
+ * for each item.
+ *
+ * Like the scopes themselves, the index is not thread safe, each indexer should load its own.
+ */
+public class ScopeInclusionIndex {
+	//Limit the size of the table in case a value with high cardinality is used (i.e. a unique location per item)
+	private static final int MAX_CACHED_INCLUSIONS = 100000;
+
+	private final Scope[] scopes;
+	private final HashMap<InclusionKey, ScopeInclusion> inclusions = new HashMap<>();
+
+	public ScopeInclusionIndex(TreeSet<Scope> scopes) {
+		this.scopes = new Scope[scopes.size()];
+		int ordinal = 0;
+		for (Scope scope : scopes) {
+			scope.setInclusionIndex(this, ordinal);
+			this.scopes[ordinal++] = scope;
+		}
+	}
+
+	public int getNumScopes() {
+		return scopes.length;
+	}
+
+	public Scope getScope(int ordinal) {
+		return scopes[ordinal];
+	}
+
+	public ScopeInclusion getInclusion(String recordType, String locationCode, String subLocationCode, String iType, TreeSet<String> audiences, String audiencesAsString, String format, boolean isHoldable, boolean isOnOrder, boolean isEContent) {
+		InclusionKey key = new InclusionKey(recordType, locationCode, subLocationCode, iType, audiencesAsString, format, isHoldable, isOnOrder, isEContent);
+		ScopeInclusion inclusion = inclusions.get(key);
+		if (inclusion == null) {
+			inclusion = buildInclusion(key, audiences);
+			if (inclusions.size() < MAX_CACHED_INCLUSIONS) {
+				inclusions.put(key, inclusion);
+			}
+		}
+		return inclusion;
+	}
+
+	private ScopeInclusion buildInclusion(InclusionKey key, TreeSet<String> audiences) {
+		BitSet ownedScopes = new BitSet(scopes.length);
+		BitSet includedScopes = new BitSet(scopes.length);
+		BitSet scopesToCheck = new BitSet(scopes.length);
+		String fullKey = key.recordType + key.locationCode + key.subLocationCode;
+		for (int i = 0; i < scopes.length; i++) {
+			Scope scope = scopes[i];
+			if (scope.isItemOwnedByScope(fullKey, key.recordType, key.locationCode, key.subLocationCode)) {
+				ownedScopes.set(i);
+				includedScopes.set(i);
+			} else {
+				Boolean isIncluded = scope.isItemIncludedWithoutRecord(key.recordType, key.locationCode, key.subLocationCode, key.iType, audiences, key.audiencesAsString, key.format, key.isHoldable, key.isOnOrder, key.isEContent);
+				if (isIncluded == null) {
+					scopesToCheck.set(i);
+				} else if (isIncluded) {
+					includedScopes.set(i);
+				}
+			}
+		}
+		return new ScopeInclusion(key, ownedScopes, includedScopes, scopesToCheck);
+	}
+
+	/**
+	 * The scopes that own and include a combination of item values.
+	 */
+	public static class ScopeInclusion {
+		private final InclusionKey key;
+		private final BitSet ownedScopes;
+		private final BitSet includedScopes;
+		private final BitSet scopesToCheck;
+		private final BitSet candidateScopes;
+
+		private ScopeInclusion(InclusionKey key, BitSet ownedScopes, BitSet includedScopes, BitSet scopesToCheck) {
+			this.key = key;
+			this.ownedScopes = ownedScopes;
+			this.includedScopes = includedScopes;
+			this.scopesToCheck = scopesToCheck;
+			this.candidateScopes = (BitSet) includedScopes.clone();
+			this.candidateScopes.or(scopesToCheck);
+		}
+
+		/**
+		 * The ordinals of all scopes that may include the item.  Callers should not modify the result.
+		 */
+		public BitSet getCandidateScopes() {
+			return candidateScopes;
+		}
+
+		/**
+		 * Determine if the item is part of the scope, only checking the rules for scopes that depend on the record.
+		 * Gives the same result as Scope.isItemPartOfScope.
+		 */
+		public Scope.InclusionResult isItemPartOfScope(Scope scope, TreeSet<String> audiences, Record marcRecord, String econtentUrl) {
+			int ordinal = scope.getOrdinal();
+			if (ordinal < 0 || scopesToCheck.get(ordinal)) {
+				return scope.isItemPartOfScope(key.recordType, key.locationCode, key.subLocationCode, key.iType, audiences, key.audiencesAsString, key.format, key.isHoldable, key.isOnOrder, key.isEContent, marcRecord, econtentUrl);
+			} else if (ownedScopes.get(ordinal)) {
+				return new Scope.InclusionResult(true, true, econtentUrl);
+			} else {
+				return new Scope.InclusionResult(includedScopes.get(ordinal), false, econtentUrl);
+			}
+		}
+
+		/**
+		 * Determine if the scope owns the item based on the record type, location and sub location.
+		 */
+		public boolean isItemOwnedByScope(Scope scope) {
+			int ordinal = scope.getOrdinal();
+			if (ordinal < 0) {
+				return scope.isItemOwnedByScope(key.recordType + key.locationCode + key.subLocationCode, key.recordType, key.locationCode, key.subLocationCode);
+			}
+			return ownedScopes.get(ordinal);
+		}
+	}
+
+	private static class InclusionKey {
+		final String recordType;
+		final String locationCode;
+		final String subLocationCode;
+		final String iType;
+		final String audiencesAsString;
+		final String format;
+		final boolean isHoldable;
+		final boolean isOnOrder;
+		final boolean isEContent;
+		private final int hashCode;
+
+		InclusionKey(String recordType, String locationCode, String subLocationCode, String iType, String audiencesAsString, String format, boolean isHoldable, boolean isOnOrder, boolean isEContent) {
+			this.recordType = recordType;
+			this.locationCode = locationCode;
+			this.subLocationCode = subLocationCode;
+			this.iType = iType;
+			this.audiencesAsString = audiencesAsString;
+			this.format = format;
+			this.isHoldable = isHoldable;
+			this.isOnOrder = isOnOrder;
+			this.isEContent = isEContent;
+			this.hashCode = Objects.hash(recordType, locationCode, subLocationCode, iType, audiencesAsString, format, isHoldable, isOnOrder, isEContent);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof InclusionKey)) return false;
+			InclusionKey that = (InclusionKey) o;
+			return hashCode == that.hashCode &&
+					isHoldable == that.isHoldable &&
+					isOnOrder == that.isOnOrder &&
+					isEContent == that.isEContent &&
+					Objects.equals(recordType, that.recordType) &&
+					Objects.equals(locationCode, that.locationCode) &&
+					Objects.equals(subLocationCode, that.subLocationCode) &&
+					Objects.equals(iType, that.iType) &&
+					Objects.equals(audiencesAsString, that.audiencesAsString) &&
+					Objects.equals(format, that.format);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
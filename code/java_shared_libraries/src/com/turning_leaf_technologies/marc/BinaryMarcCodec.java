@@ -0,0 +1,169 @@
+package com.turning_leaf_technologies.marc;
+
+import org.marc4j.marc.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Compact binary format for storing MARC records in the database (ils_records.sourceData).
+ *
+ * The first byte of the data is the format version so stored records can be told apart from records stored as JSON
+ * (which always start with '{').  Version 1 is laid out as:
+ * <pre>
+ *   byte    format version (1)
+ *   string  leader
+ *   varint  number of control fields
+ *     string  tag
+ *     string  data
+ *   varint  number of data fields
+ *     string  tag
+ *     string  indicator 1
+ *     string  indicator 2
+ *     varint  number of subfields
+ *       string  code
+ *       string  data
+ * </pre>
+ * Varints are unsigned LEB128 (7 bits per byte, least significant group first) and strings are a varint byte length
+ * followed by the UTF-8 bytes of the string.  web/sys/File/MARC/Record.php has a matching decoder for the catalog.
+ *
+ * There is no marker for null strings.  A null leader, control field data or subfield data is written as an empty
+ * string and is read back as "" rather than null.
+ */
+public class BinaryMarcCodec {
+	public static final byte FORMAT_VERSION_1 = 1;
+
+	public static boolean isBinaryFormat(byte[] data) {
+		return data != null && data.length > 0 && data[0] == FORMAT_VERSION_1;
+	}
+
+	public static byte[] encode(Record record) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(2048);
+		out.write(FORMAT_VERSION_1);
+		writeString(out, record.getLeader().toString());
+		List<ControlField> controlFields = record.getControlFields();
+		writeVarInt(out, controlFields.size());
+		for (ControlField controlField : controlFields) {
+			writeString(out, controlField.getTag());
+			writeString(out, controlField.getData());
+		}
+		List<DataField> dataFields = record.getDataFields();
+		writeVarInt(out, dataFields.size());
+		for (DataField dataField : dataFields) {
+			writeString(out, dataField.getTag());
+			writeChar(out, dataField.getIndicator1());
+			writeChar(out, dataField.getIndicator2());
+			List<Subfield> subfields = dataField.getSubfields();
+			writeVarInt(out, subfields.size());
+			for (Subfield subfield : subfields) {
+				writeChar(out, subfield.getCode());
+				writeString(out, subfield.getData());
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes a record stored in the binary format.
+	 *
+	 * @throws IllegalArgumentException if the data is not in a known binary format or is truncated.
+	 */
+	public static Record decode(byte[] data) {
+		if (!isBinaryFormat(data)) {
+			throw new IllegalArgumentException("Data is not a binary MARC record");
+		}
+		Decoder decoder = new Decoder(data);
+		MarcFactory factory = MarcFactory.newInstance();
+		Record record = factory.newRecord(decoder.readString());
+		int numControlFields = decoder.readVarInt();
+		for (int i = 0; i < numControlFields; i++) {
+			String tag = decoder.readString();
+			record.addVariableField(factory.newControlField(tag, decoder.readString()));
+		}
+		int numDataFields = decoder.readVarInt();
+		for (int i = 0; i < numDataFields; i++) {
+			String tag = decoder.readString();
+			char indicator1 = decoder.readChar();
+			char indicator2 = decoder.readChar();
+			DataField dataField = factory.newDataField(tag, indicator1, indicator2);
+			int numSubfields = decoder.readVarInt();
+			for (int j = 0; j < numSubfields; j++) {
+				char code = decoder.readChar();
+				dataField.addSubfield(factory.newSubfield(code, decoder.readString()));
+			}
+			record.addVariableField(dataField);
+		}
+		return record;
+	}
+
+	private static void writeVarInt(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	//Null is written as an empty string
+	private static void writeString(ByteArrayOutputStream out, String value) {
+		byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	private static void writeChar(ByteArrayOutputStream out, char value) {
+		if (value < 0x80) {
+			//Most indicators and subfield codes are ASCII, skip building a string for them
+			out.write(1);
+			out.write(value);
+		} else {
+			writeString(out, String.valueOf(value));
+		}
+	}
+
+	private static class Decoder {
+		private final byte[] data;
+		private int position = 1;
+
+		Decoder(byte[] data) {
+			this.data = data;
+		}
+
+		int readVarInt() {
+			int value = 0;
+			int shift = 0;
+			while (true) {
+				if (position >= data.length || shift > 28) {
+					throw new IllegalArgumentException("Binary MARC record is truncated or corrupt");
+				}
+				byte curByte = data[position++];
+				value |= (curByte & 0x7F) << shift;
+				if ((curByte & 0x80) == 0) {
+					return value;
+				}
+				shift += 7;
+			}
+		}
+
+		String readString() {
+			int length = readVarInt();
+			if (length < 0 || position + length > data.length) {
+				throw new IllegalArgumentException("Binary MARC record is truncated or corrupt");
+			}
+			String value = new String(data, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return value;
+		}
+
+		char readChar() {
+			if (position + 1 < data.length && data[position] == 1 && data[position + 1] >= 0) {
+				char value = (char) data[position + 1];
+				position += 2;
+				return value;
+			}
+			String value = readString();
+			return value.length() == 0 ? ' ' : value.charAt(0);
+		}
+	}
+}
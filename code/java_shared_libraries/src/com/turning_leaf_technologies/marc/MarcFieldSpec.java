@@ -0,0 +1,288 @@
+package com.turning_leaf_technologies.marc;
+
+import com.turning_leaf_technologies.strings.StringUtils;
+import org.marc4j.marc.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * A field specification (i.e. 100abcd:700a, 008[35-37], LNK245ab) that has been parsed so it can be evaluated against
+ * records without parsing the specification again.
+ *
+ * Specifications are immutable once compiled and compiled specifications are shared by all threads.  See
+ * {@link MarcUtil#getFieldList(Record, String)} for a description of the syntax.
+ */
+public class MarcFieldSpec {
+	private static final ConcurrentHashMap<String, MarcFieldSpec> compiledSpecs = new ConcurrentHashMap<>();
+	private static final Pattern controlFieldPattern = Pattern.compile("00[0-9]");
+
+	private final String spec;
+	private final Part[] parts;
+
+	/**
+	 * Gets the compiled version of a field specification, compiling it the first time it is used.
+	 */
+	public static MarcFieldSpec compile(String spec) {
+		MarcFieldSpec compiledSpec = compiledSpecs.get(spec);
+		if (compiledSpec == null) {
+			compiledSpec = new MarcFieldSpec(spec);
+			compiledSpecs.putIfAbsent(spec, compiledSpec);
+		}
+		return compiledSpec;
+	}
+
+	private MarcFieldSpec(String spec) {
+		this.spec = spec;
+		ArrayList<Part> parsedParts = new ArrayList<>();
+		for (String tagSpec : spec.split(":")) {
+			// Check to ensure tag length is at least 3 characters
+			if (tagSpec.length() < 3) {
+				System.err.println("Invalid tag specified: " + tagSpec);
+				continue;
+			}
+			parsedParts.add(parsePart(tagSpec));
+		}
+		parts = parsedParts.toArray(new Part[0]);
+	}
+
+	private static Part parsePart(String tagSpec) {
+		// Get Field Tag
+		String tag = tagSpec.substring(0, 3);
+		boolean linkedField = false;
+		if (tag.equals("LNK")) {
+			tag = tagSpec.substring(3, 6);
+			linkedField = true;
+		}
+		// Process Subfields
+		String subfield = tagSpec.substring(3);
+		boolean havePattern = false;
+		// brackets indicate parsing for individual characters or as pattern
+		int bracket = tagSpec.indexOf('[');
+		if (bracket != -1) {
+			String[] sub = tagSpec.substring(bracket + 1).split("[\\]\\[\\-, ]+");
+			try {
+				// if bracket expression is digits, expression is treated as character positions
+				int substart = Integer.parseInt(sub[0]);
+				int subend = (sub.length > 1) ? Integer.parseInt(sub[1]) + 1 : substart + 1;
+				String subfieldWithoutBracket = subfield.substring(0, bracket - 3);
+				return new Part(PartType.CHARACTERS, tag, subfieldWithoutBracket, null, substart, subend);
+			} catch (NumberFormatException e) {
+				// assume brackets expression is a pattern such as [a-z]
+				havePattern = true;
+			}
+		}
+		String separator = null;
+		if (subfield.indexOf('\'') != -1) {
+			separator = subfield.substring(subfield.indexOf('\'') + 1, subfield.length() - 1);
+			subfield = subfield.substring(0, subfield.indexOf('\''));
+		}
+		if (linkedField) {
+			return new Part(PartType.LINKED, tag, subfield, separator, 0, 0);
+		} else if (havePattern) {
+			return new Part(PartType.ALL_SUBFIELDS, tag, subfield, separator, 0, 0);
+		} else {
+			return new Part(PartType.SUBFIELDS, tag, subfield, separator, 0, 0);
+		}
+	}
+
+	/**
+	 * Evaluates the specification against a record.
+	 *
+	 * @return the values of the specified fields and subfields in the order they were found
+	 */
+	public Set<String> getFieldList(Record record) {
+		Set<String> result = new LinkedHashSet<>();
+		for (Part part : parts) {
+			switch (part.type) {
+				case CHARACTERS:
+					addCharacters(record, part, result);
+					break;
+				case SUBFIELDS:
+					addSubfields(record, part, result);
+					break;
+				case ALL_SUBFIELDS:
+					addAllSubfields(record, part, result);
+					break;
+				case LINKED:
+					addLinkedFieldValues(record, part, result);
+					break;
+			}
+		}
+		return result;
+	}
+
+	public String getSpec() {
+		return spec;
+	}
+
+	@Override
+	public String toString() {
+		return spec;
+	}
+
+	/**
+	 * Adds the specified characters of the field (or the specified subfields) to the result.
+	 */
+	private static void addCharacters(Record record, Part part, Set<String> result) {
+		int beginIx = part.beginIndex;
+		int endIx = part.endIndex;
+		// Process Leader
+		if (part.tag.equals("000")) {
+			result.add(record.getLeader().toString().substring(beginIx, endIx));
+			return;
+		}
+
+		// Loop through Data and Control Fields
+		for (VariableField vf : record.getVariableFields(part.tag)) {
+			if (!part.isControlField && part.subfields != null) {
+				// Data Field
+				DataField dfield = (DataField) vf;
+				if (part.subfields.length() > 1) {
+					// automatic concatenation of grouped subFields
+					StringBuilder buffer = new StringBuilder();
+					for (Subfield sf : dfield.getSubfields()) {
+						if (part.subfields.indexOf(sf.getCode()) != -1 && sf.getData().length() >= endIx) {
+							if (buffer.length() > 0)
+								buffer.append(" ");
+							buffer.append(sf.getData().substring(beginIx, endIx));
+						}
+					}
+					result.add(buffer.toString());
+				} else {
+					// get all instances of the single subfield
+					for (Subfield sf : dfield.getSubfields(part.subfields.charAt(0))) {
+						if (sf.getData().length() >= endIx)
+							result.add(sf.getData().substring(beginIx, endIx));
+					}
+				}
+			} else {
+				// Control Field
+				String cfldData = ((ControlField) vf).getData();
+				if (cfldData.length() >= endIx)
+					result.add(cfldData.substring(beginIx, endIx));
+			}
+		}
+	}
+
+	/**
+	 * Adds the specified subfields of each field to the result.  If more than one subfield is specified, the subfields
+	 * of each field are concatenated into a single value.
+	 */
+	private static void addSubfields(Record record, Part part, Set<String> result) {
+		// Process Leader
+		if (part.tag.equals("000")) {
+			result.add(record.getLeader().toString());
+			return;
+		}
+
+		// Loop through Data and Control Fields
+		List<VariableField> varFlds = record.getVariableFields(part.tag);
+		if (varFlds == null) {
+			return;
+		}
+		String separator = part.separator;
+		for (VariableField vf : varFlds) {
+			if (!part.isControlField && part.subfields != null) {
+				// DataField
+				DataField dfield = (DataField) vf;
+
+				if (part.subfields.length() > 1 || separator != null) {
+					// concatenate subfields using specified separator or space
+					StringBuilder buffer = new StringBuilder();
+					for (Subfield sf : dfield.getSubfields()) {
+						if (part.subfields.indexOf(sf.getCode()) != -1) {
+							if (buffer.length() > 0) {
+								buffer.append(separator != null ? separator : " ");
+							}
+							buffer.append(sf.getData().trim());
+						}
+					}
+					if (buffer.length() > 0) {
+						result.add(buffer.toString());
+					}
+				} else if (part.subfields.length() == 1) {
+					// get all instances of the single subfield
+					for (Subfield sf : dfield.getSubfields(part.subfields.charAt(0))) {
+						result.add(sf.getData().trim());
+					}
+				}
+			} else {
+				// Control Field
+				result.add(((ControlField) vf).getData().trim());
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link MarcUtil#getAllSubfields(Record, String, String)} for a single tag.
+	 */
+	private static void addAllSubfields(Record record, Part part, Set<String> result) {
+		for (DataField marcField : record.getDataFields(part.tag)) {
+			StringBuilder buffer = MarcUtil.getSpecifiedSubfieldsAsString(marcField, part.subfields, part.separator);
+			if (buffer.length() > 0) {
+				result.add(StringUtils.cleanDataForSolr(buffer.toString()));
+			}
+		}
+	}
+
+	/**
+	 * Adds the specified subfields from any 880 fields linked to the tag.
+	 */
+	private static void addLinkedFieldValues(Record record, Part part, Set<String> result) {
+		for (DataField dfield : record.getDataFields("880")) {
+			Subfield link = dfield.getSubfield('6');
+			if (link != null && link.getData().startsWith(part.tag)) {
+				StringBuilder buf = new StringBuilder();
+				for (Subfield subF : dfield.getSubfields()) {
+					boolean addIt;
+					if (part.subfieldPattern != null) {
+						addIt = part.subfieldPattern.matcher(String.valueOf(subF.getCode())).matches();
+					} else {
+						// a list a subfields
+						addIt = part.subfields.indexOf(subF.getCode()) != -1;
+					}
+					if (addIt) {
+						if (buf.length() > 0) {
+							buf.append(part.separator != null ? part.separator : " ");
+						}
+						buf.append(subF.getData().trim());
+					}
+				}
+				if (buf.length() > 0) {
+					result.add(StringUtils.cleanDataForSolr(buf.toString()));
+				}
+			}
+		}
+	}
+
+	private enum PartType {
+		CHARACTERS, SUBFIELDS, ALL_SUBFIELDS, LINKED
+	}
+
+	/**
+	 * A single colon separated part of the specification.
+	 */
+	private static class Part {
+		private final PartType type;
+		private final String tag;
+		private final boolean isControlField;
+		private final String subfields;
+		private final Pattern subfieldPattern;
+		private final String separator;
+		private final int beginIndex;
+		private final int endIndex;
+
+		Part(PartType type, String tag, String subfields, String separator, int beginIndex, int endIndex) {
+			this.type = type;
+			this.tag = tag;
+			this.isControlField = controlFieldPattern.matcher(tag).matches();
+			this.subfields = subfields;
+			this.subfieldPattern = (type == PartType.LINKED && subfields.indexOf('[') != -1) ? Pattern.compile(subfields) : null;
+			this.separator = separator;
+			this.beginIndex = beginIndex;
+			this.endIndex = endIndex;
+		}
+	}
+}
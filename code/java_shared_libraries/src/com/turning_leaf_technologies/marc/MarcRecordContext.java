@@ -0,0 +1,48 @@
+package com.turning_leaf_technologies.marc;
+
+import org.marc4j.marc.Record;
+
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Remembers the values of field specifications that have been evaluated for a single record so each specification
+ * only needs to be evaluated once per record.
+ *
+ * A context is created by the code processing the record and should be discarded once the record has been processed
+ * or changed.  Contexts are not thread safe.
+ */
+public class MarcRecordContext {
+	private final Record record;
+	private final HashMap<MarcFieldSpec, Set<String>> fieldLists = new HashMap<>();
+
+	public MarcRecordContext(Record record) {
+		this.record = record;
+	}
+
+	public Record getRecord() {
+		return record;
+	}
+
+	public Set<String> getFieldList(String spec) {
+		return getFieldList(MarcFieldSpec.compile(spec));
+	}
+
+	public Set<String> getFieldList(MarcFieldSpec spec) {
+		Set<String> result = fieldLists.get(spec);
+		if (result == null) {
+			result = spec.getFieldList(record);
+			fieldLists.put(spec, result);
+		}
+		return result;
+	}
+
+	public String getFirstFieldVal(String spec) {
+		Set<String> result = getFieldList(spec);
+		if (result.size() == 0) {
+			return null;
+		} else {
+			return result.iterator().next();
+		}
+	}
+}
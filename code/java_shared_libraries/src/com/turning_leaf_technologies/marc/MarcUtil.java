@@ -9,6 +9,10 @@ import org.marc4j.*;
 import org.marc4j.marc.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -16,7 +20,6 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.CRC32;
 
@@ -24,8 +27,6 @@ import java.util.zip.CRC32;
  * Class to handle loading data from MARC records
  */
 public class MarcUtil {
-	private static HashMap<String, Set<String>> marcRecordFieldListCache = new HashMap<>();
-	private static long lastRecordHashCode;
 	/**
 	 * Get Set of Strings as indicated by tagStr. For each field spec in the
 	 * tagStr that is NOT about bytes (i.e. not a 008[7-12] type fieldspec), the
@@ -46,277 +47,16 @@ public class MarcUtil {
 	 *          subfields a, b, c, d are desired.
 	 * @return the contents of the indicated marc field(s)/subfield(s), as a set
 	 *         of Strings.
-	 */
-	public static Set<String> getFieldList(Record record, String tagStr) {
-		if (lastRecordHashCode != record.hashCode()){
-			marcRecordFieldListCache.clear();
-			lastRecordHashCode = record.hashCode();
-		}
-		Set<String> result = marcRecordFieldListCache.get(tagStr);
-		if (result != null){
-			return result;
-		}
-
-		String[] tags = tagStr.split(":");
-		result = new LinkedHashSet<>();
-		for (String tag1 : tags) {
-			// Check to ensure tag length is at least 3 characters
-			if (tag1.length() < 3) {
-				System.err.println("Invalid tag specified: " + tag1);
-				continue;
-			}
-
-			// Get Field Tag
-			String tag = tag1.substring(0, 3);
-			boolean linkedField = false;
-			if (tag.equals("LNK")) {
-				tag = tag1.substring(3, 6);
-				linkedField = true;
-			}
-			// Process Subfields
-			String subfield = tag1.substring(3);
-			boolean havePattern = false;
-			int subend = 0;
-			// brackets indicate parsing for individual characters or as pattern
-			int bracket = tag1.indexOf('[');
-			if (bracket != -1) {
-				String[] sub = tag1.substring(bracket + 1).split("[\\]\\[\\-, ]+");
-				try {
-					// if bracket expression is digits, expression is treated as character
-					// positions
-					int substart = Integer.parseInt(sub[0]);
-					subend = (sub.length > 1) ? Integer.parseInt(sub[1]) + 1
-							: substart + 1;
-					String subfieldWObracket = subfield.substring(0, bracket - 3);
-					result.addAll(getSubfieldDataAsSet(record, tag, subfieldWObracket, substart, subend));
-				} catch (NumberFormatException e) {
-					// assume brackets expression is a pattern such as [a-z]
-					havePattern = true;
-				}
-			}
-			if (subend == 0) // don't want specific characters.
-			{
-				String separator = null;
-				if (subfield.indexOf('\'') != -1) {
-					separator = subfield.substring(subfield.indexOf('\'') + 1,
-							subfield.length() - 1);
-					subfield = subfield.substring(0, subfield.indexOf('\''));
-				}
-
-				if (havePattern)
-					if (linkedField)
-						result.addAll(getLinkedFieldValue(record, tag, subfield, separator));
-					else
-						result.addAll(getAllSubfields(record, tag + subfield, separator));
-				else if (linkedField)
-					result.addAll(getLinkedFieldValue(record, tag, subfield, separator));
-				else
-					result.addAll(getSubfieldDataAsSet(record, tag, subfield, separator));
-			}
-		}
-		marcRecordFieldListCache.put(tagStr, result);
-		return result;
-	}
-
-	/**
-	 * Get the specified substring of subfield values from the specified MARC
-	 * field, returned as a set of strings to become lucene document field values
-	 *
-	 * @param record
-	 *          - the marc record object
-	 * @param fldTag
-	 *          - the field name, e.g. 008
-	 * @param subfield
-	 *          - the string containing the desired subfields
-	 * @param beginIx
-	 *          - the beginning index of the substring of the subfield value
-	 * @param endIx
-	 *          - the ending index of the substring of the subfield value
-	 * @return the result set of strings
-	 */
-	private static Set<String> getSubfieldDataAsSet(Record record, String fldTag, String subfield, int beginIx, int endIx) {
-		Set<String> resultSet = new LinkedHashSet<>();
-
-		// Process Leader
-		if (fldTag.equals("000")) {
-			resultSet.add(record.getLeader().toString().substring(beginIx, endIx));
-			return resultSet;
-		}
-
-		// Loop through Data and Control Fields
-		List<VariableField> varFlds = record.getVariableFields(fldTag);
-		for (VariableField vf : varFlds) {
-			if (!isControlField(fldTag) && subfield != null) {
-				// Data Field
-				DataField dfield = (DataField) vf;
-				if (subfield.length() > 1) {
-					// automatic concatenation of grouped subFields
-					StringBuilder buffer = new StringBuilder();
-					List<Subfield> subFields = dfield.getSubfields();
-					for (Subfield sf : subFields) {
-						if (subfield.indexOf(sf.getCode()) != -1
-								&& sf.getData().length() >= endIx) {
-							if (buffer.length() > 0)
-								buffer.append(" ");
-							buffer.append(sf.getData().substring(beginIx, endIx));
-						}
-					}
-					resultSet.add(buffer.toString());
-				} else {
-					// get all instances of the single subfield
-					List<Subfield> subFlds = dfield.getSubfields(subfield.charAt(0));
-					for (Subfield sf : subFlds) {
-						if (sf.getData().length() >= endIx)
-							resultSet.add(sf.getData().substring(beginIx, endIx));
-					}
-				}
-			} else // Control Field
-			{
-				String cfldData = ((ControlField) vf).getData();
-				if (cfldData.length() >= endIx)
-					resultSet.add(cfldData.substring(beginIx, endIx));
-			}
-		}
-		return resultSet;
-	}
-
-	/**
-	 * Get the specified subfields from the specified MARC field, returned as a
-	 * set of strings to become lucene document field values
 	 *
-	 * @param fldTag
-	 *          - the field name, e.g. 245
-	 * @param subfieldsStr
-	 *          - the string containing the desired subfields
-	 * @param separator
-	 *          - the separator string to insert between subfield items (if null,
-	 *          a " " will be used)
-	 * @return a Set of String, where each string is the concatenated contents of
-	 *          all the desired subfield values from a single instance of the
-	 *          fldTag
+	 * The specification is only parsed the first time it is used, see MarcFieldSpec.  Values are not cached between
+	 * calls, use a MarcRecordContext to reuse values while processing a record.
 	 */
-	private static Set<String> getSubfieldDataAsSet(Record record, String fldTag, String subfieldsStr, String separator) {
-		Set<String> resultSet = new LinkedHashSet<>();
-
-		// Process Leader
-		if (fldTag.equals("000")) {
-			resultSet.add(record.getLeader().toString());
-			return resultSet;
-		}
-
-		// Loop through Data and Control Fields
-		// int iTag = new Integer(fldTag).intValue();
-		List<VariableField> varFlds = record.getVariableFields(fldTag);
-		if (varFlds == null){
-			return resultSet;
-		}
-		for (VariableField vf : varFlds) {
-			if (!isControlField(fldTag) && subfieldsStr != null) {
-				// DataField
-				DataField dfield = (DataField) vf;
-
-				if (subfieldsStr.length() > 1 || separator != null) {
-					// concatenate subfields using specified separator or space
-					StringBuilder buffer = new StringBuilder();
-					List<Subfield> subFields = dfield.getSubfields();
-					for (Subfield sf : subFields) {
-						if (subfieldsStr.indexOf(sf.getCode()) != -1) {
-							if (buffer.length() > 0) {
-								buffer.append(separator != null ? separator : " ");
-							}
-							buffer.append(sf.getData().trim());
-						}
-					}
-					if (buffer.length() > 0){
-						resultSet.add(buffer.toString());
-					}
-				} else if (subfieldsStr.length() == 1) {
-					// get all instances of the single subfield
-					List<Subfield> subFields = dfield.getSubfields(subfieldsStr.charAt(0));
-					for (Subfield sf : subFields) {
-						resultSet.add(sf.getData().trim());
-					}
-				}
-			} else {
-				// Control Field
-				resultSet.add(((ControlField) vf).getData().trim());
-			}
-		}
-		return resultSet;
-	}
-
-	private static Pattern controlFieldPattern = Pattern.compile("00[0-9]");
-	private static boolean isControlField(String fieldTag) {
-		return controlFieldPattern.matcher(fieldTag).matches();
+	public static Set<String> getFieldList(Record record, String tagStr) {
+		return MarcFieldSpec.compile(tagStr).getFieldList(record);
 	}
 
-	private static HashMap<String, Pattern> subfieldPatterns = new HashMap<>();
-	/**
-	 * Given a tag for a field, and a list (or regex) of one or more subfields get
-	 * any linked 880 fields and include the appropriate subfields as a String
-	 * value in the result set.
-	 *
-	 * @param tag
-	 *          - the marc field for which 880s are sought.
-	 * @param subfield
-	 *          - The subfield(s) within the 880 linked field that should be
-	 *          returned [a-cf-z] denotes the bracket pattern is a regular
-	 *          expression indicating which subfields to include from the linked
-	 *          880. Note: if the characters in the brackets are digits, it will
-	 *          be interpreted as particular bytes, NOT a pattern 100abcd denotes
-	 *          subfields a, b, c, d are desired from the linked 880.
-	 * @param separator
-	 *          - the separator string to insert between subfield items (if null,
-	 *          a " " will be used)
-	 *
-	 * @return set of Strings containing the values of the designated 880
-	 *         field(s)/subfield(s)
-	 */
-	private static Set<String> getLinkedFieldValue(Record record, String tag, String subfield, String separator) {
-		// assume brackets expression is a pattern such as [a-z]
-		Set<String> result = new LinkedHashSet<>();
-		Pattern subfieldPattern = null;
-		if (subfield.indexOf('[') != -1) {
-			subfieldPattern = subfieldPatterns.get(subfield);
-			if (subfieldPattern == null){
-				subfieldPattern = Pattern.compile(subfield);
-				subfieldPatterns.put(subfield, subfieldPattern);
-			}
-		}
-		List<DataField> fields = record.getDataFields("880");
-		for (DataField dfield : fields) {
-			Subfield link = dfield.getSubfield('6');
-			if (link != null && link.getData().startsWith(tag)) {
-				List<Subfield> subList = dfield.getSubfields();
-				StringBuilder buf = new StringBuilder();
-				for (Subfield subF : subList) {
-					boolean addIt = false;
-					if (subfieldPattern != null) {
-						Matcher matcher = subfieldPattern.matcher("" + subF.getCode());
-						// matcher needs a string, hence concat with empty
-						// string
-						if (matcher.matches()) {
-							addIt = true;
-						}
-					} else {
-						// a list a subfields
-						if (subfield.indexOf(subF.getCode()) != -1) {
-							addIt = true;
-						}
-					}
-					if (addIt) {
-						if (buf.length() > 0) {
-							buf.append(separator != null ? separator : " ");
-						}
-						buf.append(subF.getData().trim());
-					}
-				}
-				if (buf.length() > 0) {
-					result.add(StringUtils.cleanDataForSolr(buf.toString()));
-				}
-			}
-		}
-		return (result);
+	public static Set<String> getFieldList(Record record, MarcFieldSpec fieldSpec) {
+		return fieldSpec.getFieldList(record);
 	}
 
 	/**
@@ -581,26 +321,96 @@ public class MarcUtil {
 		return null;
 	}
 
+	/**
+	 * Reads a record that was stored in the database (after uncompressing it).  Records are stored in the binary format
+	 * (see BinaryMarcCodec) or as JSON for records that have not been converted yet.
+	 */
+	public static Record readStoredRecord(String identifier, byte[] marcData, BaseLogEntry logEntry){
+		if (BinaryMarcCodec.isBinaryFormat(marcData)) {
+			try {
+				return BinaryMarcCodec.decode(marcData);
+			} catch (IllegalArgumentException e) {
+				logEntry.incErrors("Could not read binary MARC for " + identifier, e);
+				return null;
+			}
+		}
+		return readJsonFormattedRecord(identifier, marcData, logEntry);
+	}
+
 	public static Record readJsonFormattedRecord(String identifier, String marcContents, BaseLogEntry logEntry){
+		JsonRecordDecoder decoder = jsonRecordDecoders.get();
+		try {
+			return decoder.decode(identifier, marcContents, logEntry);
+		} finally {
+			decoder.releaseInput();
+		}
+	}
+
+	/**
+	 * Reads a record stored as UTF-8 encoded JSON directly from the bytes, without building a String from them first.
+	 */
+	public static Record readJsonFormattedRecord(String identifier, byte[] marcData, BaseLogEntry logEntry){
+		JsonRecordDecoder decoder = jsonRecordDecoders.get();
 		try {
-			InputStream marcFileStream = new ByteArrayInputStream(marcContents.getBytes(StandardCharsets.UTF_8));
+			return decoder.decode(identifier, marcData, logEntry);
+		} finally {
+			decoder.releaseInput();
+		}
+	}
 
-			MarcReader streamReader = new MarcJsonReader(marcFileStream);
-			try{
-				Record marcRecord = streamReader.next();
-				marcFileStream.close();
-				streamReader = null;
-				return marcRecord;
-			}catch (MarcException me){
+	//Each thread reuses its own reader, parser, and character buffer for the records it reads
+	private static final ThreadLocal<JsonRecordDecoder> jsonRecordDecoders = ThreadLocal.withInitial(JsonRecordDecoder::new);
+
+	private static class JsonRecordDecoder {
+		//Buffers larger than this are not kept after a record is read so one large record does not hold onto memory
+		private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+		private final MarcJsonReader reader = new MarcJsonReader();
+		private final CharsetDecoder utf8Decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		private char[] buffer = new char[16 * 1024];
+
+		Record decode(String identifier, byte[] marcData, BaseLogEntry logEntry) {
+			//UTF-8 never decodes to more characters than there are bytes
+			ensureCapacity(marcData.length);
+			CharBuffer charBuffer = CharBuffer.wrap(buffer);
+			utf8Decoder.reset();
+			utf8Decoder.decode(ByteBuffer.wrap(marcData), charBuffer, true);
+			utf8Decoder.flush(charBuffer);
+			return read(identifier, charBuffer.position(), logEntry);
+		}
+
+		Record decode(String identifier, String marcContents, BaseLogEntry logEntry) {
+			ensureCapacity(marcContents.length());
+			marcContents.getChars(0, marcContents.length(), buffer, 0);
+			return read(identifier, marcContents.length(), logEntry);
+		}
+
+		private Record read(String identifier, int length, BaseLogEntry logEntry) {
+			try {
+				reader.setInput(buffer, length);
+				return reader.next();
+			} catch (MarcException me) {
 				//Could not read the marc record, there likely was not a record in the file, but ignore and use the permissive read.
 				logEntry.incErrors("Could not read MARC for " + identifier, me);
+			} catch (Exception e) {
+				logEntry.incErrors("Could not parse marc in json format for " + identifier, e);
 			}
-			streamReader = null;
-			marcFileStream.close();
-		}catch (Exception e){
-			logEntry.incErrors("Could not parse marc in json format for " + identifier, e);
+			return null;
 		}
 
-		return null;
+		private void ensureCapacity(int length) {
+			if (buffer.length < length) {
+				buffer = new char[Math.max(length, buffer.length * 2)];
+			}
+		}
+
+		void releaseInput() {
+			if (buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+				buffer = new char[16 * 1024];
+				reader.setInput(buffer, 0);
+			}
+		}
 	}
 }
@@ -1,20 +1,76 @@
 package com.turning_leaf_technologies.net;
 
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.Logger;
 
-import javax.net.ssl.HttpsURLConnection;
-import java.io.*;
-import java.net.HttpURLConnection;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
-
+/**
+ * Makes requests to web services for the extracts.
+ *
+ * All requests share one pooled HttpClient so connections (and TLS sessions) are kept alive and reused between
+ * requests and threads.  The number of open connections to each host is limited by the pool.  Responses are requested
+ * with gzip or deflate compression, read completely as bytes so the connection goes back to the pool, and decoded once
+ * using the character set of the response.  Cookies are kept between requests the same way a browser would.
+ *
+ * The time taken by each request is tracked by endpoint (see getEndpointStatistics).
+ */
 public class NetworkUtils {
+	private static final int MAX_CONNECTIONS_PER_HOST = 10;
+	private static final int MAX_CONNECTIONS = 100;
+	private static final CloseableHttpClient httpClient;
+	private static final ConcurrentHashMap<String, EndpointStatistics> statisticsByEndpoint = new ConcurrentHashMap<>();
+
+	static {
+		//Host names have never been verified for the web services we call
+		Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.register("https", new SSLConnectionSocketFactory(SSLContexts.createDefault(), NoopHostnameVerifier.INSTANCE))
+				.build();
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+		connectionManager.setMaxTotal(MAX_CONNECTIONS);
+		connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_HOST);
+		//The client asks for gzip and deflate and decompresses responses by default.
+		//Posts are redirected like HttpURLConnection did so logins that redirect after posting still work.
+		httpClient = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setRedirectStrategy(LaxRedirectStrategy.INSTANCE)
+				.evictExpiredConnections()
+				.evictIdleConnections(30, TimeUnit.SECONDS)
+				.build();
+	}
+
 	public static WebServiceResponse getURL(String url, Logger logger) {
 		return NetworkUtils.getURL(url, logger, null);
 	}
@@ -27,65 +83,44 @@ public class NetworkUtils {
 	}
 	public static WebServiceResponse getURL(String url, Logger logger, HashMap<String, String> headers, int readTimeout, boolean logFailures) {
 		WebServiceResponse retVal;
+		long startTime = System.nanoTime();
+		URL urlToCall = null;
 		try {
-			URL urlToCall = new URL(url);
-			HttpURLConnection conn = (HttpURLConnection) urlToCall.openConnection();
-			conn.setConnectTimeout(10000);
-			conn.setReadTimeout(readTimeout);
+			urlToCall = new URL(url);
+			HttpGet request = new HttpGet(toURI(urlToCall));
+			request.setConfig(getRequestConfig(10000, readTimeout));
 			if (headers != null) {
 				for (String header : headers.keySet()) {
-					conn.setRequestProperty(header, headers.get(header));
+					request.setHeader(header, headers.get(header));
 				}
 			}
 
 			logger.debug("Getting From URL " + url);
-			if (conn instanceof HttpsURLConnection) {
-				HttpsURLConnection sslConn = (HttpsURLConnection) conn;
-				sslConn.setHostnameVerifier((hostname, session) -> {
-					//Do not verify host names
-					return true;
-				});
-			}
-
-			StringBuilder response = new StringBuilder();
-			if (conn.getResponseCode() == 200) {
-				// Get the response
-				BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-				String line;
-				while ((line = rd.readLine()) != null) {
-					response.append(line).append("\r\n");
-				}
-
-				rd.close();
-				retVal = new WebServiceResponse(true, 200, response.toString());
-			} else {
-				if (logFailures) {
-					logger.error("Received error " + conn.getResponseCode() + " getting " + url);
-				}
-				// Get any errors
-				InputStream errorStream = conn.getErrorStream();
-				if (errorStream != null) {
-					BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getErrorStream()));
-					String line;
-					while ((line = rd.readLine()) != null) {
-						response.append(line);
+			try (CloseableHttpResponse response = httpClient.execute(request)) {
+				int responseCode = response.getStatusLine().getStatusCode();
+				if (responseCode == 200) {
+					// Get the response
+					retVal = new WebServiceResponse(true, 200, readResponse(response, false));
+				} else {
+					if (logFailures) {
+						logger.error("Received error " + responseCode + " getting " + url);
 					}
-
-					rd.close();
+					// Get any errors
+					retVal = new WebServiceResponse(false, responseCode, readResponse(response, true));
 				}
-				retVal = new WebServiceResponse(false, conn.getResponseCode(), response.toString());
 			}
 
-		} catch (MalformedURLException e) {
+		} catch (MalformedURLException | URISyntaxException e) {
 			logger.error("URL to post (" + url + ") is malformed", e);
 			retVal = new WebServiceResponse(false, -1, "URL to post (" + url + ") is malformed");
-		} catch (SocketTimeoutException toe) {
+		} catch (SocketTimeoutException | ConnectTimeoutException toe) {
 			retVal = new WebServiceResponse(false, -1, "Call timed out");
 			retVal.setCallTimedOut(true);
 		} catch (IOException e) {
 			logger.error("Error posting to url \r\n" + url, e);
 			retVal = new WebServiceResponse(false, -1, "Error posting to url \r\n" + url + "\r\n" + e.toString());
 		}
+		recordRequest("GET", urlToCall, startTime, retVal);
 		return retVal;
 	}
 
@@ -106,108 +141,213 @@ public class NetworkUtils {
 	}
 	public static WebServiceResponse postToURL(String url, String postData, String contentType, String referer, Logger logger, String authentication, int connectTimeout, int readTimeout, Charset authenticationCharSet, HashMap<String, String> headers) {
 		WebServiceResponse retVal;
-		HttpURLConnection conn = null;
+		long startTime = System.nanoTime();
+		URL emptyIndexURL = null;
 		try {
-			URL emptyIndexURL = new URL(url);
-			conn = (HttpURLConnection) emptyIndexURL.openConnection();
-			conn.setConnectTimeout(connectTimeout);
-			conn.setReadTimeout(readTimeout);
+			emptyIndexURL = new URL(url);
+			HttpPost request = new HttpPost(toURI(emptyIndexURL));
+			request.setConfig(getRequestConfig(connectTimeout, readTimeout));
 			if (authentication != null) {
-				conn.setRequestProperty("Authorization", "Basic " + Base64.getEncoder().encodeToString(authentication.getBytes(authenticationCharSet)));
+				request.setHeader("Authorization", "Basic " + Base64.getEncoder().encodeToString(authentication.getBytes(authenticationCharSet)));
 			}
 			//logger.debug("Posting To URL " + url + (postData != null && postData.length() > 0 ? "?" + postData : ""));
 
-			if (conn instanceof HttpsURLConnection) {
-				HttpsURLConnection sslConn = (HttpsURLConnection) conn;
-				sslConn.setHostnameVerifier((hostname, session) -> {
-					//Do not verify host names
-					return true;
-				});
-			}
-			conn.setDoInput(true);
 			if (referer != null) {
-				conn.setRequestProperty("Referer", referer);
+				request.setHeader("Referer", referer);
 			}
 			if (headers != null){
 				for (String header : headers.keySet()){
-					conn.setRequestProperty(header, headers.get(header));
+					request.setHeader(header, headers.get(header));
 				}
 			}
-			conn.setRequestMethod("POST");
-			if (postData != null && postData.length() > 0) {
-				conn.setRequestProperty("Content-Type", contentType + "; charset=" + authenticationCharSet.toString());
-				conn.setRequestProperty("Content-Language", "en-US");
-				conn.setRequestProperty("Connection", "keep-alive");
-
-				conn.setDoOutput(true);
-				OutputStreamWriter wr = new OutputStreamWriter(conn.getOutputStream(), StandardCharsets.UTF_8);
-				wr.write(postData);
-				wr.flush();
-				wr.close();
-			}else if (postData != null){
-				conn.setRequestProperty("Content-Language", "en-US");
-				conn.setRequestProperty("Content-Length", "0");
-				conn.setDoOutput(true);
-				OutputStreamWriter wr = new OutputStreamWriter(conn.getOutputStream(), StandardCharsets.UTF_8);
-				wr.write(postData);
-				wr.flush();
-				wr.close();
-			}
-
-			StringBuilder response = new StringBuilder();
-			if (conn.getResponseCode() == 200) {
-				// Get the response
-				BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-				String line;
-				while ((line = rd.readLine()) != null) {
-					response.append(line);
-				}
-
-				rd.close();
-				retVal = new WebServiceResponse(true, 200, response.toString());
-			} else {
-				logger.info("Received error " + conn.getResponseCode() + " posting to " + url + " data " + postData);
-				logger.info(postData);
-				// Get any errors
-				InputStream errorStream = conn.getErrorStream();
-				if (errorStream != null) {
-					BufferedReader rd = new BufferedReader(new InputStreamReader(errorStream));
-					String line;
-					while ((line = rd.readLine()) != null) {
-						response.append(line);
-					}
-
-					rd.close();
+			if (postData != null) {
+				if (postData.length() > 0) {
+					request.setHeader("Content-Type", contentType + "; charset=" + authenticationCharSet.toString());
 				}
+				request.setHeader("Content-Language", "en-US");
+				request.setEntity(new ByteArrayEntity(postData.getBytes(StandardCharsets.UTF_8)));
+			}
 
-				if (response.length() == 0) {
-					//Try to load the regular body as well
+			//Line breaks have always been removed from responses to posts and callers may depend on that
+			try (CloseableHttpResponse response = httpClient.execute(request)) {
+				int responseCode = response.getStatusLine().getStatusCode();
+				if (responseCode == 200) {
 					// Get the response
-					InputStream inputStream = conn.getInputStream();
-					if (inputStream != null) {
-						String line;
-						BufferedReader rd2 = new BufferedReader(new InputStreamReader(inputStream));
-						while ((line = rd2.readLine()) != null) {
-							response.append(line);
-						}
-						rd2.close();
-					}
+					retVal = new WebServiceResponse(true, 200, readResponse(response, true));
+				} else {
+					logger.info("Received error " + responseCode + " posting to " + url + " data " + postData);
+					logger.info(postData);
+					// Get any errors
+					retVal = new WebServiceResponse(false, responseCode, readResponse(response, true));
 				}
-				retVal = new WebServiceResponse(false, conn.getResponseCode(), response.toString());
 			}
 
-		} catch (SocketTimeoutException e) {
+		} catch (SocketTimeoutException | ConnectTimeoutException e) {
 			logger.error("Timeout connecting to URL (" + url + ") data " + postData, e);
 			retVal = new WebServiceResponse(false, -1, "Timeout connecting to URL (" + url + ")");
-		} catch (MalformedURLException e) {
+			retVal.setCallTimedOut(true);
+		} catch (MalformedURLException | URISyntaxException e) {
 			logger.error("URL to post (" + url + ") is malformed", e);
 			retVal = new WebServiceResponse(false, -1, "URL to post (" + url + ") is malformed");
 		} catch (IOException e) {
 			logger.error("Error posting to url \r\n" + url, e);
 			retVal = new WebServiceResponse(false, -1, "Error posting to url \r\n" + url + "\r\n" + e.toString());
-		} finally {
-			if (conn != null) conn.disconnect();
 		}
+		recordRequest("POST", emptyIndexURL, startTime, retVal);
 		return retVal;
 	}
+
+	private static RequestConfig getRequestConfig(int connectTimeout, int readTimeout) {
+		return RequestConfig.custom()
+				.setConnectTimeout(connectTimeout)
+				.setSocketTimeout(readTimeout)
+				.build();
+	}
+
+	/**
+	 * HttpURLConnection sent urls as they were given, but HttpClient needs a valid URI so characters like spaces that
+	 * callers have not escaped are escaped here.  Anything already escaped is left alone.
+	 */
+	private static URI toURI(URL url) throws URISyntaxException {
+		String urlString = url.toString();
+		try {
+			return new URI(urlString);
+		} catch (URISyntaxException e) {
+			StringBuilder escapedUrl = new StringBuilder(urlString.length() + 16);
+			for (byte urlByte : urlString.getBytes(StandardCharsets.UTF_8)) {
+				int urlChar = urlByte & 0xFF;
+				if (urlChar <= 0x20 || urlChar >= 0x7F || "\"<>\\^`{|}".indexOf(urlChar) != -1) {
+					escapedUrl.append('%').append(Character.toUpperCase(Character.forDigit(urlChar >> 4, 16))).append(Character.toUpperCase(Character.forDigit(urlChar & 0xF, 16)));
+				} else {
+					escapedUrl.append((char) urlChar);
+				}
+			}
+			return new URI(escapedUrl.toString());
+		}
+	}
+
+	/**
+	 * Reads a response to the end (so the connection goes back to the pool) and decodes it using the character set of
+	 * the response (UTF-8 by default).  Compressed responses have already been decompressed by the client.
+	 */
+	private static String readResponse(CloseableHttpResponse httpResponse, boolean removeLineBreaks) throws IOException {
+		HttpEntity entity = httpResponse.getEntity();
+		if (entity == null) {
+			return "";
+		}
+		byte[] responseBytes = EntityUtils.toByteArray(entity);
+		Header contentType = entity.getContentType();
+		String response = new String(responseBytes, getResponseCharset(contentType == null ? null : contentType.getValue()));
+		if (removeLineBreaks && (response.indexOf('\n') != -1 || response.indexOf('\r') != -1)) {
+			StringBuilder responseWithoutLineBreaks = new StringBuilder(response.length());
+			for (int i = 0; i < response.length(); i++) {
+				char curChar = response.charAt(i);
+				if (curChar != '\n' && curChar != '\r') {
+					responseWithoutLineBreaks.append(curChar);
+				}
+			}
+			response = responseWithoutLineBreaks.toString();
+		}
+		return response;
+	}
+
+	private static Charset getResponseCharset(String contentType) {
+		if (contentType != null) {
+			for (String parameter : contentType.split(";")) {
+				parameter = parameter.trim();
+				if (parameter.toLowerCase().startsWith("charset=")) {
+					String charsetName = parameter.substring(8).trim().replace("\"", "");
+					try {
+						return Charset.forName(charsetName);
+					} catch (IllegalArgumentException e) {
+						//Use the default
+						break;
+					}
+				}
+			}
+		}
+		return StandardCharsets.UTF_8;
+	}
+
+	private static void recordRequest(String method, URL url, long startTime, WebServiceResponse response) {
+		if (url == null) {
+			return;
+		}
+		long elapsedMillis = (System.nanoTime() - startTime) / 1000000;
+		statisticsByEndpoint.computeIfAbsent(getEndpoint(method, url), EndpointStatistics::new).addRequest(elapsedMillis, response.getResponseCode());
+	}
+
+	/**
+	 * The endpoint is the method, host and path of the request with any part of the path containing a digit (i.e. ids)
+	 * replaced with * so requests for different records are combined.
+	 */
+	private static String getEndpoint(String method, URL url) {
+		StringBuilder endpoint = new StringBuilder(method).append(' ').append(url.getHost());
+		for (String pathPart : url.getPath().split("/")) {
+			if (pathPart.length() == 0) {
+				continue;
+			}
+			endpoint.append('/');
+			boolean hasDigit = false;
+			for (int i = 0; i < pathPart.length(); i++) {
+				if (Character.isDigit(pathPart.charAt(i))) {
+					hasDigit = true;
+					break;
+				}
+			}
+			endpoint.append(hasDigit ? "*" : pathPart);
+		}
+		return endpoint.toString();
+	}
+
+	/**
+	 * @return the number of requests, errors and time taken for each endpoint called since the statistics were last reset,
+	 * the slowest endpoints first.
+	 */
+	public static String getEndpointStatistics() {
+		ArrayList<EndpointStatistics> allStatistics = new ArrayList<>(statisticsByEndpoint.values());
+		if (allStatistics.isEmpty()) {
+			return "No web service requests";
+		}
+		allStatistics.sort((statistics1, statistics2) -> Long.compare(statistics2.getTotalMillis(), statistics1.getTotalMillis()));
+		StringBuilder summary = new StringBuilder("Web service requests by endpoint");
+		for (EndpointStatistics statistics : allStatistics) {
+			summary.append("<br/>").append(statistics);
+		}
+		return summary.toString();
+	}
+
+	public static void resetEndpointStatistics() {
+		statisticsByEndpoint.clear();
+	}
+
+	private static class EndpointStatistics {
+		private final String endpoint;
+		private long numRequests;
+		private long numErrors;
+		private long totalMillis;
+		private long maxMillis;
+
+		EndpointStatistics(String endpoint) {
+			this.endpoint = endpoint;
+		}
+
+		synchronized void addRequest(long elapsedMillis, int responseCode) {
+			numRequests++;
+			if (responseCode < 200 || responseCode >= 300) {
+				numErrors++;
+			}
+			totalMillis += elapsedMillis;
+			maxMillis = Math.max(maxMillis, elapsedMillis);
+		}
+
+		synchronized long getTotalMillis() {
+			return totalMillis;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return endpoint + ": " + numRequests + " requests, " + numErrors + " errors, average " + (totalMillis / numRequests) + "ms, max " + maxMillis + "ms";
+		}
+	}
 }
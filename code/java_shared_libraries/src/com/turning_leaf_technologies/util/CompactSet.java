@@ -0,0 +1,142 @@
+package com.turning_leaf_technologies.util;
+
+import java.util.*;
+
+/**
+ * A set that stores a small number of values in an array and switches to a HashSet once it grows beyond that.
+ * Most sets built while indexing only hold a handful of values, so this avoids allocating a hash table and an entry
+ * object for every value.  Values are returned in the order they were added until the set switches to a HashSet.
+ *
+ * @param <E> the type of values in the set
+ */
+public class CompactSet<E> extends AbstractSet<E> {
+	private static final int MAX_ARRAY_SIZE = 8;
+	private Object[] values;
+	private int size = 0;
+	private HashSet<E> hashSet = null;
+
+	public CompactSet() {
+		values = new Object[4];
+	}
+
+	public CompactSet(Collection<? extends E> initialValues) {
+		this();
+		addAll(initialValues);
+	}
+
+	@Override
+	public boolean add(E value) {
+		if (hashSet != null) {
+			return hashSet.add(value);
+		}
+		if (indexOf(value) >= 0) {
+			return false;
+		}
+		if (size == MAX_ARRAY_SIZE) {
+			hashSet = new HashSet<>(MAX_ARRAY_SIZE * 4);
+			for (int i = 0; i < size; i++) {
+				@SuppressWarnings("unchecked")
+				E existingValue = (E) values[i];
+				hashSet.add(existingValue);
+			}
+			values = null;
+			size = 0;
+			return hashSet.add(value);
+		}
+		if (size == values.length) {
+			values = Arrays.copyOf(values, MAX_ARRAY_SIZE);
+		}
+		values[size++] = value;
+		return true;
+	}
+
+	@Override
+	public boolean contains(Object value) {
+		if (hashSet != null) {
+			return hashSet.contains(value);
+		}
+		return indexOf(value) >= 0;
+	}
+
+	@Override
+	public boolean remove(Object value) {
+		if (hashSet != null) {
+			return hashSet.remove(value);
+		}
+		int index = indexOf(value);
+		if (index < 0) {
+			return false;
+		}
+		removeAt(index);
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return hashSet != null ? hashSet.size() : size;
+	}
+
+	@Override
+	public void clear() {
+		if (hashSet != null) {
+			hashSet = null;
+			values = new Object[4];
+		} else {
+			Arrays.fill(values, 0, size, null);
+		}
+		size = 0;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		if (hashSet != null) {
+			return hashSet.iterator();
+		}
+		return new Iterator<E>() {
+			private int nextIndex = 0;
+			private boolean canRemove = false;
+
+			@Override
+			public boolean hasNext() {
+				return nextIndex < size;
+			}
+
+			@Override
+			public E next() {
+				if (nextIndex >= size) {
+					throw new NoSuchElementException();
+				}
+				canRemove = true;
+				@SuppressWarnings("unchecked")
+				E value = (E) values[nextIndex++];
+				return value;
+			}
+
+			@Override
+			public void remove() {
+				if (!canRemove) {
+					throw new IllegalStateException();
+				}
+				removeAt(--nextIndex);
+				canRemove = false;
+			}
+		};
+	}
+
+	private int indexOf(Object value) {
+		for (int i = 0; i < size; i++) {
+			if (Objects.equals(values[i], value)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void removeAt(int index) {
+		int numToMove = size - index - 1;
+		if (numToMove > 0) {
+			System.arraycopy(values, index + 1, values, index, numToMove);
+		}
+		values[--size] = null;
+	}
+}
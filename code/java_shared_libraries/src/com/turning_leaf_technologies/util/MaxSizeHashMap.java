@@ -10,6 +10,14 @@ public class MaxSizeHashMap<K, V> extends LinkedHashMap<K, V> {
 		this.maxSize = maxSize;
 	}
 
+	/**
+	 * @param accessOrder true to remove the least recently accessed entry rather than the oldest entry
+	 */
+	public MaxSizeHashMap(int maxSize, boolean accessOrder) {
+		super(16, 0.75f, accessOrder);
+		this.maxSize = maxSize;
+	}
+
 	@Override
 	protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
 		return size() > maxSize;
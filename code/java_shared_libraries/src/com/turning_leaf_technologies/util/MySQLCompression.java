@@ -0,0 +1,65 @@
+package com.turning_leaf_technologies.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses and uncompresses data in the same format as the MySQL COMPRESS() and UNCOMPRESS() functions so data can
+ * be compressed in Java while still being readable with UNCOMPRESS() and UNCOMPRESSED_LENGTH() in the database.
+ *
+ * The format is the length of the uncompressed data as a 4 byte little endian integer followed by a zlib stream.
+ * Empty data is stored as an empty value.
+ */
+public class MySQLCompression {
+	private static final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(Deflater::new);
+	private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+	public static byte[] compress(byte[] data) {
+		if (data.length == 0) {
+			return data;
+		}
+		Deflater deflater = deflaters.get();
+		deflater.reset();
+		deflater.setInput(data);
+		deflater.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+		out.write(data.length & 0xFF);
+		out.write((data.length >> 8) & 0xFF);
+		out.write((data.length >> 16) & 0xFF);
+		out.write((data.length >> 24) & 0xFF);
+		byte[] buffer = new byte[8192];
+		while (!deflater.finished()) {
+			int numBytes = deflater.deflate(buffer);
+			out.write(buffer, 0, numBytes);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @throws DataFormatException if the data was not compressed with COMPRESS() or compress().
+	 */
+	public static byte[] uncompress(byte[] compressedData) throws DataFormatException {
+		if (compressedData.length == 0) {
+			return compressedData;
+		}
+		if (compressedData.length < 5) {
+			throw new DataFormatException("Compressed data is too short");
+		}
+		int length = (compressedData[0] & 0xFF) | ((compressedData[1] & 0xFF) << 8) | ((compressedData[2] & 0xFF) << 16) | ((compressedData[3] & 0x3F) << 24);
+		Inflater inflater = inflaters.get();
+		inflater.reset();
+		inflater.setInput(compressedData, 4, compressedData.length - 4);
+		byte[] data = new byte[length];
+		int numBytesRead = 0;
+		while (numBytesRead < length) {
+			int numBytes = inflater.inflate(data, numBytesRead, length - numBytesRead);
+			if (numBytes == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+				throw new DataFormatException("Compressed data is shorter than the expected length");
+			}
+			numBytesRead += numBytes;
+		}
+		return data;
+	}
+}
@@ -0,0 +1,118 @@
+package com.turning_leaf_technologies.util;
+
+/**
+ * A map from String keys to primitive long values using open addressing with linear probing.
+ *
+ * Keys and values are stored in parallel arrays so there is no entry object or boxed Long for each value.  This makes
+ * it practical to hold large lookup tables (hundreds of thousands of values) in memory.  Null keys and removal are not
+ * supported.  The map is not thread safe.
+ */
+public class StringLongHashMap {
+	private static final float MAX_LOAD_FACTOR = 0.6f;
+
+	private String[] keys;
+	private long[] values;
+	private int size = 0;
+	private int resizeThreshold;
+
+	public StringLongHashMap() {
+		this(16);
+	}
+
+	public StringLongHashMap(int expectedSize) {
+		int capacity = 16;
+		while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	/**
+	 * Returns the value for the key or missingValue if the key is not in the map.
+	 */
+	public long get(String key, long missingValue) {
+		int mask = keys.length - 1;
+		int index = hash(key) & mask;
+		String existingKey;
+		while ((existingKey = keys[index]) != null) {
+			if (existingKey.equals(key)) {
+				return values[index];
+			}
+			index = (index + 1) & mask;
+		}
+		return missingValue;
+	}
+
+	public boolean containsKey(String key) {
+		int mask = keys.length - 1;
+		int index = hash(key) & mask;
+		String existingKey;
+		while ((existingKey = keys[index]) != null) {
+			if (existingKey.equals(key)) {
+				return true;
+			}
+			index = (index + 1) & mask;
+		}
+		return false;
+	}
+
+	public void put(String key, long value) {
+		if (key == null) {
+			throw new NullPointerException("Null keys are not supported");
+		}
+		int mask = keys.length - 1;
+		int index = hash(key) & mask;
+		String existingKey;
+		while ((existingKey = keys[index]) != null) {
+			if (existingKey.equals(key)) {
+				values[index] = value;
+				return;
+			}
+			index = (index + 1) & mask;
+		}
+		keys[index] = key;
+		values[index] = value;
+		if (++size > resizeThreshold) {
+			resize();
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		allocate(16);
+		size = 0;
+	}
+
+	private void resize() {
+		String[] oldKeys = keys;
+		long[] oldValues = values;
+		allocate(oldKeys.length << 1);
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			String key = oldKeys[i];
+			if (key != null) {
+				int index = hash(key) & mask;
+				while (keys[index] != null) {
+					index = (index + 1) & mask;
+				}
+				keys[index] = key;
+				values[index] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new String[capacity];
+		values = new long[capacity];
+		resizeThreshold = (int) (capacity * MAX_LOAD_FACTOR);
+	}
+
+	private static int hash(String key) {
+		//Spread the bits of the hash code since linear probing is sensitive to clustering
+		int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -4,7 +4,6 @@ package org.marc4j;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.regex.Pattern;
 
 import org.marc4j.marc.ControlField;
 import org.marc4j.marc.DataField;
@@ -69,6 +68,28 @@ public class MarcJsonReader implements MarcReader {
         factory = MarcFactory.newInstance();
     }
 
+    /**
+     * Creates a MarcJsonReader without any input.  Input is supplied with {@link #setInput(char[], int)} which allows
+     * a single reader to be reused for many records.
+     */
+    public MarcJsonReader() {
+        parser = new JsonParser(JsonParser.OPT_UNQUOTED_KEYWORDS |
+                        JsonParser.OPT_SINGLE_QUOTE_STRINGS);
+        factory = MarcFactory.newInstance();
+    }
+
+    /**
+     * Replaces the input of the reader with the supplied characters.  The characters are parsed in place so they
+     * must not be changed until the records have been read.
+     *
+     * @param chars - the characters to read
+     * @param length - the number of characters in the array to read
+     */
+    public void setInput(final char[] chars, final int length) {
+        parser.setInput("MarcInput", chars, length);
+        parserLevel = 0;
+    }
+
     /**
      * Returns <code>true</code> if there is a next record; else,
      * <code>false</code>.
@@ -92,9 +113,21 @@ public class MarcJsonReader implements MarcReader {
         throw new MarcException("Malformed JSON input");
     }
 
-    static Pattern threeAlphaNumerics = Pattern.compile("[A-Z0-9][A-Z0-9][A-Z0-9]");
-    static Pattern singleAlphaNumeric = Pattern.compile("[a-z0-9]");
-    static Pattern forwardSlash = Pattern.compile("⁄");
+    // Member names are checked for every member so these are checked directly rather than with regular expressions
+    static boolean isThreeAlphaNumerics(final String name) {
+        return name.length() == 3 && isUpperAlphaNumeric(name.charAt(0)) && isUpperAlphaNumeric(name.charAt(1)) &&
+                isUpperAlphaNumeric(name.charAt(2));
+    }
+
+    private static boolean isUpperAlphaNumeric(final char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    static boolean isSingleAlphaNumeric(final String name) {
+        return name.length() == 1 && ((name.charAt(0) >= 'a' && name.charAt(0) <= 'z') ||
+                (name.charAt(0) >= '0' && name.charAt(0) <= '9'));
+    }
+
     /**
      * Returns the next {@link Record}.
      */
@@ -114,7 +147,7 @@ public class MarcJsonReader implements MarcReader {
                 case JsonParser.EVT_OBJECT_BEGIN:
                     if (parserLevel == 0) {
                         record = factory.newRecord();
-                    } else if (inArray == FIELDS_ARRAY && threeAlphaNumerics.matcher(mname).matches()) {
+                    } else if (inArray == FIELDS_ARRAY && isThreeAlphaNumerics(mname)) {
                         df = factory.newDataField();
                         df.setTag(mname);
                     }
@@ -125,7 +158,7 @@ public class MarcJsonReader implements MarcReader {
                     parserLevel--;
                     if (parserLevel == 0) {
                         return record;
-                    } else if (inArray == FIELDS_ARRAY && threeAlphaNumerics.matcher(mname).matches()) {
+                    } else if (inArray == FIELDS_ARRAY && isThreeAlphaNumerics(mname)) {
                         record.addVariableField(df);
                         df = null;
                     } else if (inArray == DATAFIELD_ARRAY && mname.equals("datafield")) {
@@ -168,7 +201,9 @@ public class MarcJsonReader implements MarcReader {
                         value = JsonParser.stripQuotes(value);
                     }
 
-                    value = forwardSlash.matcher(value).replaceAll("/");
+                    if (value.indexOf('\u2044') != -1) {
+                        value = value.replace('\u2044', '/');
+                    }
 
                     if (mname.equals("ind1")) {
                         df.setIndicator1(value.length() >= 1 ? value.charAt(0) : ' ');
@@ -176,10 +211,10 @@ public class MarcJsonReader implements MarcReader {
                         df.setIndicator2(value.length() >= 1 ? value.charAt(0) : ' ');
                     } else if (mname.equals("leader")) {
                         record.setLeader(factory.newLeader(value));
-                    } else if (inArray == FIELDS_ARRAY && threeAlphaNumerics.matcher(mname).matches()) {
+                    } else if (inArray == FIELDS_ARRAY && isThreeAlphaNumerics(mname)) {
                         cf = factory.newControlField(mname, value);
                         record.addVariableField(cf);
-                    } else if (inArray == SUBFIELDS_ARRAY && singleAlphaNumeric.matcher(mname).matches()) {
+                    } else if (inArray == SUBFIELDS_ARRAY && isSingleAlphaNumeric(mname)) {
                         sf = factory.newSubfield(mname.charAt(0), value);
                         df.addSubfield(sf);
                     } else if (inArray == CONTROLFIELD_ARRAY && mname.equals("tag")) {
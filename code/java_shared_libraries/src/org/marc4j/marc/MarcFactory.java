@@ -63,7 +63,9 @@ public abstract class MarcFactory {
      * <li>the class name specified in the
      * <code>META-INF/services/org.marc4j.marc.MarcFactory</code> system
      * resource</li>
-     * <li>the default factory class</li>
+     * <li>the default factory class, {@link org.marc4j.marc.impl.IndexedMarcFactoryImpl} which creates records that
+     * index their fields by tag.  Set the system property to
+     * <code>org.marc4j.marc.impl.MarcFactoryImpl</code> to use records that scan their fields instead.</li>
      * </ol>
      * @return the MarcFactory to use for creating Records and their Fields
      */
@@ -94,7 +96,7 @@ public abstract class MarcFactory {
                 }
             } while (className == null && count < 3);
             if (factoryInstance == null){
-                factoryInstance = new org.marc4j.marc.impl.MarcFactoryImpl();
+                factoryInstance = new org.marc4j.marc.impl.IndexedMarcFactoryImpl();
             }
         }
         return factoryInstance;
@@ -0,0 +1,21 @@
+package org.marc4j.marc.impl;
+
+import org.marc4j.marc.Leader;
+import org.marc4j.marc.Record;
+
+/**
+ * Creates records that index their fields by tag, see {@link IndexedRecordImpl}.
+ */
+public class IndexedMarcFactoryImpl extends MarcFactoryImpl {
+
+    /**
+     * Returns a new {@link Record} from the supplied {@link Leader}.
+     */
+    @Override
+    public Record newRecord(final Leader leader) {
+        final Record record = new IndexedRecordImpl();
+        record.setLeader(leader);
+        return record;
+    }
+
+}
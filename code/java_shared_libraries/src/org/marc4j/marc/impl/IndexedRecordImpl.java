@@ -0,0 +1,323 @@
+package org.marc4j.marc.impl;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.marc4j.marc.ControlField;
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.VariableField;
+
+/**
+ * A record that indexes its fields by tag so looking up fields by tag does not need to scan every field in the
+ * record.
+ *
+ * The index is built the first time fields are looked up by tag and is rebuilt after the record is changed, either
+ * through {@link #addVariableField(VariableField)} and {@link #removeVariableField(VariableField)} or by changing
+ * the lists returned by {@link #getControlFields()} and {@link #getDataFields()}.
+ *
+ * Lookups return read only views of the index rather than copies.  The lists in an index are never changed once the
+ * index is built, so a list returned before the record was changed still holds the fields that matched at the time
+ * and can safely be iterated while removing those fields from the record.
+ *
+ * Lookups for the leader (000) and for linked fields (LNK tags) are handled the same way as {@link RecordImpl}.
+ */
+public class IndexedRecordImpl extends RecordImpl {
+
+    /**
+     * The class' <code>serialVersionUID</code>.
+     */
+    private static final long serialVersionUID = -2318870452211583390L;
+
+    private final TrackedList<ControlField> trackedControlFields;
+
+    private final TrackedList<DataField> trackedDataFields;
+
+    private transient HashMap<String, FieldList<ControlField>> controlFieldIndex;
+
+    private transient HashMap<String, FieldList<DataField>> dataFieldIndex;
+
+    private transient int indexedControlFieldsModCount;
+
+    private transient int indexedDataFieldsModCount;
+
+    public IndexedRecordImpl() {
+        super();
+        trackedControlFields = new TrackedList<>();
+        trackedDataFields = new TrackedList<>();
+        controlFields = trackedControlFields;
+        dataFields = trackedDataFields;
+    }
+
+    @Override
+    public VariableField getVariableField(final String tag) {
+        if (requiresScan(tag)) {
+            return super.getVariableField(tag);
+        }
+        buildIndexIfNeeded();
+        final FieldList<ControlField> matchingControlFields = controlFieldIndex.get(tag);
+        if (matchingControlFields != null) {
+            return matchingControlFields.get(0);
+        }
+        final FieldList<DataField> matchingDataFields = dataFieldIndex.get(tag);
+        if (matchingDataFields != null) {
+            return matchingDataFields.get(0);
+        }
+        return null;
+    }
+
+    @Override
+    public List<VariableField> getVariableFields(final String tag) {
+        if (requiresScan(tag)) {
+            return super.getVariableFields(tag);
+        }
+        buildIndexIfNeeded();
+        final FieldList<ControlField> matchingControlFields = controlFieldIndex.get(tag);
+        final FieldList<DataField> matchingDataFields = dataFieldIndex.get(tag);
+        if (matchingControlFields == null && matchingDataFields == null) {
+            return Collections.emptyList();
+        } else if (matchingDataFields == null) {
+            return asVariableFields(matchingControlFields);
+        } else if (matchingControlFields == null) {
+            return asVariableFields(matchingDataFields);
+        } else {
+            // Only happens for malformed records, control fields come before data fields
+            final List<VariableField> result = new ArrayList<>(matchingControlFields.size() + matchingDataFields.size());
+            result.addAll(matchingControlFields);
+            result.addAll(matchingDataFields);
+            return result;
+        }
+    }
+
+    @Override
+    public List<VariableField> getVariableFields(final String[] tags) {
+        for (final String tag : tags) {
+            if (requiresScan(tag)) {
+                return super.getVariableFields(tags);
+            }
+        }
+        buildIndexIfNeeded();
+        final List<FieldList<ControlField>> matchingControlFields = getMatches(controlFieldIndex, tags);
+        final List<FieldList<DataField>> matchingDataFields = getMatches(dataFieldIndex, tags);
+        if (matchingControlFields.isEmpty() && matchingDataFields.isEmpty()) {
+            return Collections.emptyList();
+        } else if (matchingControlFields.size() == 1 && matchingDataFields.isEmpty()) {
+            return asVariableFields(matchingControlFields.get(0));
+        } else if (matchingControlFields.isEmpty() && matchingDataFields.size() == 1) {
+            return asVariableFields(matchingDataFields.get(0));
+        } else {
+            final List<VariableField> result = new ArrayList<>();
+            mergeInRecordOrder(matchingControlFields, result);
+            mergeInRecordOrder(matchingDataFields, result);
+            return result;
+        }
+    }
+
+    @Override
+    public DataField getDataField(final String tag) {
+        if (requiresScan(tag)) {
+            return super.getDataField(tag);
+        }
+        buildIndexIfNeeded();
+        final FieldList<DataField> matchingDataFields = dataFieldIndex.get(tag);
+        return matchingDataFields == null ? null : matchingDataFields.get(0);
+    }
+
+    @Override
+    public List<DataField> getDataFields(final String tag) {
+        if (requiresScan(tag)) {
+            return super.getDataFields(tag);
+        }
+        buildIndexIfNeeded();
+        final FieldList<DataField> matchingDataFields = dataFieldIndex.get(tag);
+        if (matchingDataFields == null) {
+            return Collections.emptyList();
+        }
+        return matchingDataFields;
+    }
+
+    @Override
+    public List<DataField> getDataFields(final String[] tags) {
+        for (final String tag : tags) {
+            if (requiresScan(tag)) {
+                return super.getDataFields(tags);
+            }
+        }
+        buildIndexIfNeeded();
+        final List<FieldList<DataField>> matchingDataFields = getMatches(dataFieldIndex, tags);
+        if (matchingDataFields.isEmpty()) {
+            return Collections.emptyList();
+        } else if (matchingDataFields.size() == 1) {
+            return matchingDataFields.get(0);
+        } else {
+            final List<DataField> result = new ArrayList<>();
+            mergeInRecordOrder(matchingDataFields, result);
+            return result;
+        }
+    }
+
+    @Override
+    public List<ControlField> getControlFields(final String tag) {
+        if (requiresScan(tag)) {
+            return super.getControlFields(tag);
+        }
+        buildIndexIfNeeded();
+        final FieldList<ControlField> matchingControlFields = controlFieldIndex.get(tag);
+        if (matchingControlFields == null) {
+            return Collections.emptyList();
+        }
+        return matchingControlFields;
+    }
+
+    /**
+     * The leader and linked fields are not in the index, look those up by scanning the record.
+     */
+    private static boolean requiresScan(final String tag) {
+        return tag.equals("000") || tag.startsWith("LNK");
+    }
+
+    private void buildIndexIfNeeded() {
+        if (controlFieldIndex != null && indexedControlFieldsModCount == trackedControlFields.getModCount()
+                && indexedDataFieldsModCount == trackedDataFields.getModCount()) {
+            return;
+        }
+        // Build new maps and lists rather than updating the existing ones so lists that were already returned
+        // do not change.
+        controlFieldIndex = buildIndex(trackedControlFields);
+        dataFieldIndex = buildIndex(trackedDataFields);
+        indexedControlFieldsModCount = trackedControlFields.getModCount();
+        indexedDataFieldsModCount = trackedDataFields.getModCount();
+    }
+
+    private static <T extends VariableField> HashMap<String, FieldList<T>> buildIndex(final List<T> fields) {
+        final HashMap<String, FieldList<T>> index = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            final T field = fields.get(i);
+            FieldList<T> fieldsForTag = index.get(field.getTag());
+            if (fieldsForTag == null) {
+                fieldsForTag = new FieldList<>();
+                index.put(field.getTag(), fieldsForTag);
+            }
+            fieldsForTag.append(field, i);
+        }
+        return index;
+    }
+
+    /**
+     * Gets the lists for each distinct tag that has fields in the record.
+     */
+    private static <T extends VariableField> List<FieldList<T>> getMatches(final HashMap<String, FieldList<T>> index,
+            final String[] tags) {
+        final List<FieldList<T>> matches = new ArrayList<>(tags.length);
+        for (final String tag : tags) {
+            final FieldList<T> fieldsForTag = index.get(tag);
+            // The same tag can be requested more than once, but each field should only be returned once
+            if (fieldsForTag != null && !containsList(matches, fieldsForTag)) {
+                matches.add(fieldsForTag);
+            }
+        }
+        return matches;
+    }
+
+    private static boolean containsList(final List<?> lists, final Object list) {
+        for (final Object existingList : lists) {
+            if (existingList == list) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merges the fields for several tags so they are returned in the order they appear in the record.
+     */
+    private static <T extends VariableField> void mergeInRecordOrder(final List<FieldList<T>> lists,
+            final List<? super T> result) {
+        final int[] nextIndex = new int[lists.size()];
+        while (true) {
+            int nextList = -1;
+            int nextPosition = Integer.MAX_VALUE;
+            for (int i = 0; i < lists.size(); i++) {
+                final FieldList<T> list = lists.get(i);
+                if (nextIndex[i] < list.size() && list.getPosition(nextIndex[i]) < nextPosition) {
+                    nextList = i;
+                    nextPosition = list.getPosition(nextIndex[i]);
+                }
+            }
+            if (nextList == -1) {
+                return;
+            }
+            result.add(lists.get(nextList).get(nextIndex[nextList]++));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<VariableField> asVariableFields(final List<? extends VariableField> fields) {
+        // Safe since field lists cannot be changed by callers
+        return (List<VariableField>) fields;
+    }
+
+    /**
+     * The fields in a record with a single tag along with their position within the record.  The list cannot be
+     * changed by callers.
+     */
+    private static class FieldList<T extends VariableField> extends AbstractList<T> implements RandomAccess {
+
+        private Object[] fields = new Object[1];
+
+        private int[] positions = new int[1];
+
+        private int size = 0;
+
+        private void append(final T field, final int position) {
+            if (size == fields.length) {
+                fields = Arrays.copyOf(fields, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            fields[size] = field;
+            positions[size] = position;
+            size++;
+        }
+
+        private int getPosition(final int index) {
+            return positions[index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(final int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return (T) fields[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * An {@link ArrayList} that exposes its modification count so the index can tell when the fields in the record
+     * have been changed.  Replacing a field also counts as a modification since the tag may have changed.
+     */
+    private static class TrackedList<T> extends ArrayList<T> {
+
+        private static final long serialVersionUID = 4127760322118964052L;
+
+        private int getModCount() {
+            return modCount;
+        }
+
+        @Override
+        public T set(final int index, final T element) {
+            modCount++;
+            return super.set(index, element);
+        }
+    }
+}
@@ -68,6 +68,12 @@ public class JsonParser extends Object {
 
     private Reader inpReader;                                     // input inpReader
 
+    private char[] inpChars;                                      // input characters when parsing from an array
+
+    private int inpCharsPosition;                                 // position of the next character in inpChars
+
+    private int inpCharsLength;                                   // number of characters in inpChars
+
     private boolean inpClose;                                     // close input inpReader when it reaches end of
 
     // stream
@@ -151,6 +157,9 @@ public class JsonParser extends Object {
 
         inpName = null;
         inpReader = null;
+        inpChars = null;
+        inpCharsPosition = 0;
+        inpCharsLength = 0;
         inpLine = 1;
         inpColumn = 0;
         objectData = new ObjectData("");
@@ -314,6 +323,27 @@ public class JsonParser extends Object {
         return this;
     }
 
+    /**
+     * Parse the characters in an array.  The array is read directly rather than through a {@link Reader} and is not
+     * copied so it must not be changed until parsing is complete.  This allows the parser and the array to be reused
+     * for many small inputs.
+     *
+     * @param inpnam A text description of the source, used only for location text.
+     * @param chars The characters to parse.
+     * @param length The number of characters in the array to parse.
+     * @return the current JSONParser object for chaining purposes
+     */
+    public JsonParser setInput(final String inpnam, final char[] chars, final int length) {
+        reset(false);
+
+        inpName = inpnam;
+        inpChars = chars;
+        inpCharsLength = length;
+        inpClose = false;
+
+        return this;
+    }
+
     /**
      * Construct a JSON parser from a byte input source.
      *
@@ -889,7 +919,12 @@ public class JsonParser extends Object {
             pushBack = -1;
             inpColumn++;
         } else {
-            if ((ich = inpReader.read()) != -1) {
+            if (inpChars != null) {
+                ich = inpCharsPosition < inpCharsLength ? inpChars[inpCharsPosition++] : -1;
+            } else {
+                ich = inpReader.read();
+            }
+            if (ich != -1) {
                 if (ich == '\n') {
                     inpColumn = 0;
                     inpLine++;
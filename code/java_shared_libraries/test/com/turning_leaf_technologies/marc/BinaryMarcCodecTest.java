@@ -0,0 +1,180 @@
+package com.turning_leaf_technologies.marc;
+
+import com.turning_leaf_technologies.logging.BaseLogEntry;
+import org.junit.Test;
+import org.marc4j.MarcJsonWriter;
+import org.marc4j.marc.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Records must read back exactly as they were written since the binary format replaces JSON in ils_records.
+ */
+public class BinaryMarcCodecTest {
+	private final MarcFactory factory = MarcFactory.newInstance();
+
+	private Record createRecord() {
+		Record record = factory.newRecord(factory.newLeader("00000nam a2200000 a 4500"));
+		record.addVariableField(factory.newControlField("001", "a123456"));
+		record.addVariableField(factory.newControlField("008", "220301s2021    nyu           000 1 eng d"));
+		DataField title = factory.newDataField("245", '1', '0');
+		title.addSubfield(factory.newSubfield('a', "Cien años de soledad /"));
+		title.addSubfield(factory.newSubfield('c', "Gabriel García Márquez."));
+		record.addVariableField(title);
+		DataField subject = factory.newDataField("650", ' ', '0');
+		subject.addSubfield(factory.newSubfield('a', "Fiction."));
+		record.addVariableField(subject);
+		return record;
+	}
+
+	@Test
+	public void decodedRecordMatchesEncodedRecord() {
+		Record record = createRecord();
+		byte[] encoded = BinaryMarcCodec.encode(record);
+		assertTrue(BinaryMarcCodec.isBinaryFormat(encoded));
+
+		Record decoded = BinaryMarcCodec.decode(encoded);
+		assertEquals(record.toString(), decoded.toString());
+		assertEquals(2, decoded.getControlFields().size());
+		assertEquals(2, decoded.getDataFields().size());
+		DataField title = (DataField) decoded.getVariableField("245");
+		assertEquals('1', title.getIndicator1());
+		assertEquals('0', title.getIndicator2());
+		assertEquals("Gabriel García Márquez.", title.getSubfield('c').getData());
+		assertArrayEquals(encoded, BinaryMarcCodec.encode(decoded));
+	}
+
+	@Test
+	public void nonAsciiIndicatorsAndSubfieldCodesAreKept() {
+		Record record = createRecord();
+		DataField field = factory.newDataField("880", 'é', '中');
+		field.addSubfield(factory.newSubfield('ß', "value"));
+		field.addSubfield(factory.newSubfield('ÿ', "中文"));
+		record.addVariableField(field);
+
+		Record decoded = BinaryMarcCodec.decode(BinaryMarcCodec.encode(record));
+		DataField decodedField = (DataField) decoded.getVariableField("880");
+		assertEquals('é', decodedField.getIndicator1());
+		assertEquals('中', decodedField.getIndicator2());
+		assertEquals(2, decodedField.getSubfields().size());
+		assertEquals('ß', decodedField.getSubfields().get(0).getCode());
+		assertEquals("value", decodedField.getSubfields().get(0).getData());
+		assertEquals('ÿ', decodedField.getSubfields().get(1).getCode());
+		assertEquals("中文", decodedField.getSubfields().get(1).getData());
+	}
+
+	@Test
+	public void longValuesUseMultiByteLengths() {
+		Record record = createRecord();
+		//Lengths above 127 need two varint bytes and lengths above 16383 need three
+		char[] twoByteLength = new char[300];
+		Arrays.fill(twoByteLength, 'x');
+		char[] threeByteLength = new char[20000];
+		Arrays.fill(threeByteLength, 'ü');
+		DataField note = factory.newDataField("520", ' ', ' ');
+		note.addSubfield(factory.newSubfield('a', new String(twoByteLength)));
+		note.addSubfield(factory.newSubfield('b', new String(threeByteLength)));
+		record.addVariableField(note);
+		//Enough subfields that the count also needs two bytes
+		DataField contents = factory.newDataField("505", '0', '0');
+		for (int i = 0; i < 200; i++) {
+			contents.addSubfield(factory.newSubfield('t', "Chapter " + i));
+		}
+		record.addVariableField(contents);
+
+		Record decoded = BinaryMarcCodec.decode(BinaryMarcCodec.encode(record));
+		DataField decodedNote = (DataField) decoded.getVariableField("520");
+		assertEquals(new String(twoByteLength), decodedNote.getSubfield('a').getData());
+		assertEquals(new String(threeByteLength), decodedNote.getSubfield('b').getData());
+		DataField decodedContents = (DataField) decoded.getVariableField("505");
+		assertEquals(200, decodedContents.getSubfields().size());
+		assertEquals("Chapter 199", decodedContents.getSubfields().get(199).getData());
+		assertEquals(record.toString(), decoded.toString());
+	}
+
+	@Test
+	public void truncatedDataIsRejected() {
+		byte[] encoded = BinaryMarcCodec.encode(createRecord());
+		for (int length = 0; length < encoded.length; length++) {
+			try {
+				BinaryMarcCodec.decode(Arrays.copyOf(encoded, length));
+				fail("Decoded a record truncated to " + length + " of " + encoded.length + " bytes");
+			} catch (IllegalArgumentException e) {
+				//Expected
+			}
+		}
+	}
+
+	@Test
+	public void nullValuesAreReadAsEmptyStrings() {
+		Record record = createRecord();
+		record.addVariableField(factory.newControlField("005", null));
+		Record decoded = BinaryMarcCodec.decode(BinaryMarcCodec.encode(record));
+		assertEquals("", ((ControlField) decoded.getVariableField("005")).getData());
+	}
+
+	@Test
+	public void jsonRecordsAreReadWithTheJsonReader() {
+		Record record = factory.newRecord(factory.newLeader("00000nam a2200000 a 4500"));
+		record.addVariableField(factory.newControlField("001", "a123456"));
+		DataField title = factory.newDataField("245", '1', '4');
+		title.addSubfield(factory.newSubfield('a', "The hobbit /"));
+		title.addSubfield(factory.newSubfield('c', "J.R.R. Tolkien."));
+		record.addVariableField(title);
+		ByteArrayOutputStream jsonStream = new ByteArrayOutputStream();
+		MarcJsonWriter writer = new MarcJsonWriter(jsonStream);
+		writer.write(record);
+		writer.close();
+		byte[] json = jsonStream.toByteArray();
+		assertEquals('{', json[0]);
+		assertFalse(BinaryMarcCodec.isBinaryFormat(json));
+		try {
+			BinaryMarcCodec.decode(json);
+			fail("Decoded a JSON record as binary");
+		} catch (IllegalArgumentException e) {
+			//Expected
+		}
+
+		TestLogEntry logEntry = new TestLogEntry();
+		Record fromJson = MarcUtil.readStoredRecord("a123456", json, logEntry);
+		assertNotNull(fromJson);
+		assertEquals(record.toString(), fromJson.toString());
+		assertTrue(logEntry.errors.isEmpty());
+
+		Record fromBinary = MarcUtil.readStoredRecord("a123456", BinaryMarcCodec.encode(record), logEntry);
+		assertEquals(record.toString(), fromBinary.toString());
+		assertTrue(logEntry.errors.isEmpty());
+		assertEquals('4', ((DataField) fromJson.getVariableField("245")).getIndicator2());
+	}
+
+	private static class TestLogEntry implements BaseLogEntry {
+		final ArrayList<String> errors = new ArrayList<>();
+
+		@Override
+		public void addNote(String note) {
+		}
+
+		@Override
+		public boolean saveResults() {
+			return true;
+		}
+
+		@Override
+		public void setFinished() {
+		}
+
+		@Override
+		public void incErrors(String note) {
+			errors.add(note);
+		}
+
+		@Override
+		public void incErrors(String note, Exception e) {
+			errors.add(note + " " + e);
+		}
+	}
+}
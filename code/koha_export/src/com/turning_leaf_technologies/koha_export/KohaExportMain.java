@@ -7,6 +7,7 @@ import com.turning_leaf_technologies.grouping.RemoveRecordFromWorkResult;
 import com.turning_leaf_technologies.indexing.IlsExtractLogEntry;
 import com.turning_leaf_technologies.indexing.IndexingProfile;
 import com.turning_leaf_technologies.indexing.IndexingUtils;
+import com.turning_leaf_technologies.indexing.RecordIdentifier;
 import com.turning_leaf_technologies.logging.LoggingUtil;
 import com.turning_leaf_technologies.marc.MarcUtil;
 import com.turning_leaf_technologies.reindexer.GroupedWorkIndexer;
@@ -1292,6 +1293,8 @@ public class KohaExportMain {
 						marcRecord.addVariableField(itemField);
 					}
 
+					//Load the last version of the record before it is replaced so we can tell what changed
+					Record existingRecord = getGroupedWorkIndexer().loadMarcRecordFromDatabase(indexingProfile.getName(), curBibId, logEntry);
 					GroupedWorkIndexer.MarcStatus saveMarcResult = getGroupedWorkIndexer().saveMarcRecordToDatabase(indexingProfile, curBibId, marcRecord);
 					if (saveMarcResult == GroupedWorkIndexer.MarcStatus.CHANGED){
 						logEntry.incUpdated();
@@ -1305,8 +1308,15 @@ public class KohaExportMain {
 						}
 					}
 
-					//Regroup the record
-					String groupedWorkId = groupKohaRecord(marcRecord);
+					String groupedWorkId = null;
+					if (saveMarcResult == GroupedWorkIndexer.MarcStatus.CHANGED && existingRecord != null && getRecordGroupingProcessor().hasOnlyCirculationChanged(existingRecord, marcRecord)) {
+						//Only the status or due dates of items changed so the record does not need to be regrouped
+						groupedWorkId = getRecordGroupingProcessor().getPermanentIdForRecord(new RecordIdentifier(indexingProfile.getName(), curBibId));
+					}
+					if (groupedWorkId == null) {
+						//Regroup the record
+						groupedWorkId = groupKohaRecord(marcRecord);
+					}
 					if (groupedWorkId != null) {
 						//Reindex the record
 						getGroupedWorkIndexer().processGroupedWork(groupedWorkId);
@@ -0,0 +1,9 @@
+package com.turning_leaf_technologies.oai;
+
+import java.util.ArrayList;
+
+class HarvestedOAIRecord {
+	boolean deleted = false;
+	//The tag name and text of each field within the oai_dc:dc metadata in the order they appear
+	final ArrayList<String[]> metadataFields = new ArrayList<>();
+}
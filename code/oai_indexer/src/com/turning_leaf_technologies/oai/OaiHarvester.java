@@ -0,0 +1,216 @@
+package com.turning_leaf_technologies.oai;
+
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Harvests the records from a ListRecords request and all of the requests for its resumption tokens on a separate
+ * thread.  Responses are parsed as they are read and each record is handed to the indexer as soon as it has been
+ * parsed.  The next page is requested as soon as the resumption token is read so it loads while the indexer is still
+ * working on the records from the current page.
+ *
+ * Only a limited number of records are held waiting for the indexer so memory use does not depend on the size of the
+ * repository or the size of each page.
+ */
+class OaiHarvester implements Runnable {
+	private static final int MAX_RECORDS_WAITING = 1000;
+	private static final HarvestedOAIRecord END_OF_RECORDS = new HarvestedOAIRecord();
+
+	private final String baseUrl;
+	private final String initialUrl;
+	private final Logger logger;
+	private final BlockingQueue<HarvestedOAIRecord> harvestedRecords = new ArrayBlockingQueue<>(MAX_RECORDS_WAITING);
+	private final XMLInputFactory xmlInputFactory;
+	private volatile boolean stopped = false;
+	private int numPagesLoaded = 0;
+
+	OaiHarvester(String baseUrl, String initialUrl, Logger logger) {
+		this.baseUrl = baseUrl;
+		this.initialUrl = initialUrl;
+		this.logger = logger;
+		xmlInputFactory = XMLInputFactory.newInstance();
+		xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	void start() {
+		Thread harvesterThread = new Thread(this, "OAI Harvester");
+		harvesterThread.setDaemon(true);
+		harvesterThread.start();
+	}
+
+	/**
+	 * Waits for the next record to be harvested.
+	 *
+	 * @return the next record or null once all records have been harvested
+	 */
+	HarvestedOAIRecord takeRecord() throws InterruptedException {
+		HarvestedOAIRecord record = harvestedRecords.take();
+		return record == END_OF_RECORDS ? null : record;
+	}
+
+	/**
+	 * Stops harvesting if the indexer will not take any more records.
+	 */
+	void stop() {
+		stopped = true;
+		harvestedRecords.clear();
+	}
+
+	@Override
+	public void run() {
+		String oaiUrl = initialUrl;
+		try {
+			while (oaiUrl != null && !stopped) {
+				logger.info("Loading from " + oaiUrl);
+				String resumptionToken = harvestPage(oaiUrl);
+				numPagesLoaded++;
+				oaiUrl = null;
+				//Check to see if there are more records to load and if so continue
+				if (resumptionToken != null && resumptionToken.length() > 0) {
+					try {
+						oaiUrl = baseUrl + "?verb=ListRecords&resumptionToken=" + URLEncoder.encode(resumptionToken, "UTF-8");
+					} catch (UnsupportedEncodingException e) {
+						logger.error("Error encoding resumption token", e);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while harvesting OAI data", e);
+		} catch (Exception e) {
+			logger.error("Error parsing OAI data ", e);
+		} finally {
+			logger.info("Loaded " + numPagesLoaded + " pages from " + baseUrl);
+			try {
+				while (!stopped && !harvestedRecords.offer(END_OF_RECORDS, 1, TimeUnit.SECONDS)) {
+					//Wait for the indexer to make room
+				}
+			} catch (InterruptedException e) {
+				logger.error("Interrupted while finishing OAI harvest", e);
+			}
+		}
+	}
+
+	/**
+	 * Reads the records from a page and returns the resumption token for the next page, if any.  Normally we get list
+	 * records, but if we are at the end of the list OAI may return an error rather than ListRecords (even though it
+	 * gave us a resumption token)
+	 */
+	private String harvestPage(String oaiUrl) throws IOException, XMLStreamException, InterruptedException {
+		HttpURLConnection conn = (HttpURLConnection) new URL(oaiUrl).openConnection();
+		conn.setConnectTimeout(30000);
+		conn.setReadTimeout(300000);
+		String resumptionToken = null;
+		try (InputStream responseStream = conn.getInputStream()) {
+			XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(responseStream);
+			try {
+				boolean inListRecords = false;
+				while (reader.hasNext() && !stopped) {
+					int event = reader.next();
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						String tagName = getTagName(reader);
+						if (!inListRecords) {
+							inListRecords = tagName.equals("ListRecords");
+						} else if (tagName.equals("record")) {
+							HarvestedOAIRecord record = readRecord(reader);
+							while (!stopped && !harvestedRecords.offer(record, 1, TimeUnit.SECONDS)) {
+								//Wait for the indexer to catch up
+							}
+						} else if (tagName.equals("resumptionToken")) {
+							resumptionToken = readText(reader);
+						}
+					} else if (event == XMLStreamConstants.END_ELEMENT && inListRecords && getTagName(reader).equals("ListRecords")) {
+						//Only the first ListRecords element is used
+						break;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return resumptionToken;
+	}
+
+	/**
+	 * Reads a record element, the reader is positioned at the start of the record and is left at the end of it.
+	 */
+	private HarvestedOAIRecord readRecord(XMLStreamReader reader) throws XMLStreamException {
+		HarvestedOAIRecord record = new HarvestedOAIRecord();
+		int depth = 1;
+		boolean inMetadata = false;
+		boolean inDublinCore = false;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				String tagName = getTagName(reader);
+				if (depth == 2 && tagName.equals("header")) {
+					String status = reader.getAttributeValue(null, "status");
+					if (status != null && status.equalsIgnoreCase("deleted")) {
+						record.deleted = true;
+					}
+				} else if (depth == 2 && tagName.equals("metadata")) {
+					inMetadata = true;
+				} else if (depth == 3 && inMetadata && tagName.equals("oai_dc:dc")) {
+					inDublinCore = true;
+				} else if (depth == 4 && inDublinCore) {
+					record.metadataFields.add(new String[]{tagName, readText(reader)});
+					//readText leaves the reader at the end of the field
+					depth--;
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+				if (depth == 1) {
+					inMetadata = false;
+				} else if (depth == 2) {
+					inDublinCore = false;
+				}
+			}
+		}
+		return record;
+	}
+
+	/**
+	 * Reads all the text within an element including the text of any child elements.  The reader is left at the end of
+	 * the element.
+	 */
+	private String readText(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder text = new StringBuilder();
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+				text.append(reader.getText());
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * @return the tag name including the prefix (i.e. dc:title)
+	 */
+	private static String getTagName(XMLStreamReader reader) {
+		String prefix = reader.getPrefix();
+		if (prefix == null || prefix.length() == 0) {
+			return reader.getLocalName();
+		}
+		return prefix + ":" + reader.getLocalName();
+	}
+}
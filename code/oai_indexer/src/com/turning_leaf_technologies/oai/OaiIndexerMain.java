@@ -8,14 +8,9 @@ import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.BinaryRequestWriter;
 import org.apache.solr.client.solrj.impl.ConcurrentUpdateSolrClient;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
+import org.apache.solr.common.SolrInputDocument;
 import org.ini4j.Ini;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
@@ -40,6 +35,11 @@ public class OaiIndexerMain {
 	private static PreparedStatement updateCollectionAfterIndexing;
 	private static PreparedStatement deleteOpenArchivesRecord;
 
+	//New records are inserted into the database and documents are sent to solr in batches
+	private static final int BATCH_SIZE = 100;
+	private static final ArrayList<OAISolrRecord> recordsToInsert = new ArrayList<>();
+	private static final ArrayList<SolrInputDocument> documentsToAdd = new ArrayList<>();
+
 	public static void main(String[] args) {
 		String serverName;
 		if (args.length == 0) {
@@ -231,85 +231,45 @@ public class OaiIndexerMain {
 			//Protocol was invented in 2002 so we are safe starting in 2000 to cover anything from OA version 1
 			for (int year = 2000; year <= now.get(GregorianCalendar.YEAR); year++) {
 				for (int month = 1; month <= 12; month++) {
-					boolean continueLoading = true;
-					String resumptionToken = null;
-					while (continueLoading) {
-						continueLoading = false;
-
-						String oaiUrl;
-						if (resumptionToken != null) {
-							try {
-								oaiUrl = baseUrl + "?verb=ListRecords&resumptionToken=" + URLEncoder.encode(resumptionToken, "UTF-8");
-							} catch (UnsupportedEncodingException e) {
-								logger.error("Error encoding resumption token", e);
-								return;
-							}
-						} else {
-							oaiUrl = baseUrl + "?verb=ListRecords&metadataPrefix=oai_dc";
-							if (loadOneMonthAtATime) {
-								String startDate = year + "-" + String.format("%02d", month) + "-01";
-								String endDate = year + "-" + String.format("%02d", month + 1) + "-01";
-								if (month == 12) {
-									endDate = (year + 1) + "-01-01";
-								}
-								oaiUrl += "&from=" + startDate + "&until=" + endDate;
-							}
-							if (oaiSet.length() > 0) {
-								try {
-									oaiUrl += "&set=" + URLEncoder.encode(oaiSet, "UTF8");
-								} catch (UnsupportedEncodingException e) {
-									logger.error("Error encoding resumption token", e);
-									return;
-								}
-							}
-
+					String oaiUrl = baseUrl + "?verb=ListRecords&metadataPrefix=oai_dc";
+					if (loadOneMonthAtATime) {
+						String startDate = year + "-" + String.format("%02d", month) + "-01";
+						String endDate = year + "-" + String.format("%02d", month + 1) + "-01";
+						if (month == 12) {
+							endDate = (year + 1) + "-01-01";
 						}
+						oaiUrl += "&from=" + startDate + "&until=" + endDate;
+					}
+					if (oaiSet.length() > 0) {
 						try {
-							logger.info("Loading from " + oaiUrl);
-							DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-							factory.setValidating(false);
-							factory.setIgnoringElementContentWhitespace(true);
-							DocumentBuilder builder = factory.newDocumentBuilder();
-
-							Document doc = builder.parse(oaiUrl);
-							Element docElement = doc.getDocumentElement();
-							//Normally we get list records, but if we are at the end of the list OAI may return an
-							//error rather than ListRecords (even though it gave us a resumption token)
-							NodeList listRecords = docElement.getElementsByTagName("ListRecords");
-							if (listRecords.getLength() > 0) {
-								Element listRecordsElement = (Element) docElement.getElementsByTagName("ListRecords").item(0);
-								NodeList allRecords = listRecordsElement.getElementsByTagName("record");
-								for (int i = 0; i < allRecords.getLength(); i++) {
-									Node curRecordNode = allRecords.item(i);
-									if (curRecordNode instanceof Element) {
-										logEntry.incNumRecords();
-										Element curRecordElement = (Element) curRecordNode;
-										if (indexElement(curRecordElement, existingRecords, collectionId, collectionName, subjectFilters, allExistingCollectionSubjects, logEntry, scopesToInclude)) {
-											numRecordsLoaded++;
-										} else {
-											numRecordsSkipped++;
-										}
-									}
-								}
-
-								//Check to see if there are more records to load and if so continue
-								NodeList resumptionTokens = listRecordsElement.getElementsByTagName("resumptionToken");
-								if (resumptionTokens.getLength() > 0) {
-									Node resumptionTokenNode = resumptionTokens.item(0);
-									if (resumptionTokenNode instanceof Element) {
-										Element resumptionTokenElement = (Element) resumptionTokenNode;
-										resumptionToken = resumptionTokenElement.getTextContent();
-										if (resumptionToken.length() > 0) {
-											continueLoading = true;
-										}
-									}
-								}
+							oaiUrl += "&set=" + URLEncoder.encode(oaiSet, "UTF8");
+						} catch (UnsupportedEncodingException e) {
+							logger.error("Error encoding resumption token", e);
+							return;
+						}
+					}
+
+					//Records are indexed while the harvester loads them and any remaining pages
+					OaiHarvester harvester = new OaiHarvester(baseUrl, oaiUrl, logger);
+					harvester.start();
+					try {
+						HarvestedOAIRecord curRecord;
+						while ((curRecord = harvester.takeRecord()) != null) {
+							logEntry.incNumRecords();
+							if (indexRecord(curRecord, existingRecords, collectionId, collectionName, subjectFilters, allExistingCollectionSubjects, logEntry, scopesToInclude)) {
+								numRecordsLoaded++;
+							} else {
+								numRecordsSkipped++;
+							}
+							if ((numRecordsLoaded + numRecordsSkipped) % 1000 == 0) {
+								logEntry.saveResults();
 							}
-						} catch (Exception e) {
-							logger.error("Error parsing OAI data ", e);
 						}
-						logEntry.saveResults();
+					} catch (InterruptedException e) {
+						harvester.stop();
+						logger.error("Interrupted while indexing OAI data", e);
 					}
+					logEntry.saveResults();
 					if (!loadOneMonthAtATime) {
 						break;
 					}
@@ -320,6 +280,9 @@ public class OaiIndexerMain {
 			}
 		}
 
+		insertNewRecords(existingRecords, collectionId, logEntry);
+		addDocumentsToSolr(true, logEntry);
+
 		logger.info("Loaded " + numRecordsLoaded + " records from " + collectionName + ".");
 		if (numRecordsSkipped > 0) {
 			logger.info("Skipped " + numRecordsSkipped + " records from " + collectionName + ".");
@@ -391,203 +354,216 @@ public class OaiIndexerMain {
 		updateServer.setRequestWriter(new BinaryRequestWriter());
 	}
 
-	private static boolean indexElement(Element curRecordElement, HashMap<String, ExistingOAIRecord> existingRecords, Long collectionId, String collectionName, ArrayList<Pattern> subjectFilters, Set<String> collectionSubjects, OpenArchivesExtractLogEntry logEntry, HashSet<String> scopesToInclude) {
+	private static boolean indexRecord(HarvestedOAIRecord curRecord, HashMap<String, ExistingOAIRecord> existingRecords, Long collectionId, String collectionName, ArrayList<Pattern> subjectFilters, Set<String> collectionSubjects, OpenArchivesExtractLogEntry logEntry, HashSet<String> scopesToInclude) {
 		OAISolrRecord solrRecord = new OAISolrRecord();
 		solrRecord.setCollectionId(collectionId);
 		solrRecord.setCollectionName(collectionName);
 		solrRecord.setScopesToInclude(scopesToInclude);
 		logger.debug("Indexing element");
-		NodeList children = curRecordElement.getChildNodes();
-		for (int i = 0; i < children.getLength(); i++) {
-			Node curChild = children.item(i);
-			if (curChild instanceof Element && ((Element) curChild).getTagName().equals("header")) {
-				Element headerElement = (Element) curChild;
-				if (headerElement.hasAttribute("status")) {
-					if (headerElement.getAttribute("status").equalsIgnoreCase("deleted")) {
-						//This record is deleted, no sense evaluating further. Don't mark it as skipped
-						//If it is newly deleted, that will show in the stats if it was previously indexed.
-						return false;
-					}
-				}
-			} else if (curChild instanceof Element && ((Element) curChild).getTagName().equals("metadata")) {
-				Element metadataElement = (Element) curChild;
-				NodeList metadataChildren = metadataElement.getChildNodes();
-				for (int metaDataChildCtr = 0; metaDataChildCtr < metadataChildren.getLength(); metaDataChildCtr++) {
-					Node curMetadataChild = metadataChildren.item(metaDataChildCtr);
-					if (curMetadataChild instanceof Element && ((Element) curMetadataChild).getTagName().equals("oai_dc:dc")) {
-						Element curMetadataChildElement = (Element) curMetadataChild;
-
-						NodeList metadataFields = curMetadataChildElement.getChildNodes();
-						for (int j = 0; j < metadataFields.getLength(); j++) {
-							Node curNode = metadataFields.item(j);
-							if (curNode instanceof Element) {
-								Element metadataFieldElement = (Element) curNode;
-								String metadataTag = metadataFieldElement.getTagName();
-								String textContent = metadataFieldElement.getTextContent();
-								switch (metadataTag) {
-									case "dc:title":
-										solrRecord.setTitle(textContent);
-										break;
-									case "dc:identifier":
-										String textContentLower = textContent.toLowerCase();
-										if (textContentLower.startsWith("http") && !textContentLower.endsWith(".jpg") && !textContentLower.endsWith(".mp3") && !textContentLower.endsWith(".pdf")) {
-											if (solrRecord.getIdentifier() == null || !solrRecord.getIdentifier().startsWith("http")) {
-												solrRecord.setIdentifier(textContent);
-											} else {
-												//Keep the longest identifier
-												if (solrRecord.getIdentifier().length() < textContent.length()) {
-													solrRecord.setIdentifier(textContent);
-												}
-											}
-										} else if (solrRecord.getIdentifier() == null) {
-											solrRecord.setIdentifier(textContent);
-										}
-										break;
-									case "dc:creator":
-										solrRecord.setCreator(textContent);
-										break;
-									case "dc:contributor":
-										solrRecord.setContributor(textContent);
-										break;
-									case "dc:description":
-										solrRecord.setDescription(textContent);
-										break;
-									case "dc:type":
-										solrRecord.setType(textContent);
-										break;
-									case "dc:subject":
-										String[] subjects = textContent.split("\\s*;\\s*");
-										//Clean the subjects up
-										for (int subjectIdx = 0; subjectIdx < subjects.length; subjectIdx++) {
-											subjects[subjectIdx] = subjects[subjectIdx].replaceAll("\\[info:.*?\\]", "").trim();
-										}
-										solrRecord.addSubjects(subjects);
-										Collections.addAll(collectionSubjects, subjects);
-										break;
-									case "dc:coverage":
-										solrRecord.addCoverage(textContent);
-										break;
-									case "dc:publisher":
-										solrRecord.addPublisher(textContent);
-										break;
-									case "dc:format":
-										solrRecord.addFormat(textContent);
-										break;
-									case "dc:source":
-										solrRecord.addSource(textContent);
-										break;
-									case "dc:language":
-										solrRecord.setLanguage(textContent);
-										break;
-									case "dc:relation":
-										solrRecord.addRelation(textContent);
-										break;
-									case "dc:rights":
-										solrRecord.setRights(textContent);
-										break;
-									case "dc:date":
-										String[] dateRange;
-										if (textContent.contains(";")) {
-											dateRange = textContent.split(";");
-										} else if (textContent.contains(" -- ")) {
-											dateRange = textContent.split(" -- ");
-										} else {
-											textContent = textContent.trim();
-											textContent = textContent.replaceAll("ca.\\s+", "");
-											textContent = textContent.replaceAll("/", "-");
-											if (textContent.matches("\\d{2,4}(-\\d{1,2})?(-\\d{1,2})?")) {
-												dateRange = new String[]{textContent};
-											}else{
-												logEntry.addNote("Unhandled date format " + textContent + " not loading date");
-												dateRange = new String[0];
-											}
-										}
-										for (int tmpIndex = 0; tmpIndex < dateRange.length; tmpIndex++) {
-											dateRange[tmpIndex] = dateRange[tmpIndex].trim();
-											dateRange[tmpIndex] = dateRange[tmpIndex].replaceAll("/", "-");
-											dateRange[tmpIndex] = dateRange[tmpIndex].replaceAll("ca.\\s+", "");
-										}
-										solrRecord.addDates(dateRange);
-
-										break;
-									default:
-										logger.warn("Unhandled tag " + metadataTag + " value = " + textContent);
-								}
+		if (curRecord.deleted) {
+			//This record is deleted, no sense evaluating further. Don't mark it as skipped
+			//If it is newly deleted, that will show in the stats if it was previously indexed.
+			return false;
+		}
+		for (String[] metadataField : curRecord.metadataFields) {
+			String metadataTag = metadataField[0];
+			String textContent = metadataField[1];
+			switch (metadataTag) {
+				case "dc:title":
+					solrRecord.setTitle(textContent);
+					break;
+				case "dc:identifier":
+					String textContentLower = textContent.toLowerCase();
+					if (textContentLower.startsWith("http") && !textContentLower.endsWith(".jpg") && !textContentLower.endsWith(".mp3") && !textContentLower.endsWith(".pdf")) {
+						if (solrRecord.getIdentifier() == null || !solrRecord.getIdentifier().startsWith("http")) {
+							solrRecord.setIdentifier(textContent);
+						} else {
+							//Keep the longest identifier
+							if (solrRecord.getIdentifier().length() < textContent.length()) {
+								solrRecord.setIdentifier(textContent);
 							}
 						}
+					} else if (solrRecord.getIdentifier() == null) {
+						solrRecord.setIdentifier(textContent);
 					}
-				}
+					break;
+				case "dc:creator":
+					solrRecord.setCreator(textContent);
+					break;
+				case "dc:contributor":
+					solrRecord.setContributor(textContent);
+					break;
+				case "dc:description":
+					solrRecord.setDescription(textContent);
+					break;
+				case "dc:type":
+					solrRecord.setType(textContent);
+					break;
+				case "dc:subject":
+					String[] subjects = textContent.split("\\s*;\\s*");
+					//Clean the subjects up
+					for (int subjectIdx = 0; subjectIdx < subjects.length; subjectIdx++) {
+						subjects[subjectIdx] = subjects[subjectIdx].replaceAll("\\[info:.*?\\]", "").trim();
+					}
+					solrRecord.addSubjects(subjects);
+					Collections.addAll(collectionSubjects, subjects);
+					break;
+				case "dc:coverage":
+					solrRecord.addCoverage(textContent);
+					break;
+				case "dc:publisher":
+					solrRecord.addPublisher(textContent);
+					break;
+				case "dc:format":
+					solrRecord.addFormat(textContent);
+					break;
+				case "dc:source":
+					solrRecord.addSource(textContent);
+					break;
+				case "dc:language":
+					solrRecord.setLanguage(textContent);
+					break;
+				case "dc:relation":
+					solrRecord.addRelation(textContent);
+					break;
+				case "dc:rights":
+					solrRecord.setRights(textContent);
+					break;
+				case "dc:date":
+					String[] dateRange;
+					if (textContent.contains(";")) {
+						dateRange = textContent.split(";");
+					} else if (textContent.contains(" -- ")) {
+						dateRange = textContent.split(" -- ");
+					} else {
+						textContent = textContent.trim();
+						textContent = textContent.replaceAll("ca.\\s+", "");
+						textContent = textContent.replaceAll("/", "-");
+						if (textContent.matches("\\d{2,4}(-\\d{1,2})?(-\\d{1,2})?")) {
+							dateRange = new String[]{textContent};
+						}else{
+							logEntry.addNote("Unhandled date format " + textContent + " not loading date");
+							dateRange = new String[0];
+						}
+					}
+					for (int tmpIndex = 0; tmpIndex < dateRange.length; tmpIndex++) {
+						dateRange[tmpIndex] = dateRange[tmpIndex].trim();
+						dateRange[tmpIndex] = dateRange[tmpIndex].replaceAll("/", "-");
+						dateRange[tmpIndex] = dateRange[tmpIndex].replaceAll("ca.\\s+", "");
+					}
+					solrRecord.addDates(dateRange);
+
+					break;
+				default:
+					logger.warn("Unhandled tag " + metadataTag + " value = " + textContent);
 			}
 		}
 		boolean addedToIndex = false;
-		try {
-			if (solrRecord.getIdentifier() == null || solrRecord.getTitle() == null) {
-				logEntry.incSkipped();
-				logger.debug("Skipping record because no identifier was provided.");
-			} else {
-				boolean subjectMatched = true;
-				if (subjectFilters.size() > 0) {
-					subjectMatched = false;
-					for (String curSubject : solrRecord.getSubjects()) {
-						for (Pattern curSubjectFilter : subjectFilters) {
-							if (curSubjectFilter.matcher(curSubject).find()) {
-								subjectMatched = true;
-								break;
-							}
-						}
-						if (subjectMatched) {
+		if (solrRecord.getIdentifier() == null || solrRecord.getTitle() == null) {
+			logEntry.incSkipped();
+			logger.debug("Skipping record because no identifier was provided.");
+		} else {
+			boolean subjectMatched = true;
+			if (subjectFilters.size() > 0) {
+				subjectMatched = false;
+				for (String curSubject : solrRecord.getSubjects()) {
+					for (Pattern curSubjectFilter : subjectFilters) {
+						if (curSubjectFilter.matcher(curSubject).find()) {
+							subjectMatched = true;
 							break;
 						}
 					}
+					if (subjectMatched) {
+						break;
+					}
 				}
-				if (!subjectMatched) {
-					logger.debug("Skipping record because no subject matched.");
-					logEntry.incSkipped();
+			}
+			if (!subjectMatched) {
+				logger.debug("Skipping record because no subject matched.");
+				logEntry.incSkipped();
+			} else {
+				solrRecord.setCollectionId(collectionId);
+				solrRecord.setCollectionName(collectionName);
+				if (existingRecords.containsKey(solrRecord.getIdentifier())) {
+					ExistingOAIRecord existingRecord = existingRecords.get(solrRecord.getIdentifier());
+					if (existingRecord.processed) {
+						logEntry.addNote("Record was already processed " + solrRecord.getIdentifier());
+						logEntry.incSkipped();
+					} else {
+						solrRecord.setId(Long.toString(existingRecord.id));
+						documentsToAdd.add(solrRecord.getSolrDocument());
+						addDocumentsToSolr(false, logEntry);
+						existingRecord.processed = true;
+						addedToIndex = true;
+						logEntry.incUpdated();
+					}
 				} else {
-					solrRecord.setCollectionId(collectionId);
-					solrRecord.setCollectionName(collectionName);
-					try {
-						if (existingRecords.containsKey(solrRecord.getIdentifier())) {
-							ExistingOAIRecord existingRecord = existingRecords.get(solrRecord.getIdentifier());
-							if (existingRecord.processed) {
-								logEntry.addNote("Record was already processed " + solrRecord.getIdentifier());
-								logEntry.incSkipped();
-							} else {
-								solrRecord.setId(Long.toString(existingRecord.id));
-								updateServer.add(solrRecord.getSolrDocument());
-								addedToIndex = true;
-								logEntry.incUpdated();
-							}
-						} else {
-							addOpenArchivesRecord.setLong(1, collectionId);
-							addOpenArchivesRecord.setString(2, solrRecord.getIdentifier());
-							addOpenArchivesRecord.executeUpdate();
-							ResultSet rs = addOpenArchivesRecord.getGeneratedKeys();
-							if (rs.next()) {
-								solrRecord.setId(rs.getString(1));
-								updateServer.add(solrRecord.getSolrDocument());
-								ExistingOAIRecord existingRecord = new ExistingOAIRecord();
-								existingRecord.id = rs.getLong(1);
-								existingRecord.url = solrRecord.getIdentifier();
-								existingRecords.put(solrRecord.getIdentifier(), existingRecord);
-								addedToIndex = true;
-							}
-							rs.close();
-							logEntry.incAdded();
-						}
-					} catch (SQLException e) {
-						logEntry.incErrors("Error adding record to database", e);
+					//The id is set once the batch has been inserted into the database
+					ExistingOAIRecord existingRecord = new ExistingOAIRecord();
+					existingRecord.url = solrRecord.getIdentifier();
+					existingRecord.processed = true;
+					existingRecords.put(solrRecord.getIdentifier(), existingRecord);
+					recordsToInsert.add(solrRecord);
+					if (recordsToInsert.size() >= BATCH_SIZE) {
+						insertNewRecords(existingRecords, collectionId, logEntry);
 					}
+					addedToIndex = true;
+					logEntry.incAdded();
 				}
 			}
-		} catch (SolrServerException e) {
-			logEntry.incErrors("Error adding document to solr server", e);
-		} catch (IOException e) {
-			logEntry.incErrors("I/O Error adding document to solr server", e);
-		}
-		if (addedToIndex && existingRecords.containsKey(solrRecord.getIdentifier())) {
-			existingRecords.get(solrRecord.getIdentifier()).processed = true;
 		}
 		return addedToIndex;
 	}
+
+	/**
+	 * Adds the new records to the database as a batch and then queues them to be added to solr with their new ids.
+	 */
+	private static void insertNewRecords(HashMap<String, ExistingOAIRecord> existingRecords, long collectionId, OpenArchivesExtractLogEntry logEntry) {
+		if (recordsToInsert.size() == 0) {
+			return;
+		}
+		try {
+			for (OAISolrRecord solrRecord : recordsToInsert) {
+				addOpenArchivesRecord.setLong(1, collectionId);
+				addOpenArchivesRecord.setString(2, solrRecord.getIdentifier());
+				addOpenArchivesRecord.addBatch();
+			}
+			addOpenArchivesRecord.executeBatch();
+			try (ResultSet rs = addOpenArchivesRecord.getGeneratedKeys()) {
+				for (OAISolrRecord solrRecord : recordsToInsert) {
+					if (rs.next()) {
+						solrRecord.setId(rs.getString(1));
+						existingRecords.get(solrRecord.getIdentifier()).id = rs.getLong(1);
+						documentsToAdd.add(solrRecord.getSolrDocument());
+					}
+				}
+			}
+		} catch (SQLException e) {
+			logEntry.incErrors("Error adding records to database", e);
+			//Forget the records so they aren't treated as processed
+			for (OAISolrRecord solrRecord : recordsToInsert) {
+				existingRecords.remove(solrRecord.getIdentifier());
+			}
+			try {
+				addOpenArchivesRecord.clearBatch();
+			} catch (SQLException e1) {
+				logger.error("Error clearing batch", e1);
+			}
+		}
+		recordsToInsert.clear();
+		addDocumentsToSolr(false, logEntry);
+	}
+
+	private static void addDocumentsToSolr(boolean finalBatch, OpenArchivesExtractLogEntry logEntry) {
+		if (documentsToAdd.size() >= BATCH_SIZE || (finalBatch && documentsToAdd.size() > 0)) {
+			try {
+				updateServer.add(documentsToAdd);
+			} catch (SolrServerException e) {
+				logEntry.incErrors("Error adding document to solr server", e);
+			} catch (IOException e) {
+				logEntry.incErrors("I/O Error adding document to solr server", e);
+			}
+			documentsToAdd.clear();
+		}
+	}
 }
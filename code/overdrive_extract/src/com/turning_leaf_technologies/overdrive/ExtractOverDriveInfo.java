@@ -1,27 +1,19 @@
 package com.turning_leaf_technologies.overdrive;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Date;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.CRC32;
 
-import javax.net.ssl.HttpsURLConnection;
-
 import com.turning_leaf_technologies.grouping.OverDriveRecordGrouper;
 import com.turning_leaf_technologies.grouping.RemoveRecordFromWorkResult;
 import com.turning_leaf_technologies.net.NetworkUtils;
 import com.turning_leaf_technologies.net.WebServiceResponse;
 import com.turning_leaf_technologies.reindexer.GroupedWorkIndexer;
-import org.apache.commons.codec.binary.Base64;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.ini4j.Ini;
@@ -31,6 +23,8 @@ import org.json.JSONObject;
 
 class ExtractOverDriveInfo {
 	private static final Logger logger = LogManager.getLogger(ExtractOverDriveInfo.class);
+	//The most products that can be checked with one bulk availability request
+	private static final int BULK_AVAILABILITY_BATCH_SIZE = 25;
 	private OverDriveRecordGrouper recordGroupingProcessorSingleton;
 	private String serverName;
 	private Connection dbConn;
@@ -43,6 +37,8 @@ class ExtractOverDriveInfo {
 	private String overDriveAPIToken;
 	private String overDriveAPITokenType;
 	private long overDriveAPIExpiration;
+	private final String apiUrl;
+	private final String tokenUrl;
 	private final TreeMap<Long, String> libToOverDriveAPIKeyMap = new TreeMap<>();
 
 	private final ConcurrentHashMap<String, OverDriveRecordInfo> allProductsInOverDrive = new ConcurrentHashMap<>();
@@ -62,7 +58,6 @@ class ExtractOverDriveInfo {
 	private PreparedStatement addFormatStmt;
 	private PreparedStatement clearIdentifiersStmt;
 	private PreparedStatement addIdentifierStmt;
-	private PreparedStatement getExistingAvailabilityForProductStmt;
 	private PreparedStatement updateAvailabilityStmt;
 	private PreparedStatement addAvailabilityStmt;
 	private PreparedStatement deleteAvailabilityStmt;
@@ -76,23 +71,35 @@ class ExtractOverDriveInfo {
 	private PreparedStatement logExternalRequestStmt;
 
 	private final CRC32 checksumCalculator = new CRC32();
-	private boolean errorsWhileLoadingProducts;
-	private boolean hadTimeoutsFromOverDrive;
+	private volatile boolean errorsWhileLoadingProducts;
+	private volatile boolean hadTimeoutsFromOverDrive;
+	private final HostRateLimiter rateLimiter;
 	private GroupedWorkIndexer groupedWorkIndexer;
 	private Ini configIni;
+	//Requests are made by the extraction threads, the log entries are written by the thread that owns the connection
+	private final ConcurrentLinkedQueue<ExternalRequestLogEntry> externalRequestsToLog = new ConcurrentLinkedQueue<>();
 
 	private int totalProductsInCollection;
 
 	public ExtractOverDriveInfo(OverDriveSetting settings) {
+		this(settings, "https://api.overdrive.com", "https://oauth.overdrive.com/token");
+	}
+
+	/**
+	 * @param apiUrl   the base url of the OverDrive API, tests point this at a local server
+	 * @param tokenUrl the url to get an OAuth token from
+	 */
+	ExtractOverDriveInfo(OverDriveSetting settings, String apiUrl, String tokenUrl) {
 		this.settings = settings;
+		this.apiUrl = apiUrl;
+		this.tokenUrl = tokenUrl;
+		this.rateLimiter = new HostRateLimiter(settings.getMaxRequestsPerSecond());
 	}
 
 	int extractOverDriveInfo(Ini configIni, String serverName, Connection dbConn, OverDriveExtractLogEntry logEntry) {
-		final int[] numProcessed = {0};
+		AtomicInteger numProcessed = new AtomicInteger(0);
 		this.configIni = configIni;
 		this.serverName = serverName;
-		this.dbConn = dbConn;
-		this.logEntry = logEntry;
 
 		long extractStartTime = new Date().getTime();
 
@@ -190,82 +197,64 @@ class ExtractOverDriveInfo {
 						numExtractionThreads = 1;
 					}
 
-					//ThreadPoolExecutor es = (ThreadPoolExecutor)Executors.newFixedThreadPool(numExtractionThreads);
-					for (OverDriveRecordInfo curRecord : allProductsInOverDrive.values()) {
-						//es.execute(() -> {
-							numProcessed[0]++;
-							try {
-								//Extract data from overdrive and update the database
-								final boolean[] errorsEncountered = {false};
-								if (settings.isRunFullUpdate() || curRecord.isNew || curRecord.hasChanges) {
-									//Load Metadata for the record
-									Thread metadataThread = new Thread(() -> {
-										try {
-											updateOverDriveMetaData(curRecord);
-										} catch (SocketTimeoutException e) {
-											settings.addProductToUpdateNextTime(curRecord.getId());
-											logEntry.addNote("Error loading metadata for " + curRecord.getId() + " " + e.getMessage());
-											errorsEncountered[0] = true;
-										}
-									});
-									//Load availability for all collections since we will currently only have collections where the record changed.
-									for (AdvantageCollectionInfo collectionInfo: allAdvantageCollections) {
-										curRecord.addCollection(collectionInfo);
-									}
-									//Load availability for the record
-									Thread availabilityThread = new Thread(() -> {
-										try {
-											updateOverDriveAvailability(curRecord, curRecord.getDatabaseId(), false);
-										} catch (SocketTimeoutException e) {
-											settings.addProductToUpdateNextTime(curRecord.getId());
-											logEntry.addNote("Error loading availability for " + curRecord.getId() + " " + e.getMessage());
-											errorsEncountered[0] = true;
-										}
-									});
-									metadataThread.start();
-									availabilityThread.start();
-									metadataThread.join();
-									availabilityThread.join();
-
-									if (!errorsEncountered[0]){
-										String groupedWorkId = null;
-										if (settings.isRunFullUpdate() || curRecord.isNew || curRecord.hasChanges) {
-											//Regroup the record
-											groupedWorkId = getRecordGroupingProcessor().processOverDriveRecord(curRecord.getId());
-										}
-										if (settings.isRunFullUpdate() || curRecord.isNew || curRecord.hasChanges) {
-											//Metadata didn't change so we need to load from the database
-											if (groupedWorkId == null) {
-												groupedWorkId = getRecordGroupingProcessor().getPermanentIdForRecord("overdrive", curRecord.getId());
-											}
-											//Reindex the record
-											getGroupedWorkIndexer().processGroupedWork(groupedWorkId);
-											logEntry.incUpdated();
-										}else{
-											logEntry.incSkipped();
+					//Metadata and availability are loaded from OverDrive by a pool of threads.  Saving the results, regrouping
+					//and reindexing share the database connection so they are done by this thread as each batch is loaded.
+					//Only a few batches are loaded ahead of the one being saved to limit memory use.
+					//When using bulk availability, each batch has as many products as can be checked with a single request.
+					int batchSize = settings.isUseBulkAvailability() ? BULK_AVAILABILITY_BATCH_SIZE : 1;
+					ExecutorService es = Executors.newFixedThreadPool(numExtractionThreads);
+					try {
+						CompletionService<List<LoadedProduct>> loadedBatches = new ExecutorCompletionService<>(es);
+						Iterator<OverDriveRecordInfo> recordsToLoad = allProductsInOverDrive.values().iterator();
+						int maxBatchesLoading = numExtractionThreads * 2;
+						int numBatchesLoading = 0;
+						while (true) {
+							while (numBatchesLoading < maxBatchesLoading && recordsToLoad.hasNext()) {
+								ArrayList<OverDriveRecordInfo> recordsInBatch = new ArrayList<>();
+								while (recordsInBatch.size() < batchSize && recordsToLoad.hasNext()) {
+									OverDriveRecordInfo curRecord = recordsToLoad.next();
+									if (settings.isRunFullUpdate() || curRecord.isNew || curRecord.hasChanges) {
+										//Load availability for all collections since we will currently only have collections where the record changed.
+										for (AdvantageCollectionInfo collectionInfo : allAdvantageCollections) {
+											curRecord.addCollection(collectionInfo);
 										}
+										recordsInBatch.add(curRecord);
+									} else {
+										numProcessed.incrementAndGet();
 									}
 								}
-							}catch (Exception e){
-								logEntry.incErrors("Error processing record " + curRecord.getId(), e);
+								if (!recordsInBatch.isEmpty()) {
+									loadedBatches.submit(() -> loadProductsFromAPI(recordsInBatch));
+									numBatchesLoading++;
+								}
+							}
+							if (numBatchesLoading == 0) {
+								break;
 							}
-							if (numProcessed[0] % 100 == 0) {
-								logEntry.addNote("Processed " + numProcessed[0]);
+							Future<List<LoadedProduct>> loadedBatch = loadedBatches.take();
+							numBatchesLoading--;
+							List<LoadedProduct> loadedProducts;
+							try {
+								loadedProducts = loadedBatch.get();
+							} catch (ExecutionException e) {
+								//Keep draining the remaining batches so the rest of the extract still runs
+								Throwable cause = e.getCause();
+								logEntry.incErrors("Error loading a batch of products from OverDrive", cause instanceof Exception ? (Exception) cause : e);
+								errorsWhileLoadingProducts = true;
+								continue;
+							}
+							saveLoadedProducts(loadedProducts);
+							saveExternalRequestLogs();
+							int numProcessedSoFar = numProcessed.addAndGet(loadedProducts.size());
+							if (numProcessedSoFar / 100 != (numProcessedSoFar - loadedProducts.size()) / 100) {
+								logEntry.addNote("Processed " + numProcessedSoFar);
 								logEntry.saveResults();
 							}
-						//});
+						}
+					} finally {
+						es.shutdownNow();
+						saveExternalRequestLogs();
 					}
-//					es.shutdown();
-//					while (true) {
-//						try {
-//							boolean terminated = es.awaitTermination(1, TimeUnit.MINUTES);
-//							if (terminated){
-//								break;
-//							}
-//						} catch (InterruptedException e) {
-//							logger.error("Error waiting for all extracts to finish");
-//						}
-//					}
 
 					if (checkForDeletedRecords) {
 						//Remove any records that no longer exist
@@ -363,7 +352,73 @@ class ExtractOverDriveInfo {
 			// handle any errors
 			this.logEntry.incErrors("Error initializing overdrive extraction ", e);
 		}
-		return numProcessed[0];
+		return numProcessed.get();
+	}
+
+	/**
+	 * Loads metadata and availability for a batch of products from the API.  Called by the extraction threads so this
+	 * must not use the database, requests made here are queued for the external request log and written by the saving
+	 * thread.
+	 */
+	private List<LoadedProduct> loadProductsFromAPI(List<OverDriveRecordInfo> records) {
+		ArrayList<LoadedProduct> loadedProducts = new ArrayList<>();
+		for (OverDriveRecordInfo curRecord : records) {
+			LoadedProduct loadedProduct = new LoadedProduct(curRecord);
+			try {
+				loadedProduct.metaDataResponse = loadOverDriveMetaData(curRecord);
+			} catch (SocketTimeoutException e) {
+				settings.addProductToUpdateNextTime(curRecord.getId());
+				logEntry.addNote("Error loading metadata for " + curRecord.getId() + " " + e.getMessage());
+				loadedProduct.errorsEncountered = true;
+			}
+			loadedProducts.add(loadedProduct);
+		}
+		if (settings.isUseBulkAvailability()) {
+			loadBulkOverDriveAvailability(loadedProducts);
+		} else {
+			for (LoadedProduct loadedProduct : loadedProducts) {
+				try {
+					loadedProduct.availabilityResponses = loadOverDriveAvailability(loadedProduct.record);
+				} catch (SocketTimeoutException e) {
+					skipAvailability(loadedProduct, "Error loading availability for " + loadedProduct.record.getId() + " " + e.getMessage());
+				}
+			}
+		}
+		return loadedProducts;
+	}
+
+	/**
+	 * Saves products loaded by loadProductsFromAPI and regroups and reindexes each one if everything loaded.
+	 */
+	private void saveLoadedProducts(List<LoadedProduct> loadedProducts) {
+		for (LoadedProduct loadedProduct : loadedProducts) {
+			if (loadedProduct.metaDataResponse != null) {
+				try {
+					saveOverDriveMetaData(loadedProduct.record, loadedProduct.metaDataResponse);
+				} catch (Exception e) {
+					logEntry.incErrors("Error saving metadata for record " + loadedProduct.record.getId(), e);
+				}
+			}
+		}
+		saveOverDriveAvailability(loadedProducts, false);
+		for (LoadedProduct loadedProduct : loadedProducts) {
+			OverDriveRecordInfo curRecord = loadedProduct.record;
+			if (!loadedProduct.errorsEncountered) {
+				try {
+					//Regroup the record
+					String groupedWorkId = getRecordGroupingProcessor().processOverDriveRecord(curRecord.getId());
+					//Metadata didn't change so we need to load from the database
+					if (groupedWorkId == null) {
+						groupedWorkId = getRecordGroupingProcessor().getPermanentIdForRecord("overdrive", curRecord.getId());
+					}
+					//Reindex the record
+					getGroupedWorkIndexer().processGroupedWork(groupedWorkId);
+					logEntry.incUpdated();
+				} catch (Exception e) {
+					logEntry.incErrors("Error processing record " + curRecord.getId(), e);
+				}
+			}
+		}
 	}
 
 	private void processUnlinkedProducts() {
@@ -388,7 +443,7 @@ class ExtractOverDriveInfo {
 
 					//Update the product in the database
 					updateOverDriveMetaData(recordInfo);
-					updateOverDriveAvailability(recordInfo, recordInfo.getDatabaseId(), false);
+					updateOverDriveAvailability(recordInfo, false);
 
 					//Reindex
 					String groupedWorkId = getRecordGroupingProcessor().processOverDriveRecord(recordInfo.getId());
@@ -413,8 +468,6 @@ class ExtractOverDriveInfo {
 
 		this.configIni = configIni;
 		this.serverName = serverName;
-		this.dbConn = dbConn;
-		this.logEntry = logEntry;
 
 		try {
 			initOverDriveExtract(dbConn, logEntry);
@@ -449,7 +502,7 @@ class ExtractOverDriveInfo {
 
 						//Update the product in the database
 						updateOverDriveMetaData(recordInfo);
-						updateOverDriveAvailability(recordInfo, recordInfo.getDatabaseId(), true);
+						updateOverDriveAvailability(recordInfo, true);
 
 						//Reindex
 						String groupedWorkId = getRecordGroupingProcessor().processOverDriveRecord(recordInfo.getId());
@@ -519,7 +572,9 @@ class ExtractOverDriveInfo {
 		}
 	}
 
-	private void initOverDriveExtract(Connection dbConn, OverDriveExtractLogEntry logEntry) throws SQLException {
+	void initOverDriveExtract(Connection dbConn, OverDriveExtractLogEntry logEntry) throws SQLException {
+		this.dbConn = dbConn;
+		this.logEntry = logEntry;
 		addProductStmt = dbConn.prepareStatement("INSERT INTO overdrive_api_products set id = NULL, overdriveid = ?, crossRefId = ?, mediaType = ?, title = ?, subtitle = ?, series = ?, primaryCreatorRole = ?, primaryCreatorName = ?, cover = ?, dateAdded = ?, dateUpdated = ?, lastMetadataCheck = 0, lastMetadataChange = 0, lastAvailabilityCheck = 0, lastAvailabilityChange = 0 ON DUPLICATE KEY UPDATE id=id", PreparedStatement.RETURN_GENERATED_KEYS);
 		getProductIdByOverDriveIdStmt = dbConn.prepareStatement("SELECT id, deleted from overdrive_api_products where overdriveid = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
 		updateLastSeenStmt = dbConn.prepareStatement("UPDATE overdrive_api_products set lastSeen = ? where overdriveid = ?");
@@ -538,7 +593,6 @@ class ExtractOverDriveInfo {
 		addFormatStmt = dbConn.prepareStatement("INSERT INTO overdrive_api_product_formats set id = NULL, productId = ?, textId = ?, numericId = ?, name = ?, fileName = ?, fileSize = ?, partCount = ?, sampleSource_1 = ?, sampleUrl_1 = ?, sampleSource_2 = ?, sampleUrl_2 = ? ON DUPLICATE KEY update id = id", PreparedStatement.RETURN_GENERATED_KEYS);
 		clearIdentifiersStmt = dbConn.prepareStatement("DELETE FROM overdrive_api_product_identifiers where productId = ?");
 		addIdentifierStmt = dbConn.prepareStatement("INSERT INTO overdrive_api_product_identifiers set productId = ?, type = ?, value = ?");
-		getExistingAvailabilityForProductStmt = dbConn.prepareStatement("SELECT * from overdrive_api_product_availability where productId = ? and settingId = ?");
 		updateAvailabilityStmt = dbConn.prepareStatement("UPDATE overdrive_api_product_availability set available = ?, copiesOwned = ?, copiesAvailable = ?, numberOfHolds = ?, availabilityType = ?, shared =? WHERE id = ?");
 		addAvailabilityStmt = dbConn.prepareStatement("INSERT INTO overdrive_api_product_availability set productId = ?, settingId = ?, libraryId = ?, available = ?, copiesOwned = ?, copiesAvailable = ?, numberOfHolds = ?, availabilityType = ?, shared = ?");
 		deleteAvailabilityStmt = dbConn.prepareStatement("DELETE FROM overdrive_api_product_availability where id = ?");
@@ -708,7 +762,7 @@ class ExtractOverDriveInfo {
 	 * @throws SocketTimeoutException Error if we have a timeout getting data
 	 */
 	private boolean loadProductsFromAPI(int loadType, long startTime) throws SocketTimeoutException {
-		WebServiceResponse libraryInfoResponse = callOverDriveURL("overDriveExtract.loadLibraries", "https://api.overdrive.com/v1/libraries/" + settings.getAccountId());
+		WebServiceResponse libraryInfoResponse = callOverDriveURL("overDriveExtract.loadLibraries", apiUrl + "/v1/libraries/" + settings.getAccountId());
 		if (libraryInfoResponse.getResponseCode() == 200 && libraryInfoResponse.getMessage() != null){
 			JSONObject libraryInfo = libraryInfoResponse.getJSONResponse();
 			try {
@@ -774,6 +828,7 @@ class ExtractOverDriveInfo {
 									logger.error("Error waiting for all extracts to finish");
 								}
 							}
+							saveExternalRequestLogs();
 						}
 					} else {
 						logEntry.incErrors("The API indicate that the library has advantage accounts, but none were returned from " + libraryInfo.getJSONObject("links").getJSONObject("advantageAccounts").getString("href"));
@@ -879,7 +934,7 @@ class ExtractOverDriveInfo {
 	 * @throws SocketTimeoutException Error if we timeout getting data
 	 */
 	private boolean loadAccountInformationFromAPI() throws SocketTimeoutException {
-		WebServiceResponse libraryInfoResponse = callOverDriveURL("overdriveExtract.loadLibraryAccount", "https://api.overdrive.com/v1/libraries/" + settings.getAccountId());
+		WebServiceResponse libraryInfoResponse = callOverDriveURL("overdriveExtract.loadLibraryAccount", apiUrl + "/v1/libraries/" + settings.getAccountId());
 		if (libraryInfoResponse.getResponseCode() == 200 && libraryInfoResponse.getMessage() != null){
 			JSONObject libraryInfo = libraryInfoResponse.getJSONResponse();
 			try {
@@ -1071,17 +1126,25 @@ class ExtractOverDriveInfo {
 	}
 
 	private void updateOverDriveMetaData(OverDriveRecordInfo overDriveInfo) throws SocketTimeoutException {
-		//Check to see if we need to load metadata
-		long curTime = new Date().getTime() / 1000;
+		saveOverDriveMetaData(overDriveInfo, loadOverDriveMetaData(overDriveInfo));
+	}
 
+	private String getMetaDataUrl(OverDriveRecordInfo overDriveInfo) {
 		//Get the url to call for meta data information (based on the first owning collection)
 		AdvantageCollectionInfo collectionInfo = overDriveInfo.getCollections().iterator().next();
 		String apiKey = collectionInfo.getCollectionToken();
-		String url = "https://api.overdrive.com/v1/collections/" + apiKey + "/products/" + overDriveInfo.getId() + "/metadata";
-		WebServiceResponse metaDataResponse = callOverDriveURL("overdriveExtract.getProductMetadata", url);
+		return apiUrl + "/v1/collections/" + apiKey + "/products/" + overDriveInfo.getId() + "/metadata";
+	}
+
+	private WebServiceResponse loadOverDriveMetaData(OverDriveRecordInfo overDriveInfo) throws SocketTimeoutException {
+		return callOverDriveURL("overdriveExtract.getProductMetadata", getMetaDataUrl(overDriveInfo));
+	}
+
+	private void saveOverDriveMetaData(OverDriveRecordInfo overDriveInfo, WebServiceResponse metaDataResponse) {
+		long curTime = new Date().getTime() / 1000;
 		if (metaDataResponse.getResponseCode() != 200){
 			settings.addProductToUpdateNextTime(overDriveInfo.getId());
-			logEntry.addNote("Could not load metadata (code " + metaDataResponse.getResponseCode() + ") from " + url );
+			logEntry.addNote("Could not load metadata (code " + metaDataResponse.getResponseCode() + ") from " + getMetaDataUrl(overDriveInfo));
 			logger.info(metaDataResponse.getResponseCode() + ":" + metaDataResponse.getMessage());
 		}else{
 			saveMetadataToDatabase(overDriveInfo, curTime, metaDataResponse);
@@ -1325,54 +1388,274 @@ class ExtractOverDriveInfo {
 		}
 	}
 
-	private synchronized void updateOverDriveAvailability(OverDriveRecordInfo overDriveInfo, long databaseId, boolean singleWork) throws SocketTimeoutException {
-		//Don't need to load availability if we already have availability and the availability was checked within the last hour
-		long curTime = new Date().getTime() / 1000;
-
-		boolean changesMade = false;
-
-		//Get existing availability
-		HashMap<Long, OverDriveAvailabilityInfo> existingAvailabilities = new HashMap<>();
-		try {
-			getExistingAvailabilityForProductStmt.setLong(1, databaseId);
-			getExistingAvailabilityForProductStmt.setLong(2, settings.getId());
-
-			ResultSet existingAvailabilityRS = getExistingAvailabilityForProductStmt.executeQuery();
-			while (existingAvailabilityRS.next()){
-				OverDriveAvailabilityInfo existingAvailability = new OverDriveAvailabilityInfo();
-				existingAvailability.setId(existingAvailabilityRS.getLong("id"));
-				existingAvailability.setSettingId(existingAvailabilityRS.getLong("settingId"));
-				existingAvailability.setLibraryId(existingAvailabilityRS.getLong("libraryId"));
-				existingAvailability.setAvailable(existingAvailabilityRS.getBoolean("available"));
-				existingAvailability.setCopiesOwned(existingAvailabilityRS.getInt("copiesOwned"));
-				existingAvailability.setCopiesAvailable(existingAvailabilityRS.getInt("copiesAvailable"));
-				existingAvailability.setNumberOfHolds(existingAvailabilityRS.getInt("numberOfHolds"));
-				existingAvailability.setAvailabilityType(existingAvailabilityRS.getString("availabilityType"));
-
-				existingAvailabilities.put(existingAvailability.getLibraryId(), existingAvailability);
-			}
-			existingAvailabilityRS.close();
-		}catch (SQLException e){
-			logger.warn("Could not load existing availability for overdrive product " + databaseId);
-		}
+	private void updateOverDriveAvailability(OverDriveRecordInfo overDriveInfo, boolean singleWork) throws SocketTimeoutException {
+		LoadedProduct loadedProduct = new LoadedProduct(overDriveInfo);
+		loadedProduct.availabilityResponses = loadOverDriveAvailability(overDriveInfo);
+		saveOverDriveAvailability(Collections.singletonList(loadedProduct), singleWork);
+	}
 
+	/**
+	 * Loads availability for each collection the product belongs to.  Stops at the first error since availability is
+	 * not updated if there are errors.
+	 */
+	private LinkedHashMap<AdvantageCollectionInfo, WebServiceResponse> loadOverDriveAvailability(OverDriveRecordInfo overDriveInfo) throws SocketTimeoutException {
+		LinkedHashMap<AdvantageCollectionInfo, WebServiceResponse> availabilityResponses = new LinkedHashMap<>();
 		//We need to load availability for every collection because sharing can vary, but we only need to do the shared collection
 		//and any of our libraries that have Advantage collections
 		for (AdvantageCollectionInfo collectionInfo : overDriveInfo.getCollections()){
 			if (collectionInfo.getAspenLibraryId() == 0){
 				continue;
 			}
-			String apiKey = collectionInfo.getCollectionToken();
-
-			String url = "https://api.overdrive.com/v2/collections/" + apiKey + "/products/" + overDriveInfo.getId() + "/availability";
+			String url = apiUrl + "/v2/collections/" + collectionInfo.getCollectionToken() + "/products/" + overDriveInfo.getId() + "/availability";
 			WebServiceResponse availabilityResponse = callOverDriveURL("overdriveExtract.getProductAvailability", url, false);
+			availabilityResponses.put(collectionInfo, availabilityResponse);
+			//404 is a message that availability has been deleted.
+			if (availabilityResponse.getResponseCode() != 200 && availabilityResponse.getResponseCode() != 404){
+				break;
+			}
+		}
+		return availabilityResponses;
+	}
+
+	/**
+	 * Loads availability for a batch of products using the bulk availability API which checks several products in a
+	 * collection with one request.  The availability for each product is split out so it can be saved the same way as
+	 * availability loaded one product at a time.
+	 */
+	void loadBulkOverDriveAvailability(List<LoadedProduct> loadedProducts) {
+		//Most products are in the same collections, but products only owned by an advantage collection may not be in the shared collection
+		LinkedHashMap<AdvantageCollectionInfo, ArrayList<LoadedProduct>> productsByCollection = new LinkedHashMap<>();
+		for (LoadedProduct loadedProduct : loadedProducts) {
+			loadedProduct.availabilityResponses = new LinkedHashMap<>();
+			for (AdvantageCollectionInfo collectionInfo : loadedProduct.record.getCollections()) {
+				if (collectionInfo.getAspenLibraryId() != 0) {
+					productsByCollection.computeIfAbsent(collectionInfo, k -> new ArrayList<>()).add(loadedProduct);
+				}
+			}
+		}
+
+		for (Map.Entry<AdvantageCollectionInfo, ArrayList<LoadedProduct>> collectionEntry : productsByCollection.entrySet()) {
+			AdvantageCollectionInfo collectionInfo = collectionEntry.getKey();
+			ArrayList<LoadedProduct> productsToLoad = new ArrayList<>();
+			StringBuilder productIds = new StringBuilder();
+			for (LoadedProduct loadedProduct : collectionEntry.getValue()) {
+				//Skip anything that already had an error loading availability for another collection
+				if (loadedProduct.availabilityResponses != null) {
+					productsToLoad.add(loadedProduct);
+					if (productIds.length() > 0) {
+						productIds.append(',');
+					}
+					productIds.append(loadedProduct.record.getId());
+				}
+			}
+			if (productsToLoad.isEmpty()) {
+				continue;
+			}
+
+			String url = apiUrl + "/v2/collections/" + collectionInfo.getCollectionToken() + "/availability?products=" + productIds;
+			WebServiceResponse bulkResponse;
+			try {
+				bulkResponse = callOverDriveURL("overdriveExtract.getBulkProductAvailability", url, false);
+			} catch (SocketTimeoutException e) {
+				for (LoadedProduct loadedProduct : productsToLoad) {
+					skipAvailability(loadedProduct, "Error loading availability for " + loadedProduct.record.getId() + " " + e.getMessage());
+				}
+				continue;
+			}
+			if (bulkResponse.getResponseCode() != 200) {
+				//Handled the same as an error loading availability for a single product
+				for (LoadedProduct loadedProduct : productsToLoad) {
+					loadedProduct.availabilityResponses.put(collectionInfo, bulkResponse);
+				}
+				continue;
+			}
+
+			HashMap<String, JSONObject> availabilityByProduct = new HashMap<>();
+			JSONObject bulkAvailability = bulkResponse.getMessage() == null ? null : bulkResponse.getJSONResponse();
+			JSONArray allAvailability = bulkAvailability == null ? null : bulkAvailability.optJSONArray("availability");
+			if (allAvailability == null) {
+				//Don't treat a response we can't read as products with no availability since that would delete their availability
+				for (LoadedProduct loadedProduct : productsToLoad) {
+					skipAvailability(loadedProduct, "Could not read bulk availability for " + loadedProduct.record.getId() + " collection " + collectionInfo.getName());
+				}
+				continue;
+			}
+			for (int i = 0; i < allAvailability.length(); i++) {
+				JSONObject productAvailability = allAvailability.optJSONObject(i);
+				if (productAvailability != null && productAvailability.has("reserveId")) {
+					availabilityByProduct.put(productAvailability.getString("reserveId").toLowerCase(), productAvailability);
+				}
+			}
+			for (LoadedProduct loadedProduct : productsToLoad) {
+				JSONObject productAvailability = availabilityByProduct.get(loadedProduct.record.getId());
+				if (productAvailability == null) {
+					//Handle products missing from the response the same as a 404 for a single product
+					loadedProduct.availabilityResponses.put(collectionInfo, new WebServiceResponse(false, 404, null));
+				} else {
+					loadedProduct.availabilityResponses.put(collectionInfo, new WebServiceResponse(true, 200, productAvailability.toString()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks that availability for a product could not be loaded so it is not saved, and the product is updated on the next run.
+	 */
+	private void skipAvailability(LoadedProduct loadedProduct, String note) {
+		settings.addProductToUpdateNextTime(loadedProduct.record.getId());
+		logEntry.addNote(note);
+		loadedProduct.availabilityResponses = null;
+		loadedProduct.errorsEncountered = true;
+	}
+
+	/**
+	 * Saves the availability for a batch of products.  If the batch can't be saved, each product is saved separately
+	 * so one bad product doesn't lose the availability for the rest of the batch.
+	 */
+	void saveOverDriveAvailability(List<LoadedProduct> loadedProducts, boolean singleWork) {
+		//Availability can't be saved for products that could not be added to the database
+		ArrayList<LoadedProduct> productsToSave = new ArrayList<>();
+		for (LoadedProduct loadedProduct : loadedProducts) {
+			if (loadedProduct.availabilityResponses != null && loadedProduct.record.getDatabaseId() > 0) {
+				productsToSave.add(loadedProduct);
+			}
+		}
+		if (productsToSave.isEmpty()) {
+			return;
+		}
+
+		try {
+			saveAvailabilityBatch(productsToSave, singleWork);
+		} catch (SQLException e) {
+			if (productsToSave.size() == 1) {
+				availabilityNotSaved(productsToSave.get(0), e);
+			} else {
+				logEntry.addNote("SQL Error saving availability for " + productsToSave.size() + " products starting with " + productsToSave.get(0).record.getId() + ", saving each product separately " + e);
+				int numNotSaved = 0;
+				for (LoadedProduct loadedProduct : productsToSave) {
+					try {
+						saveAvailabilityBatch(Collections.singletonList(loadedProduct), singleWork);
+					} catch (SQLException e2) {
+						availabilityNotSaved(loadedProduct, e2);
+						numNotSaved++;
+					}
+				}
+				if (numNotSaved > 0) {
+					logEntry.addNote("Could not save availability for " + numNotSaved + " of " + productsToSave.size() + " products");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks that availability for a product could not be saved so it is checked again on the next run.
+	 */
+	private void availabilityNotSaved(LoadedProduct loadedProduct, SQLException e) {
+		settings.addProductToUpdateNextTime(loadedProduct.record.getId());
+		logEntry.incErrors("SQL Error saving availability for " + loadedProduct.record.getId(), e);
+	}
+
+	/**
+	 * Existing availability for the products is loaded with a single query and all the changes are sent to the database
+	 * in batches once every product has been checked.  The existing availability is reloaded each time so this can be
+	 * retried after part of a batch was saved.
+	 */
+	private void saveAvailabilityBatch(List<LoadedProduct> productsToSave, boolean singleWork) throws SQLException {
+		long curTime = new Date().getTime() / 1000;
+
+		HashMap<Long, HashMap<Long, OverDriveAvailabilityInfo>> existingAvailabilityByProduct = loadExistingAvailability(productsToSave);
+		int numProductsChanged = 0;
+		try {
+			for (LoadedProduct loadedProduct : productsToSave) {
+				OverDriveRecordInfo overDriveInfo = loadedProduct.record;
+				HashMap<Long, OverDriveAvailabilityInfo> existingAvailabilities = existingAvailabilityByProduct.computeIfAbsent(overDriveInfo.getDatabaseId(), k -> new HashMap<>());
+				if (mergeOverDriveAvailability(overDriveInfo, singleWork, loadedProduct.availabilityResponses, existingAvailabilities)) {
+					//Update the product to indicate that we checked availability
+					updateProductAvailabilityStmt.setLong(1, curTime);
+					updateProductAvailabilityStmt.setLong(2, curTime);
+					updateProductAvailabilityStmt.setLong(3, overDriveInfo.getDatabaseId());
+					updateProductAvailabilityStmt.addBatch();
+					numProductsChanged++;
+				}
+			}
+
+			deleteAvailabilityStmt.executeBatch();
+			deleteAllAvailabilityStmt.executeBatch();
+			updateAvailabilityStmt.executeBatch();
+			addAvailabilityStmt.executeBatch();
+			if (numProductsChanged > 0) {
+				updateProductAvailabilityStmt.executeBatch();
+			}
+		} finally {
+			try {
+				deleteAvailabilityStmt.clearBatch();
+				deleteAllAvailabilityStmt.clearBatch();
+				updateAvailabilityStmt.clearBatch();
+				addAvailabilityStmt.clearBatch();
+				updateProductAvailabilityStmt.clearBatch();
+			} catch (SQLException e) {
+				logger.warn("Could not clear availability batches", e);
+			}
+		}
+		for (int i = 0; i < numProductsChanged; i++) {
+			logEntry.incAvailabilityChanges();
+		}
+	}
+
+	/**
+	 * @return existing availability for the products by product database id and then library id
+	 */
+	private HashMap<Long, HashMap<Long, OverDriveAvailabilityInfo>> loadExistingAvailability(List<LoadedProduct> loadedProducts) throws SQLException {
+		HashMap<Long, HashMap<Long, OverDriveAvailabilityInfo>> existingAvailabilityByProduct = new HashMap<>();
+		StringBuilder productIdParameters = new StringBuilder();
+		for (int i = 0; i < loadedProducts.size(); i++) {
+			productIdParameters.append(i == 0 ? "?" : ", ?");
+		}
+		try (PreparedStatement getExistingAvailabilityStmt = dbConn.prepareStatement("SELECT * from overdrive_api_product_availability where settingId = ? and productId IN (" + productIdParameters + ")", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+			getExistingAvailabilityStmt.setLong(1, settings.getId());
+			for (int i = 0; i < loadedProducts.size(); i++) {
+				getExistingAvailabilityStmt.setLong(i + 2, loadedProducts.get(i).record.getDatabaseId());
+			}
+			try (ResultSet existingAvailabilityRS = getExistingAvailabilityStmt.executeQuery()) {
+				while (existingAvailabilityRS.next()) {
+					OverDriveAvailabilityInfo existingAvailability = new OverDriveAvailabilityInfo();
+					existingAvailability.setId(existingAvailabilityRS.getLong("id"));
+					existingAvailability.setSettingId(existingAvailabilityRS.getLong("settingId"));
+					existingAvailability.setLibraryId(existingAvailabilityRS.getLong("libraryId"));
+					existingAvailability.setAvailable(existingAvailabilityRS.getBoolean("available"));
+					existingAvailability.setCopiesOwned(existingAvailabilityRS.getInt("copiesOwned"));
+					existingAvailability.setCopiesAvailable(existingAvailabilityRS.getInt("copiesAvailable"));
+					existingAvailability.setNumberOfHolds(existingAvailabilityRS.getInt("numberOfHolds"));
+					existingAvailability.setAvailabilityType(existingAvailabilityRS.getString("availabilityType"));
+
+					existingAvailabilityByProduct.computeIfAbsent(existingAvailabilityRS.getLong("productId"), k -> new HashMap<>()).put(existingAvailability.getLibraryId(), existingAvailability);
+				}
+			}
+		}
+		return existingAvailabilityByProduct;
+	}
+
+	/**
+	 * Compares the availability loaded for a product with the existing availability and adds any changes to the
+	 * availability statement batches.
+	 *
+	 * @return true if the availability for the product changed
+	 */
+	private boolean mergeOverDriveAvailability(OverDriveRecordInfo overDriveInfo, boolean singleWork, LinkedHashMap<AdvantageCollectionInfo, WebServiceResponse> availabilityResponses, HashMap<Long, OverDriveAvailabilityInfo> existingAvailabilities) {
+		long databaseId = overDriveInfo.getDatabaseId();
+		boolean changesMade = false;
+
+		for (Map.Entry<AdvantageCollectionInfo, WebServiceResponse> availabilityEntry : availabilityResponses.entrySet()){
+			AdvantageCollectionInfo collectionInfo = availabilityEntry.getKey();
+			String apiKey = collectionInfo.getCollectionToken();
+			WebServiceResponse availabilityResponse = availabilityEntry.getValue();
 
 			//404 is a message that availability has been deleted.
 			if (availabilityResponse.getResponseCode() == 404) {
 				//Add a note and skip to the next collection, in reality, this is probably deleted,
 				//but Nashville was having issues with 404s coming incorrectly so we can just keep retrying
 				//No longer needed for logging
-				//logEntry.addNote("Got a 404 availability response code for " + url + " not updating for " + collectionInfo.getName());
+				//logEntry.addNote("Got a 404 availability response code for " + apiKey + " not updating for " + collectionInfo.getName());
 			}else if (availabilityResponse.getResponseCode() != 200){
 				//We got an error calling the OverDrive API, do nothing.
 				if (singleWork) {
@@ -1382,7 +1665,7 @@ class ExtractOverDriveInfo {
 				logEntry.addNote("Error availability API for product " + overDriveInfo.getId() + " collection " + collectionInfo.getName() + " response code " + availabilityResponse.getResponseCode());
 				logger.info(availabilityResponse.getResponseCode() + ":" + availabilityResponse.getMessage());
 				//Skip updating the availability to make sure we don't delete availability due to errors, we'll just process next time
-				return;
+				return false;
 			}else if (availabilityResponse.getMessage() == null){
 				//Delete all availability for this record
 				if (singleWork) {
@@ -1393,7 +1676,7 @@ class ExtractOverDriveInfo {
 						deleteAllAvailabilityStmt.setLong(1, overDriveInfo.getDatabaseId());
 						deleteAllAvailabilityStmt.setLong(2, collectionInfo.getAspenLibraryId());
 						deleteAllAvailabilityStmt.setLong(3, settings.getId());
-						deleteAllAvailabilityStmt.executeUpdate();
+						deleteAllAvailabilityStmt.addBatch();
 						changesMade = true;
 						existingAvailabilities.remove(collectionInfo.getAspenLibraryId());
 					} catch (SQLException e) {
@@ -1486,7 +1769,7 @@ class ExtractOverDriveInfo {
 									updateAvailabilityStmt.setBoolean(6, false);
 									long existingId = existingAvailability.getId();
 									updateAvailabilityStmt.setLong(7, existingId);
-									updateAvailabilityStmt.executeUpdate();
+									updateAvailabilityStmt.addBatch();
 									changesMade = true;
 								}else if (singleWork) {
 									logEntry.addNote("Availability did not change, did not update the database");
@@ -1505,7 +1788,7 @@ class ExtractOverDriveInfo {
 								addAvailabilityStmt.setInt(7, numberOfHolds);
 								addAvailabilityStmt.setString(8, availabilityType);
 								addAvailabilityStmt.setBoolean(9, false);
-								addAvailabilityStmt.executeUpdate();
+								addAvailabilityStmt.addBatch();
 								changesMade = true;
 							}
 						} catch (SQLException e) {
@@ -1532,7 +1815,7 @@ class ExtractOverDriveInfo {
 				try{
 					long existingId = existingAvailability.getId();
 					deleteAvailabilityStmt.setLong(1, existingId);
-					deleteAvailabilityStmt.executeUpdate();
+					deleteAvailabilityStmt.addBatch();
 					changesMade = true;
 					if (singleWork) {
 						logEntry.addNote("Deleting availability for library " + existingAvailability.getLibraryId());
@@ -1543,18 +1826,7 @@ class ExtractOverDriveInfo {
 			}
 		}
 
-		//Update the product to indicate that we checked availability
-		if (changesMade){
-			try {
-				updateProductAvailabilityStmt.setLong(1, curTime);
-				updateProductAvailabilityStmt.setLong(2, curTime);
-				logEntry.incAvailabilityChanges();
-				updateProductAvailabilityStmt.setLong(3, databaseId);
-				updateProductAvailabilityStmt.executeUpdate();
-			} catch (SQLException e) {
-				logEntry.incErrors("Error updating product availability status " + overDriveInfo.getId(), e);
-			}
-		}
+		return changesMade;
 	}
 
 	private WebServiceResponse callOverDriveURL(String requestType, String overdriveUrl, boolean logFailures) throws SocketTimeoutException {
@@ -1567,6 +1839,11 @@ class ExtractOverDriveInfo {
 			while (numTries < maxTries) {
 				numTries++;
 				//logger.error(numTries + " - " + overdriveUrl);
+				try {
+					rateLimiter.waitForRequest(overdriveUrl);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
 				response = NetworkUtils.getURL(overdriveUrl, logger, headers, 10000, logFailures);
 				logExternalRequest(requestType, overdriveUrl, headers, response.getResponseCode(), response.getMessage());
 				if (response.isCallTimedOut() && numTries == maxTries) {
@@ -1600,7 +1877,7 @@ class ExtractOverDriveInfo {
 		return callOverDriveURL(requestType, overdriveUrl, true);
 	}
 
-	private boolean connectToOverDriveAPI() throws SocketTimeoutException {
+	private synchronized boolean connectToOverDriveAPI() throws SocketTimeoutException {
 		//Check to see if we already have a valid token
 		if (overDriveAPIToken != null){
 			if (overDriveAPIExpiration - new Date().getTime() > 0){
@@ -1611,57 +1888,22 @@ class ExtractOverDriveInfo {
 			}
 		}
 		//Connect to the API to get our token
-		HttpURLConnection conn;
 		try {
-			URL emptyIndexURL = new URL("https://oauth.overdrive.com/token");
-			conn = (HttpURLConnection) emptyIndexURL.openConnection();
-			if (conn instanceof HttpsURLConnection) {
-				HttpsURLConnection sslConn = (HttpsURLConnection) conn;
-				sslConn.setHostnameVerifier((hostname, session) -> {
-					//Do not verify host names
-					return true;
-				});
-			}
-			conn.setRequestMethod("POST");
-			conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded;charset=UTF-8");
-			//logger.debug("Client Key is " + clientSecret);
-			String encoded = Base64.encodeBase64String((settings.getClientKey() + ":" + settings.getClientSecret()).getBytes());
-			conn.setRequestProperty("Authorization", "Basic " + encoded);
-			conn.setReadTimeout(30000);
-			conn.setConnectTimeout(30000);
-			conn.setDoOutput(true);
-
-			OutputStreamWriter wr = new OutputStreamWriter(conn.getOutputStream(), StandardCharsets.UTF_8);
-			wr.write("grant_type=client_credentials");
-			wr.flush();
-			wr.close();
-
-			StringBuilder response = new StringBuilder();
-			if (conn.getResponseCode() == 200) {
-				// Get the response
-				BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-				String line;
-				while ((line = rd.readLine()) != null) {
-					response.append(line);
-				}
-				rd.close();
-				JSONObject parser = new JSONObject(response.toString());
+			rateLimiter.waitForRequest(tokenUrl);
+			WebServiceResponse response = NetworkUtils.postToURL(tokenUrl, "grant_type=client_credentials", "application/x-www-form-urlencoded", null, logger, settings.getClientKey() + ":" + settings.getClientSecret(), 30000, 30000);
+			if (response.isCallTimedOut()) {
+				throw new SocketTimeoutException(response.getMessage());
+			}
+			if (response.getResponseCode() == 200) {
+				JSONObject parser = new JSONObject(response.getMessage());
 				overDriveAPIToken = parser.getString("access_token");
 				overDriveAPITokenType = parser.getString("token_type");
 				//logger.debug("Token expires in " + parser.getLong("expires_in") + " seconds");
 				overDriveAPIExpiration = new Date().getTime() + (parser.getLong("expires_in") * 1000) - 10000;
 				//logger.debug("OverDrive token is " + overDriveAPIToken);
 			} else {
-				logger.error("Received error " + conn.getResponseCode() + " connecting to overdrive authentication service");
-				// Get any errors
-				BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getErrorStream()));
-				String line;
-				while ((line = rd.readLine()) != null) {
-					response.append(line);
-				}
-				logger.debug("  Finished reading response\r\n" + response);
-
-				rd.close();
+				logger.error("Received error " + response.getResponseCode() + " connecting to overdrive authentication service");
+				logger.debug("  Finished reading response\r\n" + response.getMessage());
 				return false;
 			}
 		} catch (SocketTimeoutException toe){
@@ -1689,6 +1931,7 @@ class ExtractOverDriveInfo {
 
 	void close(){
 		logger.info("Closing the overdrive extractor");
+		saveExternalRequestLogs();
 		if (recordGroupingProcessorSingleton != null) {
 			recordGroupingProcessorSingleton.close();
 			recordGroupingProcessorSingleton = null;
@@ -1715,7 +1958,6 @@ class ExtractOverDriveInfo {
 			addFormatStmt.close();
 			clearIdentifiersStmt.close();
 			addIdentifierStmt.close();
-			getExistingAvailabilityForProductStmt.close();
 			updateAvailabilityStmt.close();
 			addAvailabilityStmt.close();
 			deleteAvailabilityStmt.close();
@@ -1726,21 +1968,39 @@ class ExtractOverDriveInfo {
 		}
 	}
 
+	/**
+	 * Queues a request to be written to the external request log.  Requests are made by the extraction threads so the
+	 * entry is written later by saveExternalRequestLogs.
+	 */
 	void logExternalRequest(String requestType, String requestUrl, HashMap<String, String> requestHeaders, int responseCode, String response){
 		if (settings.isEnableRequestLogging()) {
 			StringBuilder headers = new StringBuilder();
 			for (String requestHeader : requestHeaders.keySet()) {
 				headers.append(requestHeader).append(": ").append(requestHeaders.get(requestHeader)).append("\n");
 			}
+			externalRequestsToLog.add(new ExternalRequestLogEntry(requestType, requestUrl, headers.toString(), responseCode, response, new Date().getTime() / 1000));
+		}
+	}
+
+	/**
+	 * Writes queued external requests to the database.  Must be called from the thread that owns the database connection.
+	 */
+	private void saveExternalRequestLogs(){
+		if (logExternalRequestStmt == null) {
+			externalRequestsToLog.clear();
+			return;
+		}
+		ExternalRequestLogEntry requestToLog;
+		while ((requestToLog = externalRequestsToLog.poll()) != null) {
 			try {
-				logExternalRequestStmt.setString(1, requestType);
+				logExternalRequestStmt.setString(1, requestToLog.requestType);
 				logExternalRequestStmt.setString(2, "GET");
-				logExternalRequestStmt.setString(3, requestUrl);
-				logExternalRequestStmt.setString(4, headers.toString());
+				logExternalRequestStmt.setString(3, requestToLog.requestUrl);
+				logExternalRequestStmt.setString(4, requestToLog.requestHeaders);
 				logExternalRequestStmt.setString(5, "");
-				logExternalRequestStmt.setInt(6, responseCode);
-				logExternalRequestStmt.setString(7, response);
-				logExternalRequestStmt.setLong(8, new Date().getTime() / 1000);
+				logExternalRequestStmt.setInt(6, requestToLog.responseCode);
+				logExternalRequestStmt.setString(7, requestToLog.response);
+				logExternalRequestStmt.setLong(8, requestToLog.requestTime);
 
 				logExternalRequestStmt.executeUpdate();
 			} catch (Exception e) {
@@ -1748,4 +2008,39 @@ class ExtractOverDriveInfo {
 			}
 		}
 	}
+
+	/**
+	 * A request to OverDrive that still needs to be written to the external request log
+	 */
+	private static class ExternalRequestLogEntry {
+		final String requestType;
+		final String requestUrl;
+		final String requestHeaders;
+		final int responseCode;
+		final String response;
+		final long requestTime;
+
+		ExternalRequestLogEntry(String requestType, String requestUrl, String requestHeaders, int responseCode, String response, long requestTime) {
+			this.requestType = requestType;
+			this.requestUrl = requestUrl;
+			this.requestHeaders = requestHeaders;
+			this.responseCode = responseCode;
+			this.response = response;
+			this.requestTime = requestTime;
+		}
+	}
+
+	/**
+	 * Information loaded from the API for a product that still needs to be saved to the database
+	 */
+	static class LoadedProduct {
+		final OverDriveRecordInfo record;
+		WebServiceResponse metaDataResponse;
+		LinkedHashMap<AdvantageCollectionInfo, WebServiceResponse> availabilityResponses;
+		boolean errorsEncountered = false;
+
+		LoadedProduct(OverDriveRecordInfo record) {
+			this.record = record;
+		}
+	}
 }
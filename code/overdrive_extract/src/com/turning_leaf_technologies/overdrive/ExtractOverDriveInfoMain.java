@@ -11,6 +11,7 @@ import com.turning_leaf_technologies.config.ConfigUtil;
 import com.turning_leaf_technologies.file.JarUtil;
 import com.turning_leaf_technologies.indexing.IndexingUtils;
 import com.turning_leaf_technologies.logging.LoggingUtil;
+import com.turning_leaf_technologies.net.NetworkUtils;
 import com.turning_leaf_technologies.strings.StringUtils;
 import org.apache.logging.log4j.Logger;
 import org.ini4j.Ini;
@@ -119,6 +120,8 @@ public class ExtractOverDriveInfoMain {
 							numChanges[0] += extractor.extractOverDriveInfo(configIni, serverName, localDBConnection, logEntry);
 						}
 
+						logEntry.addNote(NetworkUtils.getEndpointStatistics());
+						NetworkUtils.resetEndpointStatistics();
 						logEntry.setFinished();
 						logger.info("Finished OverDrive extraction");
 						Date endTime = new Date();
@@ -0,0 +1,48 @@
+package com.turning_leaf_technologies.overdrive;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of requests per second made to each host.  Requests are spaced evenly, each request reserves the
+ * next open slot for its host and then waits until that time outside the lock.
+ */
+class HostRateLimiter {
+	private final long nanosBetweenRequests;
+	private final HashMap<String, Long> nextRequestTimes = new HashMap<>();
+
+	/**
+	 * @param maxRequestsPerSecond the maximum requests to make to each host per second, 0 or less for no limit
+	 */
+	HostRateLimiter(int maxRequestsPerSecond) {
+		this.nanosBetweenRequests = maxRequestsPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond;
+	}
+
+	/**
+	 * Waits until a request can be made to the host for a url.
+	 */
+	void waitForRequest(String url) throws InterruptedException {
+		if (nanosBetweenRequests == 0) {
+			return;
+		}
+		String host;
+		try {
+			host = new URL(url).getHost();
+		} catch (MalformedURLException e) {
+			host = url;
+		}
+		long waitNanos;
+		synchronized (this) {
+			long now = System.nanoTime();
+			Long nextRequestTime = nextRequestTimes.get(host);
+			long requestTime = (nextRequestTime == null || nextRequestTime - now < 0) ? now : nextRequestTime;
+			nextRequestTimes.put(host, requestTime + nanosBetweenRequests);
+			waitNanos = requestTime - now;
+		}
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+}
@@ -42,8 +42,8 @@ class OverDriveExtractLogEntry implements BaseLogEntry {
 		saveResults();
 	}
 	private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+	//Counters and notes are updated by the threads loading products from OverDrive so all changes are synchronized
 	@Override
-	//Synchronized to prevent concurrent modification of the notes ArrayList
 	public synchronized void addNote(String note) {
 		Date date = new Date();
 		this.notes.add(dateFormat.format(date) + " - " + note);
@@ -72,7 +72,7 @@ class OverDriveExtractLogEntry implements BaseLogEntry {
 	
 	private PreparedStatement insertLogEntry;
 	private PreparedStatement updateLogEntry;
-	public boolean saveResults() {
+	public synchronized boolean saveResults() {
 		try {
 			if (logEntryId == null){
 				insertLogEntry.setLong(1, startTime.getTime() / 1000);
@@ -113,47 +113,47 @@ class OverDriveExtractLogEntry implements BaseLogEntry {
 			return false;
 		}
 	}
-	public void setFinished() {
+	public synchronized void setFinished() {
 		this.endTime = new Date();
 		this.addNote("Finished OverDrive extraction");
 		this.saveResults();
 	}
-	public void incErrors(String note) {
+	public synchronized void incErrors(String note) {
 		this.addNote("ERROR: " + note);
 		numErrors++;
 		this.saveResults();
 		logger.error(note);
 	}
 
-	public void incErrors(String note, Exception e){
+	public synchronized void incErrors(String note, Exception e){
 		this.addNote("ERROR: " + note + " " + e.toString());
 		numErrors++;
 		this.saveResults();
 		logger.error(note, e);
 	}
-	void incAdded(){
+	synchronized void incAdded(){
 		numAdded++;
 	}
-	void incDeleted(){
+	synchronized void incDeleted(){
 		numDeleted++;
 	}
-	void incUpdated(){
+	synchronized void incUpdated(){
 		numUpdated++;
 	}
-	void incSkipped(){
+	synchronized void incSkipped(){
 		numSkipped++;
 	}
-	void incAvailabilityChanges(){
+	synchronized void incAvailabilityChanges(){
 		numAvailabilityChanges++;
 	}
-	void incMetadataChanges(){
+	synchronized void incMetadataChanges(){
 		numMetadataChanges++;
 	}
-	void setNumProducts(int size) {
+	synchronized void setNumProducts(int size) {
 		numProducts = size;
 	}
 
-	boolean hasErrors() {
+	synchronized boolean hasErrors() {
 		return numErrors > 0;
 	}
 }
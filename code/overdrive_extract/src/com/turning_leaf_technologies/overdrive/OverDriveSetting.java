@@ -23,6 +23,8 @@ public class OverDriveSetting {
 	private final int numExtractionThreads;
 	private final boolean enableRequestLogging;
 	private final int numRetriesOnError;
+	private final int maxRequestsPerSecond;
+	private final boolean useBulkAvailability;
 	private final HashSet<String> productsToUpdate = new HashSet<>();
 	private final HashSet<String> productsToUpdateNextTime = new HashSet<>();
 
@@ -45,6 +47,8 @@ public class OverDriveSetting {
 		numExtractionThreads = settingRS.getInt("numExtractionThreads");
 		enableRequestLogging = settingRS.getBoolean("enableRequestLogging");
 		numRetriesOnError = Math.max(1, settingRS.getInt("numRetriesOnError"));
+		maxRequestsPerSecond = settingRS.getInt("maxRequestsPerSecond");
+		useBulkAvailability = settingRS.getBoolean("useBulkAvailability");
 		String productsToUpdateStr = settingRS.getString("productsToUpdate");
 		if (productsToUpdateStr == null){
 			productsToUpdateStr = "";
@@ -112,15 +116,24 @@ public class OverDriveSetting {
 		return numRetriesOnError;
 	}
 
+	public int getMaxRequestsPerSecond() {
+		return maxRequestsPerSecond;
+	}
+
+	public boolean isUseBulkAvailability() {
+		return useBulkAvailability;
+	}
+
 	public HashSet<String> getProductsToUpdate(){
 		return productsToUpdate;
 	}
 
-	public void addProductToUpdateNextTime(String overDriveId){
+	//Synchronized since products are loaded from OverDrive by multiple threads
+	public synchronized void addProductToUpdateNextTime(String overDriveId){
 		productsToUpdateNextTime.add(overDriveId);
 	}
 
-	public String getProductsToUpdateNextTimeAsString(){
+	public synchronized String getProductsToUpdateNextTimeAsString(){
 		return String.join("\n", productsToUpdateNextTime);
 	}
 }
@@ -0,0 +1,192 @@
+package com.turning_leaf_technologies.overdrive;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.turning_leaf_technologies.net.WebServiceResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks loading availability with the bulk availability API against a local server that answers like OverDrive.
+ */
+public class BulkAvailabilityTest {
+	private static final Logger logger = LogManager.getLogger(BulkAvailabilityTest.class);
+	private static final String PRODUCT_1 = "aaaaaaaa-0000-0000-0000-000000000001";
+	private static final String PRODUCT_2 = "aaaaaaaa-0000-0000-0000-000000000002";
+	private static final String PRODUCT_3 = "aaaaaaaa-0000-0000-0000-000000000003";
+
+	private HttpServer overDriveServer;
+	private final List<String> availabilityRequests = Collections.synchronizedList(new ArrayList<>());
+	private StubDatabase stubDatabase;
+	private OverDriveSetting settings;
+	private OverDriveExtractLogEntry logEntry;
+	private ExtractOverDriveInfo extractor;
+
+	@Before
+	public void setUp() throws Exception {
+		overDriveServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		overDriveServer.createContext("/token", exchange -> respond(exchange, "{\"access_token\":\"test-token\",\"token_type\":\"bearer\",\"expires_in\":3600}"));
+		overDriveServer.createContext("/v2/collections/", exchange -> {
+			availabilityRequests.add(exchange.getRequestURI().toString());
+			if (exchange.getRequestURI().getPath().startsWith("/v2/collections/unreadable/")) {
+				respond(exchange, "<html>Service Unavailable</html>");
+			} else {
+				//Product 2 is left out of the response and product 3 is in upper case the way OverDrive returns ids
+				respond(exchange, "{\"availability\":[" +
+						getProductAvailability(PRODUCT_1, 2, 1, 0) + "," +
+						getProductAvailability(PRODUCT_3.toUpperCase(), 1, 0, 3) +
+						"]}");
+			}
+		});
+		overDriveServer.start();
+		String serverUrl = "http://127.0.0.1:" + overDriveServer.getAddress().getPort();
+
+		stubDatabase = new StubDatabase();
+		stubDatabase.addResult("FROM overdrive_settings",
+				new String[]{"id", "clientSecret", "clientKey", "accountId", "websiteId", "productsKey", "runFullUpdate", "allowLargeDeletes", "lastUpdateOfChangedRecords", "lastUpdateOfAllRecords", "numExtractionThreads", "enableRequestLogging", "numRetriesOnError", "maxRequestsPerSecond", "useBulkAvailability", "productsToUpdate"},
+				new Object[]{1L, "secret", "key", "1", "1", "products", false, false, 0L, 0L, 1, false, 0, 0, true, ""});
+		Connection dbConn = stubDatabase.getConnection();
+		ResultSet settingsRS = dbConn.prepareStatement("SELECT * FROM overdrive_settings").executeQuery();
+		assertTrue(settingsRS.next());
+		settings = new OverDriveSetting(settingsRS, "test");
+
+		logEntry = new OverDriveExtractLogEntry(dbConn, settings, logger);
+		extractor = new ExtractOverDriveInfo(settings, serverUrl, serverUrl + "/token");
+		extractor.initOverDriveExtract(dbConn, logEntry);
+	}
+
+	@After
+	public void tearDown() {
+		overDriveServer.stop(0);
+	}
+
+	@Test
+	public void bulkAvailabilityIsSplitByReserveId() {
+		List<ExtractOverDriveInfo.LoadedProduct> loadedProducts = getLoadedProducts("shared");
+		extractor.loadBulkOverDriveAvailability(loadedProducts);
+
+		assertEquals("One request should check every product in the collection", 1, availabilityRequests.size());
+		assertTrue(availabilityRequests.get(0).endsWith("/v2/collections/shared/availability?products=" + PRODUCT_1 + "," + PRODUCT_2 + "," + PRODUCT_3));
+
+		assertEquals(200, getResponseCode(loadedProducts.get(0)));
+		assertEquals(PRODUCT_1, getOnlyResponse(loadedProducts.get(0)).getJSONResponse().getString("reserveId"));
+		//Products missing from the response are handled like a 404 for a single product
+		assertEquals(404, getResponseCode(loadedProducts.get(1)));
+		assertEquals(200, getResponseCode(loadedProducts.get(2)));
+
+		extractor.saveOverDriveAvailability(loadedProducts, false);
+		List<Object[]> addedAvailability = stubDatabase.getExecutedBatchRows("INSERT INTO overdrive_api_product_availability");
+		assertEquals(2, addedAvailability.size());
+		assertEquals(1L, addedAvailability.get(0)[0]);
+		assertEquals(2, addedAvailability.get(0)[4]);
+		assertEquals(3L, addedAvailability.get(1)[0]);
+		assertEquals(3, addedAvailability.get(1)[6]);
+		assertFalse(logEntry.hasErrors());
+	}
+
+	@Test
+	public void unreadableBulkResponseSkipsAvailability() {
+		List<ExtractOverDriveInfo.LoadedProduct> loadedProducts = getLoadedProducts("unreadable");
+		extractor.loadBulkOverDriveAvailability(loadedProducts);
+
+		for (ExtractOverDriveInfo.LoadedProduct loadedProduct : loadedProducts) {
+			assertNull("Availability should not be saved from a response that can't be read", loadedProduct.availabilityResponses);
+			assertTrue(loadedProduct.errorsEncountered);
+		}
+		assertEquals(Arrays.asList(PRODUCT_1, PRODUCT_2, PRODUCT_3), getProductsToUpdateNextTime());
+	}
+
+	@Test
+	public void failedBatchIsSavedOneProductAtATime() {
+		stubDatabase.failBatchesContaining("INSERT INTO overdrive_api_product_availability", 1L);
+		List<ExtractOverDriveInfo.LoadedProduct> loadedProducts = getLoadedProducts("shared");
+		extractor.loadBulkOverDriveAvailability(loadedProducts);
+		extractor.saveOverDriveAvailability(loadedProducts, false);
+
+		List<Object[]> addedAvailability = stubDatabase.getExecutedBatchRows("INSERT INTO overdrive_api_product_availability");
+		assertEquals("Product 3 should be saved even though product 1 could not be", 1, addedAvailability.size());
+		assertEquals(3L, addedAvailability.get(0)[0]);
+		assertTrue(logEntry.hasErrors());
+		assertEquals(Collections.singletonList(PRODUCT_1), getProductsToUpdateNextTime());
+	}
+
+	@Test
+	public void availabilityIsNotSavedWhenExistingAvailabilityCannotBeLoaded() {
+		stubDatabase.failQueriesContaining("SELECT * from overdrive_api_product_availability");
+		List<ExtractOverDriveInfo.LoadedProduct> loadedProducts = getLoadedProducts("shared");
+		extractor.loadBulkOverDriveAvailability(loadedProducts);
+		extractor.saveOverDriveAvailability(loadedProducts, false);
+
+		assertTrue("Availability should not be added on top of rows that could not be read", stubDatabase.getExecutedBatchRows("INSERT INTO overdrive_api_product_availability").isEmpty());
+		assertTrue(logEntry.hasErrors());
+		assertEquals(Arrays.asList(PRODUCT_1, PRODUCT_2, PRODUCT_3), getProductsToUpdateNextTime());
+	}
+
+	private List<ExtractOverDriveInfo.LoadedProduct> getLoadedProducts(String collectionToken) {
+		AdvantageCollectionInfo collectionInfo = new AdvantageCollectionInfo();
+		collectionInfo.setAdvantageId(-1);
+		collectionInfo.setAspenLibraryId(-1);
+		collectionInfo.setCollectionToken(collectionToken);
+		collectionInfo.setName("Shared Collection");
+
+		ArrayList<ExtractOverDriveInfo.LoadedProduct> loadedProducts = new ArrayList<>();
+		String[] productIds = {PRODUCT_1, PRODUCT_2, PRODUCT_3};
+		for (int i = 0; i < productIds.length; i++) {
+			OverDriveRecordInfo record = new OverDriveRecordInfo();
+			record.setId(productIds[i]);
+			record.setDatabaseId(i + 1);
+			record.addCollection(collectionInfo);
+			loadedProducts.add(new ExtractOverDriveInfo.LoadedProduct(record));
+		}
+		return loadedProducts;
+	}
+
+	private static String getProductAvailability(String reserveId, int copiesOwned, int copiesAvailable, int numberOfHolds) {
+		return "{\"reserveId\":\"" + reserveId + "\"," +
+				"\"accounts\":[{\"id\":-1,\"copiesOwned\":" + copiesOwned + ",\"copiesAvailable\":" + copiesAvailable + ",\"shared\":false}]," +
+				"\"available\":" + (copiesAvailable > 0) + "," +
+				"\"availabilityType\":\"Normal\"," +
+				"\"numberOfHolds\":" + numberOfHolds + "}";
+	}
+
+	private static int getResponseCode(ExtractOverDriveInfo.LoadedProduct loadedProduct) {
+		return getOnlyResponse(loadedProduct).getResponseCode();
+	}
+
+	private static WebServiceResponse getOnlyResponse(ExtractOverDriveInfo.LoadedProduct loadedProduct) {
+		assertEquals(1, loadedProduct.availabilityResponses.size());
+		return loadedProduct.availabilityResponses.values().iterator().next();
+	}
+
+	private List<String> getProductsToUpdateNextTime() {
+		ArrayList<String> productsToUpdateNextTime = new ArrayList<>(Arrays.asList(settings.getProductsToUpdateNextTimeAsString().split("\n")));
+		productsToUpdateNextTime.remove("");
+		Collections.sort(productsToUpdateNextTime);
+		return productsToUpdateNextTime;
+	}
+
+	private static void respond(HttpExchange exchange, String body) throws IOException {
+		byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, bodyBytes.length);
+		try (OutputStream responseBody = exchange.getResponseBody()) {
+			responseBody.write(bodyBytes);
+		}
+	}
+}
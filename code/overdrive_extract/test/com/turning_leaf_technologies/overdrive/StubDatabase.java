@@ -0,0 +1,191 @@
+package com.turning_leaf_technologies.overdrive;
+
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A connection that answers queries from rows registered by a test rather than from MySQL.  Queries are matched by a
+ * fragment of their SQL, queries that do not match anything return no rows and updates do nothing.  Rows sent with
+ * JDBC batches are recorded so tests can check what was saved.
+ */
+class StubDatabase {
+	private final ArrayList<StubResult> results = new ArrayList<>();
+	private final HashMap<String, Object> failingBatches = new HashMap<>();
+	private final ArrayList<String> failingQueries = new ArrayList<>();
+	private final HashMap<String, List<Object[]>> executedBatchRows = new HashMap<>();
+
+	/**
+	 * Returns the rows for any query containing sqlFragment.  Each row has a value for each column.
+	 */
+	void addResult(String sqlFragment, String[] columns, Object[]... rows) {
+		results.add(new StubResult(sqlFragment, columns, Arrays.asList(rows)));
+	}
+
+	/**
+	 * Makes a batch for any statement containing sqlFragment fail if it has a row where the first parameter is firstParameter.
+	 */
+	void failBatchesContaining(String sqlFragment, Object firstParameter) {
+		failingBatches.put(sqlFragment, firstParameter);
+	}
+
+	/**
+	 * Makes any query containing sqlFragment fail.
+	 */
+	void failQueriesContaining(String sqlFragment) {
+		failingQueries.add(sqlFragment);
+	}
+
+	/**
+	 * @return the rows saved by batches for statements containing sqlFragment
+	 */
+	synchronized List<Object[]> getExecutedBatchRows(String sqlFragment) {
+		ArrayList<Object[]> rows = new ArrayList<>();
+		for (String sql : executedBatchRows.keySet()) {
+			if (sql.contains(sqlFragment)) {
+				rows.addAll(executedBatchRows.get(sql));
+			}
+		}
+		return rows;
+	}
+
+	Connection getConnection() {
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "prepareStatement":
+					return createStatement((String) args[0]);
+				default:
+					return getDefaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	private PreparedStatement createStatement(String sql) {
+		HashMap<Integer, Object> parameters = new HashMap<>();
+		ArrayList<Object[]> batchRows = new ArrayList<>();
+		return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{PreparedStatement.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "executeQuery":
+				case "getGeneratedKeys":
+					if (failingQueries.stream().anyMatch(sql::contains)) {
+						throw new SQLException("Stub failure for " + sql);
+					}
+					return createResultSet(getResult(sql));
+				case "addBatch":
+					Object[] row = new Object[parameters.size()];
+					for (int i = 0; i < row.length; i++) {
+						row[i] = parameters.get(i + 1);
+					}
+					batchRows.add(row);
+					return null;
+				case "clearBatch":
+					batchRows.clear();
+					return null;
+				case "executeBatch":
+					return executeBatch(sql, batchRows);
+				default:
+					if (method.getName().startsWith("set") && args != null && args.length == 2 && args[0] instanceof Integer) {
+						parameters.put((Integer) args[0], args[1]);
+						return null;
+					}
+					return getDefaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	private synchronized int[] executeBatch(String sql, ArrayList<Object[]> batchRows) throws BatchUpdateException {
+		for (String sqlFragment : failingBatches.keySet()) {
+			if (sql.contains(sqlFragment)) {
+				for (Object[] row : batchRows) {
+					if (row.length > 0 && failingBatches.get(sqlFragment).equals(row[0])) {
+						throw new BatchUpdateException("Stub failure for " + row[0], new int[0]);
+					}
+				}
+			}
+		}
+		executedBatchRows.computeIfAbsent(sql, k -> new ArrayList<>()).addAll(batchRows);
+		int[] updateCounts = new int[batchRows.size()];
+		Arrays.fill(updateCounts, 1);
+		batchRows.clear();
+		return updateCounts;
+	}
+
+	private StubResult getResult(String sql) {
+		for (StubResult result : results) {
+			if (sql.contains(result.sqlFragment)) {
+				return result;
+			}
+		}
+		return null;
+	}
+
+	private ResultSet createResultSet(StubResult result) {
+		List<Object[]> rows = result == null ? new ArrayList<>() : result.rows;
+		int[] currentRow = {-1};
+		return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "next":
+					currentRow[0]++;
+					return currentRow[0] < rows.size();
+				case "getString":
+				case "getLong":
+				case "getInt":
+				case "getBoolean":
+					Object value = getValue(result, rows.get(currentRow[0]), args[0]);
+					if (value == null) {
+						return getDefaultValue(method.getReturnType());
+					} else if (method.getReturnType() == String.class) {
+						return value.toString();
+					} else if (method.getReturnType() == long.class) {
+						return ((Number) value).longValue();
+					} else if (method.getReturnType() == int.class) {
+						return ((Number) value).intValue();
+					}
+					return value;
+				default:
+					return getDefaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	private static Object getValue(StubResult result, Object[] row, Object column) {
+		for (int i = 0; i < result.columns.length; i++) {
+			if (result.columns[i].equalsIgnoreCase((String) column)) {
+				return row[i];
+			}
+		}
+		throw new IllegalArgumentException("Unknown column " + column);
+	}
+
+	private static Object getDefaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		} else if (type == int.class) {
+			return 0;
+		} else if (type == long.class) {
+			return 0L;
+		} else if (type.isPrimitive() && type != void.class) {
+			return 0;
+		}
+		return null;
+	}
+
+	private static class StubResult {
+		final String sqlFragment;
+		final String[] columns;
+		final List<Object[]> rows;
+
+		StubResult(String sqlFragment, String[] columns, List<Object[]> rows) {
+			this.sqlFragment = sqlFragment;
+			this.columns = columns;
+			this.rows = rows;
+		}
+	}
+}
@@ -222,6 +222,8 @@ public class PolarisExportMain {
 					logEntry.incErrors("Error updating when the records were last indexed", e);
 				}
 
+				logEntry.addNote(NetworkUtils.getEndpointStatistics());
+				NetworkUtils.resetEndpointStatistics();
 				logEntry.setFinished();
 
 				Date currentTime = new Date();
@@ -8,42 +8,35 @@ class AuthorNormalizer {
 	private static Pattern authorExtract1 = Pattern.compile("^(.+?)\\spresents.*$");
 	private static Pattern authorExtract2 = Pattern.compile("^(?:(?:a|an)\\s)?(.+?)\\spresentation.*$");
 	private static Pattern distributedByRemoval = Pattern.compile("^distributed (?:in.*\\s)?by\\s(.+)$");
-	private static Pattern initialsFix = Pattern.compile("(?<=[A-Z])\\.(?=(\\s|[A-Z]|$))");
-	private static Pattern apostropheStrip = Pattern.compile("'s");
-	private static Pattern specialCharacterWhitespace = Pattern.compile("'");
-	private static Pattern specialCharacterStrip = Pattern.compile("[^\\p{L}\\d\\s]");
-	private static Pattern consecutiveCharacterStrip = Pattern.compile("\\s{2,}");
 
 	static String getNormalizedName(String rawName) {
 		String groupingAuthor = normalizeDiacritics(rawName);
 		groupingAuthor = removeParentheticalInformation(groupingAuthor);
 		groupingAuthor = removeDates(groupingAuthor);
-		groupingAuthor = initialsFix.matcher(groupingAuthor).replaceAll(" ");
-		//For authors we just want to strip the brackets, not the text within them
-		groupingAuthor = groupingAuthor.replace("[", "").replace("]", "");
-		groupingAuthor = groupingAuthor.replace("<", "").replace(">", "");
-
-		//Remove special characters that should be replaced with nothing
-		groupingAuthor = apostropheStrip.matcher(groupingAuthor).replaceAll("");
-		groupingAuthor = specialCharacterWhitespace.matcher(groupingAuthor).replaceAll("");
-		groupingAuthor = specialCharacterStrip.matcher(groupingAuthor).replaceAll(" ").trim().toLowerCase();
-		groupingAuthor = consecutiveCharacterStrip.matcher(groupingAuthor).replaceAll(" ");
+		//Strip brackets (but not the text within them), apostrophes and other special characters
+		groupingAuthor = GroupingTextScanner.cleanAuthorCharacters(groupingAuthor);
 		//extract common additional info (especially for movie studios)
-		Matcher authorExtract1Matcher = authorExtract1.matcher(groupingAuthor);
-		if (authorExtract1Matcher.find()){
-			groupingAuthor = authorExtract1Matcher.group(1);
+		if (groupingAuthor.contains("presents")) {
+			Matcher authorExtract1Matcher = authorExtract1.matcher(groupingAuthor);
+			if (authorExtract1Matcher.find()) {
+				groupingAuthor = authorExtract1Matcher.group(1);
+			}
 		}
-		Matcher authorExtract2Matcher = authorExtract2.matcher(groupingAuthor);
-		if (authorExtract2Matcher.find()){
-			groupingAuthor = authorExtract2Matcher.group(1);
+		if (groupingAuthor.contains("presentation")) {
+			Matcher authorExtract2Matcher = authorExtract2.matcher(groupingAuthor);
+			if (authorExtract2Matcher.find()) {
+				groupingAuthor = authorExtract2Matcher.group(1);
+			}
 		}
 
 		groupingAuthor = removeCommonPrefixesAndSuffixes(groupingAuthor);
 
 		//Remove home entertainment
-		Matcher distributedByRemovalMatcher = distributedByRemoval.matcher(groupingAuthor);
-		if (distributedByRemovalMatcher.find()){
-			groupingAuthor = distributedByRemovalMatcher.group(1);
+		if (groupingAuthor.startsWith("distributed ")) {
+			Matcher distributedByRemovalMatcher = distributedByRemoval.matcher(groupingAuthor);
+			if (distributedByRemovalMatcher.find()) {
+				groupingAuthor = distributedByRemovalMatcher.group(1);
+			}
 		}
 		//Remove md if the author ends with md
 		if (groupingAuthor.endsWith(" md")){
@@ -133,6 +126,9 @@ class AuthorNormalizer {
 	 * @return the author name without information in the parenthesis if any
 	 */
 	private static String removeParentheticalInformation(String authorName) {
+		if (authorName.indexOf('(') == -1) {
+			return authorName;
+		}
 		return parenRemoval.matcher(authorName).replaceAll("");
 	}
 
@@ -176,9 +172,23 @@ class AuthorNormalizer {
 	 * @return the name without dates.
 	 */
 	private static String removeDates(String authorName) {
+		//All dates have at least 4 digits
+		if (!containsDigit(authorName)) {
+			return authorName;
+		}
 		return datePattern.matcher(authorName).replaceAll("");
 	}
 
+	private static boolean containsDigit(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char curChar = value.charAt(i);
+			if (curChar >= '0' && curChar <= '9') {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private static Pattern hasParentheticalPattern = Pattern.compile(",.*?\\([^,]*?\\)");
 	private static Pattern parentheticalPattern = Pattern.compile(".*?\\((.*?)\\)", Pattern.CANON_EQ);
 	/**
@@ -0,0 +1,237 @@
+package com.turning_leaf_technologies.grouping;
+
+import com.turning_leaf_technologies.logging.BaseLogEntry;
+
+import java.sql.*;
+import java.text.Normalizer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * In memory copy of the author authorities, title authorities and alternate titles that are checked while grouping so
+ * grouping does not need to query the database for every record.
+ *
+ * The index is loaded once per process and shared by all grouping processors.  Each time a processor is created, the
+ * index is refreshed using the lastUpdated timestamp of each table.  New rows are added to the index and if existing
+ * rows were changed or deleted, that part of the index is reloaded.  Each refresh swaps in new maps rather than changing
+ * the existing ones so lookups never need to lock.
+ *
+ * The tables use the utf8_general_ci collation which ignores case, accents and trailing spaces when comparing values.
+ * Keys are normalized the same way (see getKey) so lookups find the same rows the database would have found.
+ */
+class AuthorityIndex {
+	private static AuthorityIndex index = null;
+
+	private static final String AUTHOR_AUTHORITIES_QUERY = "SELECT author_authority_alternative.id, author_authority_alternative.normalized as alternative, author_authority.normalized as authority FROM author_authority_alternative INNER JOIN author_authority ON author_authority_alternative.authorId = author_authority.id WHERE author_authority_alternative.id > ? ORDER BY author_authority_alternative.id";
+	private static final String TITLE_AUTHORITIES_QUERY = "SELECT id, originalName, authoritativeName FROM title_authorities WHERE id > ? ORDER BY id";
+	private static final String ALTERNATE_TITLES_QUERY = "SELECT id, alternateTitle, alternateAuthor, permanent_id FROM grouped_work_alternate_titles WHERE id > ? ORDER BY id";
+	private static final Pattern combiningMarks = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
+	private final TableState authorState = new TableState("author_authority");
+	private final TableState authorAlternativeState = new TableState("author_authority_alternative");
+	private final TableState titleState = new TableState("title_authorities");
+	private final TableState alternateTitleState = new TableState("grouped_work_alternate_titles");
+
+	private volatile Map<String, String> authorAuthorities = Collections.emptyMap();
+	private volatile Map<String, String> titleAuthorities = Collections.emptyMap();
+	private volatile Map<String, String> alternateTitles = Collections.emptyMap();
+
+	/**
+	 * Loads the index the first time it is requested and refreshes it with any changes after that.
+	 */
+	static synchronized AuthorityIndex getIndex(Connection dbConn, BaseLogEntry logEntry) {
+		if (index == null) {
+			index = new AuthorityIndex();
+		}
+		index.refresh(dbConn, logEntry);
+		return index;
+	}
+
+	/**
+	 * @return the normalized authoritative author for a normalized author or null if the author has no authority
+	 */
+	String getAuthoritativeAuthor(String normalizedAuthor) {
+		if (normalizedAuthor == null) {
+			return null;
+		}
+		return authorAuthorities.get(getKey(normalizedAuthor));
+	}
+
+	/**
+	 * @return the authoritative title for a normalized title or null if the title has no authority
+	 */
+	String getAuthoritativeTitle(String normalizedTitle) {
+		if (normalizedTitle == null) {
+			return null;
+		}
+		return titleAuthorities.get(getKey(normalizedTitle));
+	}
+
+	/**
+	 * @return the permanent id of the work a title and author were merged into or null if they have not been merged
+	 */
+	String getPermanentIdForAlternateTitle(String normalizedTitle, String normalizedAuthor) {
+		if (normalizedTitle == null || normalizedAuthor == null) {
+			return null;
+		}
+		return alternateTitles.get(getAlternateTitleKey(normalizedTitle, normalizedAuthor));
+	}
+
+	void refresh(Connection dbConn, BaseLogEntry logEntry) {
+		try {
+			long refreshTime = getDatabaseTime(dbConn);
+
+			long lastAlternativeId = authorAlternativeState.maxId;
+			boolean reloadAuthors = authorState.hasChangedRows(dbConn) || authorAlternativeState.hasChangedRows(dbConn);
+			authorState.update(dbConn, refreshTime);
+			authorAlternativeState.update(dbConn, refreshTime);
+			if (reloadAuthors) {
+				authorAuthorities = loadValues(dbConn, AUTHOR_AUTHORITIES_QUERY, 1, 0, Collections.emptyMap());
+			} else if (authorAlternativeState.maxId > lastAlternativeId) {
+				authorAuthorities = loadValues(dbConn, AUTHOR_AUTHORITIES_QUERY, 1, lastAlternativeId, authorAuthorities);
+			}
+
+			long lastTitleId = titleState.maxId;
+			boolean reloadTitles = titleState.hasChangedRows(dbConn);
+			titleState.update(dbConn, refreshTime);
+			if (reloadTitles) {
+				titleAuthorities = loadValues(dbConn, TITLE_AUTHORITIES_QUERY, 1, 0, Collections.emptyMap());
+			} else if (titleState.maxId > lastTitleId) {
+				titleAuthorities = loadValues(dbConn, TITLE_AUTHORITIES_QUERY, 1, lastTitleId, titleAuthorities);
+			}
+
+			long lastAlternateTitleId = alternateTitleState.maxId;
+			boolean reloadAlternateTitles = alternateTitleState.hasChangedRows(dbConn);
+			alternateTitleState.update(dbConn, refreshTime);
+			if (reloadAlternateTitles) {
+				alternateTitles = loadValues(dbConn, ALTERNATE_TITLES_QUERY, 2, 0, Collections.emptyMap());
+			} else if (alternateTitleState.maxId > lastAlternateTitleId) {
+				alternateTitles = loadValues(dbConn, ALTERNATE_TITLES_QUERY, 2, lastAlternateTitleId, alternateTitles);
+			}
+		} catch (SQLException e) {
+			//Force everything to be reloaded next time since we don't know what was loaded
+			authorState.loaded = false;
+			authorAlternativeState.loaded = false;
+			titleState.loaded = false;
+			alternateTitleState.loaded = false;
+			logEntry.incErrors("Error loading authorities", e);
+		}
+	}
+
+	/**
+	 * Loads rows after minId into a copy of the existing values.  The query returns the id, the key columns and then the
+	 * value.  If several rows have the same key the first one is used, like the first row found in the database was
+	 * used when the database was queried for each record.
+	 */
+	private Map<String, String> loadValues(Connection dbConn, String query, int numKeyColumns, long minId, Map<String, String> existingValues) throws SQLException {
+		HashMap<String, String> values = new HashMap<>(existingValues);
+		//Many keys share the same value (i.e. all the alternatives for an author) so only keep one copy of each value
+		HashMap<String, String> distinctValues = new HashMap<>();
+		try (PreparedStatement loadValuesStmt = dbConn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+			loadValuesStmt.setLong(1, minId);
+			try (ResultSet valuesRS = loadValuesStmt.executeQuery()) {
+				while (valuesRS.next()) {
+					String value = valuesRS.getString(numKeyColumns + 2);
+					String key = valuesRS.getString(2);
+					if (numKeyColumns == 2) {
+						String author = valuesRS.getString(3);
+						key = (key == null || author == null) ? null : getAlternateTitleKey(key, author);
+					} else if (key != null) {
+						key = getKey(key);
+					}
+					if (key == null || key.length() == 0 || value == null || value.length() == 0) {
+						continue;
+					}
+					String existingValue = distinctValues.putIfAbsent(value, value);
+					values.putIfAbsent(key, existingValue == null ? value : existingValue);
+				}
+			}
+		}
+		return Collections.unmodifiableMap(values);
+	}
+
+	private static String getAlternateTitleKey(String title, String author) {
+		//Control characters are removed during normalization so they can't be part of the title
+		return getKey(title) + '\u0001' + getKey(author);
+	}
+
+	/**
+	 * Normalizes a value the way the utf8_general_ci collation compares it.  Case and accents are removed and trailing
+	 * spaces are ignored.
+	 */
+	static String getKey(String value) {
+		String key = value.toLowerCase();
+		boolean isAscii = true;
+		for (int i = 0; i < key.length(); i++) {
+			if (key.charAt(i) > 127) {
+				isAscii = false;
+				break;
+			}
+		}
+		if (!isAscii) {
+			key = combiningMarks.matcher(Normalizer.normalize(key, Normalizer.Form.NFD)).replaceAll("");
+		}
+		int end = key.length();
+		while (end > 0 && key.charAt(end - 1) == ' ') {
+			end--;
+		}
+		return end == key.length() ? key : key.substring(0, end);
+	}
+
+	private static long getDatabaseTime(Connection dbConn) throws SQLException {
+		try (PreparedStatement getTimeStmt = dbConn.prepareStatement("SELECT UNIX_TIMESTAMP() as currentTime");
+			 ResultSet getTimeRS = getTimeStmt.executeQuery()) {
+			getTimeRS.next();
+			return getTimeRS.getLong("currentTime");
+		}
+	}
+
+	/**
+	 * Tracks what has been loaded from a table so changes can be detected.  Rows after maxId are new.  Rows up to maxId
+	 * have been loaded, so if any of them were changed since the last refresh or the number of them is different
+	 * (because rows were deleted), the table needs to be reloaded.
+	 */
+	private static class TableState {
+		private final String tableName;
+		private boolean loaded = false;
+		private long maxId = 0;
+		private long numRows = 0;
+		private long lastRefreshTime = 0;
+
+		TableState(String tableName) {
+			this.tableName = tableName;
+		}
+
+		boolean hasChangedRows(Connection dbConn) {
+			if (!loaded) {
+				return true;
+			}
+			try (PreparedStatement changedRowsStmt = dbConn.prepareStatement("SELECT COUNT(*) as numRows, SUM(UNIX_TIMESTAMP(lastUpdated) >= ?) as numChanged FROM " + tableName + " WHERE id <= ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+				changedRowsStmt.setLong(1, lastRefreshTime);
+				changedRowsStmt.setLong(2, maxId);
+				try (ResultSet changedRowsRS = changedRowsStmt.executeQuery()) {
+					if (changedRowsRS.next()) {
+						return changedRowsRS.getLong("numRows") != numRows || changedRowsRS.getLong("numChanged") > 0;
+					}
+				}
+			} catch (SQLException e) {
+				//lastUpdated has not been added to the table yet, reload everything
+			}
+			return true;
+		}
+
+		void update(Connection dbConn, long refreshTime) throws SQLException {
+			try (PreparedStatement tableInfoStmt = dbConn.prepareStatement("SELECT COUNT(*) as numRows, MAX(id) as maxId FROM " + tableName, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				 ResultSet tableInfoRS = tableInfoStmt.executeQuery()) {
+				if (tableInfoRS.next()) {
+					numRows = tableInfoRS.getLong("numRows");
+					maxId = tableInfoRS.getLong("maxId");
+				}
+			}
+			lastRefreshTime = refreshTime;
+			loaded = true;
+		}
+	}
+}
@@ -33,10 +33,7 @@ class GroupedWork implements Cloneable {
 	private String uniqueIdentifier = null;
 	private final RecordGroupingProcessor processor;
 
-	private static final Pattern initialsFix = Pattern.compile("(?<=[A-Z])\\.(?=(\\s|[A-Z]|$))");
-	private static final Pattern apostropheStrip = Pattern.compile("'s");
 	private static final Pattern specialCharacterStrip = Pattern.compile("[^\\p{L}\\d\\s]");
-	private static final Pattern consecutiveSpaceStrip = Pattern.compile("\\s{2,}");
 	@SuppressWarnings("RegExpRedundantEscape")
 	private static final Pattern bracketedCharacterStrip = Pattern.compile("\\[(.*?)\\]");
 
@@ -159,59 +156,37 @@ class GroupedWork implements Cloneable {
 		return groupingTitle;
 	}
 
-	private static final Pattern dashPattern = Pattern.compile("&#8211");
-	private static final Pattern ampersandPattern = Pattern.compile("&");
 	private String cleanTitleCharacters(String groupingTitle) {
-		//Fix abbreviations
-		groupingTitle = initialsFix.matcher(groupingTitle).replaceAll(" ");
-		//Replace & with and for better matching
-		groupingTitle = dashPattern.matcher(groupingTitle).replaceAll("-");
-		groupingTitle = ampersandPattern.matcher(groupingTitle).replaceAll("and");
-
-		groupingTitle = apostropheStrip.matcher(groupingTitle).replaceAll("s");
-		groupingTitle = specialCharacterStrip.matcher(groupingTitle).replaceAll(" ").toLowerCase();
-
-		//Replace consecutive spaces
-		groupingTitle = consecutiveSpaceStrip.matcher(groupingTitle).replaceAll(" ");
-		return groupingTitle.trim();
+		return GroupingTextScanner.cleanTitleCharacters(groupingTitle);
 	}
 
+	//Every edition pattern includes one of these so titles without them can skip the regular expression
+	private static final String[] editionRemovalValues = {"ed", "update"};
 	private String removeEditionInformation(String groupingTitle) {
+		if (!GroupingTextScanner.containsAny(groupingTitle, editionRemovalValues)) {
+			return groupingTitle;
+		}
 		groupingTitle = editionRemovalPattern.matcher(groupingTitle).replaceAll("");
 		return groupingTitle;
 	}
 
-	private static final Pattern firstPattern = Pattern.compile("1st");
-	private static final Pattern secondPattern = Pattern.compile("2nd");
-	private static final Pattern thirdPattern = Pattern.compile("3rd");
-	private static final Pattern fourthPattern = Pattern.compile("4th");
-	private static final Pattern fifthPattern = Pattern.compile("5th");
-	private static final Pattern sixthPattern = Pattern.compile("6th");
-	private static final Pattern seventhPattern = Pattern.compile("7th");
-	private static final Pattern eighthPattern = Pattern.compile("8th");
-	private static final Pattern ninthPattern = Pattern.compile("9th");
-	private static final Pattern tenthPattern = Pattern.compile("10th");
 	private String normalizeNumericTitleText(String groupingTitle) {
-		//Normalize numeric titles
-		groupingTitle = firstPattern.matcher(groupingTitle).replaceAll("first");
-		groupingTitle = secondPattern.matcher(groupingTitle).replaceAll("second");
-		groupingTitle = thirdPattern.matcher(groupingTitle).replaceAll("third");
-		groupingTitle = fourthPattern.matcher(groupingTitle).replaceAll("fourth");
-		groupingTitle = fifthPattern.matcher(groupingTitle).replaceAll("fifth");
-		groupingTitle = sixthPattern.matcher(groupingTitle).replaceAll("sixth");
-		groupingTitle = seventhPattern.matcher(groupingTitle).replaceAll("seventh");
-		groupingTitle = eighthPattern.matcher(groupingTitle).replaceAll("eighth");
-		groupingTitle = ninthPattern.matcher(groupingTitle).replaceAll("ninth");
-		groupingTitle = tenthPattern.matcher(groupingTitle).replaceAll("tenth");
-		return groupingTitle;
+		//Normalize numeric titles (1st becomes first, etc)
+		return GroupingTextScanner.normalizeNumericText(groupingTitle);
 	}
 
 	private static final Pattern commonSubtitlesSimplePattern = Pattern.compile("\\b(by\\s\\w+\\s\\w+|a novel of .*|stories|an autobiography|a biography|a memoir in books|poems|the movie|large print|graphic novel|magazine|audio cd|book club kit|with illustrations|book \\d+|the original classic edition|classic edition|a novel|large type edition|novel)$");
 	private static final Pattern commonSubtitlesComplexPattern = Pattern.compile("\\b((a|una|an)\\s(.*)novel(a|la)?|a(.*)memoir|a(.*)mystery|a(.*)thriller|by\\s\\w+\\s\\w+|an? .* story|a .*\\s?book|[\\w\\s]+series book \\d+|[\\w\\s]+serie libro \\d+|the[\\w\\s]+chronicles book \\d+|[\\w\\s]+trilogy book \\d+|^novel|[\\w\\s]+series|.+\\sbook\\s\\d+)$");
+	//Every common subtitle includes at least one of these so titles without them can skip the regular expressions
+	private static final String[] commonSubtitlesSimpleValues = {"by", "novel", "stories", "biography", "memoir", "poems", "movie", "print", "magazine", "audio cd", "book", "illustrations", "edition"};
+	private static final String[] commonSubtitlesComplexValues = {"novel", "memoir", "mystery", "thriller", "by", "story", "book", "libro", "series"};
 	private String removeCommonSubtitles(String groupingTitle) {
 		boolean changeMade = true;
 		while (changeMade){
 			changeMade = false;
+			if (!GroupingTextScanner.containsAny(groupingTitle, commonSubtitlesSimpleValues)) {
+				break;
+			}
 			Matcher commonSubtitleMatcher = commonSubtitlesSimplePattern.matcher(groupingTitle);
 			if (commonSubtitleMatcher.find()) {
 				groupingTitle = commonSubtitleMatcher.replaceAll("").trim();
@@ -302,6 +277,9 @@ class GroupedWork implements Cloneable {
 	}
 
 	private String removeComplexSubtitles(String newSubtitle) {
+		if (!GroupingTextScanner.containsAny(newSubtitle, commonSubtitlesComplexValues)) {
+			return newSubtitle;
+		}
 		newSubtitle = commonSubtitlesComplexPattern.matcher(newSubtitle).replaceAll("");
 		return newSubtitle;
 	}
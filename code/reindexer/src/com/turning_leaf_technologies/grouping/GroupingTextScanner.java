@@ -0,0 +1,230 @@
+package com.turning_leaf_technologies.grouping;
+
+import java.util.regex.Pattern;
+
+/**
+ * Single pass versions of the character level clean up done when normalizing titles and authors for grouping.
+ *
+ * Each method produces exactly the same result as the sequence of regular expression replacements it replaces (noted
+ * on each method) since any difference would change the permanent id of grouped works.  Text with surrogate pairs
+ * still uses the regular expressions because Java 8 and later versions of Java handle them differently when matching
+ * [^\p{L}\d\s] and the ids must not change.
+ */
+class GroupingTextScanner {
+	private static final Pattern initialsFix = Pattern.compile("(?<=[A-Z])\\.(?=(\\s|[A-Z]|$))");
+	private static final Pattern dashPattern = Pattern.compile("&#8211");
+	private static final Pattern ampersandPattern = Pattern.compile("&");
+	private static final Pattern apostropheStrip = Pattern.compile("'s");
+	private static final Pattern apostrophePattern = Pattern.compile("'");
+	private static final Pattern specialCharacterStrip = Pattern.compile("[^\\p{L}\\d\\s]");
+	private static final Pattern consecutiveSpaceStrip = Pattern.compile("\\s{2,}");
+	private static final String[] ORDINAL_SUFFIXES = {null, "st", "nd", "rd", "th", "th", "th", "th", "th", "th"};
+	private static final String[] ORDINAL_WORDS = {null, "first", "second", "third", "fourth", "fifth", "sixth", "seventh", "eighth", "ninth"};
+
+	/**
+	 * Same as replacing (in order) initials followed by a period with a space, &amp;#8211 with -, &amp; with and, 's with s,
+	 * anything other than letters, digits and whitespace with a space, converting to lower case, replacing runs of 2 or
+	 * more whitespace characters with a single space, and trimming.
+	 *
+	 * Periods after initials become spaces just like any other punctuation so they do not need to be handled separately.
+	 */
+	static String cleanTitleCharacters(String title) {
+		if (hasSurrogates(title)) {
+			String groupingTitle = initialsFix.matcher(title).replaceAll(" ");
+			groupingTitle = dashPattern.matcher(groupingTitle).replaceAll("-");
+			groupingTitle = ampersandPattern.matcher(groupingTitle).replaceAll("and");
+			groupingTitle = apostropheStrip.matcher(groupingTitle).replaceAll("s");
+			groupingTitle = specialCharacterStrip.matcher(groupingTitle).replaceAll(" ").toLowerCase();
+			groupingTitle = consecutiveSpaceStrip.matcher(groupingTitle).replaceAll(" ");
+			return groupingTitle.trim();
+		}
+		int length = title.length();
+		StringBuilder cleaned = new StringBuilder(length + 8);
+		int i = 0;
+		while (i < length) {
+			char curChar = title.charAt(i);
+			if (curChar == '&') {
+				if (title.startsWith("&#8211", i)) {
+					cleaned.append(' ');
+					i += 6;
+				} else {
+					cleaned.append("and");
+					i++;
+				}
+			} else if (curChar == '\'') {
+				//'s becomes s, any other apostrophe is punctuation
+				if (i + 1 >= length || title.charAt(i + 1) != 's') {
+					cleaned.append(' ');
+				}
+				i++;
+			} else {
+				i = appendLetterDigitOrSpace(title, i, cleaned);
+			}
+		}
+		return collapseWhitespace(cleaned.toString().toLowerCase()).trim();
+	}
+
+	/**
+	 * Same as replacing (in order) initials followed by a period with a space, removing [ ] &lt; and &gt;, removing 's,
+	 * removing ', replacing anything other than letters, digits and whitespace with a space, trimming, converting to
+	 * lower case and replacing runs of 2 or more whitespace characters with a single space.
+	 */
+	static String cleanAuthorCharacters(String author) {
+		if (hasSurrogates(author)) {
+			String groupingAuthor = initialsFix.matcher(author).replaceAll(" ");
+			groupingAuthor = groupingAuthor.replace("[", "").replace("]", "");
+			groupingAuthor = groupingAuthor.replace("<", "").replace(">", "");
+			groupingAuthor = apostropheStrip.matcher(groupingAuthor).replaceAll("");
+			groupingAuthor = apostrophePattern.matcher(groupingAuthor).replaceAll("");
+			groupingAuthor = specialCharacterStrip.matcher(groupingAuthor).replaceAll(" ").trim().toLowerCase();
+			return consecutiveSpaceStrip.matcher(groupingAuthor).replaceAll(" ");
+		}
+		int length = author.length();
+		StringBuilder cleaned = new StringBuilder(length);
+		int i = 0;
+		while (i < length) {
+			char curChar = author.charAt(i);
+			if (isBracket(curChar)) {
+				i++;
+			} else if (curChar == '\'') {
+				//Brackets are removed before 's is removed so they are skipped when looking for the s
+				int nextIndex = i + 1;
+				while (nextIndex < length && isBracket(author.charAt(nextIndex))) {
+					nextIndex++;
+				}
+				if (nextIndex < length && author.charAt(nextIndex) == 's') {
+					i = nextIndex + 1;
+				} else {
+					i++;
+				}
+			} else {
+				i = appendLetterDigitOrSpace(author, i, cleaned);
+			}
+		}
+		return collapseWhitespace(cleaned.toString().trim().toLowerCase());
+	}
+
+	/**
+	 * Same as replacing 1st, 2nd, 3rd, ... 9th and 10th with the words one ordinal at a time.  Because the ordinals
+	 * are replaced one at a time, 3rd following a digit from 4 to 9 or following 10 becomes i.e. fourthird since the th
+	 * from third is matched by a later replacement.
+	 */
+	static String normalizeNumericText(String text) {
+		int length = text.length();
+		int firstDigit = -1;
+		for (int i = 0; i < length; i++) {
+			char curChar = text.charAt(i);
+			if (curChar >= '0' && curChar <= '9') {
+				firstDigit = i;
+				break;
+			}
+		}
+		if (firstDigit == -1) {
+			return text;
+		}
+		StringBuilder normalized = new StringBuilder(length + 16);
+		normalized.append(text, 0, firstDigit);
+		int i = firstDigit;
+		while (i < length) {
+			char curChar = text.charAt(i);
+			if (curChar == '1' && text.startsWith("0th", i + 1)) {
+				normalized.append("tenth");
+				i += 4;
+			} else if (curChar >= '1' && curChar <= '9' && text.startsWith(ORDINAL_SUFFIXES[curChar - '0'], i + 1)) {
+				if (curChar == '3' && i >= 2 && text.charAt(i - 2) == '1' && text.charAt(i - 1) == '0') {
+					normalized.setLength(normalized.length() - 2);
+					normalized.append("tenthird");
+				} else if (curChar == '3' && i >= 1 && text.charAt(i - 1) >= '4' && text.charAt(i - 1) <= '9') {
+					normalized.setLength(normalized.length() - 1);
+					normalized.append(ORDINAL_WORDS[text.charAt(i - 1) - '0']).append("ird");
+				} else {
+					normalized.append(ORDINAL_WORDS[curChar - '0']);
+				}
+				i += 3;
+			} else {
+				normalized.append(curChar);
+				i++;
+			}
+		}
+		return normalized.toString();
+	}
+
+	/**
+	 * Appends the character if it is a letter, digit or whitespace and a space otherwise.  This matches replacing
+	 * [^\p{L}\d\s] with a space for text without surrogate pairs.
+	 *
+	 * @return the index of the next character
+	 */
+	private static int appendLetterDigitOrSpace(String text, int index, StringBuilder result) {
+		char curChar = text.charAt(index);
+		if ((curChar >= 'a' && curChar <= 'z') || (curChar >= 'A' && curChar <= 'Z') || (curChar >= '0' && curChar <= '9') || isWhitespace(curChar)) {
+			result.append(curChar);
+		} else if (curChar >= 0x80 && Character.isLetter(curChar)) {
+			result.append(curChar);
+		} else {
+			result.append(' ');
+		}
+		return index + 1;
+	}
+
+	private static boolean hasSurrogates(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (Character.isSurrogate(text.charAt(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Replaces runs of 2 or more whitespace characters with a single space, the same as replacing \s{2,} with a space.
+	 */
+	private static String collapseWhitespace(String text) {
+		int length = text.length();
+		StringBuilder collapsed = null;
+		int i = 0;
+		while (i < length) {
+			if (isWhitespace(text.charAt(i)) && i + 1 < length && isWhitespace(text.charAt(i + 1))) {
+				if (collapsed == null) {
+					collapsed = new StringBuilder(length);
+					collapsed.append(text, 0, i);
+				}
+				collapsed.append(' ');
+				i += 2;
+				while (i < length && isWhitespace(text.charAt(i))) {
+					i++;
+				}
+			} else {
+				if (collapsed != null) {
+					collapsed.append(text.charAt(i));
+				}
+				i++;
+			}
+		}
+		return collapsed == null ? text : collapsed.toString();
+	}
+
+	/**
+	 * Whitespace as matched by \s in a regular expression.
+	 */
+	private static boolean isWhitespace(char curChar) {
+		return curChar == ' ' || curChar == '\t' || curChar == '\n' || curChar == '\u000B' || curChar == '\f' || curChar == '\r';
+	}
+
+	private static boolean isBracket(char curChar) {
+		return curChar == '[' || curChar == ']' || curChar == '<' || curChar == '>';
+	}
+
+	/**
+	 * @return true if the text contains any of the values.  Used to skip regular expressions that can only match
+	 * text containing one of the values.
+	 */
+	static boolean containsAny(String text, String[] values) {
+		for (String value : values) {
+			if (text.contains(value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -7,6 +7,7 @@ import com.turning_leaf_technologies.indexing.TranslationMap;
 import com.turning_leaf_technologies.logging.BaseLogEntry;
 import com.turning_leaf_technologies.marc.MarcUtil;
 import com.turning_leaf_technologies.reindexer.GroupedWorkIndexer;
+import com.turning_leaf_technologies.util.MySQLCompression;
 import org.apache.logging.log4j.Logger;
 import org.marc4j.marc.*;
 
@@ -14,10 +15,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.*;
 import java.util.regex.Pattern;
 
 /**
@@ -119,6 +121,48 @@ public class MarcRecordGrouper extends BaseMarcRecordGrouper {
 		return null;
 	}
 
+	/**
+	 * Checks if the only differences between two versions of a record are the status, due date, or last check in date
+	 * of its items.  Those changes do not affect grouping, so the record can stay on the grouped work it is already on.
+	 */
+	public boolean hasOnlyCirculationChanged(Record existingRecord, Record updatedRecord) {
+		if (!existingRecord.getLeader().toString().equals(updatedRecord.getLeader().toString())) {
+			return false;
+		}
+		List<VariableField> existingFields = existingRecord.getVariableFields();
+		List<VariableField> updatedFields = updatedRecord.getVariableFields();
+		if (existingFields.size() != updatedFields.size()) {
+			return false;
+		}
+		for (int i = 0; i < existingFields.size(); i++) {
+			VariableField existingField = existingFields.get(i);
+			VariableField updatedField = updatedFields.get(i);
+			if (!existingField.getTag().equals(updatedField.getTag())) {
+				return false;
+			}
+			if (existingField.getTag().equals(itemTag) && existingField instanceof DataField && updatedField instanceof DataField) {
+				if (!getNonCirculationData((DataField) existingField).equals(getNonCirculationData((DataField) updatedField))) {
+					return false;
+				}
+			} else if (!existingField.toString().equals(updatedField.toString())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String getNonCirculationData(DataField itemField) {
+		StringBuilder itemData = new StringBuilder();
+		itemData.append(itemField.getIndicator1()).append(itemField.getIndicator2());
+		for (Subfield subfield : itemField.getSubfields()) {
+			char code = subfield.getCode();
+			if (code != profile.getItemStatusSubfield() && code != profile.getDueDateSubfield() && code != profile.getLastCheckinDateSubfield()) {
+				itemData.append('$').append(code).append(subfield.getData());
+			}
+		}
+		return itemData.toString();
+	}
+
 	public String processMarcRecord(Record marcRecord, boolean primaryDataChanged, String originalGroupedWorkId) {
 		RecordIdentifier primaryIdentifier = getPrimaryIdentifierFromMarcRecord(marcRecord, profile);
 
@@ -237,36 +281,66 @@ public class MarcRecordGrouper extends BaseMarcRecordGrouper {
 		return super.getFormatFromBib(record);
 	}
 
+	private static final int REGROUP_BATCH_SIZE = 1000;
+	private static final int REGROUP_CHUNK_SIZE = 100;
+
+	/**
+	 * Regroups all records for the profile.  Regrouping is done as a pipeline:
+	 * 1) A reader thread loads batches of records with their MARC and the work each record is currently grouped with.
+	 * 2) A pool of threads decodes the MARC and computes the title, author and grouping category for each record.
+	 * 3) This thread saves the results to the database in the order the records were read.
+	 */
 	public void regroupAllRecords(Connection dbConn, IndexingProfile indexingProfile, GroupedWorkIndexer indexer, IlsExtractLogEntry logEntry)  throws SQLException {
-		logEntry.addNote("Starting to regroup all records");
-		PreparedStatement getAllRecordsToRegroupStmt = dbConn.prepareStatement("SELECT ilsId from ils_records where source = ? and deleted = 0", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-		PreparedStatement getOriginalPermanentIdForRecordStmt = dbConn.prepareStatement("SELECT permanent_id from grouped_work_primary_identifiers join grouped_work on grouped_work_id = grouped_work.id WHERE type = ? and identifier = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-		getAllRecordsToRegroupStmt.setString(1, indexingProfile.getName());
-		ResultSet allRecordsToRegroupRS = getAllRecordsToRegroupStmt.executeQuery();
-		while (allRecordsToRegroupRS.next()) {
-			logEntry.incRecordsRegrouped();
-			String recordIdentifier = allRecordsToRegroupRS.getString("ilsId");
-			String originalGroupedWorkId;
-			getOriginalPermanentIdForRecordStmt.setString(1, indexingProfile.getName());
-			getOriginalPermanentIdForRecordStmt.setString(2, recordIdentifier);
-			ResultSet getOriginalPermanentIdForRecordRS = getOriginalPermanentIdForRecordStmt.executeQuery();
-			if (getOriginalPermanentIdForRecordRS.next()){
-				originalGroupedWorkId = getOriginalPermanentIdForRecordRS.getString("permanent_id");
-			}else{
-				originalGroupedWorkId = "false";
+		int numThreads = indexer.getNumRegroupingThreads();
+		logEntry.addNote("Starting to regroup all records using " + numThreads + " threads");
+		logEntry.saveResults();
+
+		//Limit the number of chunks that have been read but not saved so memory use stays bounded
+		ArrayBlockingQueue<Future<List<RegroupedRecord>>> chunksToSave = new ArrayBlockingQueue<>(numThreads * 4);
+		ExecutorService groupingExecutor = Executors.newFixedThreadPool(numThreads);
+		Thread readerThread = new Thread(() -> {
+			try {
+				readRecordsToRegroup(indexingProfile, groupingExecutor, chunksToSave, indexer, logEntry);
+			} finally {
+				try {
+					chunksToSave.put(CompletableFuture.completedFuture(null));
+				} catch (InterruptedException e) {
+					logEntry.incErrors("Interrupted while finishing reading records to regroup", e);
+				}
 			}
-			Record marcRecord = indexer.loadMarcRecordFromDatabase(indexingProfile.getName(), recordIdentifier, logEntry);
-			if (marcRecord != null) {
-				//Pass null to processMarcRecord.  It will do the lookup to see if there is an existing id there.
-				String groupedWorkId = processMarcRecord(marcRecord, false, null);
-				if (originalGroupedWorkId == null || !originalGroupedWorkId.equals(groupedWorkId)) {
-					logEntry.incChangedAfterGrouping();
-					//process records to regroup after every 1000 changes so we keep up with the changes.
-					if (logEntry.getNumChangedAfterGrouping() % 1000 == 0){
-						indexer.processScheduledWorks(logEntry, false);
-					}
+		}, "Regroup Record Reader");
+		readerThread.start();
+
+		try {
+			while (true) {
+				List<RegroupedRecord> chunk;
+				try {
+					chunk = chunksToSave.take().get();
+				} catch (ExecutionException e) {
+					logEntry.incErrors("Error grouping records", e);
+					continue;
+				}
+				if (chunk == null) {
+					break;
+				}
+				for (RegroupedRecord regroupedRecord : chunk) {
+					saveRegroupedRecord(regroupedRecord, indexer, logEntry);
 				}
 			}
+		} catch (InterruptedException e) {
+			logEntry.incErrors("Interrupted while regrouping records", e);
+		} finally {
+			//Make sure the reader is not left waiting for space in the queue if saving stopped early
+			groupingExecutor.shutdownNow();
+			if (readerThread.isAlive()) {
+				readerThread.interrupt();
+				chunksToSave.clear();
+			}
+		}
+		try {
+			readerThread.join();
+		} catch (InterruptedException e) {
+			logEntry.incErrors("Interrupted waiting for regrouping to finish", e);
 		}
 
 		//Finish reindexing anything that just changed
@@ -278,4 +352,143 @@ public class MarcRecordGrouper extends BaseMarcRecordGrouper {
 		logEntry.addNote("Finished regrouping all records");
 		logEntry.saveResults();
 	}
+
+	/**
+	 * Reads all records for the profile in batches, splits each batch into chunks and hands the chunks to the executor
+	 * to be grouped.  The futures for each chunk are added to the queue in order.
+	 *
+	 * The reader uses its own read only connection since the saving thread keeps using its connection (and changing
+	 * autocommit) while records are being read.  The connection is closed once all records have been read.
+	 */
+	private void readRecordsToRegroup(IndexingProfile indexingProfile, ExecutorService groupingExecutor, ArrayBlockingQueue<Future<List<RegroupedRecord>>> chunksToSave, GroupedWorkIndexer indexer, IlsExtractLogEntry logEntry) {
+		StringBuilder identifierPlaceholders = new StringBuilder("?");
+		for (int i = 1; i < REGROUP_BATCH_SIZE; i++) {
+			identifierPlaceholders.append(", ?");
+		}
+		try (Connection readerConn = indexer.openDatabaseConnection()) {
+			readerConn.setReadOnly(true);
+			PreparedStatement getRecordsToRegroupStmt = readerConn.prepareStatement("SELECT id, ilsId, sourceData from ils_records where source = ? and deleted = 0 and id > ? ORDER BY id LIMIT " + REGROUP_BATCH_SIZE, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			PreparedStatement getOriginalPermanentIdsForRecordsStmt = readerConn.prepareStatement("SELECT identifier, permanent_id from grouped_work_primary_identifiers join grouped_work on grouped_work_id = grouped_work.id WHERE type = ? and identifier IN (" + identifierPlaceholders + ")", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			long lastId = 0;
+			while (true) {
+				ArrayList<RecordToRegroup> batch = new ArrayList<>();
+				getRecordsToRegroupStmt.setString(1, indexingProfile.getName());
+				getRecordsToRegroupStmt.setLong(2, lastId);
+				try (ResultSet recordsToRegroupRS = getRecordsToRegroupStmt.executeQuery()) {
+					while (recordsToRegroupRS.next()) {
+						lastId = recordsToRegroupRS.getLong("id");
+						batch.add(new RecordToRegroup(recordsToRegroupRS.getString("ilsId"), recordsToRegroupRS.getBytes("sourceData")));
+					}
+				}
+				if (batch.isEmpty()) {
+					break;
+				}
+
+				//Load the works the records are currently grouped with, padding the list of identifiers with the last identifier
+				HashMap<String, RecordToRegroup> recordsByIdentifier = new HashMap<>();
+				getOriginalPermanentIdsForRecordsStmt.setString(1, indexingProfile.getName());
+				for (int i = 0; i < REGROUP_BATCH_SIZE; i++) {
+					RecordToRegroup recordToRegroup = batch.get(Math.min(i, batch.size() - 1));
+					recordsByIdentifier.put(recordToRegroup.ilsId, recordToRegroup);
+					getOriginalPermanentIdsForRecordsStmt.setString(i + 2, recordToRegroup.ilsId);
+				}
+				try (ResultSet originalPermanentIdsRS = getOriginalPermanentIdsForRecordsStmt.executeQuery()) {
+					while (originalPermanentIdsRS.next()) {
+						RecordToRegroup recordToRegroup = recordsByIdentifier.get(originalPermanentIdsRS.getString("identifier"));
+						if (recordToRegroup != null) {
+							recordToRegroup.originalGroupedWorkId = originalPermanentIdsRS.getString("permanent_id");
+						}
+					}
+				}
+
+				for (int i = 0; i < batch.size(); i += REGROUP_CHUNK_SIZE) {
+					List<RecordToRegroup> chunk = batch.subList(i, Math.min(i + REGROUP_CHUNK_SIZE, batch.size()));
+					chunksToSave.put(groupingExecutor.submit(() -> groupRecords(chunk, indexer, logEntry)));
+				}
+			}
+		} catch (SQLException e) {
+			logEntry.incErrors("Error loading records to regroup", e);
+		} catch (InterruptedException e) {
+			logEntry.incErrors("Interrupted while reading records to regroup", e);
+		} catch (RejectedExecutionException e) {
+			//Regrouping was stopped
+		}
+	}
+
+	/**
+	 * Decodes the MARC for each record and determines the information used to group it.  This does not touch the
+	 * database so it can be done by several threads at once.  Decoded records are added to the indexer's MARC record
+	 * cache so works that change groups can be reindexed without loading their records again.
+	 */
+	private List<RegroupedRecord> groupRecords(List<RecordToRegroup> recordsToRegroup, GroupedWorkIndexer indexer, IlsExtractLogEntry logEntry) {
+		ArrayList<RegroupedRecord> regroupedRecords = new ArrayList<>(recordsToRegroup.size());
+		for (RecordToRegroup recordToRegroup : recordsToRegroup) {
+			RegroupedRecord regroupedRecord = new RegroupedRecord(recordToRegroup);
+			regroupedRecords.add(regroupedRecord);
+			if (recordToRegroup.sourceData == null || recordToRegroup.sourceData.length == 0) {
+				continue;
+			}
+			try {
+				byte[] uncompressedData = MySQLCompression.uncompress(recordToRegroup.sourceData);
+				Record marcRecord = MarcUtil.readStoredRecord(recordToRegroup.ilsId, uncompressedData, logEntry);
+				if (marcRecord != null) {
+					indexer.cacheMarcRecord(profile.getName(), recordToRegroup.ilsId, uncompressedData, marcRecord);
+					regroupedRecord.marcLoaded = true;
+					regroupedRecord.primaryIdentifier = getPrimaryIdentifierFromMarcRecord(marcRecord, profile);
+					if (regroupedRecord.primaryIdentifier != null) {
+						regroupedRecord.workForTitle = setupBasicWorkForIlsRecord(marcRecord);
+					}
+				}
+			} catch (Exception e) {
+				logEntry.incErrors("Error loading MARC record to regroup " + recordToRegroup.ilsId, e);
+			}
+		}
+		return regroupedRecords;
+	}
+
+	private void saveRegroupedRecord(RegroupedRecord regroupedRecord, GroupedWorkIndexer indexer, IlsExtractLogEntry logEntry) {
+		logEntry.incRecordsRegrouped();
+		if (!regroupedRecord.marcLoaded) {
+			return;
+		}
+		String originalGroupedWorkId = regroupedRecord.originalGroupedWorkId == null ? "false" : regroupedRecord.originalGroupedWorkId;
+		String groupedWorkId = null;
+		if (regroupedRecord.primaryIdentifier != null) {
+			//We already know the original work if the primary identifier matches the record, otherwise let addGroupedWorkToDatabase look it up
+			String knownOriginalGroupedWorkId = regroupedRecord.primaryIdentifier.getIdentifier().equals(regroupedRecord.ilsId) ? originalGroupedWorkId : null;
+			addGroupedWorkToDatabase(regroupedRecord.primaryIdentifier, regroupedRecord.workForTitle, false, knownOriginalGroupedWorkId);
+			groupedWorkId = regroupedRecord.workForTitle.getPermanentId();
+		}
+		if (!originalGroupedWorkId.equals(groupedWorkId)) {
+			logEntry.incChangedAfterGrouping();
+			//process records to regroup after every 1000 changes so we keep up with the changes.
+			if (logEntry.getNumChangedAfterGrouping() % 1000 == 0){
+				indexer.processScheduledWorks(logEntry, false);
+			}
+		}
+	}
+
+	private static class RecordToRegroup {
+		final String ilsId;
+		final byte[] sourceData;
+		String originalGroupedWorkId;
+
+		RecordToRegroup(String ilsId, byte[] sourceData) {
+			this.ilsId = ilsId;
+			this.sourceData = sourceData;
+		}
+	}
+
+	private static class RegroupedRecord {
+		final String ilsId;
+		final String originalGroupedWorkId;
+		boolean marcLoaded = false;
+		RecordIdentifier primaryIdentifier;
+		GroupedWork workForTitle;
+
+		RegroupedRecord(RecordToRegroup recordToRegroup) {
+			this.ilsId = recordToRegroup.ilsId;
+			this.originalGroupedWorkId = recordToRegroup.originalGroupedWorkId;
+		}
+	}
 }
@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.sql.*;
 import java.util.*;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RecordGroupingProcessor {
 	protected BaseLogEntry logEntry;
@@ -36,17 +37,10 @@ public class RecordGroupingProcessor {
 	private PreparedStatement updateNovelistStmt;
 	private PreparedStatement updateDisplayInfoStmt;
 
-	private PreparedStatement getAuthorAuthorityIdStmt;
-	private PreparedStatement getAuthoritativeAuthorStmt;
-	private PreparedStatement getTitleAuthorityStmt;
-	private boolean lookupAuthorAuthoritiesInDB = true;
-	private boolean lookupTitleAuthoritiesInDB = true;
-	private HashMap<String, String> titleAuthorities = new HashMap<>();
+	private AuthorityIndex authorityIndex;
 
 	private PreparedStatement markWorkAsNeedingReindexStmt;
 
-	private PreparedStatement getWorkByAlternateTitleAuthorStmt;
-
 	HashMap<String, HashMap<String, String>> translationMaps = new HashMap<>();
 
 	//A list of grouped works that have been manually merged.
@@ -87,10 +81,6 @@ public class RecordGroupingProcessor {
 			getAdditionalPrimaryIdentifierForWorkStmt.close();
 			getPermanentIdByWorkIdStmt.close();
 
-			getAuthorAuthorityIdStmt.close();
-			getAuthoritativeAuthorStmt.close();
-			getTitleAuthorityStmt.close();
-
 			getGroupedWorkIdByPermanentIdStmt.close();
 
 			updateRatingsStmt.close();
@@ -101,9 +91,6 @@ public class RecordGroupingProcessor {
 			updateDisplayInfoStmt.close();
 
 			markWorkAsNeedingReindexStmt.close();
-
-			getWorkByAlternateTitleAuthorStmt.close();
-
 		} catch (Exception e) {
 			logEntry.incErrors("Error closing prepared statements in record grouping processor", e);
 		}
@@ -180,30 +167,6 @@ public class RecordGroupingProcessor {
 			getAdditionalPrimaryIdentifierForWorkStmt = dbConnection.prepareStatement("SELECT * from grouped_work_primary_identifiers where grouped_work_id = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
 			getPermanentIdByWorkIdStmt = dbConnection.prepareStatement("SELECT permanent_id from grouped_work WHERE id = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
 
-			getAuthorAuthorityIdStmt = dbConnection.prepareStatement("SELECT authorId from author_authority_alternative where normalized = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-			PreparedStatement getNumAuthorAuthoritiesStmt = dbConnection.prepareStatement("SELECT count(*) as numAuthorities from author_authority", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-			ResultSet numAuthorAuthoritiesRS = getNumAuthorAuthoritiesStmt.executeQuery();
-			if (numAuthorAuthoritiesRS.next()) {
-				if (numAuthorAuthoritiesRS.getLong("numAuthorities") == 0) {
-					lookupAuthorAuthoritiesInDB = false;
-				}
-			}
-			getAuthoritativeAuthorStmt = dbConnection.prepareStatement("SELECT normalized from author_authority where id = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-			PreparedStatement getNumTitleAuthoritiesStmt = dbConnection.prepareStatement("SELECT count(*) as numAuthorities from title_authorities", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-			ResultSet numTitleAuthoritiesRS = getNumTitleAuthoritiesStmt.executeQuery();
-			if (numTitleAuthoritiesRS.next()){
-				if (numTitleAuthoritiesRS.getLong("numAuthorities") <= 100){
-					lookupTitleAuthoritiesInDB = false;
-					//Just get all the authorities up front
-					PreparedStatement getAllTitleAuthoritiesStmt = dbConnection.prepareStatement("SELECT * from title_authorities", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-					ResultSet getAllTitleAuthoritiesRS = getAllTitleAuthoritiesStmt.executeQuery();
-					while (getAllTitleAuthoritiesRS.next()){
-						titleAuthorities.put(getAllTitleAuthoritiesRS.getString("originalName"), getAllTitleAuthoritiesRS.getString("authoritativeName"));
-					}
-				}
-			}
-			getTitleAuthorityStmt = dbConnection.prepareStatement("SELECT * from title_authorities where originalName = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-
 			getGroupedWorkIdByPermanentIdStmt = dbConnection.prepareStatement("SELECT id from grouped_work WHERE permanent_id = ?");
 
 			updateRatingsStmt = dbConnection.prepareStatement("UPDATE user_work_review SET groupedRecordPermanentId = ? where groupedRecordPermanentId = ?");
@@ -223,10 +186,6 @@ public class RecordGroupingProcessor {
 			}
 			nonGroupedRecordsRS.close();
 			recordsToNotGroupStmt.close();
-
-			getWorkByAlternateTitleAuthorStmt = dbConnection.prepareStatement("SELECT permanent_id from grouped_work_alternate_titles where alternateTitle = ? and alternateAuthor = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-
-
 		} catch (Exception e) {
 			logEntry.incErrors("Error setting up prepared statements", e);
 		}
@@ -237,6 +196,28 @@ public class RecordGroupingProcessor {
 		return marcRecord.getDataFields(tag);
 	}
 
+	/**
+	 * Gets the permanent id of the grouped work a record is currently on without regrouping it.
+	 *
+	 * @param primaryIdentifier The primary identifier of the record
+	 * @return the permanent id of the grouped work or null if the record has not been grouped
+	 */
+	public String getPermanentIdForRecord(RecordIdentifier primaryIdentifier) {
+		String permanentId = null;
+		try {
+			groupedWorkForIdentifierStmt.setString(1, primaryIdentifier.getType());
+			groupedWorkForIdentifierStmt.setString(2, primaryIdentifier.getIdentifier());
+			ResultSet groupedWorkForIdentifierRS = groupedWorkForIdentifierStmt.executeQuery();
+			if (groupedWorkForIdentifierRS.next()) {
+				permanentId = groupedWorkForIdentifierRS.getString("permanent_id");
+			}
+			groupedWorkForIdentifierRS.close();
+		} catch (SQLException e) {
+			logEntry.incErrors("Error loading grouped work for " + primaryIdentifier, e);
+		}
+		return permanentId;
+	}
+
 	/**
 	 * Add a work to the database
 	 *
@@ -351,16 +332,10 @@ public class RecordGroupingProcessor {
 	}
 
 	private String checkForAlternateTitleAuthor(GroupedWork groupedWork, String groupedWorkPermanentId) {
-		try {
-			//Check to see if we know the work based on the title and author through the merge process
-			getWorkByAlternateTitleAuthorStmt.setString(1, groupedWork.getTitle());
-			getWorkByAlternateTitleAuthorStmt.setString(2, groupedWork.getAuthor());
-			ResultSet getWorkByAlternateTitleAuthorRS = getWorkByAlternateTitleAuthorStmt.executeQuery();
-			if (getWorkByAlternateTitleAuthorRS.next()){
-				groupedWorkPermanentId = getWorkByAlternateTitleAuthorRS.getString("permanent_id");
-			}
-		} catch (SQLException e) {
-			logEntry.incErrors("Error looking for grouped work by alternate title title = " + groupedWork.getTitle() + " author = " + groupedWork.getAuthor(), e);
+		//Check to see if we know the work based on the title and author through the merge process
+		String alternatePermanentId = authorityIndex.getPermanentIdForAlternateTitle(groupedWork.getTitle(), groupedWork.getAuthor());
+		if (alternatePermanentId != null){
+			groupedWorkPermanentId = alternatePermanentId;
 		}
 		return groupedWorkPermanentId;
 	}
@@ -519,7 +494,7 @@ public class RecordGroupingProcessor {
 	}
 
 
-	private static final HashSet<String> formatsWarned = new HashSet<>();
+	private static final Set<String> formatsWarned = ConcurrentHashMap.newKeySet();
 	static HashMap<String, String> formatsToFormatCategory = new HashMap<>();
 
 	static {
@@ -809,46 +784,19 @@ public class RecordGroupingProcessor {
 		} catch (SQLException e) {
 			logEntry.incErrors("Error normalizing authorities", e);
 		}
+
+		authorityIndex = AuthorityIndex.getIndex(dbConn, logEntry);
 		logger.info("Done loading authorities");
 	}
 
 	String getAuthoritativeAuthor(String originalAuthor) {
-		if (lookupAuthorAuthoritiesInDB) {
-			try {
-				getAuthorAuthorityIdStmt.setString(1, originalAuthor);
-				ResultSet authorityRS = getAuthorAuthorityIdStmt.executeQuery();
-				if (authorityRS.next()) {
-					getAuthoritativeAuthorStmt.setLong(1, authorityRS.getLong("authorId"));
-					ResultSet authoritativeAuthorRS = getAuthoritativeAuthorStmt.executeQuery();
-					if (authoritativeAuthorRS.next()) {
-						return authoritativeAuthorRS.getString("normalized");
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting authoritative author", e);
-			}
-		}
-		return originalAuthor;
+		String authoritativeAuthor = authorityIndex.getAuthoritativeAuthor(originalAuthor);
+		return authoritativeAuthor == null ? originalAuthor : authoritativeAuthor;
 	}
 
 	String getAuthoritativeTitle(String originalTitle) {
-		if (lookupTitleAuthoritiesInDB) {
-			try {
-				getTitleAuthorityStmt.setString(1, originalTitle);
-				ResultSet authorityRS = getTitleAuthorityStmt.executeQuery();
-				if (authorityRS.next()) {
-					return authorityRS.getString("authoritativeName");
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting authoritative title", e);
-			}
-		}else{
-			String authority = titleAuthorities.get(originalTitle);
-			if (authority != null){
-				return authority;
-			}
-		}
-		return originalTitle;
+		String authoritativeTitle = authorityIndex.getAuthoritativeTitle(originalTitle);
+		return authoritativeTitle == null ? originalTitle : authoritativeTitle;
 	}
 
 	BaseLogEntry getLogEntry(){
@@ -61,17 +61,17 @@ class ArlingtonKohaRecordProcessor extends KohaRecordProcessor {
 			return unsuppressedEcontentRecords;
 		}else{
 			//Get the url
-			String url = MarcUtil.getFirstFieldVal(record, "856u");
+			String url = getFirstFieldVal(record, "856u");
 
 			if (url != null && !url.toLowerCase().contains("lib.overdrive.com")){
 				//Get the econtent source
 				String urlLower = url.toLowerCase();
 				String econtentSource;
-				String specifiedSource = MarcUtil.getFirstFieldVal(record, "856x");
+				String specifiedSource = getFirstFieldVal(record, "856x");
 				if (specifiedSource != null){
 					econtentSource = specifiedSource;
 				}else {
-					String urlText = MarcUtil.getFirstFieldVal(record, "856z");
+					String urlText = getFirstFieldVal(record, "856z");
 					if (urlText != null) {
 						urlText = urlText.toLowerCase();
 						if (urlText.contains("gale virtual reference library")) {
@@ -106,7 +106,7 @@ class ArlingtonKohaRecordProcessor extends KohaRecordProcessor {
 				itemInfo.seteContentUrl(url);
 
 				//Set the format based on the material type
-				String formatFrom856 = MarcUtil.getFirstFieldVal(record, "856z");
+				String formatFrom856 = getFirstFieldVal(record, "856z");
 				if (formatFrom856 != null) {
 					itemInfo.setFormat(formatFrom856);
 				}else {
@@ -170,7 +170,7 @@ class Axis360Processor {
 						}
 						if (okToAdd) {
 							ScopingInfo scopingInfo = itemInfo.addScope(scope);
-							groupedWork.addScopingInfo(scope.getScopeName(), scopingInfo);
+							groupedWork.addScopingInfo(scopingInfo);
 
 							scopingInfo.setLibraryOwned(true);
 							scopingInfo.setLocallyOwned(true);
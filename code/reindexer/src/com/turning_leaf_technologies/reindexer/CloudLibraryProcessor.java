@@ -79,7 +79,7 @@ class CloudLibraryProcessor extends MarcRecordProcessor {
 					updateGroupedWorkSolrDataBasedOnStandardMarcData(groupedWork, marcRecord, new ArrayList<>(), identifier, primaryFormat, formatCategory);
 
 					//Special processing for ILS Records
-					String fullDescription = Util.getCRSeparatedString(MarcUtil.getFieldList(marcRecord, "520a"));
+					String fullDescription = Util.getCRSeparatedString(getFieldList(marcRecord, "520a"));
 					groupedWork.addDescription(fullDescription, format, formatCategory);
 					HashSet<RecordInfo> allRelatedRecords = new HashSet<>();
 					allRelatedRecords.add(cloudLibraryRecord);
@@ -150,7 +150,7 @@ class CloudLibraryProcessor extends MarcRecordProcessor {
 						}
 						if (okToAdd) {
 							ScopingInfo scopingInfo = itemInfo.addScope(scope);
-							groupedWork.addScopingInfo(scope.getScopeName(), scopingInfo);
+							groupedWork.addScopingInfo(scopingInfo);
 
 							scopingInfo.setLibraryOwned(true);
 							scopingInfo.setLocallyOwned(true);
@@ -0,0 +1,30 @@
+package com.turning_leaf_technologies.reindexer;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares a single instance of values that come from a small vocabulary (formats, locations, statuses, etc.) so
+ * each item and record does not hold its own copy.  The dictionary is shared by all indexing threads.
+ *
+ * Once the dictionary is full, new values are returned as is so values that are not really low cardinality
+ * cannot cause it to grow without limit.
+ */
+class FacetValueDictionary {
+	private static final int MAX_VALUES = 100000;
+	private static final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+	static String intern(String value) {
+		if (value == null) {
+			return null;
+		}
+		String existingValue = values.get(value);
+		if (existingValue != null) {
+			return existingValue;
+		}
+		if (values.size() >= MAX_VALUES) {
+			return value;
+		}
+		existingValue = values.putIfAbsent(value, value);
+		return existingValue == null ? value : existingValue;
+	}
+}
@@ -27,6 +27,7 @@ public class GroupedReindexMain {
 	private static boolean clearIndex = false;
 	private static boolean isNightlyReindex = false;
 	private static String individualWorkToProcess;
+	private static int numThreads = 1;
 	private static Ini configIni;
 	private static String baseLogPath;
 
@@ -47,6 +48,7 @@ public class GroupedReindexMain {
 		serverName = args[0];
 
 		boolean checkNightlyIndexRunning = false;
+		boolean convertMarcFormat = false;
 		if (args.length >= 2 && args[1].equalsIgnoreCase("full")) {
 			fullReindex = true;
 			clearIndex = true;
@@ -56,6 +58,9 @@ public class GroupedReindexMain {
 			isNightlyReindex = args[1].equalsIgnoreCase("nightly");
 		}else if (args.length >= 2 && args[1].equalsIgnoreCase("isNightlyIndexRunning")){
 			checkNightlyIndexRunning = true;
+		}else if (args.length >= 2 && args[1].equalsIgnoreCase("convertMarcFormat")){
+			//Convert MARC records stored as JSON to the binary format, this can run alongside extracts and indexing
+			convertMarcFormat = true;
 		}else if (args.length >= 2 && args[1].equalsIgnoreCase("singleWork")){
 			//Process a specific work
 			//Prompt for the work to process
@@ -73,6 +78,16 @@ public class GroupedReindexMain {
 				System.exit(1);
 			}
 		}
+		//Optionally process works with multiple threads i.e. threads=4
+		for (int i = 1; i < args.length; i++){
+			if (args[i].toLowerCase().startsWith("threads=")){
+				try {
+					numThreads = Integer.parseInt(args[i].substring("threads=".length()).trim());
+				} catch (NumberFormatException e) {
+					System.out.println("Invalid number of threads " + args[i] + ", processing with a single thread");
+				}
+			}
+		}
 		
 		initializeReindex();
 		
@@ -84,6 +99,11 @@ public class GroupedReindexMain {
 			logEntry.setFinished();
 			System.exit(0);
 		}
+		if (convertMarcFormat) {
+			new StoredMarcFormatConverter(dbConn, logEntry).convertRecords();
+			logEntry.setFinished();
+			System.exit(0);
+		}
 		if (fullReindex){
 			logEntry.addNote("Performing full reindex");
 		}
@@ -91,6 +111,10 @@ public class GroupedReindexMain {
 		//Process grouped works
 		try {
 			GroupedWorkIndexer groupedWorkIndexer = new GroupedWorkIndexer(serverName, dbConn, configIni, fullReindex, clearIndex, logEntry, logger);
+			if (fullReindex && !isNightlyReindex) {
+				//Explicit full reindexes send every work so Solr can be repaired, nightly indexes skip unchanged works
+				groupedWorkIndexer.setSkipUnchangedWorks(false);
+			}
 			if (groupedWorkIndexer.isOkToIndex()) {
 				if (individualWorkToProcess != null) {
 					//Get more information about the work
@@ -109,7 +133,7 @@ public class GroupedReindexMain {
 					}
 				} else {
 					logger.info("Running Reindex");
-					groupedWorkIndexer.processGroupedWorks();
+					groupedWorkIndexer.processGroupedWorks(numThreads);
 				}
 				groupedWorkIndexer.finishIndexing();
 
@@ -176,7 +200,7 @@ public class GroupedReindexMain {
 			System.exit(1);
 		}
 		try {
-			dbConn = DriverManager.getConnection(databaseConnectionInfo);
+			dbConn = DriverManager.getConnection(GroupedWorkRecordWriter.enableBatchedStatements(databaseConnectionInfo));
 			dbConn.prepareCall("SET collation_connection = utf8mb4_general_ci").execute();
 			dbConn.prepareCall("SET NAMES utf8mb4").execute();
 		} catch (SQLException e) {
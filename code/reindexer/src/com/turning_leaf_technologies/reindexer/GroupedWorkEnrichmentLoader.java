@@ -0,0 +1,272 @@
+package com.turning_leaf_technologies.reindexer;
+
+import com.turning_leaf_technologies.logging.BaseLogEntry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Loads local enrichment (ratings, user links, novelist and display info) for a batch of grouped works at once
+ * rather than querying for each work individually.
+ *
+ * Each query is prepared for a few IN clause sizes the first time it is needed.  Ids are loaded with the smallest
+ * statement that fits them, padding by repeating the last id, so a single work only binds one parameter.  Longer
+ * lists are loaded in chunks of the largest size.
+ */
+class GroupedWorkEnrichmentLoader {
+	static final int BATCH_SIZE = 500;
+	private static final int[] PERMANENT_ID_CLAUSE_SIZES = {1, 10, 100, BATCH_SIZE};
+	private static final int[] ISBN_CLAUSE_SIZES = {1, 10, 50};
+
+	private final BaseLogEntry logEntry;
+
+	private final InClauseQuery getRatingsQuery;
+	private final InClauseQuery getNovelistQuery;
+	private final InClauseQuery getDisplayInfoQuery;
+	private final InClauseQuery getUserReadingHistoryLinksQuery;
+	private final InClauseQuery getUserRatingLinksQuery;
+	private final InClauseQuery getUserNotInterestedLinksQuery;
+	private final InClauseQuery getArInfoForIsbnsQuery;
+
+	private final HashSet<String> loadedIds = new HashSet<>();
+	private final HashMap<String, Float> ratings = new HashMap<>();
+	private final HashMap<String, ArrayList<Long>> readingHistoryLinks = new HashMap<>();
+	private final HashMap<String, ArrayList<Long>> ratingLinks = new HashMap<>();
+	private final HashMap<String, ArrayList<Long>> notInterestedLinks = new HashMap<>();
+	private final HashMap<String, NovelistInfo> novelistInfo = new HashMap<>();
+	private final HashMap<String, DisplayInfo> displayInfo = new HashMap<>();
+
+	GroupedWorkEnrichmentLoader(Connection dbConn, BaseLogEntry logEntry) {
+		this.logEntry = logEntry;
+		//No need to filter for ratings greater than 0 because the user has to rate from 1-5
+		getRatingsQuery = new InClauseQuery(dbConn, "SELECT AVG(rating) as averageRating, groupedRecordPermanentId from user_work_review where groupedRecordPermanentId IN (%s) GROUP BY groupedRecordPermanentId", PERMANENT_ID_CLAUSE_SIZES);
+		getNovelistQuery = new InClauseQuery(dbConn, "SELECT groupedRecordPermanentId, seriesTitle, volume from novelist_data where groupedRecordPermanentId IN (%s)", PERMANENT_ID_CLAUSE_SIZES);
+		getDisplayInfoQuery = new InClauseQuery(dbConn, "SELECT permanent_id, title, author, seriesName, seriesDisplayOrder from grouped_work_display_info where permanent_id IN (%s)", PERMANENT_ID_CLAUSE_SIZES);
+		getUserReadingHistoryLinksQuery = new InClauseQuery(dbConn, "SELECT DISTINCT groupedWorkPermanentId, userId from user_reading_history_work where groupedWorkPermanentId IN (%s)", PERMANENT_ID_CLAUSE_SIZES);
+		getUserRatingLinksQuery = new InClauseQuery(dbConn, "SELECT DISTINCT groupedRecordPermanentId, userId from user_work_review where groupedRecordPermanentId IN (%s)", PERMANENT_ID_CLAUSE_SIZES);
+		getUserNotInterestedLinksQuery = new InClauseQuery(dbConn, "SELECT DISTINCT groupedRecordPermanentId, userId from user_not_interested where groupedRecordPermanentId IN (%s)", PERMANENT_ID_CLAUSE_SIZES);
+		getArInfoForIsbnsQuery = new InClauseQuery(dbConn, "SELECT accelerated_reading_isbn.isbn, accelerated_reading_titles.arBookId as titleArBookId, bookLevel, arPoints, interestLevel from accelerated_reading_isbn LEFT JOIN accelerated_reading_titles ON accelerated_reading_isbn.arBookId = accelerated_reading_titles.arBookId where accelerated_reading_isbn.isbn IN (%s)", ISBN_CLAUSE_SIZES);
+	}
+
+	/**
+	 * Loads enrichment for a batch of works replacing any enrichment that was loaded previously.
+	 *
+	 * @param permanentIds the permanent ids of the works to load
+	 */
+	void loadEnrichmentForWorks(List<String> permanentIds) {
+		clear();
+		if (permanentIds.isEmpty()) {
+			return;
+		}
+		try {
+			getRatingsQuery.forEachRow(permanentIds, ratingsRS -> {
+				float averageRating = ratingsRS.getFloat("averageRating");
+				if (!ratingsRS.wasNull()) {
+					ratings.put(ratingsRS.getString("groupedRecordPermanentId").toLowerCase(), averageRating);
+				}
+			});
+
+			loadUserLinks(getUserReadingHistoryLinksQuery, "groupedWorkPermanentId", permanentIds, readingHistoryLinks);
+			loadUserLinks(getUserRatingLinksQuery, "groupedRecordPermanentId", permanentIds, ratingLinks);
+			loadUserLinks(getUserNotInterestedLinksQuery, "groupedRecordPermanentId", permanentIds, notInterestedLinks);
+
+			getNovelistQuery.forEachRow(permanentIds, novelistRS -> {
+				String permanentId = novelistRS.getString("groupedRecordPermanentId").toLowerCase();
+				//Only the first row for a work is used
+				if (!novelistInfo.containsKey(permanentId)) {
+					novelistInfo.put(permanentId, new NovelistInfo(novelistRS.getString("seriesTitle"), novelistRS.getString("volume")));
+				}
+			});
+
+			getDisplayInfoQuery.forEachRow(permanentIds, displayInfoRS -> {
+				String permanentId = displayInfoRS.getString("permanent_id").toLowerCase();
+				if (!displayInfo.containsKey(permanentId)) {
+					displayInfo.put(permanentId, new DisplayInfo(displayInfoRS.getString("title"), displayInfoRS.getString("author"), displayInfoRS.getString("seriesName"), displayInfoRS.getString("seriesDisplayOrder")));
+				}
+			});
+
+			for (String permanentId : permanentIds) {
+				loadedIds.add(permanentId.toLowerCase());
+			}
+		} catch (SQLException e) {
+			logEntry.incErrors("Unable to load enrichment for grouped works", e);
+			clear();
+		}
+	}
+
+	private void loadUserLinks(InClauseQuery getLinksQuery, String permanentIdColumn, List<String> permanentIds, HashMap<String, ArrayList<Long>> links) throws SQLException {
+		getLinksQuery.forEachRow(permanentIds, linksRS -> links.computeIfAbsent(linksRS.getString(permanentIdColumn).toLowerCase(), k -> new ArrayList<>()).add(linksRS.getLong("userId")));
+	}
+
+	/**
+	 * Loads Accelerated Reader information for each isbn that has it.  Only the first Accelerated Reader book for an
+	 * isbn is returned.  If that book does not have title information the isbn is mapped to null.
+	 */
+	HashMap<String, ARTitle> loadAcceleratedReaderInfo(Collection<String> isbns) throws SQLException {
+		HashMap<String, ARTitle> arInfo = new HashMap<>();
+		if (isbns.isEmpty()) {
+			return arInfo;
+		}
+		getArInfoForIsbnsQuery.forEachRow(new ArrayList<>(isbns), arInfoRS -> {
+			String isbn = arInfoRS.getString("isbn");
+			if (!arInfo.containsKey(isbn)) {
+				arInfoRS.getString("titleArBookId");
+				if (arInfoRS.wasNull()) {
+					arInfo.put(isbn, null);
+				} else {
+					ARTitle arTitle = new ARTitle();
+					arTitle.setBookLevel(arInfoRS.getString("bookLevel"));
+					arTitle.setArPoints(arInfoRS.getString("arPoints"));
+					arTitle.setInterestLevel(arInfoRS.getString("interestLevel"));
+					arInfo.put(isbn, arTitle);
+				}
+			}
+		});
+		return arInfo;
+	}
+
+	boolean isEnrichmentLoaded(String permanentId) {
+		return loadedIds.contains(permanentId.toLowerCase());
+	}
+
+	Float getRating(String permanentId) {
+		return ratings.get(permanentId.toLowerCase());
+	}
+
+	List<Long> getReadingHistoryLinks(String permanentId) {
+		return readingHistoryLinks.getOrDefault(permanentId.toLowerCase(), new ArrayList<>());
+	}
+
+	List<Long> getRatingLinks(String permanentId) {
+		return ratingLinks.getOrDefault(permanentId.toLowerCase(), new ArrayList<>());
+	}
+
+	List<Long> getNotInterestedLinks(String permanentId) {
+		return notInterestedLinks.getOrDefault(permanentId.toLowerCase(), new ArrayList<>());
+	}
+
+	NovelistInfo getNovelistInfo(String permanentId) {
+		return novelistInfo.get(permanentId.toLowerCase());
+	}
+
+	DisplayInfo getDisplayInfo(String permanentId) {
+		return displayInfo.get(permanentId.toLowerCase());
+	}
+
+	void clear() {
+		loadedIds.clear();
+		ratings.clear();
+		readingHistoryLinks.clear();
+		ratingLinks.clear();
+		notInterestedLinks.clear();
+		novelistInfo.clear();
+		displayInfo.clear();
+	}
+
+	void close() {
+		getRatingsQuery.close();
+		getNovelistQuery.close();
+		getDisplayInfoQuery.close();
+		getUserReadingHistoryLinksQuery.close();
+		getUserRatingLinksQuery.close();
+		getUserNotInterestedLinksQuery.close();
+		getArInfoForIsbnsQuery.close();
+	}
+
+	private interface RowHandler {
+		void handleRow(ResultSet rs) throws SQLException;
+	}
+
+	/**
+	 * A query with an IN clause that is prepared for each clause size the first time a list of values needs it.
+	 */
+	private class InClauseQuery {
+		private final Connection dbConn;
+		private final String sql;
+		private final int[] clauseSizes;
+		private final PreparedStatement[] statements;
+
+		InClauseQuery(Connection dbConn, String sql, int[] clauseSizes) {
+			this.dbConn = dbConn;
+			this.sql = sql;
+			this.clauseSizes = clauseSizes;
+			this.statements = new PreparedStatement[clauseSizes.length];
+		}
+
+		void forEachRow(List<String> values, RowHandler handler) throws SQLException {
+			int maxClauseSize = clauseSizes[clauseSizes.length - 1];
+			for (int start = 0; start < values.size(); start += maxClauseSize) {
+				List<String> chunk = values.subList(start, Math.min(values.size(), start + maxClauseSize));
+				int sizeIndex = 0;
+				while (clauseSizes[sizeIndex] < chunk.size()) {
+					sizeIndex++;
+				}
+				PreparedStatement stmt = statements[sizeIndex];
+				if (stmt == null) {
+					stmt = dbConn.prepareStatement(String.format(sql, buildParameterList(clauseSizes[sizeIndex])), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+					statements[sizeIndex] = stmt;
+				}
+				for (int i = 0; i < clauseSizes[sizeIndex]; i++) {
+					//Pad with the last value so the statement can be reused for partial chunks
+					stmt.setString(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+				}
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						handler.handleRow(rs);
+					}
+				}
+			}
+		}
+
+		void close() {
+			for (int i = 0; i < statements.length; i++) {
+				if (statements[i] != null) {
+					try {
+						statements[i].close();
+					} catch (SQLException e) {
+						logEntry.incErrors("Error closing enrichment statements", e);
+					}
+					statements[i] = null;
+				}
+			}
+		}
+	}
+
+	private static String buildParameterList(int numParameters) {
+		StringBuilder parameters = new StringBuilder();
+		for (int i = 0; i < numParameters; i++) {
+			if (i > 0) {
+				parameters.append(", ");
+			}
+			parameters.append("?");
+		}
+		return parameters.toString();
+	}
+
+	static class NovelistInfo {
+		final String seriesTitle;
+		final String volume;
+
+		NovelistInfo(String seriesTitle, String volume) {
+			this.seriesTitle = seriesTitle;
+			this.volume = volume;
+		}
+	}
+
+	static class DisplayInfo {
+		final String title;
+		final String author;
+		final String seriesName;
+		final String seriesDisplayOrder;
+
+		DisplayInfo(String title, String author, String seriesName, String seriesDisplayOrder) {
+			this.title = title;
+			this.author = author;
+			this.seriesName = seriesName;
+			this.seriesDisplayOrder = seriesDisplayOrder;
+		}
+	}
+}
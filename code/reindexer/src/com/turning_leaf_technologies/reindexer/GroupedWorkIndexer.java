@@ -1,25 +1,29 @@
 package com.turning_leaf_technologies.reindexer;
 
+import com.turning_leaf_technologies.config.ConfigUtil;
 import com.turning_leaf_technologies.indexing.BaseIndexingSettings;
 import com.turning_leaf_technologies.indexing.IndexingProfile;
 import com.turning_leaf_technologies.indexing.IndexingUtils;
 import com.turning_leaf_technologies.indexing.Scope;
+import com.turning_leaf_technologies.indexing.ScopeInclusionIndex;
 import com.turning_leaf_technologies.logging.BaseLogEntry;
+import com.turning_leaf_technologies.marc.BinaryMarcCodec;
 import com.turning_leaf_technologies.marc.MarcUtil;
 import com.turning_leaf_technologies.strings.StringUtils;
-import com.turning_leaf_technologies.util.MaxSizeHashMap;
-import org.apache.solr.client.solrj.impl.BinaryRequestWriter;
-import org.apache.solr.client.solrj.impl.ConcurrentUpdateSolrClient;
+import com.turning_leaf_technologies.util.MySQLCompression;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
-import org.apache.solr.client.solrj.response.UpdateResponse;
 import org.apache.solr.common.SolrInputDocument;
 import org.ini4j.Ini;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.*;
 import java.util.Date;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.CRC32;
 
 import org.apache.logging.log4j.Logger;
@@ -33,8 +37,7 @@ public class GroupedWorkIndexer {
 	private final BaseLogEntry logEntry;
 	private final Logger logger;
 	private final Long indexStartTime;
-	private int totalRecordsHandled = 0;
-	private ConcurrentUpdateSolrClient updateServer;
+	private SolrIndexingSink updateServer;
 	private final HashMap<String, MarcRecordProcessor> ilsRecordProcessors = new HashMap<>();
 	private final HashMap<String, SideLoadedEContentProcessor> sideLoadProcessors = new HashMap<>();
 	private OverDriveProcessor overDriveProcessor;
@@ -42,15 +45,28 @@ public class GroupedWorkIndexer {
 	private Axis360Processor axis360Processor;
 	private HooplaProcessor hooplaProcessor;
 	private final HashMap<String, HashMap<String, String>> translationMaps = new HashMap<>();
-	private final HashMap<String, LexileTitle> lexileInformation = new HashMap<>();
+	private HashMap<String, LexileTitle> lexileInformation = new HashMap<>();
+	private final Ini configIni;
+	//The indexer that owns the update server when this indexer is a worker within a parallel reindex
+	private final GroupedWorkIndexer parentIndexer;
+	//Number of grouped work ids to hand to a worker at one time during a parallel reindex
+	private static final int PARALLEL_REINDEX_BATCH_SIZE = 5000;
+
+	private GroupedWorkEnrichmentLoader enrichmentLoader;
+	private GroupedWorkRecordWriter recordWriter;
+	//Ids for values in the indexed_* tables, workers share the caches of their parent
+	private IndexedValueCaches indexedValues;
+	//Recently used MARC records to avoid reloading them from the database
+	private final MarcRecordCache marcRecordCache;
+	//Hashes of the documents last sent to Solr so unchanged works can be skipped
+	private SolrDocumentHashes documentHashes;
+	//Runs that clear the index, and explicit full reindexes, send every work so Solr can be rebuilt from the database
+	private boolean skipUnchangedWorks;
+	private long numDocumentsSent = 0;
+	private long numDocumentsSkipped = 0;
+	//When processing a batch of works, records and hashes are saved to the database once the whole batch has been processed
+	private boolean processingBatch = false;
 
-	private PreparedStatement getRatingStmt;
-	private PreparedStatement getNovelistStmt;
-	private PreparedStatement getDisplayInfoStmt;
-
-	private PreparedStatement getUserReadingHistoryLinkStmt;
-	private PreparedStatement getUserRatingLinkStmt;
-	private PreparedStatement getUserNotInterestedLinkStmt;
 
 	private final Connection dbConn;
 
@@ -65,11 +81,10 @@ public class GroupedWorkIndexer {
 
 
 	private TreeSet<Scope> scopes ;
+	private ScopeInclusionIndex scopeInclusionIndex;
 
 	private PreparedStatement getGroupedWorkPrimaryIdentifiers;
 	private PreparedStatement getGroupedWorkInfoStmt;
-	private PreparedStatement getArBookIdForIsbnStmt;
-	private PreparedStatement getArBookInfoStmt;
 	private PreparedStatement getScheduledWorksStmt;
 	private PreparedStatement getScheduledWorkStmt;
 	private PreparedStatement markScheduledWorkProcessedStmt;
@@ -81,53 +96,15 @@ public class GroupedWorkIndexer {
 	private PreparedStatement removeScopeStmt;
 
 	private PreparedStatement marcIlsRecordAsDeletedStmt;
-	private PreparedStatement getExistingRecordsForWorkStmt;
-	private PreparedStatement addRecordForWorkStmt;
-	private PreparedStatement updateRecordForWorkStmt;
-	private PreparedStatement getIdForRecordStmt;
-	private PreparedStatement removeRecordForWorkStmt;
-	private PreparedStatement getExistingVariationsForWorkStmt;
-	private PreparedStatement addVariationForWorkStmt;
-	private PreparedStatement removeVariationStmt;
-	private PreparedStatement getExistingItemsForRecordStmt;
-	private PreparedStatement removeItemStmt;
-	private PreparedStatement addItemForRecordStmt;
-	private PreparedStatement updateItemForRecordStmt;
-	private PreparedStatement addItemUrlStmt;
 	private PreparedStatement getRecordSourceStmt;
 	private PreparedStatement getRecordSourceWithNoSubSourceStmt;
 	private PreparedStatement addRecordSourceStmt;
-	private PreparedStatement getFormatCategoryStmt;
-	private PreparedStatement addFormatCategoryStmt;
-	private PreparedStatement getFormatStmt;
-	private PreparedStatement addFormatStmt;
-	private PreparedStatement getLanguageStmt;
-	private PreparedStatement addLanguageStmt;
-	private PreparedStatement getEditionStmt;
-	private PreparedStatement addEditionStmt;
-	private PreparedStatement getPublisherStmt;
-	private PreparedStatement addPublisherStmt;
-	private PreparedStatement getPublicationDateStmt;
-	private PreparedStatement addPublicationDateStmt;
-	private PreparedStatement getPhysicalDescriptionStmt;
-	private PreparedStatement addPhysicalDescriptionStmt;
-	private PreparedStatement getEContentSourceStmt;
-	private PreparedStatement addEContentSourceStmt;
-	private PreparedStatement getShelfLocationStmt;
-	private PreparedStatement addShelfLocationStmt;
-	private PreparedStatement getCallNumberStmt;
-	private PreparedStatement addCallNumberStmt;
-	private PreparedStatement getStatusStmt;
-	private PreparedStatement addStatusStmt;
-	private PreparedStatement getLocationCodeStmt;
-	private PreparedStatement addLocationCodeStmt;
-	private PreparedStatement getSubLocationCodeStmt;
-	private PreparedStatement addSubLocationCodeStmt;
 
 	private PreparedStatement getExistingRecordInfoForIdentifierStmt;
 	private PreparedStatement getRecordForIdentifierStmt;
 	private PreparedStatement addRecordToDBStmt;
 	private PreparedStatement updateRecordInDBStmt;
+	private PreparedStatement updateRecordFormatStmt;
 	private final CRC32 checksumCalculator = new CRC32();
 
 	private boolean removeRedundantHooplaRecords = false;
@@ -145,15 +122,30 @@ public class GroupedWorkIndexer {
 	private String treatUnknownLanguageAs = "English";
 
 	public GroupedWorkIndexer(String serverName, Connection dbConn, Ini configIni, boolean fullReindex, boolean clearIndex, BaseLogEntry logEntry, Logger logger) {
-		indexStartTime = new Date().getTime() / 1000;
+		this(serverName, dbConn, configIni, fullReindex, clearIndex, logEntry, logger, null);
+	}
+
+	/**
+	 * Creates an indexer.  If a parent indexer is provided, this indexer acts as a worker for the parent.  It uses its
+	 * own database connection and record processors, but shares the update server and lexile data with the parent.
+	 * Workers never clear the index, the parent is responsible for that.
+	 */
+	private GroupedWorkIndexer(String serverName, Connection dbConn, Ini configIni, boolean fullReindex, boolean clearIndex, BaseLogEntry logEntry, Logger logger, GroupedWorkIndexer parentIndexer) {
+		indexStartTime = parentIndexer == null ? new Date().getTime() / 1000 : parentIndexer.indexStartTime;
 		this.serverName = serverName;
 		this.logEntry = logEntry;
 		this.logger = logger;
 		this.dbConn = dbConn;
+		this.configIni = configIni;
 		this.fullReindex = fullReindex;
 		this.clearIndex = clearIndex;
-
-		String solrPort = configIni.get("Reindex", "solrPort");
+		this.skipUnchangedWorks = parentIndexer == null ? !clearIndex : parentIndexer.skipUnchangedWorks;
+		this.parentIndexer = parentIndexer;
+		if (parentIndexer == null) {
+			marcRecordCache = MarcRecordCache.createFromConfig(configIni, logger);
+		}else{
+			marcRecordCache = parentIndexer.marcRecordCache;
+		}
 
 		//Load the last Index time
 		try{
@@ -188,8 +180,6 @@ public class GroupedWorkIndexer {
 			getGroupedWorkPrimaryIdentifiers = dbConn.prepareStatement("SELECT * FROM grouped_work_primary_identifiers where grouped_work_id = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
 			//deleteGroupedWorkStmt = dbConn.prepareStatement("DELETE from grouped_work where id = ?");
 			getGroupedWorkInfoStmt = dbConn.prepareStatement("SELECT id, grouping_category from grouped_work where permanent_id = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			getArBookIdForIsbnStmt = dbConn.prepareStatement("SELECT arBookId from accelerated_reading_isbn where isbn = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			getArBookInfoStmt = dbConn.prepareStatement("SELECT * from accelerated_reading_titles where arBookId = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
 			getScheduledWorksStmt = dbConn.prepareStatement("SELECT * FROM grouped_work_scheduled_index where processed = 0 and indexAfter <= ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
 			getScheduledWorkStmt = dbConn.prepareStatement("SELECT * FROM grouped_work_scheduled_index where processed = 0 and permanent_id = ? and indexAfter = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
 			markScheduledWorkProcessedStmt = dbConn.prepareStatement("UPDATE grouped_work_scheduled_index set processed = 1 where id = ?");
@@ -200,61 +190,38 @@ public class GroupedWorkIndexer {
 			addScopeStmt = dbConn.prepareStatement("INSERT INTO scope (name, isLibraryScope, isLocationScope) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
 			updateScopeStmt = dbConn.prepareStatement("UPDATE scope set isLibraryScope = ?, isLocationScope = ? WHERE id = ?");
 			removeScopeStmt = dbConn.prepareStatement("DELETE FROM scope where id = ?");
-			getExistingRecordsForWorkStmt = dbConn.prepareStatement("SELECT id, sourceId, recordIdentifier, groupedWorkId, editionId, publisherId, publicationDateId, physicalDescriptionId, formatId, formatCategoryId, languageId from grouped_work_records where groupedWorkId = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addRecordForWorkStmt = dbConn.prepareStatement("INSERT INTO grouped_work_records (groupedWorkId, sourceId, recordIdentifier, editionId, publisherId, publicationDateId, physicalDescriptionId, formatId, formatCategoryId, languageId) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
-					"ON DUPLICATE KEY UPDATE groupedWorkId = VALUES(groupedWorkId), editionId = VALUES(editionId), publisherId = VALUES(publisherId), publicationDateId = VALUES(publicationDateId), physicalDescriptionId = VALUES(physicalDescriptionId), formatId = VALUES(formatId), formatCategoryId = VALUES(formatCategoryId), languageId = VALUES(languageId)", PreparedStatement.RETURN_GENERATED_KEYS);
-			updateRecordForWorkStmt = dbConn.prepareStatement("UPDATE grouped_work_records SET groupedWorkId = ?, editionId = ?, publisherId = ?, publicationDateId = ?, physicalDescriptionId = ?, formatId = ?, formatCategoryId = ?, languageId = ? where id = ?");
-			removeRecordForWorkStmt = dbConn.prepareStatement("DELETE FROM grouped_work_records where id = ?");
-			getIdForRecordStmt = dbConn.prepareStatement("SELECT id from grouped_work_records where sourceId = ? and recordIdentifier = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			getExistingVariationsForWorkStmt = dbConn.prepareStatement("SELECT * from grouped_work_variation where groupedWorkId = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addVariationForWorkStmt = dbConn.prepareStatement("INSERT INTO grouped_work_variation (groupedWorkId, primaryLanguageId, eContentSourceId, formatId, formatCategoryId) VALUES (?, ?, ?, ?, ?)", PreparedStatement.RETURN_GENERATED_KEYS);
-			removeVariationStmt = dbConn.prepareStatement("DELETE FROM grouped_work_variation WHERE id = ?");
-			getExistingItemsForRecordStmt = dbConn.prepareStatement("SELECT * from grouped_work_record_items WHERE groupedWorkRecordId = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addItemForRecordStmt = dbConn.prepareStatement("INSERT INTO grouped_work_record_items (groupedWorkRecordId, groupedWorkVariationId, itemId, shelfLocationId, callNumberId, sortableCallNumberId, numCopies, isOrderItem, statusId, dateAdded, locationCodeId, subLocationCodeId, lastCheckInDate, groupedStatusId, available, holdable, inLibraryUseOnly, locationOwnedScopes, libraryOwnedScopes, recordIncludedScopes) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", PreparedStatement.RETURN_GENERATED_KEYS);
-			updateItemForRecordStmt = dbConn.prepareStatement("UPDATE grouped_work_record_items set groupedWorkVariationId = ?, shelfLocationId = ?, callNumberId = ?, sortableCallNumberId = ?, numCopies = ?, isOrderItem = ?, statusId = ?, dateAdded = ?, " +
-					"locationCodeId = ?, subLocationCodeId = ?, lastCheckInDate = ?, groupedStatusId = ?, available = ?, holdable = ?, inLibraryUseOnly = ?, locationOwnedScopes = ?, libraryOwnedScopes = ?, recordIncludedScopes = ? WHERE id = ?");
-			removeItemStmt = dbConn.prepareStatement("DELETE FROM grouped_work_record_items WHERE id = ?");
-			addItemUrlStmt = dbConn.prepareStatement("INSERT INTO grouped_work_record_item_url (groupedWorkItemId, scopeId, url) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE url = VALUES(url) ");
 			getRecordSourceStmt = dbConn.prepareStatement("SELECT id from indexed_record_source where source = ? and subSource = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
 			getRecordSourceWithNoSubSourceStmt = dbConn.prepareStatement("SELECT id from indexed_record_source where source = ? and subSource IS NULL", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
 			addRecordSourceStmt = dbConn.prepareStatement("INSERT INTO indexed_record_source (source, subSource) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS);
-			getFormatCategoryStmt = dbConn.prepareStatement("SELECT id from indexed_format_category where formatCategory = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addFormatCategoryStmt = dbConn.prepareStatement("INSERT INTO indexed_format_category (formatCategory) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
-			getFormatStmt = dbConn.prepareStatement("SELECT id from indexed_format where format = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addFormatStmt = dbConn.prepareStatement("INSERT INTO indexed_format (format) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
-			getLanguageStmt = dbConn.prepareStatement("SELECT id from indexed_language where language = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addLanguageStmt = dbConn.prepareStatement("INSERT INTO indexed_language (language) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
-			getEditionStmt = dbConn.prepareStatement("SELECT id from indexed_edition where edition = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addEditionStmt = dbConn.prepareStatement("INSERT INTO indexed_edition (edition) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
-			getPublisherStmt = dbConn.prepareStatement("SELECT id from indexed_publisher where publisher = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addPublisherStmt = dbConn.prepareStatement("INSERT INTO indexed_publisher (publisher) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
-			getPublicationDateStmt = dbConn.prepareStatement("SELECT id from indexed_publicationDate where publicationDate = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addPublicationDateStmt = dbConn.prepareStatement("INSERT INTO indexed_publicationDate (publicationDate) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
-			getPhysicalDescriptionStmt = dbConn.prepareStatement("SELECT id from indexed_physicalDescription where physicalDescription = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addPhysicalDescriptionStmt = dbConn.prepareStatement("INSERT INTO indexed_physicalDescription (physicalDescription) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
-			getEContentSourceStmt = dbConn.prepareStatement("SELECT id from indexed_eContentSource where eContentSource = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addEContentSourceStmt = dbConn.prepareStatement("INSERT INTO indexed_eContentSource (eContentSource) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
-			getShelfLocationStmt = dbConn.prepareStatement("SELECT id from indexed_shelfLocation where shelfLocation = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addShelfLocationStmt = dbConn.prepareStatement("INSERT INTO indexed_shelfLocation (shelfLocation) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
-			getCallNumberStmt = dbConn.prepareStatement("SELECT id from indexed_callNumber where callNumber = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addCallNumberStmt = dbConn.prepareStatement("INSERT INTO indexed_callNumber (callNumber) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
-			getStatusStmt = dbConn.prepareStatement("SELECT id from indexed_status where status = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addStatusStmt = dbConn.prepareStatement("INSERT INTO indexed_status (status) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
-			getLocationCodeStmt = dbConn.prepareStatement("SELECT id from indexed_locationCode where locationCode = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addLocationCodeStmt = dbConn.prepareStatement("INSERT INTO indexed_locationCode (locationCode) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
-			getSubLocationCodeStmt = dbConn.prepareStatement("SELECT id from indexed_subLocationCode where subLocationCode = ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
-			addSubLocationCodeStmt = dbConn.prepareStatement("INSERT INTO indexed_subLocationCode (subLocationCode) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
 
 			getExistingRecordInfoForIdentifierStmt = dbConn.prepareStatement("SELECT id, checksum, deleted, UNCOMPRESSED_LENGTH(sourceData) as sourceDataLength FROM ils_records where ilsId = ? and source = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-			getRecordForIdentifierStmt = dbConn.prepareStatement("SELECT UNCOMPRESS(sourceData) as sourceData FROM ils_records where ilsId = ? and source = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-			addRecordToDBStmt = dbConn.prepareStatement("INSERT INTO ils_records set ilsId = ?, source = ?, checksum = ?, dateFirstDetected = ?, deleted = 0, suppressedNoMarcAvailable = 0, sourceData = COMPRESS(?), lastModified = ?", PreparedStatement.RETURN_GENERATED_KEYS);
-			updateRecordInDBStmt = dbConn.prepareStatement("UPDATE ils_records set checksum = ?, sourceData = COMPRESS(?), lastModified = ?, deleted = 0, suppressedNoMarcAvailable = 0 WHERE id = ?", PreparedStatement.RETURN_GENERATED_KEYS);
+			//sourceData is compressed and uncompressed in Java using the same format as COMPRESS so it can still be read with UNCOMPRESS
+			getRecordForIdentifierStmt = dbConn.prepareStatement("SELECT sourceData FROM ils_records where ilsId = ? and source = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			addRecordToDBStmt = dbConn.prepareStatement("INSERT INTO ils_records set ilsId = ?, source = ?, checksum = ?, dateFirstDetected = ?, deleted = 0, suppressedNoMarcAvailable = 0, sourceData = ?, lastModified = ?", PreparedStatement.RETURN_GENERATED_KEYS);
+			updateRecordInDBStmt = dbConn.prepareStatement("UPDATE ils_records set checksum = ?, sourceData = ?, lastModified = ?, deleted = 0, suppressedNoMarcAvailable = 0 WHERE id = ?", PreparedStatement.RETURN_GENERATED_KEYS);
+			updateRecordFormatStmt = dbConn.prepareStatement("UPDATE ils_records set checksum = ?, sourceData = ? WHERE id = ?");
 		} catch (Exception e){
 			logEntry.incErrors("Could not load statements to get identifiers ", e);
 			this.okToIndex = false;
 			return;
 		}
 
+		if (parentIndexer == null) {
+			try {
+				indexedValues = new IndexedValueCaches(dbConn, logEntry);
+			} catch (SQLException e) {
+				logEntry.incErrors("Could not load statements to get indexed values ", e);
+				this.okToIndex = false;
+				return;
+			}
+			//Most values will be needed during a full reindex so load everything up front
+			if (fullReindex) {
+				indexedValues.preload(dbConn);
+			}
+		}else{
+			indexedValues = parentIndexer.indexedValues;
+		}
+
 		//Check hoopla settings to see if we need to remove redundant records
 		try{
 			PreparedStatement getHooplaSettingsStmt = dbConn.prepareStatement("SELECT excludeTitlesWithCopiesFromOtherVendors from hoopla_settings");
@@ -267,13 +234,16 @@ public class GroupedWorkIndexer {
 		}
 
 		//Initialize the updateServer and solr server
-		logEntry.addNote("Setting up update server and solr server");
+		if (parentIndexer == null) {
+			logEntry.addNote("Setting up update server and solr server");
 
-		ConcurrentUpdateSolrClient.Builder solrBuilder = new ConcurrentUpdateSolrClient.Builder("http://localhost:" + solrPort + "/solr/grouped_works");
-		solrBuilder.withThreadCount(1);
-		solrBuilder.withQueueSize(25);
-		updateServer = solrBuilder.build();
-		updateServer.setRequestWriter(new BinaryRequestWriter());
+			updateServer = SolrIndexingSink.createFromConfig(configIni, "grouped_works", clearIndex, logEntry, logger);
+			if (logEntry instanceof NightlyIndexLogEntry) {
+				((NightlyIndexLogEntry) logEntry).setSolrIndexingSink(updateServer);
+			}
+		}else{
+			updateServer = parentIndexer.updateServer;
+		}
 
 		try {
 			scopes = IndexingUtils.loadScopes(dbConn, logger);
@@ -284,6 +254,7 @@ public class GroupedWorkIndexer {
 			}else{
 				logger.info("Loaded " + scopes.size() + " scopes");
 			}
+			scopeInclusionIndex = new ScopeInclusionIndex(scopes);
 
 			HashMap<String, ExistingScopeInfo> existingScopes = this.getExistingScopes();
 			for (Scope scope : scopes){
@@ -419,28 +390,40 @@ public class GroupedWorkIndexer {
 		//Load translation maps
 		loadSystemTranslationMaps();
 
-		//Setup prepared statements to load local enrichment
+		//Statements to load local enrichment are prepared as they are needed
+		enrichmentLoader = new GroupedWorkEnrichmentLoader(dbConn, logEntry);
+		try {
+			recordWriter = new GroupedWorkRecordWriter(dbConn, this, logEntry);
+		} catch (SQLException e) {
+			logEntry.incErrors("Could not prepare statements to save grouped work records", e);
+		}
 		try {
-			//No need to filter for ratings greater than 0 because the user has to rate from 1-5
-			getRatingStmt = dbConn.prepareStatement("SELECT AVG(rating) as averageRating, groupedRecordPermanentId from user_work_review where groupedRecordPermanentId = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-			getNovelistStmt = dbConn.prepareStatement("SELECT * from novelist_data where groupedRecordPermanentId = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-			getDisplayInfoStmt = dbConn.prepareStatement("SELECT * from grouped_work_display_info where permanent_id = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-			getUserReadingHistoryLinkStmt = dbConn.prepareStatement("SELECT DISTINCT userId from user_reading_history_work where groupedWorkPermanentId = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-			getUserRatingLinkStmt = dbConn.prepareStatement("SELECT DISTINCT userId from user_work_review where groupedRecordPermanentId = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-			getUserNotInterestedLinkStmt = dbConn.prepareStatement("SELECT DISTINCT userId from user_not_interested where groupedRecordPermanentId = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			documentHashes = new SolrDocumentHashes(dbConn, logEntry);
+			//Hashes are saved once Solr has added the document
+			updateServer.addAddListener(documentHashes);
 		} catch (SQLException e) {
-			logEntry.incErrors("Could not prepare statements to load local enrichment", e);
+			logEntry.incErrors("Could not prepare statements to load Solr document hashes", e);
 		}
 
-		String lexileExportPath = configIni.get("Reindex", "lexileExportPath");
-		loadLexileData(lexileExportPath);
+		if (parentIndexer == null) {
+			String lexileExportPath = configIni.get("Reindex", "lexileExportPath");
+			loadLexileData(lexileExportPath);
 
-		if (clearIndex){
-			clearIndex();
+			if (clearIndex) {
+				clearIndex();
+			}
+		}else{
+			lexileInformation = parentIndexer.lexileInformation;
 		}
 	}
 
 	public void close(){
+		if (updateServer != null && documentHashes != null) {
+			//Save hashes for the documents Solr has added since the last batch was processed
+			updateServer.flush();
+			updateServer.removeAddListener(documentHashes);
+			documentHashes.flush();
+		}
 		updateServer = null;
 		ilsRecordProcessors.clear();
 		sideLoadProcessors.clear();
@@ -449,12 +432,18 @@ public class GroupedWorkIndexer {
 		axis360Processor = null;
 		hooplaProcessor = null;
 		translationMaps.clear();
-		lexileInformation.clear();
+		if (parentIndexer == null) {
+			//Workers share the lexile information with the parent indexer
+			lexileInformation.clear();
+		}
 		scopes.clear();
 		try {
-			getRatingStmt.close();
-			getNovelistStmt.close();
-			getDisplayInfoStmt.close();
+			enrichmentLoader.close();
+			recordWriter.close();
+			documentHashes.close();
+			if (parentIndexer == null) {
+				indexedValues.close();
+			}
 			getGroupedWorkPrimaryIdentifiers.close();
 		} catch (Exception e) {
 			logEntry.incErrors("Error closing prepared statements in grouped work indexer", e);
@@ -465,6 +454,44 @@ public class GroupedWorkIndexer {
 		return okToIndex;
 	}
 
+	/**
+	 * Sets whether works whose Solr document has not changed since it was last sent are skipped.  Workers use the
+	 * setting of their parent, so this must be set before processing starts.
+	 */
+	void setSkipUnchangedWorks(boolean skipUnchangedWorks){
+		this.skipUnchangedWorks = skipUnchangedWorks;
+	}
+
+	/**
+	 * The number of threads to use to read and group records when regrouping all records for a profile.  Set with
+	 * regroupThreads in the Reindex section of the config file.
+	 */
+	public int getNumRegroupingThreads(){
+		int defaultThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+		String regroupThreads = configIni.get("Reindex", "regroupThreads");
+		if (regroupThreads == null || regroupThreads.trim().length() == 0){
+			return defaultThreads;
+		}
+		try {
+			return Math.max(1, Integer.parseInt(regroupThreads.trim()));
+		} catch (NumberFormatException e) {
+			logger.warn("Invalid value for regroupThreads " + regroupThreads + " using " + defaultThreads);
+			return defaultThreads;
+		}
+	}
+
+	/**
+	 * Opens a new connection to the Aspen database for work that runs alongside the indexer's own connection.  The
+	 * caller is responsible for closing it.
+	 */
+	public Connection openDatabaseConnection() throws SQLException {
+		String databaseConnectionInfo = ConfigUtil.cleanIniValue(configIni.get("Database", "database_aspen_jdbc"));
+		Connection connection = DriverManager.getConnection(GroupedWorkRecordWriter.enableBatchedStatements(databaseConnectionInfo));
+		connection.prepareCall("SET collation_connection = utf8mb4_general_ci").execute();
+		connection.prepareCall("SET NAMES utf8mb4").execute();
+		return connection;
+	}
+
 	TreeSet<String> overDriveRecordsSkipped = new TreeSet<>();
 
 	private void loadLexileData(String lexileExportPath) {
@@ -512,6 +539,7 @@ public class GroupedWorkIndexer {
 		logger.info("Clearing existing marc records from index");
 		try {
 			updateServer.deleteByQuery("recordtype:grouped_work");
+			documentHashes.removeAllHashes();
 			//3-19-2019 Don't commit so the index does not get cleared during run (but will clear at the end).
 		} catch (HttpSolrClient.RemoteSolrException rse) {
 			logEntry.incErrors("Solr is not running properly, try restarting", rse);
@@ -524,13 +552,9 @@ public class GroupedWorkIndexer {
 	public synchronized void deleteRecord(String permanentId) {
 		logger.info("Clearing existing work " + permanentId + " from index");
 		try {
+			//The delete is made visible with commitWithin
 			updateServer.deleteById(permanentId);
-			//With this commit, we get errors in the log "Previous SolrRequestInfo was not closed!"
-			//Allow auto commit functionality to handle this
-			totalRecordsHandled++;
-			if (totalRecordsHandled % 25 == 0) {
-				updateServer.commit(false, false, true);
-			}
+			documentHashes.removeHash(permanentId);
 
 			//Delete the work from the database?
 			//TODO: Should we do this or leave a record if it was linked to lists, reading history, etc?
@@ -553,8 +577,15 @@ public class GroupedWorkIndexer {
 
 			updateServer.commit(false, false, true);
 			logEntry.addNote("Shutting down the update server");
-			updateServer.blockUntilFinished();
 			updateServer.close();
+			logEntry.addNote(updateServer.getStats());
+			logEntry.addNote("Sent " + numDocumentsSent + " works to Solr, skipped " + numDocumentsSkipped + " works that had not changed");
+			documentHashes.flush();
+			documentHashes.removeHashes(updateServer.getFailedAddIds());
+			if (storeRecordDetailsInDatabase && indexedValues != null) {
+				logEntry.addNote(indexedValues.getStats());
+			}
+			logEntry.addNote(marcRecordCache.getStats());
 		}catch (Exception e) {
 			logEntry.incErrors("Error finishing extract ", e);
 		}
@@ -594,7 +625,6 @@ public class GroupedWorkIndexer {
 				if (doLogging) {
 					logEntry.addNote("Processed " + numWorksProcessed + " works that were scheduled for indexing");
 				}
-				updateServer.commit(false, false, true);
 			}
 		}catch (Exception e){
 			logEntry.addNote("Error updating scheduled works " + e);
@@ -607,6 +637,8 @@ public class GroupedWorkIndexer {
 			try {
 				logEntry.addNote("Calling final commit");
 				updateServer.commit(true, true, false);
+				updateServer.close();
+				logEntry.addNote(updateServer.getStats());
 			} catch (Exception e) {
 				logEntry.incErrors("Error calling final commit", e);
 			}
@@ -615,12 +647,19 @@ public class GroupedWorkIndexer {
 				logEntry.addNote("Doing a soft commit to make sure changes are saved");
 				updateServer.commit(false, false, true);
 				logEntry.addNote("Shutting down the update server");
-				updateServer.blockUntilFinished();
 				updateServer.close();
+				logEntry.addNote(updateServer.getStats());
 			} catch (Exception e) {
 				logEntry.incErrors("Error shutting down update server", e);
 			}
 		}
+		//Save hashes for the last documents Solr added and make sure works that could not be added are sent again next time
+		documentHashes.flush();
+		documentHashes.removeHashes(updateServer.getFailedAddIds());
+		if (storeRecordDetailsInDatabase && indexedValues != null) {
+			logEntry.addNote(indexedValues.getStats());
+		}
+		logEntry.addNote(marcRecordCache.getStats());
 
 		updateLastReindexTime();
 	}
@@ -669,49 +708,227 @@ public class GroupedWorkIndexer {
 			numWorksToIndexRS.close();
 			logEntry.addNote("Starting to process " + numWorksToIndex + " grouped works");
 
+			AtomicLong numProcessed = new AtomicLong(0);
+			ArrayList<GroupedWorkToProcess> batch = new ArrayList<>();
 			ResultSet groupedWorks = getAllGroupedWorks.executeQuery();
 			while (groupedWorks.next()){
-				long id = groupedWorks.getLong("id");
-				String permanentId = groupedWorks.getString("permanent_id");
-				String grouping_category = groupedWorks.getString("grouping_category");
-				Long lastUpdated = groupedWorks.getLong("date_updated");
-				if (groupedWorks.wasNull()){
-					lastUpdated = null;
+				batch.add(new GroupedWorkToProcess(groupedWorks));
+				if (batch.size() == GroupedWorkEnrichmentLoader.BATCH_SIZE){
+					processGroupedWorkBatch(batch, setLastUpdatedTime, numProcessed, this);
 				}
-				processGroupedWork(id, permanentId, grouping_category);
+			}
+			processGroupedWorkBatch(batch, setLastUpdatedTime, numProcessed, this);
+			groupedWorks.close();
+			setLastUpdatedTime.close();
+			numWorksProcessed = numProcessed.get();
 
-				numWorksProcessed++;
-				if (logEntry instanceof NightlyIndexLogEntry){
-					((NightlyIndexLogEntry) logEntry).incNumWorksProcessed();
+		} catch (SQLException e) {
+			logEntry.incErrors("Unexpected SQL error", e);
+		}
+		logger.info("Finished processing grouped works.  Processed a total of " + numWorksProcessed + " grouped works");
+	}
+
+	/**
+	 * Processes grouped works using multiple workers.  The grouped work ids are split into ranges which are handed
+	 * out to the workers as they finish their previous range.  Each worker has its own database connection, prepared
+	 * statements and record processors, but all workers send their documents to the update server for this indexer.
+	 *
+	 * @param numWorkers the number of workers to run at the same time
+	 */
+	void processGroupedWorks(int numWorkers) {
+		if (numWorkers <= 1){
+			processGroupedWorks();
+			return;
+		}
+
+		ConcurrentLinkedQueue<long[]> idRangesToProcess = new ConcurrentLinkedQueue<>();
+		try {
+			PreparedStatement getIdRangeStmt;
+			if (fullReindex){
+				getIdRangeStmt = dbConn.prepareStatement("SELECT MIN(id), MAX(id), COUNT(id) FROM grouped_work", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
+			}else{
+				getIdRangeStmt = dbConn.prepareStatement("SELECT MIN(id), MAX(id), COUNT(id) FROM grouped_work WHERE date_updated IS NULL OR date_updated >= ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
+				getIdRangeStmt.setLong(1, lastReindexTime);
+			}
+			ResultSet idRangeRS = getIdRangeStmt.executeQuery();
+			if (idRangeRS.next()){
+				long minId = idRangeRS.getLong(1);
+				long maxId = idRangeRS.getLong(2);
+				long numWorksToIndex = idRangeRS.getLong(3);
+				logEntry.addNote("Starting to process " + numWorksToIndex + " grouped works with " + numWorkers + " workers");
+				if (numWorksToIndex > 0) {
+					for (long startId = minId; startId <= maxId; startId += PARALLEL_REINDEX_BATCH_SIZE) {
+						idRangesToProcess.add(new long[]{startId, Math.min(startId + PARALLEL_REINDEX_BATCH_SIZE - 1, maxId)});
+					}
 				}
-				if (!this.clearIndex && (numWorksProcessed % 5000 == 0)){
-					//Testing shows that regular commits do seem to improve performance.
-					//However, we can't do it too often or we get errors with too many searchers warming.
-					//This is happening now with the auto commit settings in solrconfig.xml
-					if (numWorksProcessed % 10000 == 0) {
-						try {
-							logger.info("Doing a regular commit during full indexing");
-							updateServer.commit(false, false, true);
-						} catch (Exception e) {
-							logger.warn("Error committing changes", e);
-						}
+			}
+			idRangeRS.close();
+			getIdRangeStmt.close();
+		} catch (SQLException e) {
+			logEntry.incErrors("Unable to load the range of grouped works to process", e);
+			return;
+		}
+		if (idRangesToProcess.isEmpty()){
+			return;
+		}
+
+		//Setup the workers, each with their own connection to the database
+		ArrayList<GroupedWorkIndexer> workers = new ArrayList<>();
+		for (int i = 0; i < numWorkers; i++){
+			try {
+				Connection workerConn = openDatabaseConnection();
+				GroupedWorkIndexer worker = new GroupedWorkIndexer(serverName, workerConn, configIni, fullReindex, clearIndex, logEntry, logger, this);
+				if (worker.isOkToIndex()){
+					workers.add(worker);
+				}else{
+					logEntry.incErrors("Could not initialize reindex worker " + (i + 1));
+					workerConn.close();
+				}
+			} catch (SQLException e) {
+				logEntry.incErrors("Could not connect to the database for reindex worker " + (i + 1), e);
+			}
+		}
+		if (workers.isEmpty()){
+			logEntry.addNote("No reindex workers could be started, processing grouped works with a single worker");
+			processGroupedWorks();
+			return;
+		}
+
+		AtomicLong numWorksProcessed = new AtomicLong(0);
+		ThreadPoolExecutor es = (ThreadPoolExecutor) Executors.newFixedThreadPool(workers.size());
+		for (GroupedWorkIndexer worker : workers){
+			es.execute(() -> worker.processGroupedWorkRanges(idRangesToProcess, numWorksProcessed));
+		}
+		es.shutdown();
+		while (true) {
+			try {
+				boolean terminated = es.awaitTermination(1, TimeUnit.MINUTES);
+				if (terminated){
+					break;
+				}
+			} catch (InterruptedException e) {
+				logEntry.incErrors("Interrupted while waiting for all reindex workers to finish", e);
+				es.shutdownNow();
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+
+		for (GroupedWorkIndexer worker : workers){
+			worker.close();
+			try {
+				worker.dbConn.close();
+			} catch (SQLException e) {
+				logger.warn("Error closing connection for reindex worker", e);
+			}
+		}
+		logger.info("Finished processing grouped works.  Processed a total of " + numWorksProcessed.get() + " grouped works");
+	}
+
+	/**
+	 * Processes ranges of grouped work ids from the queue until there are no ranges left.  This is called by workers
+	 * during a parallel reindex.
+	 */
+	private void processGroupedWorkRanges(ConcurrentLinkedQueue<long[]> idRangesToProcess, AtomicLong numWorksProcessed) {
+		try {
+			PreparedStatement getGroupedWorksInRange;
+			PreparedStatement setLastUpdatedTime = dbConn.prepareStatement("UPDATE grouped_work set date_updated = ? where id = ?");
+			if (fullReindex){
+				getGroupedWorksInRange = dbConn.prepareStatement("SELECT * FROM grouped_work WHERE id >= ? AND id <= ?", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
+			}else{
+				getGroupedWorksInRange = dbConn.prepareStatement("SELECT * FROM grouped_work WHERE id >= ? AND id <= ? AND (date_updated IS NULL OR date_updated >= ?)", ResultSet.TYPE_FORWARD_ONLY,  ResultSet.CONCUR_READ_ONLY);
+				getGroupedWorksInRange.setLong(3, lastReindexTime);
+			}
+
+			long[] idRange;
+			while ((idRange = idRangesToProcess.poll()) != null){
+				getGroupedWorksInRange.setLong(1, idRange[0]);
+				getGroupedWorksInRange.setLong(2, idRange[1]);
+				ArrayList<GroupedWorkToProcess> batch = new ArrayList<>();
+				ResultSet groupedWorks = getGroupedWorksInRange.executeQuery();
+				while (groupedWorks.next()){
+					batch.add(new GroupedWorkToProcess(groupedWorks));
+					if (batch.size() == GroupedWorkEnrichmentLoader.BATCH_SIZE){
+						processGroupedWorkBatch(batch, setLastUpdatedTime, numWorksProcessed, parentIndexer);
 					}
-					//Change to a debug statement to avoid filling up the notes.
-					logger.debug("Processed " + numWorksProcessed + " grouped works processed.");
 				}
-				if (lastUpdated == null){
+				processGroupedWorkBatch(batch, setLastUpdatedTime, numWorksProcessed, parentIndexer);
+				groupedWorks.close();
+			}
+			getGroupedWorksInRange.close();
+			setLastUpdatedTime.close();
+		} catch (SQLException e) {
+			logEntry.incErrors("Unexpected SQL error in reindex worker", e);
+		}
+	}
+
+	private static class GroupedWorkToProcess {
+		final long id;
+		final String permanentId;
+		final String groupingCategory;
+		final Long lastUpdated;
+
+		GroupedWorkToProcess(ResultSet groupedWorks) throws SQLException {
+			id = groupedWorks.getLong("id");
+			permanentId = groupedWorks.getString("permanent_id");
+			groupingCategory = groupedWorks.getString("grouping_category");
+			long dateUpdated = groupedWorks.getLong("date_updated");
+			lastUpdated = groupedWorks.wasNull() ? null : dateUpdated;
+		}
+	}
+
+	/**
+	 * Loads enrichment for all works in the batch at once and then processes each work.  Records for the works are
+	 * saved to the database in batches as well.  The batch is cleared once all works have been processed.
+	 */
+	private void processGroupedWorkBatch(ArrayList<GroupedWorkToProcess> batch, PreparedStatement setLastUpdatedTime, AtomicLong numWorksProcessed, GroupedWorkIndexer progressIndexer) throws SQLException {
+		if (batch.isEmpty()){
+			return;
+		}
+		ArrayList<String> permanentIds = new ArrayList<>();
+		for (GroupedWorkToProcess workToProcess : batch){
+			permanentIds.add(workToProcess.permanentId);
+		}
+		enrichmentLoader.loadEnrichmentForWorks(permanentIds);
+		documentHashes.loadHashes(permanentIds);
+
+		processingBatch = true;
+		try {
+			for (GroupedWorkToProcess workToProcess : batch) {
+				processGroupedWork(workToProcess.id, workToProcess.permanentId, workToProcess.groupingCategory);
+
+				if (workToProcess.lastUpdated == null) {
 					setLastUpdatedTime.setLong(1, indexStartTime - 1); //Set just before the index started so we don't index multiple times
-					setLastUpdatedTime.setLong(2, id);
+					setLastUpdatedTime.setLong(2, workToProcess.id);
 					setLastUpdatedTime.executeUpdate();
 				}
+
+				progressIndexer.onGroupedWorkProcessed(numWorksProcessed.incrementAndGet());
 			}
-			groupedWorks.close();
-			setLastUpdatedTime.close();
+		} finally {
+			processingBatch = false;
+			recordWriter.flush();
+			documentHashes.flush();
+		}
+		enrichmentLoader.clear();
+		documentHashes.clear();
+		batch.clear();
+	}
 
-		} catch (SQLException e) {
-			logEntry.incErrors("Unexpected SQL error", e);
+	/**
+	 * Updates progress after a work has been processed during a full or nightly index.
+	 *
+	 * @param numWorksProcessed the total number of works processed so far.
+	 */
+	private void onGroupedWorkProcessed(long numWorksProcessed) {
+		if (logEntry instanceof NightlyIndexLogEntry){
+			((NightlyIndexLogEntry) logEntry).incNumWorksProcessed();
+		}
+		//Changes are committed by Solr using commitWithin so there is no need to commit here
+		if (numWorksProcessed % 5000 == 0){
+			//Change to a debug statement to avoid filling up the notes.
+			logger.debug("Processed " + numWorksProcessed + " grouped works processed. " + updateServer.getStats());
 		}
-		logger.info("Finished processing grouped works.  Processed a total of " + numWorksProcessed + " grouped works");
 	}
 
 	public synchronized void processGroupedWork(String permanentId) {
@@ -724,10 +941,6 @@ public class GroupedWorkIndexer {
 				processGroupedWork(id, permanentId, grouping_category);
 			}
 			getGroupedWorkInfoRS.close();
-			totalRecordsHandled++;
-			if (totalRecordsHandled % 25 == 0) {
-				updateServer.commit(false, false, true);
-			}
 		} catch (Exception e) {
 			logEntry.incErrors("Error indexing grouped work " + permanentId + " by id", e);
 		}
@@ -747,14 +960,8 @@ public class GroupedWorkIndexer {
 			String type = groupedWorkPrimaryIdentifiers.getString("type");
 			String identifier = groupedWorkPrimaryIdentifiers.getString("identifier");
 
-			//Make a copy of the grouped work so we can revert if we don't add any records
-			GroupedWorkSolr originalWork;
-			try {
-				originalWork = groupedWork.clone();
-			}catch (CloneNotSupportedException cne){
-				logEntry.incErrors("Could not clone grouped work", cne);
-				return;
-			}
+			//Create a checkpoint so we can revert if we don't add any records
+			groupedWork.createCheckpoint();
 			//Figure out how many records we had originally
 			int numRecords = groupedWork.getNumRecords();
 			logger.debug("Processing " + type + ":" + identifier + " work currently has " + numRecords + " records");
@@ -766,12 +973,13 @@ public class GroupedWorkIndexer {
 			if (groupedWork.getNumRecords() == numRecords){
 				//No change in the number of records, revert to the previous
 				logger.debug("Record " + type + ":" + identifier + " did not contribute any records to work " + permanentId + ", reverting to previous state " + groupedWork.getNumRecords());
-				groupedWork = originalWork;
+				groupedWork = groupedWork.rollbackToCheckpoint();
 			}else{
 				logger.debug("Record " + identifier + " added to work " + permanentId);
 				numPrimaryIdentifiers++;
 			}
 		}
+		groupedWork.releaseCheckpoint();
 		groupedWorkPrimaryIdentifiers.close();
 
 		if (numPrimaryIdentifiers > 0) {
@@ -781,6 +989,7 @@ public class GroupedWorkIndexer {
 			}
 
 			//Load local enrichment for the work
+			boolean loadedEnrichmentForWork = loadEnrichmentIfNeeded(groupedWork);
 			loadLocalEnrichment(groupedWork);
 			//Load links for how users have interacted with the work
 			loadUserLinkages(groupedWork);
@@ -792,16 +1001,38 @@ public class GroupedWorkIndexer {
 			loadNovelistInfo(groupedWork);
 			//Load Display Info
 			loadDisplayInfo(groupedWork);
+			if (loadedEnrichmentForWork){
+				//Don't keep enrichment for individual works since it may change before the work is indexed again
+				enrichmentLoader.clear();
+			}
 
 			//Write the record to Solr.
 			try {
 				if (this.isStoreRecordDetailsInDatabase()) {
-					groupedWork.saveRecordsToDatabase(id);
+					recordWriter.addWork(id, groupedWork);
+					if (!processingBatch) {
+						recordWriter.flush();
+					}
 				}
 				SolrInputDocument inputDocument = groupedWork.getSolrDocument(logEntry);
-				UpdateResponse response = updateServer.add(inputDocument);
-				if (response.getException() != null){
-					logEntry.incErrors("Error adding Solr record for " + groupedWork.getId() + " response: " + response);
+				long documentHash = documentHashes.computeHash(inputDocument);
+				if (skipUnchangedWorks && documentHashes.isUnchanged(permanentId, documentHash)) {
+					//Nothing has changed since the work was last indexed, don't send it again
+					numDocumentsSkipped++;
+					if (logEntry instanceof NightlyIndexLogEntry) {
+						((NightlyIndexLogEntry) logEntry).incNumDocumentsSkipped();
+					}
+				} else {
+					//Errors adding the document are logged when the document is sent
+					updateServer.add(inputDocument);
+					documentHashes.setHash(permanentId, inputDocument, documentHash);
+					if (!processingBatch) {
+						documentHashes.flush();
+					}
+					numDocumentsSent++;
+					if (logEntry instanceof NightlyIndexLogEntry) {
+						((NightlyIndexLogEntry) logEntry).incNumDocumentsSent();
+					}
 				}
 				//logger.debug("Updated solr \r\n" + inputDocument.toString());
 				//Check to see if we need to automatically reindex this record in the future.
@@ -858,127 +1089,90 @@ public class GroupedWorkIndexer {
 
 	private void loadAcceleratedDataForWork(GroupedWorkSolr groupedWork){
 		try {
+			HashMap<String, ARTitle> arInfoForIsbns = enrichmentLoader.loadAcceleratedReaderInfo(groupedWork.getIsbns());
 			for (String isbn : groupedWork.getIsbns()){
-				getArBookIdForIsbnStmt.setString(1, isbn);
-				ResultSet arBookIdRS = getArBookIdForIsbnStmt.executeQuery();
-				if (arBookIdRS.next()){
-					String arBookId = arBookIdRS.getString("arBookId");
-					getArBookInfoStmt.setString(1, arBookId);
-					ResultSet arBookInfoRS = getArBookInfoStmt.executeQuery();
-					if (arBookInfoRS.next()){
-						String bookLevel = arBookInfoRS.getString("bookLevel");
-						if (bookLevel.length() > 0){
-							groupedWork.setAcceleratedReaderReadingLevel(bookLevel);
-						}
-						groupedWork.setAcceleratedReaderPointValue(arBookInfoRS.getString("arPoints"));
-						groupedWork.setAcceleratedReaderInterestLevel(arBookInfoRS.getString("interestLevel"));
-						break;
+				ARTitle arTitle = arInfoForIsbns.get(isbn);
+				if (arTitle != null){
+					String bookLevel = arTitle.getBookLevel();
+					if (bookLevel.length() > 0){
+						groupedWork.setAcceleratedReaderReadingLevel(bookLevel);
 					}
-					arBookInfoRS.close();
+					groupedWork.setAcceleratedReaderPointValue(arTitle.getArPoints());
+					groupedWork.setAcceleratedReaderInterestLevel(arTitle.getInterestLevel());
+					break;
 				}
-				arBookIdRS.close();
 			}
 		} catch (SQLException e) {
 			logEntry.incErrors("Error loading accelerated reader information", e);
 		}
 	}
 
-	private void loadLocalEnrichment(GroupedWorkSolr groupedWork) {
-		//Load rating
-		try{
-			getRatingStmt.setString(1, groupedWork.getId());
-			ResultSet ratingsRS = getRatingStmt.executeQuery();
-			if (ratingsRS.next()){
-				float averageRating = ratingsRS.getFloat("averageRating");
-				if (!ratingsRS.wasNull()){
-					groupedWork.setRating(averageRating);
-				}
-			}
-			ratingsRS.close();
-		}catch (Exception e){
-			logEntry.incErrors("Unable to load local enrichment", e);
+	/**
+	 * Makes sure enrichment has been loaded for the work.  Works processed during a full or nightly index are
+	 * loaded in batches before processing, otherwise the enrichment is loaded for just this work.
+	 *
+	 * @return true if enrichment was loaded for just this work
+	 */
+	private boolean loadEnrichmentIfNeeded(GroupedWorkSolr groupedWork) {
+		if (!enrichmentLoader.isEnrichmentLoaded(groupedWork.getId())){
+			enrichmentLoader.loadEnrichmentForWorks(Collections.singletonList(groupedWork.getId()));
+			return true;
 		}
+		return false;
 	}
 
-	private void loadUserLinkages(GroupedWorkSolr groupedWork) {
-		try {
-			loadReadingHistoryLinksForUsers(groupedWork);
-			loadRatingLinksForUsers(groupedWork);
-			loadNotInterestedLinksForUsers(groupedWork);
-		}catch (Exception e){
-			logEntry.incErrors("Unable to load user linkages", e);
+	private void loadLocalEnrichment(GroupedWorkSolr groupedWork) {
+		//Load rating
+		Float averageRating = enrichmentLoader.getRating(groupedWork.getId());
+		if (averageRating != null){
+			groupedWork.setRating(averageRating);
 		}
 	}
 
-	private void loadNotInterestedLinksForUsers(GroupedWorkSolr groupedWork) throws SQLException {
-		//Add users who are not interested in the title
-		getUserNotInterestedLinkStmt.setString(1, groupedWork.getId());
-		ResultSet userNotInterestedRS = getUserNotInterestedLinkStmt.executeQuery();
-		while (userNotInterestedRS.next()) {
-			groupedWork.addNotInterestedLink(userNotInterestedRS.getLong("userId"));
+	private void loadUserLinkages(GroupedWorkSolr groupedWork) {
+		//Add users with the work in their reading history
+		for (Long userId : enrichmentLoader.getReadingHistoryLinks(groupedWork.getId())){
+			groupedWork.addReadingHistoryLink(userId);
 		}
-		userNotInterestedRS.close();
-	}
-
-	private void loadRatingLinksForUsers(GroupedWorkSolr groupedWork) throws SQLException {
 		//Add users who rated the title
-		getUserRatingLinkStmt.setString(1, groupedWork.getId());
-		ResultSet userRatingRS = getUserRatingLinkStmt.executeQuery();
-		while (userRatingRS.next()){
-			groupedWork.addRatingLink(userRatingRS.getLong("userId"));
+		for (Long userId : enrichmentLoader.getRatingLinks(groupedWork.getId())){
+			groupedWork.addRatingLink(userId);
 		}
-		userRatingRS.close();
-	}
-
-	private void loadReadingHistoryLinksForUsers (GroupedWorkSolr groupedWork) throws SQLException {
-		//Add users with the work in their reading history
-		getUserReadingHistoryLinkStmt.setString(1, groupedWork.getId());
-		ResultSet userReadingHistoryRS = getUserReadingHistoryLinkStmt.executeQuery();
-		while (userReadingHistoryRS.next()){
-			groupedWork.addReadingHistoryLink(userReadingHistoryRS.getLong("userId"));
+		//Add users who are not interested in the title
+		for (Long userId : enrichmentLoader.getNotInterestedLinks(groupedWork.getId())){
+			groupedWork.addNotInterestedLink(userId);
 		}
-		userReadingHistoryRS.close();
 	}
 
 	private void loadNovelistInfo(GroupedWorkSolr groupedWork){
-		try{
-			getNovelistStmt.setString(1, groupedWork.getId());
-			ResultSet novelistRS = getNovelistStmt.executeQuery();
-			if (novelistRS.next()){
-				String series = novelistRS.getString("seriesTitle");
-				if (!novelistRS.wasNull()){
-					//Don't clear since there are valid cases when they are different
-					//groupedWork.clearSeriesData();
-					//groupedWork.addSeries(series);
-					String volume = novelistRS.getString("volume");
-					if (novelistRS.wasNull()){
-						volume = "";
-					}
-					groupedWork.addSeriesWithVolume(series, volume);
-				}
+		GroupedWorkEnrichmentLoader.NovelistInfo novelistInfo = enrichmentLoader.getNovelistInfo(groupedWork.getId());
+		if (novelistInfo != null && novelistInfo.seriesTitle != null){
+			//Don't clear since there are valid cases when they are different
+			//groupedWork.clearSeriesData();
+			//groupedWork.addSeries(series);
+			String volume = novelistInfo.volume;
+			if (volume == null){
+				volume = "";
 			}
-			novelistRS.close();
-		}catch (Exception e){
-			logEntry.incErrors("Unable to load novelist data", e);
+			groupedWork.addSeriesWithVolume(novelistInfo.seriesTitle, volume);
 		}
 	}
 
 	private void loadDisplayInfo(GroupedWorkSolr groupedWork) {
 		try {
-			getDisplayInfoStmt.setString(1, groupedWork.getId());
-			ResultSet displayInfoRS = getDisplayInfoStmt.executeQuery();
-			if (displayInfoRS.next()) {
-				String title = displayInfoRS.getString("title");
+			GroupedWorkEnrichmentLoader.DisplayInfo displayInfo = enrichmentLoader.getDisplayInfo(groupedWork.getId());
+			if (displayInfo != null) {
+				String title = displayInfo.title;
 				if (title.length() > 0){
 					groupedWork.setTitle(title, "", title, StringUtils.makeValueSortable(title), "", "", true);
 					groupedWork.clearSubTitle();
 				}
-				String author = displayInfoRS.getString("author");
+				String author = displayInfo.author;
 				if (author.length() > 0){
 					groupedWork.setAuthorDisplay(author);
 				}
-				String seriesName = displayInfoRS.getString("seriesName");
-				String seriesDisplayOrder = displayInfoRS.getString("seriesDisplayOrder");
+				String seriesName = displayInfo.seriesName;
+				String seriesDisplayOrder = displayInfo.seriesDisplayOrder;
 				if (seriesName.length() > 0) {
 					groupedWork.clearSeries();
 					groupedWork.addSeries(seriesName);
@@ -987,7 +1181,6 @@ public class GroupedWorkIndexer {
 					}
 				}
 			}
-			displayInfoRS.close();
 		}catch (Exception e){
 			logEntry.incErrors("Unable to load display info", e);
 		}
@@ -1128,87 +1321,8 @@ public class GroupedWorkIndexer {
 		return this.scopes;
 	}
 
-	public HashMap<String, SavedRecordInfo> getExistingRecordsForGroupedWork(long groupedWorkId)
-	{
-		HashMap<String, SavedRecordInfo> existingRecords = new HashMap<>();
-		try {
-			getExistingRecordsForWorkStmt.setLong(1, groupedWorkId);
-			ResultSet getExistingRecordsForWorkRS = getExistingRecordsForWorkStmt.executeQuery();
-			while (getExistingRecordsForWorkRS.next()){
-				String key = getExistingRecordsForWorkRS.getString("sourceId") + ":" + getExistingRecordsForWorkRS.getString("recordIdentifier");
-				existingRecords.put(key, new SavedRecordInfo(getExistingRecordsForWorkRS));
-			}
-		} catch (SQLException e) {
-			logEntry.incErrors("Error loading existing records for grouped works", e);
-		}
-
-		return existingRecords;
-	}
-
-	public long saveGroupedWorkRecord(long groupedWorkId, RecordInfo recordInfo, SavedRecordInfo existingRecord) {
-		long recordId = -1;
-		try {
-			if (existingRecord == null) {
-				addRecordForWorkStmt.setLong(1, groupedWorkId);
-				long sourceId = getSourceId(recordInfo.getSource(), recordInfo.getSubSource());
-				addRecordForWorkStmt.setLong(2, sourceId);
-				addRecordForWorkStmt.setString(3, recordInfo.getRecordIdentifier());
-				addRecordForWorkStmt.setLong(4, getEditionId(recordInfo.getEdition()));
-				addRecordForWorkStmt.setLong(5, getPublisherId(recordInfo.getPublisher()));
-				addRecordForWorkStmt.setLong(6, getPublicationDateId(recordInfo.getPublicationDate()));
-				addRecordForWorkStmt.setLong(7, getPhysicalDescriptionId(recordInfo.getPhysicalDescription()));
-				addRecordForWorkStmt.setLong(8, getFormatId(recordInfo.getPrimaryFormat()));
-				addRecordForWorkStmt.setLong(9, getFormatCategoryId(recordInfo.getPrimaryFormatCategory()));
-				addRecordForWorkStmt.setLong(10, getLanguageId(recordInfo.getPrimaryLanguage()));
-				addRecordForWorkStmt.executeUpdate();
-				ResultSet addRecordForWorkRS = addRecordForWorkStmt.getGeneratedKeys();
-				if (addRecordForWorkRS.next()) {
-					recordId = addRecordForWorkRS.getLong(1);
-				} else {
-					getIdForRecordStmt.setLong(1, sourceId);
-					getIdForRecordStmt.setString(2, recordInfo.getRecordIdentifier());
-					ResultSet getIdForRecordRS = getIdForRecordStmt.executeQuery();
-					if (getIdForRecordRS.next()) {
-						recordId = getIdForRecordRS.getLong("id");
-					}
-				}
-			}else{
-				recordId = existingRecord.id;
-				//Check to see if we have any changes
-				boolean hasChanges = false;
-				long editionId = getEditionId(recordInfo.getEdition());
-				long publisherId = getPublisherId(recordInfo.getPublisher());
-				long publicationDateId = getPublicationDateId(recordInfo.getPublicationDate());
-				long physicalDescriptionId = getPhysicalDescriptionId(recordInfo.getPhysicalDescription());
-				long formatId = getFormatId(recordInfo.getPrimaryFormat());
-				long formatCategoryId = getFormatCategoryId(recordInfo.getPrimaryFormatCategory());
-				long languageId = getLanguageId(recordInfo.getPrimaryLanguage());
-				if (groupedWorkId != existingRecord.groupedWorkId) { hasChanges = true; }
-				if (editionId != existingRecord.editionId) { hasChanges = true; }
-				if (publisherId != existingRecord.publisherId) { hasChanges = true; }
-				if (publicationDateId != existingRecord.publicationDateId) { hasChanges = true; }
-				if (physicalDescriptionId != existingRecord.physicalDescriptionId) { hasChanges = true; }
-				if (formatId != existingRecord.formatId) { hasChanges = true; }
-				if (formatCategoryId != existingRecord.formatCategoryId) { hasChanges = true; }
-				if (languageId != existingRecord.languageId) { hasChanges = true; }
-				if (hasChanges){
-					updateRecordForWorkStmt.setLong(1, groupedWorkId);
-					updateRecordForWorkStmt.setLong(2, editionId);
-					updateRecordForWorkStmt.setLong(3, publisherId);
-					updateRecordForWorkStmt.setLong(4, publicationDateId);
-					updateRecordForWorkStmt.setLong(5, physicalDescriptionId);
-					updateRecordForWorkStmt.setLong(6, formatId);
-					updateRecordForWorkStmt.setLong(7, formatCategoryId);
-					updateRecordForWorkStmt.setLong(8, languageId);
-					updateRecordForWorkStmt.setLong(9, existingRecord.id);
-					updateRecordForWorkStmt.executeUpdate();
-				}
-			}
-		} catch (SQLException e) {
-			logEntry.incErrors("Error saving grouped work record", e);
-		}
-
-		return recordId;
+	ScopeInclusionIndex getScopeInclusionIndex() {
+		return scopeInclusionIndex;
 	}
 
 	private final HashMap<String, Long> sourceIds = new HashMap<>();
@@ -1249,641 +1363,66 @@ public class GroupedWorkIndexer {
 		return sourceId;
 	}
 
-	private final HashMap<String, Long> formatCategoryIds = new HashMap<>();
-	private long getFormatCategoryId(String formatCategory) {
-		if (formatCategory == null){
-			return -1;
-		}
-		Long id = formatCategoryIds.get(formatCategory);
-		if (id == null){
-			try {
-				getFormatCategoryStmt.setString(1, formatCategory);
-				ResultSet getFormatCategoryRS = getFormatCategoryStmt.executeQuery();
-				if (getFormatCategoryRS.next()){
-					id = getFormatCategoryRS.getLong("id");
-				}else {
-					addFormatCategoryStmt.setString(1, formatCategory);
-					addFormatCategoryStmt.executeUpdate();
-					ResultSet addFormatCategoryRS = addFormatCategoryStmt.getGeneratedKeys();
-					if (addFormatCategoryRS.next()) {
-						id = addFormatCategoryRS.getLong(1);
-					} else {
-						logEntry.incErrors("Could not add format category");
-						id = -1L;
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting format category id", e);
-				id = -1L;
-			}
-			formatCategoryIds.put(formatCategory, id);
-		}
-		return id;
+	long getFormatCategoryId(String formatCategory) {
+		return indexedValues.formatCategories.getId(formatCategory);
 	}
 
-	private final HashMap<String, Long> formatIds = new HashMap<>();
-	private long getFormatId(String format) {
-		if (format == null){
-			return -1;
-		}
-		Long id = formatIds.get(format);
-		if (id == null){
-			try {
-				getFormatStmt.setString(1, format);
-				ResultSet getFormatRS = getFormatStmt.executeQuery();
-				if (getFormatRS.next()){
-					id = getFormatRS.getLong("id");
-				}else {
-					addFormatStmt.setString(1, format);
-					addFormatStmt.executeUpdate();
-					ResultSet addFormatRS = addFormatStmt.getGeneratedKeys();
-					if (addFormatRS.next()) {
-						id = addFormatRS.getLong(1);
-					} else {
-						logEntry.incErrors("Could not add format");
-						id = -1L;
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting format id", e);
-				id = -1L;
-			}
-			formatIds.put(format, id);
-		}
-		return id;
+	long getFormatId(String format) {
+		return indexedValues.formats.getId(format);
 	}
 
-	private final HashMap<String, Long> languageIds = new HashMap<>();
-	private long getLanguageId(String language) {
-		if (language == null){
-			return -1;
-		}
-		Long id = languageIds.get(language);
-		if (id == null){
-			try {
-				getLanguageStmt.setString(1, language);
-				ResultSet getLanguageRS = getLanguageStmt.executeQuery();
-				if (getLanguageRS.next()){
-					id = getLanguageRS.getLong("id");
-				}else {
-					addLanguageStmt.setString(1, language);
-					addLanguageStmt.executeUpdate();
-					ResultSet addLanguageRS = addLanguageStmt.getGeneratedKeys();
-					if (addLanguageRS.next()) {
-						id = addLanguageRS.getLong(1);
-					} else {
-						logEntry.incErrors("Could not add language");
-						id = -1L;
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting language id", e);
-				id = -1L;
-			}
-			languageIds.put(language, id);
-		}
-		return id;
+	long getLanguageId(String language) {
+		return indexedValues.languages.getId(language);
 	}
 
-	private final MaxSizeHashMap<String, Long> editionIds = new MaxSizeHashMap<>(1000);
-	private long getEditionId(String edition) {
-		if (edition == null){
-			return -1;
-		}
-		if (edition.length() > 255) {
-			edition = edition.substring(0, 255);
-		}
-		Long id = editionIds.get(edition);
-		if (id == null){
-			try {
-				getEditionStmt.setString(1, edition);
-				ResultSet getEditionRS = getEditionStmt.executeQuery();
-				if (getEditionRS.next()){
-					id = getEditionRS.getLong("id");
-				}else {
-					addEditionStmt.setString(1, edition);
-					addEditionStmt.executeUpdate();
-					ResultSet addEditionRS = addEditionStmt.getGeneratedKeys();
-					if (addEditionRS.next()) {
-						id = addEditionRS.getLong(1);
-					} else {
-						logEntry.incErrors("Could not add edition");
-						id = -1L;
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting edition id for edition (" + edition.length() + "): " + edition, e);
-				id = -1L;
-			}
-			editionIds.put(edition, id);
-		}
-		return id;
+	long getEditionId(String edition) {
+		return indexedValues.editions.getId(edition);
 	}
 
-	private final MaxSizeHashMap<String, Long> publisherIds = new MaxSizeHashMap<>(1000);
-	private long getPublisherId(String publisher) {
-		if (publisher == null){
-			return -1;
-		}
-		if (publisher.length() > 500) {
+	long getPublisherId(String publisher) {
+		if (publisher != null && publisher.length() > 500) {
 			logEntry.incErrors("Publisher was more than 500 characters (" + publisher.length() + ") " + publisher);
-			publisher = publisher.substring(0, 500);
-		}
-		Long id = publisherIds.get(publisher);
-		if (id == null){
-			try {
-				getPublisherStmt.setString(1, publisher);
-				ResultSet getPublisherRS = getPublisherStmt.executeQuery();
-				if (getPublisherRS.next()){
-					id = getPublisherRS.getLong("id");
-				}else {
-					addPublisherStmt.setString(1, publisher);
-					addPublisherStmt.executeUpdate();
-					ResultSet addPublisherRS = addPublisherStmt.getGeneratedKeys();
-					if (addPublisherRS.next()) {
-						id = addPublisherRS.getLong(1);
-					} else {
-						logEntry.incErrors("Could not add publisher");
-						id = -1L;
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting publisher id (" + publisher.length() + ") " + publisher, e);
-				id = -1L;
-			}
-			publisherIds.put(publisher, id);
 		}
-		return id;
+		return indexedValues.publishers.getId(publisher);
 	}
 
-	private final MaxSizeHashMap<String, Long> publicationDateIds = new MaxSizeHashMap<>(1000);
-	private long getPublicationDateId(String publicationDate) {
-		if (publicationDate == null){
-			return -1;
-		}
-		Long id = publicationDateIds.get(publicationDate);
-		if (id == null){
-			try {
-				getPublicationDateStmt.setString(1, publicationDate);
-				ResultSet getPublicationDateRS = getPublicationDateStmt.executeQuery();
-				if (getPublicationDateRS.next()){
-					id = getPublicationDateRS.getLong("id");
-				}else {
-					addPublicationDateStmt.setString(1, publicationDate);
-					addPublicationDateStmt.executeUpdate();
-					ResultSet addPublicationDateRS = addPublicationDateStmt.getGeneratedKeys();
-					if (addPublicationDateRS.next()) {
-						id = addPublicationDateRS.getLong(1);
-					} else {
-						logEntry.incErrors("Could not add publicationDate");
-						id = -1L;
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting publicationDate id", e);
-				id = -1L;
-			}
-			publicationDateIds.put(publicationDate, id);
-		}
-		return id;
+	long getPublicationDateId(String publicationDate) {
+		return indexedValues.publicationDates.getId(publicationDate);
 	}
 
-	private final MaxSizeHashMap<String, Long> physicalDescriptionIds = new MaxSizeHashMap<>(1000);
-	private long getPhysicalDescriptionId(String physicalDescription) {
-		if (physicalDescription == null){
-			return -1;
-		}
-		if (physicalDescription.length() > 1000) {
-			physicalDescription = physicalDescription.substring(0, 1000);
-		}
-		Long id = physicalDescriptionIds.get(physicalDescription);
-		if (id == null){
-			try {
-				getPhysicalDescriptionStmt.setString(1, physicalDescription);
-				ResultSet getPhysicalDescriptionRS = getPhysicalDescriptionStmt.executeQuery();
-				if (getPhysicalDescriptionRS.next()){
-					id = getPhysicalDescriptionRS.getLong("id");
-				}else {
-					addPhysicalDescriptionStmt.setString(1, physicalDescription);
-					addPhysicalDescriptionStmt.executeUpdate();
-					ResultSet addPhysicalDescriptionRS = addPhysicalDescriptionStmt.getGeneratedKeys();
-					if (addPhysicalDescriptionRS.next()) {
-						id = addPhysicalDescriptionRS.getLong(1);
-					} else {
-						logEntry.incErrors("Could not add physicalDescription");
-						id = -1L;
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting physicalDescription id (" + physicalDescription.length() + "):" + physicalDescription, e);
-				id = -1L;
-			}
-			physicalDescriptionIds.put(physicalDescription, id);
-		}
-		return id;
+	long getPhysicalDescriptionId(String physicalDescription) {
+		return indexedValues.physicalDescriptions.getId(physicalDescription);
 	}
 
-	private final HashMap<String, Long> eContentSourceIds = new HashMap<>();
-	private long getEContentSourceId(String eContentSource) {
-		if (eContentSource == null){
-			return -1;
-		}
-		Long id = eContentSourceIds.get(eContentSource);
-		if (id == null){
-			try {
-				getEContentSourceStmt.setString(1, eContentSource);
-				ResultSet getEContentSourceRS = getEContentSourceStmt.executeQuery();
-				if (getEContentSourceRS.next()){
-					id = getEContentSourceRS.getLong("id");
-				}else {
-					addEContentSourceStmt.setString(1, eContentSource);
-					addEContentSourceStmt.executeUpdate();
-					ResultSet addEContentSourceRS = addEContentSourceStmt.getGeneratedKeys();
-					if (addEContentSourceRS.next()) {
-						id = addEContentSourceRS.getLong(1);
-					} else {
-						logEntry.incErrors("Could not add eContentSource");
-						id = -1L;
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting eContentSource id", e);
-				id = -1L;
-			}
-			eContentSourceIds.put(eContentSource, id);
-		}
-		return id;
+	long getEContentSourceId(String eContentSource) {
+		return indexedValues.eContentSources.getId(eContentSource);
 	}
 
-	private final HashMap<String, Long> shelfLocationIds = new HashMap<>();
-	private long getShelfLocationId(String shelfLocation) {
-		if (shelfLocation == null){
-			return -1;
-		}
-		Long id = shelfLocationIds.get(shelfLocation);
-		if (id == null){
-			try {
-				getShelfLocationStmt.setString(1, shelfLocation);
-				ResultSet getShelfLocationRS = getShelfLocationStmt.executeQuery();
-				if (getShelfLocationRS.next()){
-					id = getShelfLocationRS.getLong("id");
-				}else {
-					addShelfLocationStmt.setString(1, shelfLocation);
-					addShelfLocationStmt.executeUpdate();
-					ResultSet addShelfLocationRS = addShelfLocationStmt.getGeneratedKeys();
-					if (addShelfLocationRS.next()) {
-						id = addShelfLocationRS.getLong(1);
-					} else {
-						logEntry.incErrors("Could not add shelfLocation");
-						id = -1L;
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting shelfLocation id", e);
-				id = -1L;
-			}
-			shelfLocationIds.put(shelfLocation, id);
-		}
-		return id;
+	long getShelfLocationId(String shelfLocation) {
+		return indexedValues.shelfLocations.getId(shelfLocation);
 	}
 
-	private final MaxSizeHashMap<String, Long> callNumberIds = new MaxSizeHashMap<>(1000);
-	private long getCallNumberId(String callNumber) {
-		if (callNumber == null){
-			return -1;
-		}
-		Long id = callNumberIds.get(callNumber);
-		if (id == null){
-			try {
-				getCallNumberStmt.setString(1, callNumber);
-				ResultSet getCallNumberRS = getCallNumberStmt.executeQuery();
-				if (getCallNumberRS.next()){
-					id = getCallNumberRS.getLong("id");
-				}else {
-					addCallNumberStmt.setString(1, callNumber);
-					addCallNumberStmt.executeUpdate();
-					ResultSet addCallNumberRS = addCallNumberStmt.getGeneratedKeys();
-					if (addCallNumberRS.next()) {
-						id = addCallNumberRS.getLong(1);
-					} else {
-						logEntry.incErrors("Could not add callNumber");
-						id = -1L;
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting callNumber id", e);
-				id = -1L;
-			}
-			callNumberIds.put(callNumber, id);
-		}
-		return id;
+	long getCallNumberId(String callNumber) {
+		return indexedValues.callNumbers.getId(callNumber);
 	}
 
-	private final HashMap<String, Long> statusIds = new HashMap<>();
-	private long getStatusId(String status) {
-		if (status == null){
-			return -1;
-		}
-		Long id = statusIds.get(status);
-		if (id == null){
-			try {
-				getStatusStmt.setString(1, status);
-				ResultSet getStatusRS = getStatusStmt.executeQuery();
-				if (getStatusRS.next()){
-					id = getStatusRS.getLong("id");
-				}else {
-					addStatusStmt.setString(1, status);
-					addStatusStmt.executeUpdate();
-					ResultSet addStatusRS = addStatusStmt.getGeneratedKeys();
-					if (addStatusRS.next()) {
-						id = addStatusRS.getLong(1);
-					} else {
-						logEntry.incErrors("Could not add status");
-						id = -1L;
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting status id", e);
-				id = -1L;
-			}
-			statusIds.put(status, id);
-		}
-		return id;
-	}
-
-	private final HashMap<String, Long> locationCodeIds = new HashMap<>();
-	private long getLocationCodeId(String locationCode) {
-		if (locationCode == null){
-			return -1;
-		}
-		Long id = locationCodeIds.get(locationCode);
-		if (id == null){
-			try {
-				getLocationCodeStmt.setString(1, locationCode);
-				ResultSet getLocationCodeRS = getLocationCodeStmt.executeQuery();
-				if (getLocationCodeRS.next()){
-					id = getLocationCodeRS.getLong("id");
-				}else {
-					addLocationCodeStmt.setString(1, locationCode);
-					addLocationCodeStmt.executeUpdate();
-					ResultSet addLocationCodeRS = addLocationCodeStmt.getGeneratedKeys();
-					if (addLocationCodeRS.next()) {
-						id = addLocationCodeRS.getLong(1);
-					} else {
-						logEntry.incErrors("Could not add locationCode");
-						id = -1L;
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting locationCode id", e);
-				id = -1L;
-			}
-			locationCodeIds.put(locationCode, id);
-		}
-		return id;
-	}
-
-	private final HashMap<String, Long> subLocationCodeIds = new HashMap<>();
-	private long getSubLocationCodeId(String subLocationCode) {
-		if (subLocationCode == null){
-			return -1;
-		}
-		Long id = subLocationCodeIds.get(subLocationCode);
-		if (id == null){
-			try {
-				getSubLocationCodeStmt.setString(1, subLocationCode);
-				ResultSet getSubLocationCodeRS = getSubLocationCodeStmt.executeQuery();
-				if (getSubLocationCodeRS.next()){
-					id = getSubLocationCodeRS.getLong("id");
-				}else {
-					addSubLocationCodeStmt.setString(1, subLocationCode);
-					addSubLocationCodeStmt.executeUpdate();
-					ResultSet addSubLocationCodeRS = addSubLocationCodeStmt.getGeneratedKeys();
-					if (addSubLocationCodeRS.next()) {
-						id = addSubLocationCodeRS.getLong(1);
-					} else {
-						logEntry.incErrors("Could not add subLocationCode");
-						id = -1L;
-					}
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error getting subLocationCode id", e);
-				id = -1L;
-			}
-			subLocationCodeIds.put(subLocationCode, id);
-		}
-		return id;
-	}
-
-	void removeGroupedWorkRecord(long recordId) {
-		try {
-			removeRecordForWorkStmt.setLong(1, recordId);
-			removeRecordForWorkStmt.executeUpdate();
-		}catch (SQLException e){
-			logEntry.incErrors("Could not delete record", e);
-		}
-	}
-
-	HashMap<VariationInfo, Long> getExistingVariationsForGroupedWork(long groupedWorkId) {
-		HashMap<VariationInfo, Long> existingVariations = new HashMap<>();
-		try {
-			getExistingVariationsForWorkStmt.setLong(1, groupedWorkId);
-			ResultSet getExistingVariationsForWorkRS = getExistingVariationsForWorkStmt.executeQuery();
-			while (getExistingVariationsForWorkRS.next()){
-				VariationInfo variation = new VariationInfo();
-				variation.id = getExistingVariationsForWorkRS.getLong("id");
-				variation.primaryLanguageId = getExistingVariationsForWorkRS.getLong("primaryLanguageId");
-				variation.eContentSourceId = getExistingVariationsForWorkRS.getLong("eContentSourceId");
-				variation.formatId = getExistingVariationsForWorkRS.getLong("formatId");
-				variation.formatCategoryId = getExistingVariationsForWorkRS.getLong("formatCategoryId");
-				existingVariations.put(variation, variation.id);
-			}
-		}catch (SQLException e){
-			logEntry.incErrors("Could not get existing variations for grouped work", e);
-		}
-		return existingVariations;
-	}
-
-	long saveGroupedWorkVariation(HashMap<VariationInfo, Long> existingVariations, long groupedWorkId, RecordInfo recordInfo, ItemInfo itemInfo) {
-		VariationInfo curVariationInfo = new VariationInfo();
-		curVariationInfo.primaryLanguageId = getLanguageId(recordInfo.getPrimaryLanguage());
-		curVariationInfo.eContentSourceId = this.getEContentSourceId(itemInfo.geteContentSource());
-		String format = itemInfo.getFormat() == null ? recordInfo.getPrimaryFormat() : itemInfo.getFormat();
-		curVariationInfo.formatId = this.getFormatId(format);
-		String formatCategory = itemInfo.getFormatCategory() == null ? recordInfo.getPrimaryFormatCategory() : itemInfo.getFormatCategory();
-		curVariationInfo.formatCategoryId = this.getFormatCategoryId(formatCategory);
-		Long existingId = existingVariations.get(curVariationInfo);
-		if (existingId != null){
-			return existingId;
-		}else{
-			//Add it to the database and return the id
-			try {
-				addVariationForWorkStmt.setLong(1, groupedWorkId);
-				addVariationForWorkStmt.setLong(2, curVariationInfo.primaryLanguageId);
-				addVariationForWorkStmt.setLong(3, curVariationInfo.eContentSourceId);
-				addVariationForWorkStmt.setLong(4, curVariationInfo.formatId);
-				addVariationForWorkStmt.setLong(5, curVariationInfo.formatCategoryId);
-				addVariationForWorkStmt.executeUpdate();
-				ResultSet addVariationForWorkRS = addVariationForWorkStmt.getGeneratedKeys();
-				if (addVariationForWorkRS.next()){
-					curVariationInfo.id = addVariationForWorkRS.getLong(1);
-					existingVariations.put(curVariationInfo, curVariationInfo.id);
-					return curVariationInfo.id;
-				}
-			} catch (SQLException e) {
-				logEntry.incErrors("Error saving grouped work variation", e);
-			}
-		}
-		return -1L;
-	}
-
-	void removeGroupedWorkVariation(Long existingVariationId) {
-		try {
-			removeVariationStmt.setLong(1, existingVariationId);
-			removeVariationStmt.executeUpdate();
-		}catch (SQLException e) {
-			logEntry.incErrors("Error removing grouped work variation", e);
-		}
-
+	long getStatusId(String status) {
+		return indexedValues.statuses.getId(status);
 	}
 
-	HashMap<String, SavedItemInfo> getExistingItemsForRecord(long recordId) {
-		HashMap<String, SavedItemInfo> existingItems = new HashMap<>();
-		try{
-			getExistingItemsForRecordStmt.setLong(1, recordId);
-			ResultSet getExistingItemsForRecordRS = getExistingItemsForRecordStmt.executeQuery();
-			while (getExistingItemsForRecordRS.next()){
-				existingItems.put(getExistingItemsForRecordRS.getString("itemId"), new SavedItemInfo(getExistingItemsForRecordRS));
-			}
-		}catch (SQLException e){
-			logEntry.incErrors("Error loading existing items for record", e);
-		}
-		return existingItems;
+	long getLocationCodeId(String locationCode) {
+		return indexedValues.locationCodes.getId(locationCode);
 	}
 
-	void removeRecordItem(Long itemId) {
-		try {
-			removeItemStmt.setLong(1, itemId);
-			removeItemStmt.executeUpdate();
-		}catch (SQLException e) {
-			logEntry.incErrors("Error removing item for record", e);
-		}
+	long getSubLocationCodeId(String subLocationCode) {
+		return indexedValues.subLocationCodes.getId(subLocationCode);
 	}
 
-	long saveItemForRecord(long recordId, long variationId, ItemInfo itemInfo, HashMap<String, SavedItemInfo> existingItems) {
-		SavedItemInfo savedItem = existingItems.get(itemInfo.getItemIdentifier());
-		long itemId = -1;
-		if (savedItem != null){
-			itemId = savedItem.id;
-		}
-		try {
-			long shelfLocationId = this.getShelfLocationId(itemInfo.getDetailedLocation());
-			long callNumberId = this.getCallNumberId(itemInfo.getCallNumber());
-			long sortableCallNumberId;
-			if (StringUtils.compareStrings(itemInfo.getCallNumber(), itemInfo.getSortableCallNumber())){
-				sortableCallNumberId = callNumberId;
-			}else{
-				sortableCallNumberId = this.getCallNumberId(itemInfo.getSortableCallNumber());
-			}
-			long statusId = this.getStatusId(itemInfo.getDetailedStatus());
-			long locationCodeId = this.getLocationCodeId(itemInfo.getLocationCode());
-			long subLocationId = this.getSubLocationCodeId(itemInfo.getSubLocationCode());
-			long groupedStatusId = this.getStatusId(itemInfo.getGroupedStatus());
-			if (savedItem == null) {
-				addItemForRecordStmt.setLong(1, recordId);
-				addItemForRecordStmt.setLong(2, variationId);
-				addItemForRecordStmt.setString(3, itemInfo.getItemIdentifier());
-				addItemForRecordStmt.setLong(4, shelfLocationId);
-				addItemForRecordStmt.setLong(5, callNumberId);
-				addItemForRecordStmt.setLong(6, sortableCallNumberId);
-				addItemForRecordStmt.setLong(7, itemInfo.getNumCopies());
-				addItemForRecordStmt.setBoolean(8, itemInfo.isOrderItem());
-				addItemForRecordStmt.setLong(9, statusId);
-				if (itemInfo.getDateAdded() == null) {
-					addItemForRecordStmt.setNull(10, Types.BIGINT);
-				} else {
-					addItemForRecordStmt.setLong(10, itemInfo.getDateAdded().getTime() / 1000);
-				}
-				addItemForRecordStmt.setLong(11, locationCodeId);
-				addItemForRecordStmt.setLong(12, subLocationId);
-				if (itemInfo.getLastCheckinDate() == null) {
-					addItemForRecordStmt.setNull(13, Types.INTEGER);
-				} else {
-					addItemForRecordStmt.setLong(13, itemInfo.getLastCheckinDate().getTime() / 1000);
-				}
-				addItemForRecordStmt.setLong(14, groupedStatusId);
-				addItemForRecordStmt.setBoolean(15, itemInfo.isAvailable());
-				addItemForRecordStmt.setBoolean(16, itemInfo.isHoldable());
-				addItemForRecordStmt.setBoolean(17, itemInfo.isInLibraryUseOnly());
-				addItemForRecordStmt.setString(18, itemInfo.getLocationOwnedScopes());
-				addItemForRecordStmt.setString(19, itemInfo.getLibraryOwnedScopes());
-				addItemForRecordStmt.setString(20, itemInfo.getRecordsIncludedScopes());
-				addItemForRecordStmt.executeUpdate();
-				ResultSet addItemForWorkRS = addItemForRecordStmt.getGeneratedKeys();
-				if (addItemForWorkRS.next()) {
-					itemId = addItemForWorkRS.getLong(1);
-				}
-				SavedItemInfo savedItemInfo = new SavedItemInfo(itemId, recordId, variationId, itemInfo.getItemIdentifier(), shelfLocationId, callNumberId, sortableCallNumberId, itemInfo.getNumCopies(),
-						itemInfo.isOrderItem(), statusId, itemInfo.getDateAdded(), locationCodeId, subLocationId, itemInfo.getLastCheckinDate(), groupedStatusId, itemInfo.isAvailable(),
-						itemInfo.isHoldable(), itemInfo.isInLibraryUseOnly(), itemInfo.getLocationOwnedScopes(), itemInfo.getLibraryOwnedScopes(), itemInfo.getRecordsIncludedScopes());
-
-				existingItems.put(itemInfo.getItemIdentifier(), savedItemInfo);
-			}else if (savedItem.hasChanged(recordId, variationId, itemInfo.getItemIdentifier(), shelfLocationId, callNumberId, sortableCallNumberId, itemInfo.getNumCopies(),
-					itemInfo.isOrderItem(), statusId, itemInfo.getDateAdded(), locationCodeId, subLocationId, itemInfo.getLastCheckinDate(), groupedStatusId, itemInfo.isAvailable(),
-					itemInfo.isHoldable(), itemInfo.isInLibraryUseOnly(), itemInfo.getLocationOwnedScopes(), itemInfo.getLibraryOwnedScopes(), itemInfo.getRecordsIncludedScopes())){
-				updateItemForRecordStmt.setLong(1, variationId);
-				updateItemForRecordStmt.setLong(2, shelfLocationId);
-				updateItemForRecordStmt.setLong(3, callNumberId);
-				updateItemForRecordStmt.setLong(4, sortableCallNumberId);
-				updateItemForRecordStmt.setLong(5, itemInfo.getNumCopies());
-				updateItemForRecordStmt.setBoolean(6, itemInfo.isOrderItem());
-				updateItemForRecordStmt.setLong(7, statusId);
-				if (itemInfo.getDateAdded() == null) {
-					updateItemForRecordStmt.setNull(8, Types.BIGINT);
-				} else {
-					updateItemForRecordStmt.setLong(8, itemInfo.getDateAdded().getTime() / 1000);
-				}
-				updateItemForRecordStmt.setLong(9, locationCodeId);
-				updateItemForRecordStmt.setLong(10, subLocationId);
-				if (itemInfo.getLastCheckinDate() == null) {
-					updateItemForRecordStmt.setNull(11, Types.INTEGER);
-				} else {
-					updateItemForRecordStmt.setLong(11, itemInfo.getLastCheckinDate().getTime() / 1000);
-				}
-				updateItemForRecordStmt.setLong(12, groupedStatusId);
-				updateItemForRecordStmt.setBoolean(13, itemInfo.isAvailable());
-				updateItemForRecordStmt.setBoolean(14, itemInfo.isHoldable());
-				updateItemForRecordStmt.setBoolean(15, itemInfo.isInLibraryUseOnly());
-				updateItemForRecordStmt.setString(16, itemInfo.getLocationOwnedScopes());
-				updateItemForRecordStmt.setString(17, itemInfo.getLibraryOwnedScopes());
-				updateItemForRecordStmt.setString(18, itemInfo.getRecordsIncludedScopes());
-				updateItemForRecordStmt.setLong(19, itemId);
-				updateItemForRecordStmt.executeUpdate();
-			}
-
-			if (itemInfo.geteContentUrl() != null){
-				addItemUrlStmt.setLong(1, itemId);
-				addItemUrlStmt.setLong(2, -1);
-				addItemUrlStmt.setString(3, itemInfo.geteContentUrl());
-				addItemUrlStmt.executeUpdate();
-
-				//Check to see if we need to save local urls
-				for (ScopingInfo scopingInfo : itemInfo.getScopingInfo().values()) {
-					String localUrl = scopingInfo.getLocalUrl();
-					if (localUrl != null && localUrl.length() > 0 && !localUrl.equals(itemInfo.geteContentUrl())) {
-						addItemUrlStmt.setLong(1, itemId);
-						addItemUrlStmt.setLong(2, scopingInfo.getScope().getId());
-						addItemUrlStmt.setString(3, localUrl);
-						addItemUrlStmt.executeUpdate();
-					}
-				}
-			}
-
-		} catch (SQLException e) {
-			logEntry.incErrors("Error saving grouped work item", e);
-		}
-
-		return itemId;
+	/**
+	 * Loads or adds the ids for all indexed values used by the records so they can be looked up from memory.
+	 */
+	void loadIndexedValueIds(Collection<RecordInfo> records) {
+		indexedValues.addValuesForRecords(records);
 	}
 
 	void removeScope(Long scopeId) {
@@ -2049,13 +1588,10 @@ public class GroupedWorkIndexer {
 	 * @return int 0 if the marc has not changed, 1 if the marc is new, and 2 if the marc has changes
 	 */
 	public synchronized MarcStatus saveMarcRecordToDatabase(BaseIndexingSettings indexingProfile, String ilsId, Record marcRecord) {
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-		MarcWriter writer = new MarcJsonWriter(outputStream);
-		writer.write(marcRecord);
+		byte[] marcAsBytes = BinaryMarcCodec.encode(marcRecord);
 		checksumCalculator.reset();
-		byte[] marcAsBytes = outputStream.toByteArray();
-
 		checksumCalculator.update(marcAsBytes);
+		long checksum = checksumCalculator.getValue();
 		MarcStatus returnValue = MarcStatus.UNCHANGED;
 		boolean foundExisting = false;
 		try {
@@ -2068,15 +1604,22 @@ public class GroupedWorkIndexer {
 				long existingChecksum = getExistingRecordInfoForIdentifierRS.getLong("checksum");
 				long uncompressedLength = getExistingRecordInfoForIdentifierRS.getLong("sourceDataLength");
 				boolean deleted = getExistingRecordInfoForIdentifierRS.getBoolean("deleted");
-				//String marcAsString = new String(marcAsBytes);
-				if (deleted || (marcAsBytes.length != uncompressedLength) || (existingChecksum != checksumCalculator.getValue())){
-					long curTime = new Date().getTime() / 1000;
-					updateRecordInDBStmt.setLong(1, checksumCalculator.getValue());
-					updateRecordInDBStmt.setBlob(2, new ByteArrayInputStream(marcAsBytes));
-					updateRecordInDBStmt.setLong(3, curTime);
-					updateRecordInDBStmt.setLong(4, getExistingRecordInfoForIdentifierRS.getLong("id"));
-					updateRecordInDBStmt.executeUpdate();
-					returnValue = MarcStatus.CHANGED;
+				if (deleted || (marcAsBytes.length != uncompressedLength) || (existingChecksum != checksum)){
+					if (!deleted && isStoredAsJson(marcRecord, existingChecksum, uncompressedLength)) {
+						//The record has not changed, it just hasn't been converted to the binary format yet
+						updateRecordFormatStmt.setLong(1, checksum);
+						updateRecordFormatStmt.setBytes(2, MySQLCompression.compress(marcAsBytes));
+						updateRecordFormatStmt.setLong(3, getExistingRecordInfoForIdentifierRS.getLong("id"));
+						updateRecordFormatStmt.executeUpdate();
+					} else {
+						long curTime = new Date().getTime() / 1000;
+						updateRecordInDBStmt.setLong(1, checksum);
+						updateRecordInDBStmt.setBytes(2, MySQLCompression.compress(marcAsBytes));
+						updateRecordInDBStmt.setLong(3, curTime);
+						updateRecordInDBStmt.setLong(4, getExistingRecordInfoForIdentifierRS.getLong("id"));
+						updateRecordInDBStmt.executeUpdate();
+						returnValue = MarcStatus.CHANGED;
+					}
 				}
 			}else{
 				File marcFile = indexingProfile.getFileForIlsRecord(ilsId);
@@ -2089,9 +1632,9 @@ public class GroupedWorkIndexer {
 
 				addRecordToDBStmt.setString(1, ilsId);
 				addRecordToDBStmt.setString(2, indexingProfile.getName());
-				addRecordToDBStmt.setLong(3, checksumCalculator.getValue());
+				addRecordToDBStmt.setLong(3, checksum);
 				addRecordToDBStmt.setLong(4, lastModified);
-				addRecordToDBStmt.setBlob(5, new ByteArrayInputStream(marcAsBytes));
+				addRecordToDBStmt.setBytes(5, MySQLCompression.compress(marcAsBytes));
 				addRecordToDBStmt.setLong(6, lastModified);
 				addRecordToDBStmt.executeUpdate();
 				returnValue = MarcStatus.NEW;
@@ -2103,16 +1646,48 @@ public class GroupedWorkIndexer {
 		}catch (Exception e){
 			logEntry.incErrors("Error saving MARC record to database for " + ilsId + " found existing? " + foundExisting, e);
 		}
-		marcRecordCache.put(indexingProfile.getName() + ilsId, marcRecord);
+		marcRecordCache.put(indexingProfile.getName(), ilsId, marcAsBytes);
 
 		return returnValue;
 	}
 
-	//Create a small cache to hold recently used marc records to avoid time reloading them.
-	public MaxSizeHashMap<String, Record> marcRecordCache = new MaxSizeHashMap<>(100);
+	/**
+	 * Checks to see if the existing checksum and length match the record stored as JSON which is how records were stored
+	 * before the binary format was added.
+	 */
+	private boolean isStoredAsJson(Record marcRecord, long existingChecksum, long uncompressedLength) {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		MarcWriter writer = new MarcJsonWriter(outputStream);
+		writer.write(marcRecord);
+		byte[] marcAsJson = outputStream.toByteArray();
+		if (marcAsJson.length != uncompressedLength) {
+			return false;
+		}
+		CRC32 jsonChecksum = new CRC32();
+		jsonChecksum.update(marcAsJson);
+		return jsonChecksum.getValue() == existingChecksum;
+	}
+
+	/**
+	 * Adds a record that was read from ils_records to the MARC record cache so it does not need to be loaded again
+	 * when the grouped work is indexed.  Binary records are cached as is, older JSON records are converted.
+	 */
+	public void cacheMarcRecord(String source, String identifier, byte[] uncompressedData, Record marcRecord) {
+		if (BinaryMarcCodec.isBinaryFormat(uncompressedData)) {
+			marcRecordCache.put(source, identifier, uncompressedData);
+		} else {
+			marcRecordCache.put(source, identifier, marcRecord);
+		}
+	}
+
 	public Record loadMarcRecordFromDatabase(String source, String identifier, BaseLogEntry logEntry) {
-		String key = source + identifier;
-		Record marcRecord = marcRecordCache.get(key);
+		Record marcRecord = null;
+		try {
+			marcRecord = marcRecordCache.get(source, identifier);
+		} catch (IllegalArgumentException e) {
+			logEntry.incErrors("Could not read cached MARC record for " + identifier, e);
+			marcRecordCache.remove(source, identifier);
+		}
 		if (marcRecord == null) {
 			try {
 				getRecordForIdentifierStmt.setString(1, identifier);
@@ -2121,9 +1696,11 @@ public class GroupedWorkIndexer {
 				if (getRecordForIdentifierRS.next()) {
 					byte[] marcData = getRecordForIdentifierRS.getBytes("sourceData");
 					if (marcData != null && marcData.length > 0) {
-						String marcRecordRaw = new String(marcData, StandardCharsets.UTF_8);
-						marcRecord = MarcUtil.readJsonFormattedRecord(identifier, marcRecordRaw, logEntry);
-						marcRecordCache.put(key, marcRecord);
+						byte[] uncompressedData = MySQLCompression.uncompress(marcData);
+						marcRecord = MarcUtil.readStoredRecord(identifier, uncompressedData, logEntry);
+						if (marcRecord != null) {
+							cacheMarcRecord(source, identifier, uncompressedData, marcRecord);
+						}
 					}
 				}
 				getRecordForIdentifierRS.close();
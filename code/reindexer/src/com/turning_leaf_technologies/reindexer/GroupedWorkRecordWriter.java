@@ -0,0 +1,623 @@
+package com.turning_leaf_technologies.reindexer;
+
+import com.turning_leaf_technologies.logging.BaseLogEntry;
+import com.turning_leaf_technologies.strings.StringUtils;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Saves the records, variations and items for grouped works to the database.
+ *
+ * Works are queued and saved in batches.  The existing rows for every work in the batch are loaded with a few queries
+ * and compared to the records and items for the work the same way they were when each work was saved individually.
+ * Inserts, updates and deletes are then sent with JDBC batches.  Ids for new records, variations and items are loaded
+ * in bulk once the inserts are done so new items can reference new records and variations.
+ *
+ * Batching works best when the connection has rewriteBatchedStatements enabled, see enableBatchedStatements.
+ */
+class GroupedWorkRecordWriter {
+	static final int BATCH_SIZE = 100;
+	private static final int RECORD_ID_BATCH_SIZE = 500;
+
+	private final GroupedWorkIndexer indexer;
+	private final BaseLogEntry logEntry;
+	//Works waiting to be saved by the id of the grouped work
+	private final LinkedHashMap<Long, GroupedWorkSolr> worksToSave = new LinkedHashMap<>();
+
+	private final PreparedStatement getExistingRecordsStmt;
+	private final PreparedStatement addRecordStmt;
+	private final PreparedStatement updateRecordStmt;
+	private final PreparedStatement removeRecordStmt;
+	private final PreparedStatement getExistingVariationsStmt;
+	private final PreparedStatement addVariationStmt;
+	private final PreparedStatement removeVariationStmt;
+	private final PreparedStatement getExistingItemsStmt;
+	private final PreparedStatement getItemIdsStmt;
+	private final PreparedStatement addItemStmt;
+	private final PreparedStatement updateItemStmt;
+	private final PreparedStatement updateItemCirculationStmt;
+	private final PreparedStatement removeItemStmt;
+	private final PreparedStatement addItemUrlStmt;
+
+	GroupedWorkRecordWriter(Connection dbConn, GroupedWorkIndexer indexer, BaseLogEntry logEntry) throws SQLException {
+		this.indexer = indexer;
+		this.logEntry = logEntry;
+		String groupedWorkIdParams = buildParameterList(BATCH_SIZE);
+		String recordIdParams = buildParameterList(RECORD_ID_BATCH_SIZE);
+		getExistingRecordsStmt = dbConn.prepareStatement("SELECT id, sourceId, recordIdentifier, groupedWorkId, editionId, publisherId, publicationDateId, physicalDescriptionId, formatId, formatCategoryId, languageId from grouped_work_records where groupedWorkId IN (" + groupedWorkIdParams + ")", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		addRecordStmt = dbConn.prepareStatement("INSERT INTO grouped_work_records (groupedWorkId, sourceId, recordIdentifier, editionId, publisherId, publicationDateId, physicalDescriptionId, formatId, formatCategoryId, languageId) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+				"ON DUPLICATE KEY UPDATE groupedWorkId = VALUES(groupedWorkId), editionId = VALUES(editionId), publisherId = VALUES(publisherId), publicationDateId = VALUES(publicationDateId), physicalDescriptionId = VALUES(physicalDescriptionId), formatId = VALUES(formatId), formatCategoryId = VALUES(formatCategoryId), languageId = VALUES(languageId)");
+		updateRecordStmt = dbConn.prepareStatement("UPDATE grouped_work_records SET groupedWorkId = ?, editionId = ?, publisherId = ?, publicationDateId = ?, physicalDescriptionId = ?, formatId = ?, formatCategoryId = ?, languageId = ? where id = ?");
+		removeRecordStmt = dbConn.prepareStatement("DELETE FROM grouped_work_records where id = ?");
+		getExistingVariationsStmt = dbConn.prepareStatement("SELECT id, groupedWorkId, primaryLanguageId, eContentSourceId, formatId, formatCategoryId from grouped_work_variation where groupedWorkId IN (" + groupedWorkIdParams + ")", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		addVariationStmt = dbConn.prepareStatement("INSERT INTO grouped_work_variation (groupedWorkId, primaryLanguageId, eContentSourceId, formatId, formatCategoryId) VALUES (?, ?, ?, ?, ?)");
+		removeVariationStmt = dbConn.prepareStatement("DELETE FROM grouped_work_variation WHERE id = ?");
+		getExistingItemsStmt = dbConn.prepareStatement("SELECT * from grouped_work_record_items WHERE groupedWorkRecordId IN (" + recordIdParams + ")", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		getItemIdsStmt = dbConn.prepareStatement("SELECT id, groupedWorkRecordId, itemId from grouped_work_record_items WHERE groupedWorkRecordId IN (" + recordIdParams + ")", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		addItemStmt = dbConn.prepareStatement("INSERT INTO grouped_work_record_items (groupedWorkRecordId, groupedWorkVariationId, itemId, shelfLocationId, callNumberId, sortableCallNumberId, numCopies, isOrderItem, statusId, dateAdded, locationCodeId, subLocationCodeId, lastCheckInDate, groupedStatusId, available, holdable, inLibraryUseOnly, locationOwnedScopes, libraryOwnedScopes, recordIncludedScopes) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		updateItemStmt = dbConn.prepareStatement("UPDATE grouped_work_record_items set groupedWorkVariationId = ?, shelfLocationId = ?, callNumberId = ?, sortableCallNumberId = ?, numCopies = ?, isOrderItem = ?, statusId = ?, dateAdded = ?, " +
+				"locationCodeId = ?, subLocationCodeId = ?, lastCheckInDate = ?, groupedStatusId = ?, available = ?, holdable = ?, inLibraryUseOnly = ?, locationOwnedScopes = ?, libraryOwnedScopes = ?, recordIncludedScopes = ? WHERE id = ?");
+		updateItemCirculationStmt = dbConn.prepareStatement("UPDATE grouped_work_record_items set statusId = ?, lastCheckInDate = ?, groupedStatusId = ?, available = ?, holdable = ? WHERE id = ?");
+		removeItemStmt = dbConn.prepareStatement("DELETE FROM grouped_work_record_items WHERE id = ?");
+		addItemUrlStmt = dbConn.prepareStatement("INSERT INTO grouped_work_record_item_url (groupedWorkItemId, scopeId, url) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE url = VALUES(url) ");
+	}
+
+	/**
+	 * Turns on rewriteBatchedStatements for a MySQL connection string so batches are sent as multi-row statements.
+	 */
+	static String enableBatchedStatements(String databaseConnectionInfo) {
+		if (databaseConnectionInfo.contains("rewriteBatchedStatements")) {
+			return databaseConnectionInfo;
+		}
+		return databaseConnectionInfo + (databaseConnectionInfo.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+	}
+
+	/**
+	 * Queues the records for a work to be saved.  The queue is saved once it reaches BATCH_SIZE works.
+	 */
+	void addWork(long groupedWorkId, GroupedWorkSolr groupedWork) {
+		worksToSave.put(groupedWorkId, groupedWork);
+		if (worksToSave.size() >= BATCH_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Saves all queued works to the database.
+	 */
+	void flush() {
+		if (worksToSave.isEmpty()) {
+			return;
+		}
+		indexer.disableAutoCommit();
+		try {
+			saveWorks();
+		} catch (SQLException e) {
+			logEntry.incErrors("Error saving records for " + worksToSave.size() + " grouped works", e);
+		} finally {
+			worksToSave.clear();
+			indexer.enableAutoCommit();
+		}
+	}
+
+	void close() {
+		flush();
+		try {
+			getExistingRecordsStmt.close();
+			addRecordStmt.close();
+			updateRecordStmt.close();
+			removeRecordStmt.close();
+			getExistingVariationsStmt.close();
+			addVariationStmt.close();
+			removeVariationStmt.close();
+			getExistingItemsStmt.close();
+			getItemIdsStmt.close();
+			addItemStmt.close();
+			updateItemStmt.close();
+			updateItemCirculationStmt.close();
+			removeItemStmt.close();
+			addItemUrlStmt.close();
+		} catch (SQLException e) {
+			logEntry.incErrors("Error closing statements to save grouped work records", e);
+		}
+	}
+
+	private void saveWorks() throws SQLException {
+		ArrayList<Long> groupedWorkIds = new ArrayList<>(worksToSave.keySet());
+
+		//Make sure ids for new formats, publishers, call numbers, etc. are added together
+		ArrayList<RecordInfo> allRecords = new ArrayList<>();
+		for (GroupedWorkSolr work : worksToSave.values()) {
+			allRecords.addAll(work.getRelatedRecords());
+		}
+		indexer.loadIndexedValueIds(allRecords);
+
+		//Get a list of all existing records and variations for the grouped works
+		HashMap<Long, HashMap<String, SavedRecordInfo>> existingRecordsByWork = new HashMap<>();
+		HashMap<Long, HashMap<VariationInfo, Long>> existingVariationsByWork = new HashMap<>();
+		for (Long groupedWorkId : groupedWorkIds) {
+			existingRecordsByWork.put(groupedWorkId, new HashMap<>());
+			existingVariationsByWork.put(groupedWorkId, new HashMap<>());
+		}
+		runQuery(getExistingRecordsStmt, groupedWorkIds, BATCH_SIZE, existingRecordsRS -> {
+			String key = existingRecordsRS.getString("sourceId") + ":" + existingRecordsRS.getString("recordIdentifier");
+			existingRecordsByWork.get(existingRecordsRS.getLong("groupedWorkId")).put(key, new SavedRecordInfo(existingRecordsRS));
+		});
+		runQuery(getExistingVariationsStmt, groupedWorkIds, BATCH_SIZE, existingVariationsRS -> {
+			VariationInfo variation = loadVariation(existingVariationsRS);
+			existingVariationsByWork.get(existingVariationsRS.getLong("groupedWorkId")).put(variation, variation.id);
+		});
+
+		ArrayList<RecordToSave> recordsToSave = saveRecords(existingRecordsByWork);
+		saveItems(recordsToSave, existingVariationsByWork);
+	}
+
+	/**
+	 * Adds, updates and removes records for all works in the batch.
+	 *
+	 * @return the records for the works with their ids
+	 */
+	private ArrayList<RecordToSave> saveRecords(HashMap<Long, HashMap<String, SavedRecordInfo>> existingRecordsByWork) throws SQLException {
+		ArrayList<RecordToSave> recordsToSave = new ArrayList<>();
+		ArrayList<RecordToSave> recordsToAdd = new ArrayList<>();
+		for (Map.Entry<Long, GroupedWorkSolr> workToSave : worksToSave.entrySet()) {
+			HashMap<String, SavedRecordInfo> existingRecords = existingRecordsByWork.get(workToSave.getKey());
+			for (RecordInfo recordInfo : workToSave.getValue().getRelatedRecords()) {
+				long sourceId = indexer.getSourceId(recordInfo.getSource(), recordInfo.getSubSource());
+				String relatedRecordKey = sourceId + ":" + recordInfo.getRecordIdentifier();
+				RecordToSave recordToSave = new RecordToSave(workToSave.getKey(), sourceId, relatedRecordKey, recordInfo, existingRecords.remove(relatedRecordKey));
+				recordsToSave.add(recordToSave);
+				if (recordToSave.existingRecord == null) {
+					recordsToAdd.add(recordToSave);
+				}
+			}
+		}
+
+		//Anything left over should be removed unless it moved to another work within the batch
+		HashMap<String, SavedRecordInfo> recordsToRemove = new HashMap<>();
+		for (HashMap<String, SavedRecordInfo> existingRecords : existingRecordsByWork.values()) {
+			recordsToRemove.putAll(existingRecords);
+		}
+		Iterator<RecordToSave> recordsToAddIterator = recordsToAdd.iterator();
+		while (recordsToAddIterator.hasNext()) {
+			RecordToSave recordToAdd = recordsToAddIterator.next();
+			SavedRecordInfo movedRecord = recordsToRemove.remove(recordToAdd.key);
+			if (movedRecord != null) {
+				recordToAdd.existingRecord = movedRecord;
+				recordsToAddIterator.remove();
+			}
+		}
+		for (SavedRecordInfo recordToRemove : recordsToRemove.values()) {
+			removeRecordStmt.setLong(1, recordToRemove.id);
+			removeRecordStmt.addBatch();
+		}
+		executeBatch(removeRecordStmt, "Could not delete records");
+
+		for (RecordToSave recordToSave : recordsToSave) {
+			RecordInfo recordInfo = recordToSave.recordInfo;
+			long editionId = indexer.getEditionId(recordInfo.getEdition());
+			long publisherId = indexer.getPublisherId(recordInfo.getPublisher());
+			long publicationDateId = indexer.getPublicationDateId(recordInfo.getPublicationDate());
+			long physicalDescriptionId = indexer.getPhysicalDescriptionId(recordInfo.getPhysicalDescription());
+			long formatId = indexer.getFormatId(recordInfo.getPrimaryFormat());
+			long formatCategoryId = indexer.getFormatCategoryId(recordInfo.getPrimaryFormatCategory());
+			long languageId = indexer.getLanguageId(recordInfo.getPrimaryLanguage());
+			SavedRecordInfo existingRecord = recordToSave.existingRecord;
+			if (existingRecord == null) {
+				addRecordStmt.setLong(1, recordToSave.groupedWorkId);
+				addRecordStmt.setLong(2, recordToSave.sourceId);
+				addRecordStmt.setString(3, recordInfo.getRecordIdentifier());
+				addRecordStmt.setLong(4, editionId);
+				addRecordStmt.setLong(5, publisherId);
+				addRecordStmt.setLong(6, publicationDateId);
+				addRecordStmt.setLong(7, physicalDescriptionId);
+				addRecordStmt.setLong(8, formatId);
+				addRecordStmt.setLong(9, formatCategoryId);
+				addRecordStmt.setLong(10, languageId);
+				addRecordStmt.addBatch();
+			} else {
+				recordToSave.recordId = existingRecord.id;
+				//Check to see if we have any changes
+				if (recordToSave.groupedWorkId != existingRecord.groupedWorkId || editionId != existingRecord.editionId || publisherId != existingRecord.publisherId ||
+						publicationDateId != existingRecord.publicationDateId || physicalDescriptionId != existingRecord.physicalDescriptionId ||
+						formatId != existingRecord.formatId || formatCategoryId != existingRecord.formatCategoryId || languageId != existingRecord.languageId) {
+					updateRecordStmt.setLong(1, recordToSave.groupedWorkId);
+					updateRecordStmt.setLong(2, editionId);
+					updateRecordStmt.setLong(3, publisherId);
+					updateRecordStmt.setLong(4, publicationDateId);
+					updateRecordStmt.setLong(5, physicalDescriptionId);
+					updateRecordStmt.setLong(6, formatId);
+					updateRecordStmt.setLong(7, formatCategoryId);
+					updateRecordStmt.setLong(8, languageId);
+					updateRecordStmt.setLong(9, existingRecord.id);
+					updateRecordStmt.addBatch();
+				}
+			}
+		}
+		executeBatch(addRecordStmt, "Error saving grouped work records");
+		executeBatch(updateRecordStmt, "Error updating grouped work records");
+
+		//Load the ids of the new records.  Records that already existed for another work are moved by the insert.
+		if (!recordsToAdd.isEmpty()) {
+			HashMap<String, Long> newRecordIds = new HashMap<>();
+			runQuery(getExistingRecordsStmt, getGroupedWorkIds(recordsToAdd), BATCH_SIZE, recordIdsRS ->
+					newRecordIds.put(recordIdsRS.getString("sourceId") + ":" + recordIdsRS.getString("recordIdentifier"), recordIdsRS.getLong("id"))
+			);
+			for (RecordToSave recordToAdd : recordsToAdd) {
+				Long recordId = newRecordIds.get(recordToAdd.key);
+				if (recordId == null) {
+					logEntry.incErrors("Could not get id for new grouped work record " + recordToAdd.key);
+				} else {
+					recordToAdd.recordId = recordId;
+				}
+			}
+		}
+		return recordsToSave;
+	}
+
+	/**
+	 * Adds, updates and removes items (and the variations they belong to) for all records in the batch.
+	 */
+	private void saveItems(ArrayList<RecordToSave> recordsToSave, HashMap<Long, HashMap<VariationInfo, Long>> existingVariationsByWork) throws SQLException {
+		//Get the variation for each item, adding any new variations
+		HashMap<Long, HashMap<VariationInfo, VariationInfo>> newVariationsByWork = new HashMap<>();
+		ArrayList<ItemToSave> itemsToSave = new ArrayList<>();
+		ArrayList<Long> recordIds = new ArrayList<>();
+		for (RecordToSave recordToSave : recordsToSave) {
+			if (recordToSave.recordId == -1) {
+				continue;
+			}
+			recordIds.add(recordToSave.recordId);
+			RecordInfo recordInfo = recordToSave.recordInfo;
+			HashMap<VariationInfo, Long> existingVariations = existingVariationsByWork.get(recordToSave.groupedWorkId);
+			for (ItemInfo itemInfo : recordInfo.getRelatedItems()) {
+				VariationInfo variation = new VariationInfo();
+				variation.primaryLanguageId = indexer.getLanguageId(recordInfo.getPrimaryLanguage());
+				variation.eContentSourceId = indexer.getEContentSourceId(itemInfo.geteContentSource());
+				String format = itemInfo.getFormat() == null ? recordInfo.getPrimaryFormat() : itemInfo.getFormat();
+				variation.formatId = indexer.getFormatId(format);
+				String formatCategory = itemInfo.getFormatCategory() == null ? recordInfo.getPrimaryFormatCategory() : itemInfo.getFormatCategory();
+				variation.formatCategoryId = indexer.getFormatCategoryId(formatCategory);
+				Long existingId = existingVariations.get(variation);
+				if (existingId != null) {
+					variation.id = existingId;
+				} else {
+					HashMap<VariationInfo, VariationInfo> newVariations = newVariationsByWork.computeIfAbsent(recordToSave.groupedWorkId, k -> new HashMap<>());
+					VariationInfo newVariation = newVariations.get(variation);
+					if (newVariation == null) {
+						newVariations.put(variation, variation);
+						addVariationStmt.setLong(1, recordToSave.groupedWorkId);
+						addVariationStmt.setLong(2, variation.primaryLanguageId);
+						addVariationStmt.setLong(3, variation.eContentSourceId);
+						addVariationStmt.setLong(4, variation.formatId);
+						addVariationStmt.setLong(5, variation.formatCategoryId);
+						addVariationStmt.addBatch();
+					} else {
+						variation = newVariation;
+					}
+				}
+				itemsToSave.add(new ItemToSave(recordToSave, itemInfo, variation));
+			}
+		}
+		executeBatch(addVariationStmt, "Error saving grouped work variations");
+		if (!newVariationsByWork.isEmpty()) {
+			runQuery(getExistingVariationsStmt, new ArrayList<>(newVariationsByWork.keySet()), BATCH_SIZE, variationsRS -> {
+				HashMap<VariationInfo, VariationInfo> newVariations = newVariationsByWork.get(variationsRS.getLong("groupedWorkId"));
+				if (newVariations != null) {
+					VariationInfo savedVariation = loadVariation(variationsRS);
+					VariationInfo newVariation = newVariations.get(savedVariation);
+					if (newVariation != null && newVariation.id == null) {
+						newVariation.id = savedVariation.id;
+					}
+				}
+			});
+		}
+
+		//Get existing items for the records
+		HashMap<Long, HashMap<String, SavedItemInfo>> existingItemsByRecord = new HashMap<>();
+		for (Long recordId : recordIds) {
+			existingItemsByRecord.put(recordId, new HashMap<>());
+		}
+		runQuery(getExistingItemsStmt, recordIds, RECORD_ID_BATCH_SIZE, existingItemsRS ->
+				existingItemsByRecord.get(existingItemsRS.getLong("groupedWorkRecordId")).put(existingItemsRS.getString("itemId"), new SavedItemInfo(existingItemsRS))
+		);
+
+		//Save all the items
+		HashSet<Long> foundItems = new HashSet<>();
+		HashMap<Long, HashMap<String, ItemToSave>> itemsToAddByRecord = new HashMap<>();
+		HashMap<Long, HashSet<Long>> foundVariationsByWork = new HashMap<>();
+		for (ItemToSave itemToSave : itemsToSave) {
+			ItemInfo itemInfo = itemToSave.itemInfo;
+			long recordId = itemToSave.record.recordId;
+			long variationId = itemToSave.variation.id == null ? -1L : itemToSave.variation.id;
+			foundVariationsByWork.computeIfAbsent(itemToSave.record.groupedWorkId, k -> new HashSet<>()).add(variationId);
+
+			long shelfLocationId = indexer.getShelfLocationId(itemInfo.getDetailedLocation());
+			long callNumberId = indexer.getCallNumberId(itemInfo.getCallNumber());
+			long sortableCallNumberId;
+			if (StringUtils.compareStrings(itemInfo.getCallNumber(), itemInfo.getSortableCallNumber())){
+				sortableCallNumberId = callNumberId;
+			}else{
+				sortableCallNumberId = indexer.getCallNumberId(itemInfo.getSortableCallNumber());
+			}
+			long statusId = indexer.getStatusId(itemInfo.getDetailedStatus());
+			long locationCodeId = indexer.getLocationCodeId(itemInfo.getLocationCode());
+			long subLocationId = indexer.getSubLocationCodeId(itemInfo.getSubLocationCode());
+			long groupedStatusId = indexer.getStatusId(itemInfo.getGroupedStatus());
+
+			SavedItemInfo savedItem = existingItemsByRecord.get(recordId).get(itemInfo.getItemIdentifier());
+			HashMap<String, ItemToSave> itemsToAdd = itemsToAddByRecord.computeIfAbsent(recordId, k -> new HashMap<>());
+			if (savedItem == null) {
+				ItemToSave pendingItem = itemsToAdd.get(itemInfo.getItemIdentifier());
+				if (pendingItem == null) {
+					itemsToAdd.put(itemInfo.getItemIdentifier(), itemToSave);
+				} else {
+					//The same item appears more than once in the record, the last one is saved.
+					pendingItem.itemInfo = itemInfo;
+					pendingItem.variation = itemToSave.variation;
+					pendingItem.urlsFrom.add(itemInfo);
+					itemToSave = pendingItem;
+				}
+				itemToSave.setIds(variationId, shelfLocationId, callNumberId, sortableCallNumberId, statusId, locationCodeId, subLocationId, groupedStatusId);
+			} else {
+				itemToSave.itemId = savedItem.id;
+				foundItems.add(savedItem.id);
+				if (savedItem.hasChanged(recordId, variationId, itemInfo.getItemIdentifier(), shelfLocationId, callNumberId, sortableCallNumberId, itemInfo.getNumCopies(),
+						itemInfo.isOrderItem(), itemInfo.getDateAdded(), locationCodeId, subLocationId, itemInfo.isInLibraryUseOnly(), itemInfo.getLocationOwnedScopes(),
+						itemInfo.getLibraryOwnedScopes(), itemInfo.getRecordsIncludedScopes())) {
+					updateItemStmt.setLong(1, variationId);
+					updateItemStmt.setLong(2, shelfLocationId);
+					updateItemStmt.setLong(3, callNumberId);
+					updateItemStmt.setLong(4, sortableCallNumberId);
+					updateItemStmt.setLong(5, itemInfo.getNumCopies());
+					updateItemStmt.setBoolean(6, itemInfo.isOrderItem());
+					updateItemStmt.setLong(7, statusId);
+					setNullableTime(updateItemStmt, 8, itemInfo.getDateAdded(), Types.BIGINT);
+					updateItemStmt.setLong(9, locationCodeId);
+					updateItemStmt.setLong(10, subLocationId);
+					setNullableTime(updateItemStmt, 11, itemInfo.getLastCheckinDate(), Types.INTEGER);
+					updateItemStmt.setLong(12, groupedStatusId);
+					updateItemStmt.setBoolean(13, itemInfo.isAvailable());
+					updateItemStmt.setBoolean(14, itemInfo.isHoldable());
+					updateItemStmt.setBoolean(15, itemInfo.isInLibraryUseOnly());
+					updateItemStmt.setString(16, itemInfo.getLocationOwnedScopes());
+					updateItemStmt.setString(17, itemInfo.getLibraryOwnedScopes());
+					updateItemStmt.setString(18, itemInfo.getRecordsIncludedScopes());
+					updateItemStmt.setLong(19, savedItem.id);
+					updateItemStmt.addBatch();
+				} else if (savedItem.hasCirculationChanged(statusId, itemInfo.getLastCheckinDate(), groupedStatusId, itemInfo.isAvailable(), itemInfo.isHoldable())) {
+					//Most changes are checkouts and check ins so only update the status of the item
+					updateItemCirculationStmt.setLong(1, statusId);
+					setNullableTime(updateItemCirculationStmt, 2, itemInfo.getLastCheckinDate(), Types.INTEGER);
+					updateItemCirculationStmt.setLong(3, groupedStatusId);
+					updateItemCirculationStmt.setBoolean(4, itemInfo.isAvailable());
+					updateItemCirculationStmt.setBoolean(5, itemInfo.isHoldable());
+					updateItemCirculationStmt.setLong(6, savedItem.id);
+					updateItemCirculationStmt.addBatch();
+				}
+			}
+		}
+
+		//Add the new items and load their ids
+		ArrayList<Long> recordsWithNewItems = new ArrayList<>();
+		for (Map.Entry<Long, HashMap<String, ItemToSave>> itemsToAdd : itemsToAddByRecord.entrySet()) {
+			if (itemsToAdd.getValue().isEmpty()) {
+				continue;
+			}
+			recordsWithNewItems.add(itemsToAdd.getKey());
+			for (ItemToSave itemToAdd : itemsToAdd.getValue().values()) {
+				ItemInfo itemInfo = itemToAdd.itemInfo;
+				addItemStmt.setLong(1, itemToAdd.record.recordId);
+				addItemStmt.setLong(2, itemToAdd.variationId);
+				addItemStmt.setString(3, itemInfo.getItemIdentifier());
+				addItemStmt.setLong(4, itemToAdd.shelfLocationId);
+				addItemStmt.setLong(5, itemToAdd.callNumberId);
+				addItemStmt.setLong(6, itemToAdd.sortableCallNumberId);
+				addItemStmt.setLong(7, itemInfo.getNumCopies());
+				addItemStmt.setBoolean(8, itemInfo.isOrderItem());
+				addItemStmt.setLong(9, itemToAdd.statusId);
+				setNullableTime(addItemStmt, 10, itemInfo.getDateAdded(), Types.BIGINT);
+				addItemStmt.setLong(11, itemToAdd.locationCodeId);
+				addItemStmt.setLong(12, itemToAdd.subLocationId);
+				setNullableTime(addItemStmt, 13, itemInfo.getLastCheckinDate(), Types.INTEGER);
+				addItemStmt.setLong(14, itemToAdd.groupedStatusId);
+				addItemStmt.setBoolean(15, itemInfo.isAvailable());
+				addItemStmt.setBoolean(16, itemInfo.isHoldable());
+				addItemStmt.setBoolean(17, itemInfo.isInLibraryUseOnly());
+				addItemStmt.setString(18, itemInfo.getLocationOwnedScopes());
+				addItemStmt.setString(19, itemInfo.getLibraryOwnedScopes());
+				addItemStmt.setString(20, itemInfo.getRecordsIncludedScopes());
+				addItemStmt.addBatch();
+			}
+		}
+		executeBatch(addItemStmt, "Error saving grouped work items");
+		executeBatch(updateItemStmt, "Error updating grouped work items");
+		executeBatch(updateItemCirculationStmt, "Error updating circulation for grouped work items");
+		if (!recordsWithNewItems.isEmpty()) {
+			runQuery(getItemIdsStmt, recordsWithNewItems, RECORD_ID_BATCH_SIZE, itemIdsRS -> {
+				ItemToSave itemToAdd = itemsToAddByRecord.get(itemIdsRS.getLong("groupedWorkRecordId")).get(itemIdsRS.getString("itemId"));
+				if (itemToAdd != null) {
+					itemToAdd.itemId = itemIdsRS.getLong("id");
+				}
+			});
+		}
+
+		//Save urls for the items
+		for (ItemToSave itemToSave : itemsToSave) {
+			if (itemToSave.itemId == -1) {
+				continue;
+			}
+			for (ItemInfo itemInfo : itemToSave.urlsFrom) {
+				if (itemInfo.geteContentUrl() != null) {
+					addItemUrl(itemToSave.itemId, -1, itemInfo.geteContentUrl());
+					//Check to see if we need to save local urls
+					for (ScopingInfo scopingInfo : itemInfo.getScopingInfo()) {
+						String localUrl = scopingInfo.getLocalUrl();
+						if (localUrl != null && localUrl.length() > 0 && !localUrl.equals(itemInfo.geteContentUrl())) {
+							addItemUrl(itemToSave.itemId, scopingInfo.getScope().getId(), localUrl);
+						}
+					}
+				}
+			}
+		}
+		executeBatch(addItemUrlStmt, "Error saving grouped work item urls");
+
+		//Remove remaining items that no longer exist
+		for (HashMap<String, SavedItemInfo> existingItems : existingItemsByRecord.values()) {
+			for (SavedItemInfo existingItem : existingItems.values()) {
+				if (!foundItems.contains(existingItem.id)) {
+					removeItemStmt.setLong(1, existingItem.id);
+					removeItemStmt.addBatch();
+				}
+			}
+		}
+		executeBatch(removeItemStmt, "Error removing items for records");
+
+		//Remove remaining variations
+		for (Map.Entry<Long, HashMap<VariationInfo, Long>> existingVariations : existingVariationsByWork.entrySet()) {
+			HashSet<Long> foundVariations = foundVariationsByWork.getOrDefault(existingVariations.getKey(), new HashSet<>());
+			for (Long existingVariationId : existingVariations.getValue().values()) {
+				if (!foundVariations.contains(existingVariationId)) {
+					removeVariationStmt.setLong(1, existingVariationId);
+					removeVariationStmt.addBatch();
+				}
+			}
+		}
+		executeBatch(removeVariationStmt, "Error removing grouped work variations");
+	}
+
+	private void addItemUrl(long itemId, long scopeId, String url) throws SQLException {
+		addItemUrlStmt.setLong(1, itemId);
+		addItemUrlStmt.setLong(2, scopeId);
+		addItemUrlStmt.setString(3, url);
+		addItemUrlStmt.addBatch();
+	}
+
+	private void executeBatch(PreparedStatement stmt, String errorMessage) {
+		try {
+			stmt.executeBatch();
+		} catch (SQLException e) {
+			logEntry.incErrors(errorMessage, e);
+		} finally {
+			try {
+				stmt.clearBatch();
+			} catch (SQLException e) {
+				logEntry.incErrors("Error clearing batch", e);
+			}
+		}
+	}
+
+	private static VariationInfo loadVariation(ResultSet variationRS) throws SQLException {
+		VariationInfo variation = new VariationInfo();
+		variation.id = variationRS.getLong("id");
+		variation.primaryLanguageId = variationRS.getLong("primaryLanguageId");
+		variation.eContentSourceId = variationRS.getLong("eContentSourceId");
+		variation.formatId = variationRS.getLong("formatId");
+		variation.formatCategoryId = variationRS.getLong("formatCategoryId");
+		return variation;
+	}
+
+	private static void setNullableTime(PreparedStatement stmt, int parameterIndex, java.util.Date date, int sqlType) throws SQLException {
+		if (date == null) {
+			stmt.setNull(parameterIndex, sqlType);
+		} else {
+			stmt.setLong(parameterIndex, date.getTime() / 1000);
+		}
+	}
+
+	private static ArrayList<Long> getGroupedWorkIds(ArrayList<RecordToSave> records) {
+		LinkedHashSet<Long> groupedWorkIds = new LinkedHashSet<>();
+		for (RecordToSave record : records) {
+			groupedWorkIds.add(record.groupedWorkId);
+		}
+		return new ArrayList<>(groupedWorkIds);
+	}
+
+	private interface RowHandler {
+		void handleRow(ResultSet rs) throws SQLException;
+	}
+
+	/**
+	 * Runs a query with an IN list of ids, splitting the ids into chunks of the size the statement was prepared with.
+	 */
+	private static void runQuery(PreparedStatement stmt, List<Long> ids, int numParameters, RowHandler rowHandler) throws SQLException {
+		for (int start = 0; start < ids.size(); start += numParameters) {
+			List<Long> idsToLoad = ids.subList(start, Math.min(ids.size(), start + numParameters));
+			for (int i = 0; i < numParameters; i++) {
+				//Pad with the last value so the statement can be reused for partial batches
+				stmt.setLong(i + 1, idsToLoad.get(Math.min(i, idsToLoad.size() - 1)));
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					rowHandler.handleRow(rs);
+				}
+			}
+		}
+	}
+
+	private static String buildParameterList(int numParameters) {
+		StringBuilder parameters = new StringBuilder();
+		for (int i = 0; i < numParameters; i++) {
+			if (i > 0) {
+				parameters.append(", ");
+			}
+			parameters.append("?");
+		}
+		return parameters.toString();
+	}
+
+	private static class RecordToSave {
+		final long groupedWorkId;
+		final long sourceId;
+		final String key;
+		final RecordInfo recordInfo;
+		SavedRecordInfo existingRecord;
+		long recordId = -1;
+
+		RecordToSave(long groupedWorkId, long sourceId, String key, RecordInfo recordInfo, SavedRecordInfo existingRecord) {
+			this.groupedWorkId = groupedWorkId;
+			this.sourceId = sourceId;
+			this.key = key;
+			this.recordInfo = recordInfo;
+			this.existingRecord = existingRecord;
+		}
+	}
+
+	private static class ItemToSave {
+		final RecordToSave record;
+		ItemInfo itemInfo;
+		VariationInfo variation;
+		//All items with the same identifier within the record, urls are saved for each of them
+		final ArrayList<ItemInfo> urlsFrom = new ArrayList<>();
+		long itemId = -1;
+
+		//Ids for new items
+		long variationId;
+		long shelfLocationId;
+		long callNumberId;
+		long sortableCallNumberId;
+		long statusId;
+		long locationCodeId;
+		long subLocationId;
+		long groupedStatusId;
+
+		ItemToSave(RecordToSave record, ItemInfo itemInfo, VariationInfo variation) {
+			this.record = record;
+			this.itemInfo = itemInfo;
+			this.variation = variation;
+			urlsFrom.add(itemInfo);
+		}
+
+		void setIds(long variationId, long shelfLocationId, long callNumberId, long sortableCallNumberId, long statusId, long locationCodeId, long subLocationId, long groupedStatusId) {
+			this.variationId = variationId;
+			this.shelfLocationId = shelfLocationId;
+			this.callNumberId = callNumberId;
+			this.sortableCallNumberId = sortableCallNumberId;
+			this.statusId = statusId;
+			this.locationCodeId = locationCodeId;
+			this.subLocationId = subLocationId;
+			this.groupedStatusId = groupedStatusId;
+		}
+	}
+}
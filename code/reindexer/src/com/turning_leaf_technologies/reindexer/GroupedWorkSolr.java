@@ -3,13 +3,16 @@ package com.turning_leaf_technologies.reindexer;
 import com.sun.istack.internal.NotNull;
 import com.turning_leaf_technologies.dates.DateUtils;
 import com.turning_leaf_technologies.indexing.Scope;
+import com.turning_leaf_technologies.indexing.ScopeInclusionIndex;
 import com.turning_leaf_technologies.logging.BaseLogEntry;
 import com.turning_leaf_technologies.strings.StringUtils;
+import com.turning_leaf_technologies.util.CompactSet;
 import org.apache.logging.log4j.Logger;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.SolrInputField;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 public class GroupedWorkSolr implements Cloneable {
@@ -20,193 +23,203 @@ public class GroupedWorkSolr implements Cloneable {
 	private String acceleratedReaderInterestLevel;
 	private String acceleratedReaderReadingLevel;
 	private String acceleratedReaderPointValue;
-	private HashSet<String> alternateIds = new HashSet<>();
+	private Set<String> alternateIds = new CompactSet<>();
 	private String authAuthor;
 	private HashMap<String, Long> primaryAuthors = new HashMap<>();
-	private HashSet<String> authorAdditional = new HashSet<>();
+	private Set<String> authorAdditional = new CompactSet<>();
 	private String authorDisplay;
-	private HashSet<String> author2 = new HashSet<>();
-	private HashSet<String> authAuthor2 = new HashSet<>();
-	private HashSet<String> author2Role = new HashSet<>();
-	private HashSet<String> awards = new HashSet<>();
-	private HashSet<String> barcodes = new HashSet<>();
-	private final HashSet<String> bisacSubjects = new HashSet<>();
+	private Set<String> author2 = new CompactSet<>();
+	private Set<String> authAuthor2 = new CompactSet<>();
+	private Set<String> author2Role = new CompactSet<>();
+	private Set<String> awards = new CompactSet<>();
+	private Set<String> barcodes = new CompactSet<>();
+	private final Set<String> bisacSubjects = new CompactSet<>();
 	private String callNumberA;
 	private String callNumberFirst;
 	private String callNumberSubject;
-	private HashSet<String> contents = new HashSet<>();
-	private HashSet<String> dateSpans = new HashSet<>();
-	private HashSet<String> description = new HashSet<>();
+	private Set<String> contents = new CompactSet<>();
+	private Set<String> dateSpans = new CompactSet<>();
+	private Set<String> description = new CompactSet<>();
 	private String displayDescription = "";
 	private String displayDescriptionFormat = "";
 	private String displayTitle;
 	private Long earliestPublicationDate = null;
-	private HashSet<String> editions = new HashSet<>();
-	private HashSet<String> eras = new HashSet<>();
-	private HashSet<String> fullTitles = new HashSet<>();
-	private HashSet<String> genres = new HashSet<>();
-	private HashSet<String> genreFacets = new HashSet<>();
-	private HashSet<String> geographic = new HashSet<>();
-	private HashSet<String> geographicFacets = new HashSet<>();
+	private Set<String> editions = new CompactSet<>();
+	private Set<String> eras = new CompactSet<>();
+	private Set<String> fullTitles = new CompactSet<>();
+	private Set<String> genres = new CompactSet<>();
+	private Set<String> genreFacets = new CompactSet<>();
+	private Set<String> geographic = new CompactSet<>();
+	private Set<String> geographicFacets = new CompactSet<>();
 	private String groupingCategory;
 	private String primaryIsbn;
 	private boolean primaryIsbnIsBook;
 	private Long primaryIsbnUsageCount;
 	private HashMap<String, Long> isbns = new HashMap<>();
-	private HashSet<String> issns = new HashSet<>();
-	private HashSet<String> keywords = new HashSet<>();
-	private HashSet<String> languages = new HashSet<>();
-	private HashSet<String> translations = new HashSet<>();
+	private Set<String> issns = new CompactSet<>();
+	private Set<String> keywords = new CompactSet<>();
+	private Set<String> languages = new CompactSet<>();
+	private Set<String> translations = new CompactSet<>();
 	private Long languageBoost = 1L;
 	private Long languageBoostSpanish = 1L;
-	private HashSet<String> lccns = new HashSet<>();
-	private HashSet<String> lcSubjects = new HashSet<>();
+	private Set<String> lccns = new CompactSet<>();
+	private Set<String> lcSubjects = new CompactSet<>();
 	private String lexileScore = "-1";
 	private String lexileCode = "";
 	private String fountasPinnell = "";
 	private HashMap<String, Integer> literaryFormFull = new HashMap<>();
 	private HashMap<String, Integer> literaryForm = new HashMap<>();
-	private HashSet<String> mpaaRatings = new HashSet<>();
+	private Set<String> mpaaRatings = new CompactSet<>();
 	private Long numHoldings = 0L;
-	private HashSet<String> oclcs = new HashSet<>();
-	private HashSet<String> physicals = new HashSet<>();
+	private Set<String> oclcs = new CompactSet<>();
+	private Set<String> physicals = new CompactSet<>();
 	private double popularity;
 	private long totalHolds;
 
-	private HashSet<String> publishers = new HashSet<>();
-	private HashSet<String> publicationDates = new HashSet<>();
+	private Set<String> publishers = new CompactSet<>();
+	private Set<String> publicationDates = new CompactSet<>();
 	private float rating = -1f;
 	private HashMap<String, String> series = new HashMap<>();
 	private HashMap<String, String> series2 = new HashMap<>();
 	private HashMap<String, String> seriesWithVolume = new HashMap<>();
 	private String subTitle;
-	private HashSet<String> targetAudienceFull = new HashSet<>();
+	private Set<String> targetAudienceFull = new CompactSet<>();
 	private TreeSet<String> targetAudience = new TreeSet<>();
 	private String title;
-	private HashSet<String> titleAlt = new HashSet<>();
-	private HashSet<String> titleOld = new HashSet<>();
-	private HashSet<String> titleNew = new HashSet<>();
+	private Set<String> titleAlt = new CompactSet<>();
+	private Set<String> titleOld = new CompactSet<>();
+	private Set<String> titleNew = new CompactSet<>();
 	private String titleSort;
 	private String titleFormat = "";
-	private HashSet<String> topics = new HashSet<>();
-	private HashSet<String> topicFacets = new HashSet<>();
-	private HashSet<String> subjects = new HashSet<>();
+	private Set<String> topics = new CompactSet<>();
+	private Set<String> topicFacets = new CompactSet<>();
+	private Set<String> subjects = new CompactSet<>();
 	private HashMap<String, Long> upcs = new HashMap<>();
 
 	private final Logger logger;
 	private final GroupedWorkIndexer groupedWorkIndexer;
-	private HashSet<String> systemLists = new HashSet<>();
+	private Set<String> systemLists = new CompactSet<>();
 	private final HashSet<Long> userReadingHistoryLink = new HashSet<>();
 	private final HashSet<Long> userRatingLink = new HashSet<>();
 	private final HashSet<Long> userNotInterestedLink = new HashSet<>();
 
-	//Store a list of scopes for the work
-	private HashMap<String, ArrayList<ScopingInfo>> relatedScopes = new HashMap<>();
+	//Store the scopes for the work (by ordinal) and the items that are part of at least one scope in the order they were added
+	private BitSet relatedScopes = new BitSet();
+	private Set<ItemInfo> scopedItems = new LinkedHashSet<>();
+
+	//Shallow copy of the work and log of changes to its collections since the last checkpoint was created
+	private GroupedWorkSolr checkpoint = null;
+	private ArrayList<Runnable> undoLog = null;
 
 	public GroupedWorkSolr(GroupedWorkIndexer groupedWorkIndexer, Logger logger) {
 		this.logger = logger;
 		this.groupedWorkIndexer = groupedWorkIndexer;
 	}
 
-	protected GroupedWorkSolr clone() throws CloneNotSupportedException {
-		GroupedWorkSolr clonedWork = (GroupedWorkSolr) super.clone();
-		//Clone collections as well
-		// noinspection unchecked
-		clonedWork.relatedRecords = (HashMap<String, RecordInfo>) relatedRecords.clone();
-		// noinspection unchecked
-		clonedWork.alternateIds = (HashSet<String>) alternateIds.clone();
-		// noinspection unchecked
-		clonedWork.primaryAuthors = (HashMap<String, Long>) primaryAuthors.clone();
-		// noinspection unchecked
-		clonedWork.authorAdditional = (HashSet<String>) authorAdditional.clone();
-		// noinspection unchecked
-		clonedWork.author2 = (HashSet<String>) author2.clone();
-		// noinspection unchecked
-		clonedWork.authAuthor2 = (HashSet<String>) authAuthor2.clone();
-		// noinspection unchecked
-		clonedWork.author2Role = (HashSet<String>) author2Role.clone();
-		// noinspection unchecked
-		clonedWork.awards = (HashSet<String>) awards.clone();
-		// noinspection unchecked
-		clonedWork.barcodes = (HashSet<String>) barcodes.clone();
-		// noinspection unchecked
-		clonedWork.contents = (HashSet<String>) contents.clone();
-		// noinspection unchecked
-		clonedWork.dateSpans = (HashSet<String>) dateSpans.clone();
-		// noinspection unchecked
-		clonedWork.description = (HashSet<String>) description.clone();
-		// noinspection unchecked
-		clonedWork.editions = (HashSet<String>) editions.clone();
-		// noinspection unchecked
-		clonedWork.eras = (HashSet<String>) eras.clone();
-		// noinspection unchecked
-		clonedWork.fullTitles = (HashSet<String>) fullTitles.clone();
-		// noinspection unchecked
-		clonedWork.genres = (HashSet<String>) genres.clone();
-		// noinspection unchecked
-		clonedWork.genreFacets = (HashSet<String>) genreFacets.clone();
-		// noinspection unchecked
-		clonedWork.geographic = (HashSet<String>) geographic.clone();
-		// noinspection unchecked
-		clonedWork.geographicFacets = (HashSet<String>) geographicFacets.clone();
-		// noinspection unchecked
-		clonedWork.isbns = (HashMap<String, Long>) isbns.clone();
-		// noinspection unchecked
-		clonedWork.issns = (HashSet<String>) issns.clone();
-		// noinspection unchecked
-		clonedWork.keywords = (HashSet<String>) keywords.clone();
-		// noinspection unchecked
-		clonedWork.languages = (HashSet<String>) languages.clone();
-		// noinspection unchecked
-		clonedWork.translations = (HashSet<String>) translations.clone();
-		// noinspection unchecked
-		clonedWork.lccns = (HashSet<String>) lccns.clone();
-		// noinspection unchecked
-		clonedWork.lcSubjects = (HashSet<String>) lcSubjects.clone();
-		// noinspection unchecked
-		clonedWork.literaryFormFull = (HashMap<String, Integer>) literaryFormFull.clone();
-		// noinspection unchecked
-		clonedWork.literaryForm = (HashMap<String, Integer>) literaryForm.clone();
-		// noinspection unchecked
-		clonedWork.mpaaRatings = (HashSet<String>) mpaaRatings.clone();
-		// noinspection unchecked
-		clonedWork.oclcs = (HashSet<String>) oclcs.clone();
-		// noinspection unchecked
-		clonedWork.physicals = (HashSet<String>) physicals.clone();
-		// noinspection unchecked
-		clonedWork.publishers = (HashSet<String>) publishers.clone();
-		// noinspection unchecked
-		clonedWork.publicationDates = (HashSet<String>) publicationDates.clone();
-		// noinspection unchecked
-		clonedWork.series = (HashMap<String, String>) series.clone();
-		// noinspection unchecked
-		clonedWork.series2 = (HashMap<String, String>) series2.clone();
-		// noinspection unchecked
-		clonedWork.seriesWithVolume = (HashMap<String, String>) seriesWithVolume.clone();
-		// noinspection unchecked
-		clonedWork.targetAudienceFull = (HashSet<String>) targetAudienceFull.clone();
-		// noinspection unchecked
-		clonedWork.targetAudience = (TreeSet<String>) targetAudience.clone();
-		// noinspection unchecked
-		clonedWork.titleAlt = (HashSet<String>) titleAlt.clone();
-		// noinspection unchecked
-		clonedWork.titleOld = (HashSet<String>) titleOld.clone();
-		// noinspection unchecked
-		clonedWork.titleNew = (HashSet<String>) titleNew.clone();
-		// noinspection unchecked
-		clonedWork.topics = (HashSet<String>) topics.clone();
-		// noinspection unchecked
-		clonedWork.topicFacets = (HashSet<String>) topicFacets.clone();
-		// noinspection unchecked
-		clonedWork.subjects = (HashSet<String>) subjects.clone();
-		// noinspection unchecked
-		clonedWork.upcs = (HashMap<String, Long>) upcs.clone();
-		// noinspection unchecked
-		clonedWork.systemLists = (HashSet<String>) systemLists.clone();
-		// noinspection unchecked
-		clonedWork.relatedScopes = (HashMap<String, ArrayList<ScopingInfo>>) relatedScopes.clone();
-
-		return clonedWork;
+	/**
+	 * Creates a checkpoint that the work can be rolled back to if a record does not end up contributing to the work.
+	 *
+	 * Rather than copying every collection, changes to the collections are recorded in an undo log until the
+	 * checkpoint is released or rolled back.  Other fields are restored from a shallow copy of the work.
+	 */
+	void createCheckpoint() {
+		checkpoint = null;
+		try {
+			checkpoint = (GroupedWorkSolr) super.clone();
+		} catch (CloneNotSupportedException e) {
+			//This does not happen since we implement Cloneable
+			logger.error("Could not create checkpoint for grouped work", e);
+		}
+		if (undoLog == null) {
+			undoLog = new ArrayList<>();
+		}else{
+			undoLog.clear();
+		}
+	}
+
+	/**
+	 * Reverts all changes made since the last checkpoint.
+	 *
+	 * @return the work as it was when the checkpoint was created.  The returned work should be used in place of this one.
+	 */
+	GroupedWorkSolr rollbackToCheckpoint() {
+		for (int i = undoLog.size() - 1; i >= 0; i--) {
+			undoLog.get(i).run();
+		}
+		undoLog.clear();
+		GroupedWorkSolr restoredWork = checkpoint;
+		checkpoint = null;
+		restoredWork.checkpoint = null;
+		restoredWork.undoLog = undoLog;
+		return restoredWork;
+	}
+
+	/**
+	 * Keeps all changes made since the last checkpoint and stops recording changes.
+	 */
+	void releaseCheckpoint() {
+		checkpoint = null;
+		undoLog = null;
+	}
+
+	private <T> void journaledAdd(Set<T> values, T value) {
+		if (values.add(value) && undoLog != null) {
+			undoLog.add(() -> values.remove(value));
+		}
+	}
+
+	private <T> void journaledAddAll(Set<T> values, Collection<? extends T> valuesToAdd) {
+		for (T value : valuesToAdd) {
+			journaledAdd(values, value);
+		}
+	}
+
+	private <T> void journaledRemove(Set<T> values, T value) {
+		if (values.remove(value) && undoLog != null) {
+			undoLog.add(() -> values.add(value));
+		}
+	}
+
+	private <T> void journaledClear(Set<T> values) {
+		if (undoLog != null && !values.isEmpty()) {
+			ArrayList<T> originalValues = new ArrayList<>(values);
+			undoLog.add(() -> values.addAll(originalValues));
+		}
+		values.clear();
+	}
+
+	private <K, V> void journaledPut(Map<K, V> values, K key, V value) {
+		if (undoLog != null) {
+			if (values.containsKey(key)) {
+				V originalValue = values.get(key);
+				undoLog.add(() -> values.put(key, originalValue));
+			}else{
+				undoLog.add(() -> values.remove(key));
+			}
+		}
+		values.put(key, value);
+	}
+
+	private <K, V> void journaledPutAll(Map<K, V> values, Map<? extends K, ? extends V> valuesToAdd) {
+		for (Map.Entry<? extends K, ? extends V> entry : valuesToAdd.entrySet()) {
+			journaledPut(values, entry.getKey(), entry.getValue());
+		}
+	}
+
+	private <K, V> void journaledRemove(Map<K, V> values, K key) {
+		if (undoLog != null && values.containsKey(key)) {
+			V originalValue = values.get(key);
+			undoLog.add(() -> values.put(key, originalValue));
+		}
+		values.remove(key);
+	}
+
+	private <K, V> void journaledClear(Map<K, V> values) {
+		if (undoLog != null && !values.isEmpty()) {
+			HashMap<K, V> originalValues = new HashMap<>(values);
+			undoLog.add(() -> values.putAll(originalValues));
+		}
+		values.clear();
 	}
 
 	SolrInputDocument getSolrDocument(BaseLogEntry logEntry) {
@@ -439,9 +452,15 @@ public class GroupedWorkSolr implements Cloneable {
 		return doc;
 	}
 
-	public void addScopingInfo(String scopeName, ScopingInfo scopingInfo){
-		ArrayList<ScopingInfo> scopingInfoForScope = relatedScopes.computeIfAbsent(scopeName, k -> new ArrayList<>());
-		scopingInfoForScope.add(scopingInfo);
+	public void addScopingInfo(ScopingInfo scopingInfo){
+		int scopeOrdinal = scopingInfo.getScope().getOrdinal();
+		if (!relatedScopes.get(scopeOrdinal)) {
+			relatedScopes.set(scopeOrdinal);
+			if (undoLog != null) {
+				undoLog.add(() -> relatedScopes.clear(scopeOrdinal));
+			}
+		}
+		journaledAdd(scopedItems, scopingInfo.getItem());
 	}
 
 	private String getPrimaryUpc() {
@@ -510,45 +529,53 @@ public class GroupedWorkSolr implements Cloneable {
 			}
 		}
 
-		doc.setField("scope_has_related_records", relatedScopes.keySet());
-		for (String scopeName : relatedScopes.keySet()){
-			HashSet<String> scopingDetailsForScope = new HashSet<>();
-			HashSet<String> formatsForScope = new HashSet<>();
-			HashSet<String> formatCategoriesForScope = new HashSet<>();
-			HashSet<String> collectionsForScope = new HashSet<>();
-			HashSet<String> detailedLocationsForScope = new HashSet<>();
-			HashSet<String> shelfLocationsForScope = new HashSet<>();
-			HashSet<String> iTypesForScope = new HashSet<>();
-			HashSet<String> eContentSourcesForScope = new HashSet<>();
-			HashSet<String> localCallNumbersForScope = new HashSet<>();
-			HashSet<String> owningLibrariesForScope = new HashSet<>();
-			HashSet<String> owningLocationsForScope = new HashSet<>();
+		ScopeInclusionIndex scopeIndex = groupedWorkIndexer.getScopeInclusionIndex();
+		ArrayList<String> relatedScopeNames = new ArrayList<>(relatedScopes.cardinality());
+		for (int scopeOrdinal = relatedScopes.nextSetBit(0); scopeOrdinal >= 0; scopeOrdinal = relatedScopes.nextSetBit(scopeOrdinal + 1)) {
+			relatedScopeNames.add(scopeIndex.getScope(scopeOrdinal).getScopeName());
+		}
+		doc.setField("scope_has_related_records", relatedScopeNames);
+		for (int scopeOrdinal = relatedScopes.nextSetBit(0); scopeOrdinal >= 0; scopeOrdinal = relatedScopes.nextSetBit(scopeOrdinal + 1)){
+			Scope curScope = scopeIndex.getScope(scopeOrdinal);
+			String scopeName = curScope.getScopeName();
+			Set<String> scopingDetailsForScope = new CompactSet<>();
+			Set<String> formatsForScope = new CompactSet<>();
+			Set<String> formatCategoriesForScope = new CompactSet<>();
+			Set<String> collectionsForScope = new CompactSet<>();
+			Set<String> detailedLocationsForScope = new CompactSet<>();
+			Set<String> shelfLocationsForScope = new CompactSet<>();
+			Set<String> iTypesForScope = new CompactSet<>();
+			Set<String> eContentSourcesForScope = new CompactSet<>();
+			Set<String> localCallNumbersForScope = new CompactSet<>();
+			Set<String> owningLibrariesForScope = new CompactSet<>();
+			Set<String> owningLocationsForScope = new CompactSet<>();
 			AvailabilityToggleInfo availabilityToggleForScope = new AvailabilityToggleInfo();
 			HashMap<String, AvailabilityToggleInfo> availabilityToggleByFormatForScope = new HashMap<>();
-			HashSet<String> availableAtForScope = new HashSet<>();
-			HashMap<String, HashSet<String>> availableAtByFormatForScope = new HashMap<>();
+			Set<String> availableAtForScope = new CompactSet<>();
+			HashMap<String, Set<String>> availableAtByFormatForScope = new HashMap<>();
 
 			String sortableCallNumberForScope = null;
 			Long daysSinceAddedForScope = null;
 			long libBoost = 1;
 
 
-			ArrayList<ScopingInfo> itemsWithScopingInfoForActiveScope = relatedScopes.get(scopeName);
-			for (ScopingInfo scopingInfo : itemsWithScopingInfoForActiveScope) {
-				Scope curScope = scopingInfo.getScope();
+			for (ItemInfo curItem : scopedItems) {
+				if (!curItem.isValidForScope(scopeOrdinal)) {
+					continue;
+				}
+				ScopingInfo scopingInfo = new ScopingInfo(curScope, curItem);
 				if (groupedWorkIndexer.isStoreRecordDetailsInSolr()) {
 					scopingDetailsForScope.add(scopingInfo.getScopingDetails());
 				}
 
-				HashSet<String> formatsForItem = new HashSet<>();
+				Set<String> formatsForItem = new CompactSet<>();
 
-				ItemInfo curItem = scopingInfo.getItem();
 				if (curItem.getFormat() != null) {
 					formatsForScope.add(curItem.getFormat());
 					formatsForItem.add(curItem.getFormat());
 					if (!availabilityToggleByFormatForScope.containsKey(curItem.getFormat())){
 						availabilityToggleByFormatForScope.put(curItem.getFormat(), new AvailabilityToggleInfo());
-						availableAtByFormatForScope.put(curItem.getFormat(), new HashSet<>());
+						availableAtByFormatForScope.put(curItem.getFormat(), new CompactSet<>());
 					}
 				} else {
 					formatsForItem.addAll(curItem.getRecordInfo().getFormats());
@@ -556,7 +583,7 @@ public class GroupedWorkSolr implements Cloneable {
 						formatsForScope.add(format);
 						if (!availabilityToggleByFormatForScope.containsKey(format)){
 							availabilityToggleByFormatForScope.put(format, new AvailabilityToggleInfo());
-							availableAtByFormatForScope.put(format, new HashSet<>());
+							availableAtByFormatForScope.put(format, new CompactSet<>());
 						}
 					}
 				}
@@ -565,7 +592,7 @@ public class GroupedWorkSolr implements Cloneable {
 					formatsForItem.add(curItem.getFormatCategory());
 					if (!availabilityToggleByFormatForScope.containsKey(curItem.getFormatCategory())){
 						availabilityToggleByFormatForScope.put(curItem.getFormatCategory(), new AvailabilityToggleInfo());
-						availableAtByFormatForScope.put(curItem.getFormatCategory(), new HashSet<>());
+						availableAtByFormatForScope.put(curItem.getFormatCategory(), new CompactSet<>());
 					}
 				} else {
 					formatCategoriesForScope.addAll(curItem.getRecordInfo().getFormatCategories());
@@ -573,7 +600,7 @@ public class GroupedWorkSolr implements Cloneable {
 					for (String format : curItem.getRecordInfo().getFormatCategories()){
 						if (!availabilityToggleByFormatForScope.containsKey(format)){
 							availabilityToggleByFormatForScope.put(format, new AvailabilityToggleInfo());
-							availableAtByFormatForScope.put(format, new HashSet<>());
+							availableAtByFormatForScope.put(format, new CompactSet<>());
 						}
 					}
 				}
@@ -744,10 +771,10 @@ public class GroupedWorkSolr implements Cloneable {
 			}
 		}
 
-		logger.info("Work " + id + " processed " + relatedScopes.size() + " scopes");
+		logger.info("Work " + id + " processed " + relatedScopes.cardinality() + " scopes");
 	}
 
-	private final static HashMap<String, String> lowerCaseNoSpecialCharFormats = new HashMap<>();
+	private final static ConcurrentHashMap<String, String> lowerCaseNoSpecialCharFormats = new ConcurrentHashMap<>();
 	public String toLowerCaseNoSpecialChars(String format){
 		String lowerCaseNoSpecialCharFormat = lowerCaseNoSpecialCharFormats.get(format);
 		if (lowerCaseNoSpecialCharFormat == null){
@@ -757,7 +784,7 @@ public class GroupedWorkSolr implements Cloneable {
 		return lowerCaseNoSpecialCharFormat;
 	}
 
-	private void addAvailabilityToggle(boolean local, boolean available, boolean availableOnline, AvailabilityToggleInfo availabilityToggleForScope, HashMap<String, AvailabilityToggleInfo> availabilityToggleByFormatForScope,  HashSet<String> formatsForItem){
+	private void addAvailabilityToggle(boolean local, boolean available, boolean availableOnline, AvailabilityToggleInfo availabilityToggleForScope, HashMap<String, AvailabilityToggleInfo> availabilityToggleByFormatForScope,  Set<String> formatsForItem){
 		availabilityToggleForScope.local = availabilityToggleForScope.local || local;
 		availabilityToggleForScope.available = availabilityToggleForScope.available || available;
 		availabilityToggleForScope.availableOnline = availabilityToggleForScope.availableOnline || availableOnline;
@@ -769,7 +796,7 @@ public class GroupedWorkSolr implements Cloneable {
 		}
 	}
 
-	private void addAvailableAt(String location, HashSet<String> availableAtForScope, HashMap<String, HashSet<String>> availableAtByFormatForScope,  HashSet<String> formatsForItem){
+	private void addAvailableAt(String location, Set<String> availableAtForScope, HashMap<String, Set<String>> availableAtByFormatForScope,  Set<String> formatsForItem){
 		availableAtForScope.add(location);
 		for (String format : formatsForItem){
 			availableAtByFormatForScope.get(format).add(location);
@@ -779,7 +806,7 @@ public class GroupedWorkSolr implements Cloneable {
 	private void checkInconsistentLiteraryForms() {
 		if (literaryForm.size() > 1) {
 			//We got unknown and something else, remove the unknown
-			literaryForm.remove("Unknown");
+			journaledRemove(literaryForm, "Unknown");
 			if (literaryForm.size() >= 2) {
 				//Hmm, we got both fiction and non-fiction
 				Integer numFictionIndicators = literaryForm.get("Fiction");
@@ -793,14 +820,14 @@ public class GroupedWorkSolr implements Cloneable {
 				if (numFictionIndicators.equals(numNonFictionIndicators)) {
 					//Houston we have a problem.
 					//logger.warn("Found inconsistent literary forms for grouped work " + id + " both fiction and non fiction had the same amount of usage.  Defaulting to neither.");
-					literaryForm.clear();
-					literaryForm.put("Unknown", 1);
+					journaledClear(literaryForm);
+					journaledPut(literaryForm, "Unknown", 1);
 				} else if (numFictionIndicators.compareTo(numNonFictionIndicators) > 0) {
 					logger.debug("Popularity dictates that Fiction is the correct literary form for grouped work " + id);
-					literaryForm.remove("Non Fiction");
+					journaledRemove(literaryForm, "Non Fiction");
 				} else if (numFictionIndicators.compareTo(numNonFictionIndicators) < 0) {
 					logger.debug("Popularity dictates that Non Fiction is the correct literary form for grouped work " + id);
-					literaryForm.remove("Fiction");
+					journaledRemove(literaryForm, "Fiction");
 				}
 			}
 		}
@@ -809,7 +836,7 @@ public class GroupedWorkSolr implements Cloneable {
 	private void checkInconsistentLiteraryFormsFull() {
 		if (literaryFormFull.size() > 1) {
 			//We got unknown and something else, remove the unknown
-			literaryFormFull.remove("Unknown");
+			journaledRemove(literaryFormFull, "Unknown");
 			if (literaryFormFull.size() >= 2) {
 				//Hmm, we got multiple forms.  Check to see if there are inconsistent forms
 				// i.e. Fiction and Non-Fiction are incompatible, but Novels and Fiction could be mixed
@@ -829,8 +856,8 @@ public class GroupedWorkSolr implements Cloneable {
 					//Check to see if the highest usage literary forms are inconsistent
 					if (hasInconsistentLiteraryForms(highestUsageLiteraryForms)) {
 						//Ugh, we have inconsistent literary forms and can't make an educated guess as to which is correct.
-						literaryFormFull.clear();
-						literaryFormFull.put("Unknown", 1);
+						journaledClear(literaryFormFull);
+						journaledPut(literaryFormFull, "Unknown", 1);
 					}
 				} else {
 					removeInconsistentFullLiteraryForms(literaryFormFull, highestUsageLiteraryForms);
@@ -847,7 +874,7 @@ public class GroupedWorkSolr implements Cloneable {
 			for (String curLiteraryForm : literaryFormFull.keySet()) {
 				if (firstLiteraryFormIsNonFiction != nonFictionFullLiteraryForms.contains(curLiteraryForm)) {
 					logger.debug(curLiteraryForm + " got voted off the island for grouped work " + id + " because it was inconsistent with other full literary forms.");
-					literaryFormFull.remove(curLiteraryForm);
+					journaledRemove(literaryFormFull, curLiteraryForm);
 					changeMade = true;
 					break;
 				}
@@ -996,10 +1023,10 @@ public class GroupedWorkSolr implements Cloneable {
 			//Create an alternate title for searching by replacing ampersands with the word and.
 			String tmpTitle = shortTitle.replace("&", " and ").replace("  ", " ");
 			if (!tmpTitle.equals(shortTitle)) {
-				this.titleAlt.add(shortTitle);
+				journaledAdd(this.titleAlt, shortTitle);
 				// alt title has multiple values
 			}
-			keywords.add(shortTitle);
+			journaledAdd(keywords, shortTitle);
 		}
 	}
 
@@ -1014,7 +1041,7 @@ public class GroupedWorkSolr implements Cloneable {
 				subTitle = tmpTitle;
 			}
 			this.subTitle = subTitle;
-			keywords.add(subTitle);
+			journaledAdd(keywords, subTitle);
 		}
 	}
 
@@ -1023,32 +1050,32 @@ public class GroupedWorkSolr implements Cloneable {
 	}
 
 	void addFullTitles(Set<String> fullTitles) {
-		this.fullTitles.addAll(fullTitles);
+		journaledAddAll(this.fullTitles, fullTitles);
 	}
 
 	void addFullTitle(String title) {
-		this.fullTitles.add(title);
+		journaledAdd(this.fullTitles, title);
 	}
 
 	void addAlternateTitles(Set<String> altTitles) {
-		this.titleAlt.addAll(altTitles);
+		journaledAddAll(this.titleAlt, altTitles);
 	}
 
 	void addOldTitles(Set<String> oldTitles) {
-		this.titleOld.addAll(oldTitles);
+		journaledAddAll(this.titleOld, oldTitles);
 	}
 
 	void addNewTitles(Set<String> newTitles) {
-		this.titleNew.addAll(newTitles);
+		journaledAddAll(this.titleNew, newTitles);
 	}
 
 	void setAuthor(String author) {
 		if (author != null) {
 			author = StringUtils.trimTrailingPunctuation(author);
 			if (primaryAuthors.containsKey(author)) {
-				primaryAuthors.put(author, primaryAuthors.get(author) + 1);
+				journaledPut(primaryAuthors, author, primaryAuthors.get(author) + 1);
 			} else {
-				primaryAuthors.put(author, 1L);
+				journaledPut(primaryAuthors, author, 1L);
 			}
 		}
 	}
@@ -1070,11 +1097,11 @@ public class GroupedWorkSolr implements Cloneable {
 
 	void setAuthAuthor(String author) {
 		this.authAuthor = StringUtils.trimTrailingPunctuation(author);
-		keywords.add(this.authAuthor);
+		journaledAdd(keywords, this.authAuthor);
 	}
 
 	void addOclcNumbers(Set<String> oclcs) {
-		this.oclcs.addAll(oclcs);
+		journaledAddAll(this.oclcs, oclcs);
 	}
 
 	void addIsbns(Set<String> isbns, String format) {
@@ -1089,9 +1116,9 @@ public class GroupedWorkSolr implements Cloneable {
 			isbn = Util.convertISBN10to13(isbn);
 		}
 		if (isbns.containsKey(isbn)) {
-			isbns.put(isbn, isbns.get(isbn) + 1);
+			journaledPut(isbns, isbn, isbns.get(isbn) + 1);
 		} else {
-			isbns.put(isbn, 1L);
+			journaledPut(isbns, isbn, 1L);
 		}
 		//Determine if we should set the primary isbn
 		boolean updatePrimaryIsbn = false;
@@ -1121,19 +1148,19 @@ public class GroupedWorkSolr implements Cloneable {
 	}
 
 	void addIssns(Set<String> issns) {
-		this.issns.addAll(issns);
+		journaledAddAll(this.issns, issns);
 	}
 
 	void addUpc(String upc) {
 		if (upcs.containsKey(upc)) {
-			upcs.put(upc, upcs.get(upc) + 1);
+			journaledPut(upcs, upc, upcs.get(upc) + 1);
 		} else {
-			upcs.put(upc, 1L);
+			journaledPut(upcs, upc, 1L);
 		}
 	}
 
 	void addAlternateId(String alternateId) {
-		this.alternateIds.add(alternateId);
+		journaledAdd(this.alternateIds, alternateId);
 	}
 
 	void setGroupingCategory(String groupingCategory) {
@@ -1141,19 +1168,19 @@ public class GroupedWorkSolr implements Cloneable {
 	}
 
 	void addAuthAuthor2(Set<String> fieldList) {
-		this.authAuthor2.addAll(StringUtils.trimTrailingPunctuation(fieldList));
+		journaledAddAll(this.authAuthor2, StringUtils.trimTrailingPunctuation(fieldList));
 	}
 
 	void addAuthor2(Set<String> fieldList) {
-		this.author2.addAll(StringUtils.trimTrailingPunctuation(fieldList));
+		journaledAddAll(this.author2, StringUtils.trimTrailingPunctuation(fieldList));
 	}
 
 	void addAuthor2Role(Set<String> fieldList) {
-		this.author2Role.addAll(StringUtils.trimTrailingPunctuation(fieldList));
+		journaledAddAll(this.author2Role, StringUtils.trimTrailingPunctuation(fieldList));
 	}
 
 	void addAuthorAdditional(Set<String> fieldList) {
-		this.authorAdditional.addAll(StringUtils.trimTrailingPunctuation(fieldList));
+		journaledAddAll(this.authorAdditional, StringUtils.trimTrailingPunctuation(fieldList));
 	}
 
 	void addHoldings(int recordHoldings) {
@@ -1169,23 +1196,23 @@ public class GroupedWorkSolr implements Cloneable {
 	}
 
 	void addTopic(Set<String> fieldList) {
-		this.topics.addAll(StringUtils.normalizeSubjects(fieldList));
+		journaledAddAll(this.topics, StringUtils.normalizeSubjects(fieldList));
 	}
 
 	void addTopic(String fieldValue) {
-		this.topics.add(StringUtils.normalizeSubject(fieldValue));
+		journaledAdd(this.topics, StringUtils.normalizeSubject(fieldValue));
 	}
 
 	void addTopicFacet(Set<String> fieldList) {
-		this.topicFacets.addAll(StringUtils.normalizeSubjects(fieldList));
+		journaledAddAll(this.topicFacets, StringUtils.normalizeSubjects(fieldList));
 	}
 
 	void addTopicFacet(String fieldValue) {
-		this.topicFacets.add(StringUtils.normalizeSubject(fieldValue));
+		journaledAdd(this.topicFacets, StringUtils.normalizeSubject(fieldValue));
 	}
 
 	void addSubjects(Set<String> fieldList) {
-		this.subjects.addAll(StringUtils.normalizeSubjects(fieldList));
+		journaledAddAll(this.subjects, StringUtils.normalizeSubjects(fieldList));
 	}
 
 	void addSeries(Set<String> fieldList) {
@@ -1199,9 +1226,9 @@ public class GroupedWorkSolr implements Cloneable {
 	}
 
 	void clearSeries(){
-		this.seriesWithVolume.clear();
-		this.series2.putAll(this.series);
-		this.series.clear();
+		journaledClear(this.seriesWithVolume);
+		journaledPutAll(this.series2, this.series);
+		journaledClear(this.series);
 	}
 
 	void addSeriesWithVolume(String seriesName, String volume) {
@@ -1228,7 +1255,7 @@ public class GroupedWorkSolr implements Cloneable {
 					if (existingSeriesName.contains(seriesInfoLower)) {
 						//Use the old one unless it doesn't have a volume
 						if (existingVolume.length() == 0) {
-							this.seriesWithVolume.remove(existingSeries2);
+							journaledRemove(this.seriesWithVolume, existingSeries2);
 							break;
 						} else {
 							if (volumeLower.equals(existingVolume)) {
@@ -1242,19 +1269,19 @@ public class GroupedWorkSolr implements Cloneable {
 					} else if (seriesInfoLower.contains(existingSeriesName)) {
 						//Before removing the old series, make sure the new one has a volume
 						if (existingVolume.length() > 0 && existingVolume.equals(volumeLower)) {
-							this.seriesWithVolume.remove(existingSeries2);
+							journaledRemove(this.seriesWithVolume, existingSeries2);
 							break;
 						} else if (volume.length() == 0 && existingVolume.length() > 0) {
 							okToAdd = false;
 							break;
 						} else if (volume.length() == 0) {
-							this.seriesWithVolume.remove(existingSeries2);
+							journaledRemove(this.seriesWithVolume, existingSeries2);
 							break;
 						}
 					}
 				}
 				if (okToAdd) {
-					this.seriesWithVolume.put(normalizedSeriesInfoWithVolume, seriesInfoWithVolume);
+					journaledPut(this.seriesWithVolume, normalizedSeriesInfoWithVolume, seriesInfoWithVolume);
 				}
 			}
 		}
@@ -1331,51 +1358,51 @@ public class GroupedWorkSolr implements Cloneable {
 
 
 	void addPhysical(Set<String> fieldList) {
-		this.physicals.addAll(fieldList);
+		journaledAddAll(this.physicals, fieldList);
 	}
 
 	void addPhysical(String field) {
-		this.physicals.add(field);
+		journaledAdd(this.physicals, field);
 	}
 
 	void addDateSpan(Set<String> fieldList) {
-		this.dateSpans.addAll(fieldList);
+		journaledAddAll(this.dateSpans, fieldList);
 	}
 
 	void addEditions(Set<String> fieldList) {
-		this.editions.addAll(fieldList);
+		journaledAddAll(this.editions, fieldList);
 	}
 
 	void addContents(Set<String> fieldList) {
-		this.contents.addAll(fieldList);
+		journaledAddAll(this.contents, fieldList);
 	}
 
 	void addGenre(Set<String> fieldList) {
-		this.genres.addAll(StringUtils.normalizeSubjects(fieldList));
+		journaledAddAll(this.genres, StringUtils.normalizeSubjects(fieldList));
 	}
 
 	void addGenre(String fieldValue) {
-		this.genres.add(StringUtils.normalizeSubject(fieldValue));
+		journaledAdd(this.genres, StringUtils.normalizeSubject(fieldValue));
 	}
 
 	void addGenreFacet(Set<String> fieldList) {
-		this.genreFacets.addAll(StringUtils.normalizeSubjects(fieldList));
+		journaledAddAll(this.genreFacets, StringUtils.normalizeSubjects(fieldList));
 	}
 
 	void addGenreFacet(String fieldValue) {
-		this.genreFacets.add(StringUtils.normalizeSubject(fieldValue));
+		journaledAdd(this.genreFacets, StringUtils.normalizeSubject(fieldValue));
 	}
 
 	void addGeographic(String fieldValue) {
-		this.geographic.add(StringUtils.normalizeSubject(fieldValue));
+		journaledAdd(this.geographic, StringUtils.normalizeSubject(fieldValue));
 	}
 
 	void addGeographicFacet(String fieldValue) {
-		this.geographicFacets.add(StringUtils.normalizeSubject(fieldValue));
+		journaledAdd(this.geographicFacets, StringUtils.normalizeSubject(fieldValue));
 	}
 
 	void addEra(String fieldValue) {
-		this.eras.add(StringUtils.normalizeSubject(fieldValue));
+		journaledAdd(this.eras, StringUtils.normalizeSubject(fieldValue));
 	}
 
 	void setLanguageBoost(Long languageBoost) {
@@ -1391,11 +1418,11 @@ public class GroupedWorkSolr implements Cloneable {
 	}
 
 	void setLanguages(HashSet<String> languages) {
-		this.languages.addAll(languages);
+		journaledAddAll(this.languages, languages);
 	}
 
 	void setTranslations(HashSet<String> translations) {
-		this.translations.addAll(translations);
+		journaledAddAll(this.translations, translations);
 	}
 
 	void addPublishers(Set<String> publishers) {
@@ -1410,7 +1437,7 @@ public class GroupedWorkSolr implements Cloneable {
 			publisher = publisher.substring(0, publisher.length() - 1).trim();
 		}
 		if (publisher.length() > 0){
-			this.publishers.add(publisher);
+			journaledAdd(this.publishers, publisher);
 		}
 	}
 
@@ -1423,7 +1450,7 @@ public class GroupedWorkSolr implements Cloneable {
 	void addPublicationDate(String publicationDate) {
 		String cleanDate = DateUtils.cleanDate(publicationDate);
 		if (cleanDate != null) {
-			this.publicationDates.add(cleanDate);
+			journaledAdd(this.publicationDates, cleanDate);
 			//Convert the date to a long and see if it is before the current date
 			long pubDateLong = Long.parseLong(cleanDate);
 			if (earliestPublicationDate == null || pubDateLong < earliestPublicationDate) {
@@ -1452,9 +1479,9 @@ public class GroupedWorkSolr implements Cloneable {
 		literaryForm = literaryForm.trim();
 		if (this.literaryForm.containsKey(literaryForm)) {
 			Integer numMatches = this.literaryForm.get(literaryForm);
-			this.literaryForm.put(literaryForm, numMatches + count);
+			journaledPut(this.literaryForm, literaryForm, numMatches + count);
 		} else {
-			this.literaryForm.put(literaryForm, count);
+			journaledPut(this.literaryForm, literaryForm, count);
 		}
 	}
 
@@ -1492,9 +1519,9 @@ public class GroupedWorkSolr implements Cloneable {
 		}
 		if (this.literaryFormFull.containsKey(literaryForm)) {
 			Integer numMatches = this.literaryFormFull.get(literaryForm);
-			this.literaryFormFull.put(literaryForm, numMatches + count);
+			journaledPut(this.literaryFormFull, literaryForm, numMatches + count);
 		} else {
-			this.literaryFormFull.put(literaryForm, count);
+			journaledPut(this.literaryFormFull, literaryForm, count);
 		}
 	}
 
@@ -1523,19 +1550,19 @@ public class GroupedWorkSolr implements Cloneable {
 			case "Unknown":
 			case "Other":
 				if (targetAudience.size() == 0){
-					targetAudience.add(target_audience);
+					journaledAdd(targetAudience, target_audience);
 					targetAudiencesAsString = null;
 				}
 				break;
 			default:
 				if (!targetAudience.contains(target_audience)) {
 					if (targetAudience.contains("Unknown")) {
-						targetAudience.remove("Unknown");
+						journaledRemove(targetAudience, "Unknown");
 					} else //noinspection RedundantCollectionOperation
 						if (targetAudience.contains("Other")) {
-							targetAudience.remove("Other");
+							journaledRemove(targetAudience, "Other");
 					}
-					targetAudience.add(target_audience);
+					journaledAdd(targetAudience, target_audience);
 					targetAudiencesAsString = null;
 				}
 				break;
@@ -1549,26 +1576,26 @@ public class GroupedWorkSolr implements Cloneable {
 	}
 
 	void addTargetAudienceFull(String target_audience) {
-		targetAudienceFull.add(target_audience);
+		journaledAdd(targetAudienceFull, target_audience);
 		switch (target_audience){
 			case "Unknown":
 			case "Other":
 			case "No Attempt To Code":
 				//noinspection ConstantConditions
 				if (targetAudienceFull.size() == 0){
-					targetAudienceFull.add(target_audience);
+					journaledAdd(targetAudienceFull, target_audience);
 				}
 				break;
 			default:
 				if (targetAudienceFull.contains("Unknown")){
-					targetAudienceFull.remove("Unknown");
+					journaledRemove(targetAudienceFull, "Unknown");
 				}else if (targetAudienceFull.contains("Other")){
-					targetAudienceFull.remove("Other");
+					journaledRemove(targetAudienceFull, "Other");
 				}else //noinspection RedundantCollectionOperation
 					if (targetAudienceFull.contains("No Attempt To Code")){
-						targetAudienceFull.remove("No Attempt To Code");
+						journaledRemove(targetAudienceFull, "No Attempt To Code");
 				}
-				targetAudienceFull.add(target_audience);
+				journaledAdd(targetAudienceFull, target_audience);
 				break;
 		}
 	}
@@ -1592,13 +1619,13 @@ public class GroupedWorkSolr implements Cloneable {
 	}
 
 	void addMpaaRating(String mpaaRating) {
-		this.mpaaRatings.add(mpaaRating);
+		journaledAdd(this.mpaaRatings, mpaaRating);
 	}
 
 	void addBarcodes(Set<String> barcodeList) {
 		for (String barcode: barcodeList){
 			if (barcode.length() > 0){
-				this.barcodes.add(barcode);
+				journaledAdd(this.barcodes, barcode);
 			}
 		}
 	}
@@ -1622,7 +1649,7 @@ public class GroupedWorkSolr implements Cloneable {
 	}
 
 	void addAwards(Set<String> awards) {
-		this.awards.addAll(StringUtils.trimTrailingPunctuation(awards));
+		journaledAddAll(this.awards, StringUtils.trimTrailingPunctuation(awards));
 	}
 
 	void setAcceleratedReaderInterestLevel(String acceleratedReaderInterestLevel) {
@@ -1662,14 +1689,14 @@ public class GroupedWorkSolr implements Cloneable {
 	}
 
 	void addKeywords(String keywords) {
-		this.keywords.add(keywords);
+		journaledAdd(this.keywords, keywords);
 	}
 
 	void addDescription(String description, @NotNull String recordFormat, String formatCategory) {
 		if (description == null || description.length() == 0) {
 			return;
 		}
-		this.description.add(description);
+		journaledAdd(this.description, description);
 		boolean updateDescription = false;
 		if (this.displayDescription == null) {
 			updateDescription = true;
@@ -1713,7 +1740,7 @@ public class GroupedWorkSolr implements Cloneable {
 			return relatedRecords.get(recordIdentifierWithType);
 		} else {
 			RecordInfo newRecord = new RecordInfo(source, recordIdentifier);
-			relatedRecords.put(recordIdentifierWithType, newRecord);
+			journaledPut(relatedRecords, recordIdentifierWithType, newRecord);
 			return newRecord;
 		}
 	}
@@ -1726,13 +1753,13 @@ public class GroupedWorkSolr implements Cloneable {
 		} else {
 			RecordInfo newRecord = new RecordInfo(source, recordIdentifier);
 			newRecord.setSubSource(subSource);
-			relatedRecords.put(recordIdentifierWithType, newRecord);
+			journaledPut(relatedRecords, recordIdentifierWithType, newRecord);
 			return newRecord;
 		}
 	}
 
 	void addLCSubject(String lcSubject) {
-		this.lcSubjects.add(StringUtils.normalizeSubject(lcSubject));
+		journaledAdd(this.lcSubjects, StringUtils.normalizeSubject(lcSubject));
 	}
 
 	void addBisacSubject(String bisacSubject) {
@@ -1740,7 +1767,11 @@ public class GroupedWorkSolr implements Cloneable {
 	}
 
 	void removeRelatedRecord(RecordInfo recordInfo) {
-		this.relatedRecords.remove(recordInfo.getFullIdentifier());
+		journaledRemove(this.relatedRecords, recordInfo.getFullIdentifier());
+	}
+
+	Collection<RecordInfo> getRelatedRecords() {
+		return relatedRecords.values();
 	}
 
 	int getNumRecords() {
@@ -1753,7 +1784,7 @@ public class GroupedWorkSolr implements Cloneable {
 	}
 
 	void addLanguage(@SuppressWarnings("SameParameterValue") String language) {
-		this.languages.add(language);
+		journaledAdd(this.languages, language);
 	}
 
 	/**
@@ -1782,15 +1813,13 @@ public class GroupedWorkSolr implements Cloneable {
 						for (ItemInfo curItem2 : record2.getRelatedItems()){
 							if (curItem2.isAvailable()){
 								for (ItemInfo curItem1 : record1.getRelatedItems()){
-									for (String scopeName : curItem2.getScopingInfo().keySet()) {
-										curItem1.getScopingInfo().remove(scopeName);
-									}
+									curItem1.removeScopes(curItem2.getIncludedScopes());
 								}
 								boolean changeMade = true;
 								while (changeMade){
 									changeMade = false;
 									for (ItemInfo curItem1 : record1.getRelatedItems()){
-										if (curItem1.getScopingInfo().size() == 0){
+										if (!curItem1.hasScopes()){
 											record1.getRelatedItems().remove(curItem1);
 											changeMade = true;
 											break;
@@ -1798,7 +1827,7 @@ public class GroupedWorkSolr implements Cloneable {
 									}
 								}
 								if (record1.getRelatedItems().size() == 0){
-									relatedRecords.remove(record1.getFullIdentifier());
+									journaledRemove(relatedRecords, record1.getFullIdentifier());
 								}
 							}
 						}
@@ -1828,61 +1857,6 @@ public class GroupedWorkSolr implements Cloneable {
 		this.userNotInterestedLink.add(userId);
 	}
 
-	public synchronized void saveRecordsToDatabase(long groupedWorkId) {
-		groupedWorkIndexer.disableAutoCommit();
-		//Get a list of all existing records for the grouped work
-		HashMap<String, SavedRecordInfo> existingRecords = groupedWorkIndexer.getExistingRecordsForGroupedWork(groupedWorkId);
-		HashMap<VariationInfo, Long> existingVariations = groupedWorkIndexer.getExistingVariationsForGroupedWork(groupedWorkId);
-		HashSet<Long> foundVariations = new HashSet<>();
-		//Save all the records
-		for (RecordInfo recordInfo : relatedRecords.values()){
-			String relatedRecordKey = groupedWorkIndexer.getSourceId(recordInfo.getSource(), recordInfo.getSubSource()) + ":" + recordInfo.getRecordIdentifier();
-			SavedRecordInfo savedRecord = null;
-			if (existingRecords.containsKey(relatedRecordKey)){
-				savedRecord = existingRecords.get(relatedRecordKey);
-				existingRecords.remove(relatedRecordKey);
-			}
-			long recordId = groupedWorkIndexer.saveGroupedWorkRecord(groupedWorkId, recordInfo, savedRecord);
-
-			if (recordId != -1) {
-				//Get existing items for the record
-				HashMap<String, SavedItemInfo> existingItems = groupedWorkIndexer.getExistingItemsForRecord(recordId);
-
-				//Save all the items
-				HashSet<Long> foundItems = new HashSet<>();
-				for (ItemInfo itemInfo : recordInfo.getRelatedItems()) {
-					//Get the variation for the item
-					long variationId = groupedWorkIndexer.saveGroupedWorkVariation(existingVariations, groupedWorkId, recordInfo, itemInfo);
-					foundVariations.add(variationId);
-
-					long itemId = groupedWorkIndexer.saveItemForRecord(recordId, variationId, itemInfo, existingItems);
-					if (itemId != -1) {
-						foundItems.add(itemId);
-					}
-				}
-
-				//Remove remaining items that no longer exist
-				for (SavedItemInfo existingItem : existingItems.values()) {
-					if (!foundItems.contains(existingItem.id)) {
-						groupedWorkIndexer.removeRecordItem(existingItem.id);
-					}
-				}
-			}
-		}
-		//Anything left over should be removed
-		//Remove remaining records
-		for (SavedRecordInfo existingRecord : existingRecords.values()){
-			groupedWorkIndexer.removeGroupedWorkRecord(existingRecord.id);
-		}
-		//Remove remaining variations
-		for (Long existingVariationId : existingVariations.values()) {
-			if (!foundVariations.contains(existingVariationId)) {
-				groupedWorkIndexer.removeGroupedWorkVariation(existingVariationId);
-			}
-		}
-		groupedWorkIndexer.enableAutoCommit();
-	}
-
 	public void addHolds(int numHolds) {
 		this.totalHolds += numHolds;
 	}
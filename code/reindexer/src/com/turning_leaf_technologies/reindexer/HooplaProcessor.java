@@ -412,7 +412,7 @@ class HooplaProcessor {
 					}
 					if (okToAdd) {
 						ScopingInfo scopingInfo = itemInfo.addScope(scope);
-						groupedWork.addScopingInfo(scope.getScopeName(), scopingInfo);
+						groupedWork.addScopingInfo(scopingInfo);
 						scopingInfo.setLibraryOwned(true);
 						scopingInfo.setLocallyOwned(true);
 					}
@@ -2,6 +2,7 @@ package com.turning_leaf_technologies.reindexer;
 
 import com.turning_leaf_technologies.indexing.IndexingProfile;
 import com.turning_leaf_technologies.indexing.Scope;
+import com.turning_leaf_technologies.indexing.ScopeInclusionIndex;
 import com.turning_leaf_technologies.indexing.TranslationMap;
 import com.turning_leaf_technologies.marc.MarcUtil;
 import com.turning_leaf_technologies.strings.StringUtils;
@@ -400,7 +401,7 @@ abstract class IlsRecordProcessor extends MarcRecordProcessor {
 			updateGroupedWorkSolrDataBasedOnStandardMarcData(groupedWork, record, recordInfo.getRelatedItems(), identifier, primaryFormat, primaryFormatCategory);
 
 			//Special processing for ILS Records
-			String fullDescription = Util.getCRSeparatedString(MarcUtil.getFieldList(record, "520a"));
+			String fullDescription = Util.getCRSeparatedString(getFieldList(record, "520a"));
 			for (RecordInfo ilsRecord : allRelatedRecords) {
 				String primaryFormatForRecord = ilsRecord.getPrimaryFormat();
 				if (primaryFormatForRecord == null){
@@ -423,7 +424,7 @@ abstract class IlsRecordProcessor extends MarcRecordProcessor {
 
 			//Do updates based on items
 			loadPopularity(groupedWork, identifier);
-			groupedWork.addBarcodes(MarcUtil.getFieldList(record, itemTag + barcodeSubfield));
+			groupedWork.addBarcodes(getFieldList(record, itemTag + barcodeSubfield));
 
 			loadOrderIds(groupedWork, record);
 
@@ -469,7 +470,7 @@ abstract class IlsRecordProcessor extends MarcRecordProcessor {
 	//Suppress all marc records for eContent that can be loaded via API
 	protected boolean isBibSuppressed(Record record) {
 		if (suppressRecordsWithUrlsMatching != null) {
-			Set<String> urls = MarcUtil.getFieldList(record, "856u");
+			Set<String> urls = getFieldList(record, "856u");
 			for (String url : urls) {
 				//Suppress if the url is an overdrive or hoopla url
 				if (suppressRecordsWithUrlsMatching.matcher(url).find()) {
@@ -605,18 +606,21 @@ abstract class IlsRecordProcessor extends MarcRecordProcessor {
 		boolean hasLocationBasedShelfLocation = false;
 		boolean hasSystemBasedShelfLocation = false;
 		String originalUrl = itemInfo.geteContentUrl();
-		String fullKey = profileType + location;
-		for (Scope scope: indexer.getScopes()){
-			Scope.InclusionResult result = scope.isItemPartOfScope(profileType, location, "", null, audiences, audiencesAsString, format, true, true, false, record, originalUrl);
+		ScopeInclusionIndex scopeInclusionIndex = indexer.getScopeInclusionIndex();
+		ScopeInclusionIndex.ScopeInclusion scopeInclusion = scopeInclusionIndex.getInclusion(profileType, location, "", null, audiences, audiencesAsString, format, true, true, false);
+		BitSet candidateScopes = scopeInclusion.getCandidateScopes();
+		for (int i = candidateScopes.nextSetBit(0); i >= 0; i = candidateScopes.nextSetBit(i + 1)){
+			Scope scope = scopeInclusionIndex.getScope(i);
+			Scope.InclusionResult result = scopeInclusion.isItemPartOfScope(scope, audiences, record, originalUrl);
 			if (result.isIncluded){
 				ScopingInfo scopingInfo = itemInfo.addScope(scope);
 				if (scopingInfo == null){
 					indexer.getLogEntry().incErrors("Could not add scoping information for " + scope.getScopeName() + " for item " + itemInfo.getFullRecordIdentifier());
 					continue;
 				}
-				groupedWork.addScopingInfo(scope.getScopeName(), scopingInfo);
+				groupedWork.addScopingInfo(scopingInfo);
 				if (scope.isLocationScope()) { //Either a location scope or both library and location scope
-					boolean itemIsOwned = scope.isItemOwnedByScope(fullKey, profileType, location, "");
+					boolean itemIsOwned = scopeInclusion.isItemOwnedByScope(scope);
 					scopingInfo.setLocallyOwned(itemIsOwned);
 					if (scope.isLibraryScope()){
 						scopingInfo.setLibraryOwned(itemIsOwned);
@@ -626,7 +630,7 @@ abstract class IlsRecordProcessor extends MarcRecordProcessor {
 						}
 					}
 				}else if (scope.isLibraryScope()) {
-					boolean libraryOwned = scope.isItemOwnedByScope(fullKey, profileType, location, "");
+					boolean libraryOwned = scopeInclusion.isItemOwnedByScope(scope);
 					scopingInfo.setLibraryOwned(libraryOwned);
 					//TODO: Should this be here or should this only happen for consortia?
 					if (libraryOwned && itemInfo.getShelfLocation().equals("On Order")){
@@ -660,7 +664,7 @@ abstract class IlsRecordProcessor extends MarcRecordProcessor {
 
 	private void loadOrderIds(GroupedWorkSolr groupedWork, Record record) {
 		//Load order ids from recordNumberTag
-		Set<String> recordIds = MarcUtil.getFieldList(record, recordNumberTag + "a");
+		Set<String> recordIds = getFieldList(record, recordNumberTag + "a");
 		for(String recordId : recordIds){
 			if (recordId.startsWith(".o")){
 				groupedWork.addAlternateId(recordId);
@@ -954,24 +958,27 @@ abstract class IlsRecordProcessor extends MarcRecordProcessor {
 	private void loadScopeInfoForEContentItem(GroupedWorkSolr groupedWork, ItemInfo itemInfo, Record record) {
 		String itemLocation = itemInfo.getLocationCode();
 		String originalUrl = itemInfo.geteContentUrl();
-		String fullKey = profileType + itemLocation;
-		for (Scope curScope : indexer.getScopes()){
-			String format = itemInfo.getFormat();
-			if (format == null){
-				format = itemInfo.getRecordInfo().getPrimaryFormat();
-			}
-			Scope.InclusionResult result = curScope.isItemPartOfScope(profileType, itemLocation, "", null, groupedWork.getTargetAudiences(), groupedWork.getTargetAudiencesAsString(), format, false, false, true, record, originalUrl);
+		String format = itemInfo.getFormat();
+		if (format == null){
+			format = itemInfo.getRecordInfo().getPrimaryFormat();
+		}
+		ScopeInclusionIndex scopeInclusionIndex = indexer.getScopeInclusionIndex();
+		ScopeInclusionIndex.ScopeInclusion scopeInclusion = scopeInclusionIndex.getInclusion(profileType, itemLocation, "", null, groupedWork.getTargetAudiences(), groupedWork.getTargetAudiencesAsString(), format, false, false, true);
+		BitSet candidateScopes = scopeInclusion.getCandidateScopes();
+		for (int i = candidateScopes.nextSetBit(0); i >= 0; i = candidateScopes.nextSetBit(i + 1)){
+			Scope curScope = scopeInclusionIndex.getScope(i);
+			Scope.InclusionResult result = scopeInclusion.isItemPartOfScope(curScope, groupedWork.getTargetAudiences(), record, originalUrl);
 			if (result.isIncluded){
 				ScopingInfo scopingInfo = itemInfo.addScope(curScope);
-				groupedWork.addScopingInfo(curScope.getScopeName(), scopingInfo);
+				groupedWork.addScopingInfo(scopingInfo);
 				if (curScope.isLocationScope()) {  //Either a location scope or both library and location scope
-					boolean itemIsOwned = curScope.isItemOwnedByScope(fullKey, profileType, itemLocation, "");
+					boolean itemIsOwned = scopeInclusion.isItemOwnedByScope(curScope);
 					scopingInfo.setLocallyOwned(itemIsOwned);
 					if (curScope.isLibraryScope()){
 						scopingInfo.setLibraryOwned(itemIsOwned);
 					}
 				}else if (curScope.isLibraryScope()) {
-					scopingInfo.setLibraryOwned(curScope.isItemOwnedByScope(fullKey, profileType, itemLocation, ""));
+					scopingInfo.setLibraryOwned(scopeInclusion.isItemOwnedByScope(curScope));
 				}
 				//Check to see if we need to do url rewriting
 				if (originalUrl != null && !originalUrl.equals(result.localUrl)){
@@ -1008,13 +1015,15 @@ abstract class IlsRecordProcessor extends MarcRecordProcessor {
 		itemInfo.setHoldable(isHoldableUnscoped);
 		String originalUrl = itemInfo.geteContentUrl();
 		String primaryFormat = recordInfo.getPrimaryFormat();
-		String fullKey = profileType + itemLocation + itemSublocation;
-		for (Scope curScope : indexer.getScopes()) {
-
-			Scope.InclusionResult result = curScope.isItemPartOfScope(profileType, itemLocation, itemSublocation, itemInfo.getITypeCode(), audiences, audiencesAsString, primaryFormat, isHoldableUnscoped, false, false, record, originalUrl);
+		ScopeInclusionIndex scopeInclusionIndex = indexer.getScopeInclusionIndex();
+		ScopeInclusionIndex.ScopeInclusion scopeInclusion = scopeInclusionIndex.getInclusion(profileType, itemLocation, itemSublocation, itemInfo.getITypeCode(), audiences, audiencesAsString, primaryFormat, isHoldableUnscoped, false, false);
+		BitSet candidateScopes = scopeInclusion.getCandidateScopes();
+		for (int i = candidateScopes.nextSetBit(0); i >= 0; i = candidateScopes.nextSetBit(i + 1)) {
+			Scope curScope = scopeInclusionIndex.getScope(i);
+			Scope.InclusionResult result = scopeInclusion.isItemPartOfScope(curScope, audiences, record, originalUrl);
 			if (result.isIncluded){
 				ScopingInfo scopingInfo = itemInfo.addScope(curScope);
-				groupedWork.addScopingInfo(curScope.getScopeName(), scopingInfo);
+				groupedWork.addScopingInfo(scopingInfo);
 
 				if (originalUrl != null && !originalUrl.equals(result.localUrl)){
 					scopingInfo.setLocalUrl(result.localUrl);
@@ -1022,7 +1031,7 @@ abstract class IlsRecordProcessor extends MarcRecordProcessor {
 				if (curScope.isLocationScope()) {
 					scopingInfo.setLocallyOwned(result.isOwned);
 					if (curScope.getLibraryScope() != null) {
-						scopingInfo.setLibraryOwned(curScope.getLibraryScope().isItemOwnedByScope(fullKey, profileType, itemLocation, itemSublocation));
+						scopingInfo.setLibraryOwned(scopeInclusion.isItemOwnedByScope(curScope.getLibraryScope()));
 					}
 				}
 				if (curScope.isLibraryScope()) {
@@ -1671,7 +1680,7 @@ abstract class IlsRecordProcessor extends MarcRecordProcessor {
 
 	@Override
 	protected void getFormatFromFallbackField(Record record, LinkedHashSet<String> printFormats) {
-		Set<String> fields = MarcUtil.getFieldList(record, fallbackFormatField);
+		Set<String> fields = getFieldList(record, fallbackFormatField);
 		for (String curField : fields) {
 			if (hasTranslation("format", curField.toLowerCase())){
 				printFormats.add(curField);
@@ -0,0 +1,211 @@
+package com.turning_leaf_technologies.reindexer;
+
+import com.turning_leaf_technologies.logging.BaseLogEntry;
+import com.turning_leaf_technologies.util.StringLongHashMap;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Caches the ids for one of the indexed_* lookup tables (indexed_publisher, indexed_callNumber, etc.).
+ *
+ * The whole table can be preloaded so every lookup during a full index is answered from memory.  Values that are not
+ * cached are loaded and added to the table in batches, either ahead of time with addValues or one at a time with getId.
+ *
+ * A single cache is shared by all indexing threads so all methods that touch the table are synchronized.
+ */
+class IndexedValueCache {
+	private static final int BATCH_SIZE = 100;
+	private static final long NOT_CACHED = Long.MIN_VALUE;
+
+	private final String tableName;
+	private final String columnName;
+	private final int maxLength;
+	private final BaseLogEntry logEntry;
+	private final StringLongHashMap ids = new StringLongHashMap();
+
+	private final PreparedStatement getIdStmt;
+	private final PreparedStatement getIdsStmt;
+	private final PreparedStatement addValueStmt;
+
+	private long numHits = 0;
+	private long numMisses = 0;
+	private long numAdded = 0;
+
+	/**
+	 * @param maxLength values longer than this are truncated before they are looked up, 0 to leave values as is.
+	 */
+	IndexedValueCache(Connection dbConn, String tableName, String columnName, int maxLength, BaseLogEntry logEntry) throws SQLException {
+		this.tableName = tableName;
+		this.columnName = columnName;
+		this.maxLength = maxLength;
+		this.logEntry = logEntry;
+		StringBuilder parameters = new StringBuilder();
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			parameters.append(i == 0 ? "?" : ", ?");
+		}
+		getIdStmt = dbConn.prepareStatement("SELECT id, " + columnName + " from " + tableName + " where " + columnName + " = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		getIdsStmt = dbConn.prepareStatement("SELECT id, " + columnName + " from " + tableName + " where " + columnName + " IN (" + parameters + ")", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		addValueStmt = dbConn.prepareStatement("INSERT IGNORE INTO " + tableName + " (" + columnName + ") VALUES (?)");
+	}
+
+	/**
+	 * Loads all values in the table into the cache.
+	 */
+	synchronized void preload(Connection dbConn) {
+		try (Statement loadValuesStmt = dbConn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+			//Stream the results rather than reading the whole table into the driver
+			loadValuesStmt.setFetchSize(Integer.MIN_VALUE);
+			try (ResultSet loadValuesRS = loadValuesStmt.executeQuery("SELECT id, " + columnName + " from " + tableName)) {
+				while (loadValuesRS.next()) {
+					String value = loadValuesRS.getString(2);
+					if (value != null) {
+						ids.put(value, loadValuesRS.getLong(1));
+					}
+				}
+			}
+		} catch (SQLException e) {
+			logEntry.incErrors("Error preloading " + tableName, e);
+		}
+	}
+
+	/**
+	 * Get the id for a value, adding it to the table if it does not exist yet.
+	 *
+	 * @return the id of the value or -1 if the value is null or could not be added.
+	 */
+	synchronized long getId(String value) {
+		if (value == null) {
+			return -1;
+		}
+		value = truncate(value);
+		long id = ids.get(value, NOT_CACHED);
+		if (id != NOT_CACHED) {
+			numHits++;
+			return id;
+		}
+		loadIds(Collections.singleton(value));
+		return ids.get(value, -1);
+	}
+
+	/**
+	 * Makes sure the ids for all values are cached, loading existing values and adding new values in batches.
+	 */
+	synchronized void addValues(Collection<String> values) {
+		LinkedHashSet<String> valuesToLoad = new LinkedHashSet<>();
+		for (String value : values) {
+			if (value != null) {
+				value = truncate(value);
+				if (!ids.containsKey(value)) {
+					valuesToLoad.add(value);
+				}
+			}
+		}
+		if (!valuesToLoad.isEmpty()) {
+			loadIds(valuesToLoad);
+		}
+	}
+
+	synchronized String getStats() {
+		return tableName + " " + ids.size() + " values, " + numHits + " hits, " + numMisses + " misses, " + numAdded + " added";
+	}
+
+	synchronized void close() {
+		try {
+			getIdStmt.close();
+			getIdsStmt.close();
+			addValueStmt.close();
+		} catch (SQLException e) {
+			logEntry.incErrors("Error closing statements for " + tableName, e);
+		}
+	}
+
+	private void loadIds(Set<String> values) {
+		numMisses += values.size();
+		try {
+			//Load any values that already exist
+			ArrayList<String> missingValues = loadExistingIds(values);
+			//MySQL ignores trailing spaces when comparing, so look those up individually to avoid adding duplicates
+			missingValues.removeIf(value -> value.endsWith(" ") && loadIdIndividually(value));
+			if (!missingValues.isEmpty()) {
+				//Add the new values and then load their ids
+				for (String value : missingValues) {
+					addValueStmt.setString(1, value);
+					addValueStmt.addBatch();
+				}
+				addValueStmt.executeBatch();
+				numAdded += missingValues.size();
+				missingValues = loadExistingIds(missingValues);
+				for (String value : missingValues) {
+					if (!loadIdIndividually(value)) {
+						logEntry.incErrors("Could not add " + columnName + " " + value);
+						ids.put(value, -1L);
+					}
+				}
+			}
+		} catch (SQLException e) {
+			logEntry.incErrors("Error getting " + columnName + " ids", e);
+			for (String value : values) {
+				if (!ids.containsKey(value)) {
+					ids.put(value, -1L);
+				}
+			}
+		} finally {
+			try {
+				addValueStmt.clearBatch();
+			} catch (SQLException e) {
+				logEntry.incErrors("Error clearing batch", e);
+			}
+		}
+	}
+
+	/**
+	 * Loads ids for the values that exist in the table.
+	 *
+	 * @return the values that were not found
+	 */
+	private ArrayList<String> loadExistingIds(Collection<String> values) throws SQLException {
+		ArrayList<String> valuesToLoad = new ArrayList<>(values);
+		for (int start = 0; start < valuesToLoad.size(); start += BATCH_SIZE) {
+			List<String> batch = valuesToLoad.subList(start, Math.min(valuesToLoad.size(), start + BATCH_SIZE));
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				//Pad with the last value so the statement can be reused for partial batches
+				getIdsStmt.setString(i + 1, batch.get(Math.min(i, batch.size() - 1)));
+			}
+			try (ResultSet getIdsRS = getIdsStmt.executeQuery()) {
+				while (getIdsRS.next()) {
+					ids.put(getIdsRS.getString(2), getIdsRS.getLong(1));
+				}
+			}
+		}
+		ArrayList<String> missingValues = new ArrayList<>();
+		for (String value : valuesToLoad) {
+			if (!ids.containsKey(value)) {
+				missingValues.add(value);
+			}
+		}
+		return missingValues;
+	}
+
+	private boolean loadIdIndividually(String value) {
+		try {
+			getIdStmt.setString(1, value);
+			try (ResultSet getIdRS = getIdStmt.executeQuery()) {
+				if (getIdRS.next()) {
+					ids.put(value, getIdRS.getLong("id"));
+					return true;
+				}
+			}
+		} catch (SQLException e) {
+			logEntry.incErrors("Error getting " + columnName + " id", e);
+		}
+		return false;
+	}
+
+	private String truncate(String value) {
+		if (maxLength > 0 && value.length() > maxLength) {
+			return value.substring(0, maxLength);
+		}
+		return value;
+	}
+}
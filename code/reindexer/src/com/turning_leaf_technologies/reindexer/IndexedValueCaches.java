@@ -0,0 +1,121 @@
+package com.turning_leaf_technologies.reindexer;
+
+import com.turning_leaf_technologies.logging.BaseLogEntry;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * The caches for all indexed_* lookup tables used when saving records and items to the database.  The caches are
+ * created by the main indexer and shared with any workers.
+ */
+class IndexedValueCaches {
+	final IndexedValueCache formatCategories;
+	final IndexedValueCache formats;
+	final IndexedValueCache languages;
+	final IndexedValueCache editions;
+	final IndexedValueCache publishers;
+	final IndexedValueCache publicationDates;
+	final IndexedValueCache physicalDescriptions;
+	final IndexedValueCache eContentSources;
+	final IndexedValueCache shelfLocations;
+	final IndexedValueCache callNumbers;
+	final IndexedValueCache statuses;
+	final IndexedValueCache locationCodes;
+	final IndexedValueCache subLocationCodes;
+	private final IndexedValueCache[] allCaches;
+
+	IndexedValueCaches(Connection dbConn, BaseLogEntry logEntry) throws SQLException {
+		formatCategories = new IndexedValueCache(dbConn, "indexed_format_category", "formatCategory", 0, logEntry);
+		formats = new IndexedValueCache(dbConn, "indexed_format", "format", 0, logEntry);
+		languages = new IndexedValueCache(dbConn, "indexed_language", "language", 0, logEntry);
+		editions = new IndexedValueCache(dbConn, "indexed_edition", "edition", 255, logEntry);
+		publishers = new IndexedValueCache(dbConn, "indexed_publisher", "publisher", 500, logEntry);
+		publicationDates = new IndexedValueCache(dbConn, "indexed_publicationDate", "publicationDate", 0, logEntry);
+		physicalDescriptions = new IndexedValueCache(dbConn, "indexed_physicalDescription", "physicalDescription", 1000, logEntry);
+		eContentSources = new IndexedValueCache(dbConn, "indexed_eContentSource", "eContentSource", 0, logEntry);
+		shelfLocations = new IndexedValueCache(dbConn, "indexed_shelfLocation", "shelfLocation", 0, logEntry);
+		callNumbers = new IndexedValueCache(dbConn, "indexed_callNumber", "callNumber", 0, logEntry);
+		statuses = new IndexedValueCache(dbConn, "indexed_status", "status", 0, logEntry);
+		locationCodes = new IndexedValueCache(dbConn, "indexed_locationCode", "locationCode", 0, logEntry);
+		subLocationCodes = new IndexedValueCache(dbConn, "indexed_subLocationCode", "subLocationCode", 0, logEntry);
+		allCaches = new IndexedValueCache[]{formatCategories, formats, languages, editions, publishers, publicationDates, physicalDescriptions,
+				eContentSources, shelfLocations, callNumbers, statuses, locationCodes, subLocationCodes};
+	}
+
+	void preload(Connection dbConn) {
+		for (IndexedValueCache cache : allCaches) {
+			cache.preload(dbConn);
+		}
+	}
+
+	/**
+	 * Makes sure the ids for all values used by the records and their items are cached so new values are added to the
+	 * database in batches rather than one at a time.
+	 */
+	void addValuesForRecords(Collection<RecordInfo> records) {
+		HashSet<String> formatCategoryValues = new HashSet<>();
+		HashSet<String> formatValues = new HashSet<>();
+		HashSet<String> languageValues = new HashSet<>();
+		HashSet<String> editionValues = new HashSet<>();
+		HashSet<String> publisherValues = new HashSet<>();
+		HashSet<String> publicationDateValues = new HashSet<>();
+		HashSet<String> physicalDescriptionValues = new HashSet<>();
+		HashSet<String> eContentSourceValues = new HashSet<>();
+		HashSet<String> shelfLocationValues = new HashSet<>();
+		HashSet<String> callNumberValues = new HashSet<>();
+		HashSet<String> statusValues = new HashSet<>();
+		HashSet<String> locationCodeValues = new HashSet<>();
+		HashSet<String> subLocationCodeValues = new HashSet<>();
+		for (RecordInfo recordInfo : records) {
+			formatCategoryValues.add(recordInfo.getPrimaryFormatCategory());
+			formatValues.add(recordInfo.getPrimaryFormat());
+			languageValues.add(recordInfo.getPrimaryLanguage());
+			editionValues.add(recordInfo.getEdition());
+			publisherValues.add(recordInfo.getPublisher());
+			publicationDateValues.add(recordInfo.getPublicationDate());
+			physicalDescriptionValues.add(recordInfo.getPhysicalDescription());
+			for (ItemInfo itemInfo : recordInfo.getRelatedItems()) {
+				formatCategoryValues.add(itemInfo.getFormatCategory());
+				formatValues.add(itemInfo.getFormat());
+				eContentSourceValues.add(itemInfo.geteContentSource());
+				shelfLocationValues.add(itemInfo.getDetailedLocation());
+				callNumberValues.add(itemInfo.getCallNumber());
+				callNumberValues.add(itemInfo.getSortableCallNumber());
+				statusValues.add(itemInfo.getDetailedStatus());
+				statusValues.add(itemInfo.getGroupedStatus());
+				locationCodeValues.add(itemInfo.getLocationCode());
+				subLocationCodeValues.add(itemInfo.getSubLocationCode());
+			}
+		}
+		formatCategories.addValues(formatCategoryValues);
+		formats.addValues(formatValues);
+		languages.addValues(languageValues);
+		editions.addValues(editionValues);
+		publishers.addValues(publisherValues);
+		publicationDates.addValues(publicationDateValues);
+		physicalDescriptions.addValues(physicalDescriptionValues);
+		eContentSources.addValues(eContentSourceValues);
+		shelfLocations.addValues(shelfLocationValues);
+		callNumbers.addValues(callNumberValues);
+		statuses.addValues(statusValues);
+		locationCodes.addValues(locationCodeValues);
+		subLocationCodes.addValues(subLocationCodeValues);
+	}
+
+	String getStats() {
+		StringBuilder stats = new StringBuilder("Indexed value caches:");
+		for (IndexedValueCache cache : allCaches) {
+			stats.append("<br/>").append(cache.getStats());
+		}
+		return stats.toString();
+	}
+
+	void close() {
+		for (IndexedValueCache cache : allCaches) {
+			cache.close();
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package com.turning_leaf_technologies.reindexer;
 
 import com.turning_leaf_technologies.indexing.Scope;
+import com.turning_leaf_technologies.indexing.ScopeInclusionIndex;
 import com.turning_leaf_technologies.logging.BaseLogEntry;
 import com.turning_leaf_technologies.marc.MarcUtil;
 import com.turning_leaf_technologies.strings.StringUtils;
@@ -49,7 +50,13 @@ public class ItemInfo{
 
 	private RecordInfo recordInfo;
 
-	private final HashMap<String, ScopingInfo> scopingInfo = new HashMap<>();
+	//Scopes the item is part of and owned by, indexed by the ordinal of the scope
+	private ScopeInclusionIndex scopeIndex;
+	private final BitSet includedScopes = new BitSet();
+	private final BitSet locallyOwnedBy = new BitSet();
+	private final BitSet libraryOwnedBy = new BitSet();
+	//Only created if the url of the item is rewritten for a scope
+	private HashMap<Integer, String> localUrls = null;
 	private String shelfLocationCode;
 	private Long autoReindexTime = null;
 	private DataField marcField;
@@ -67,7 +74,7 @@ public class ItemInfo{
 	}
 
 	public void setCollection(String collection) {
-		this.collection = collection;
+		this.collection = FacetValueDictionary.intern(collection);
 	}
 
 	public String getStatusCode() {
@@ -75,11 +82,11 @@ public class ItemInfo{
 	}
 
 	void setStatusCode(String statusCode) {
-		this.statusCode = statusCode;
+		this.statusCode = FacetValueDictionary.intern(statusCode);
 	}
 
 	void setDetailedStatus(String detailedStatus) {
-		this.detailedStatus = detailedStatus;
+		this.detailedStatus = FacetValueDictionary.intern(detailedStatus);
 	}
 
 	public String getLocationCode() {
@@ -87,7 +94,7 @@ public class ItemInfo{
 	}
 
 	public void setLocationCode(String locationCode) {
-		this.locationCode = locationCode;
+		this.locationCode = FacetValueDictionary.intern(locationCode);
 	}
 
 	@SuppressWarnings("SpellCheckingInspection")
@@ -122,7 +129,7 @@ public class ItemInfo{
 	}
 
 	void setITypeCode(String ITypeCode) {
-		this.ITypeCode = ITypeCode;
+		this.ITypeCode = FacetValueDictionary.intern(ITypeCode);
 	}
 
 	String getDueDate() {
@@ -149,8 +156,8 @@ public class ItemInfo{
 	}
 
 	public void setFormat(String format) {
-		this.format = format;
-		this.trimmedFormat = StringUtils.trimTrailingPunctuation(format);
+		this.format = FacetValueDictionary.intern(format);
+		this.trimmedFormat = FacetValueDictionary.intern(StringUtils.trimTrailingPunctuation(format));
 	}
 
 	void setSubFormats(String subFormats){
@@ -254,8 +261,8 @@ public class ItemInfo{
 	}
 
 	void setIType(String IType) {
-		this.IType = IType;
-		this.trimmedIType = StringUtils.trimTrailingPunctuation(IType);
+		this.IType = FacetValueDictionary.intern(IType);
+		this.trimmedIType = FacetValueDictionary.intern(StringUtils.trimTrailingPunctuation(IType));
 	}
 
 	@SuppressWarnings("SpellCheckingInspection")
@@ -269,8 +276,8 @@ public class ItemInfo{
 
 	@SuppressWarnings("SpellCheckingInspection")
 	void seteContentSource(String eContentSource) {
-		this.eContentSource = eContentSource;
-		this.trimmedEContentSource = StringUtils.trimTrailingPunctuation(eContentSource);
+		this.eContentSource = FacetValueDictionary.intern(eContentSource);
+		this.trimmedEContentSource = FacetValueDictionary.intern(StringUtils.trimTrailingPunctuation(eContentSource));
 	}
 
 	String getCallNumber() {
@@ -295,34 +302,93 @@ public class ItemInfo{
 	}
 
 	public void setFormatCategory(String formatCategory) {
-		this.formatCategory = formatCategory;
+		this.formatCategory = FacetValueDictionary.intern(formatCategory);
 	}
 
 	void setShelfLocation(String shelfLocation) {
-		this.shelfLocation = shelfLocation;
+		this.shelfLocation = FacetValueDictionary.intern(shelfLocation);
 	}
 
 	void setDetailedLocation(String detailedLocation) {
-		this.detailedLocation = detailedLocation;
+		this.detailedLocation = FacetValueDictionary.intern(detailedLocation);
 	}
 
 	ScopingInfo addScope(Scope scope) {
-		ScopingInfo scopeInfo;
-		if (scopingInfo.containsKey(scope.getScopeName())){
-			scopeInfo = scopingInfo.get(scope.getScopeName());
-		}else{
-			scopeInfo = new ScopingInfo(scope, this);
-			scopingInfo.put(scope.getScopeName(), scopeInfo);
+		scopeIndex = scope.getInclusionIndex();
+		includedScopes.set(scope.getOrdinal());
+		return new ScopingInfo(scope, this);
+	}
+
+	/**
+	 * Returns information about the item for each scope it is part of.
+	 */
+	ArrayList<ScopingInfo> getScopingInfo() {
+		ArrayList<ScopingInfo> scopingInfo = new ArrayList<>(includedScopes.cardinality());
+		for (int i = includedScopes.nextSetBit(0); i >= 0; i = includedScopes.nextSetBit(i + 1)) {
+			scopingInfo.add(new ScopingInfo(scopeIndex.getScope(i), this));
 		}
-		return scopeInfo;
+		return scopingInfo;
 	}
 
-	HashMap<String, ScopingInfo> getScopingInfo() {
-		return scopingInfo;
+	boolean isValidForScope(Scope scope){
+		return isValidForScope(scope.getOrdinal());
+	}
+
+	boolean isValidForScope(int scopeOrdinal){
+		return includedScopes.get(scopeOrdinal);
+	}
+
+	boolean hasScopes(){
+		return !includedScopes.isEmpty();
+	}
+
+	BitSet getIncludedScopes(){
+		return includedScopes;
+	}
+
+	/**
+	 * Removes the item from all the scopes in the set
+	 */
+	void removeScopes(BitSet scopesToRemove){
+		includedScopes.andNot(scopesToRemove);
+		locallyOwnedBy.andNot(scopesToRemove);
+		libraryOwnedBy.andNot(scopesToRemove);
+		if (localUrls != null) {
+			localUrls.keySet().removeIf(scopesToRemove::get);
+		}
+	}
+
+	boolean isLocallyOwned(int scopeOrdinal){
+		return locallyOwnedBy.get(scopeOrdinal);
 	}
 
-	boolean isValidForScope(String scopeName){
-		return scopingInfo.containsKey(scopeName);
+	void setLocallyOwned(int scopeOrdinal){
+		locallyOwnedBy.set(scopeOrdinal);
+	}
+
+	boolean isLibraryOwned(int scopeOrdinal){
+		return libraryOwnedBy.get(scopeOrdinal);
+	}
+
+	void setLibraryOwned(int scopeOrdinal){
+		libraryOwnedBy.set(scopeOrdinal);
+	}
+
+	String getLocalUrl(int scopeOrdinal){
+		return localUrls == null ? null : localUrls.get(scopeOrdinal);
+	}
+
+	void setLocalUrl(int scopeOrdinal, String localUrl){
+		if (localUrl == null){
+			if (localUrls != null){
+				localUrls.remove(scopeOrdinal);
+			}
+		}else{
+			if (localUrls == null){
+				localUrls = new HashMap<>();
+			}
+			localUrls.put(scopeOrdinal, localUrl);
+		}
 	}
 
 	String getShelfLocationCode() {
@@ -330,7 +396,7 @@ public class ItemInfo{
 	}
 
 	void setShelfLocationCode(String shelfLocationCode) {
-		this.shelfLocationCode = shelfLocationCode;
+		this.shelfLocationCode = FacetValueDictionary.intern(shelfLocationCode);
 	}
 
 	String getFullRecordIdentifier() {
@@ -343,7 +409,7 @@ public class ItemInfo{
 	}
 
 	void setSubLocation(String subLocation) {
-		this.subLocation = subLocation;
+		this.subLocation = FacetValueDictionary.intern(subLocation);
 	}
 
 	String getSubLocationCode() {
@@ -351,7 +417,7 @@ public class ItemInfo{
 	}
 
 	void setSubLocationCode(String subLocationCode) {
-		this.subLocationCode = subLocationCode;
+		this.subLocationCode = FacetValueDictionary.intern(subLocationCode);
 	}
 
 	Date getLastCheckinDate() {
@@ -399,7 +465,7 @@ public class ItemInfo{
 	}
 
 	void setGroupedStatus(String groupedStatus) {
-		this.groupedStatus = groupedStatus;
+		this.groupedStatus = FacetValueDictionary.intern(groupedStatus);
 	}
 
 	public String getGroupedStatus() {
@@ -468,10 +534,17 @@ public class ItemInfo{
 		this.holdable = itemInfo.holdable;
 		this.bookable = itemInfo.bookable;
 		this.inLibraryUseOnly = itemInfo.inLibraryUseOnly;
-		for (String scope : itemInfo.scopingInfo.keySet()){
-			ScopingInfo curScopingInfo = itemInfo.scopingInfo.get(scope);
-			ScopingInfo clonedScope = addScope(curScopingInfo.getScope());
-			clonedScope.copyFrom(curScopingInfo);
+		if (itemInfo.scopeIndex != null) {
+			this.scopeIndex = itemInfo.scopeIndex;
+		}
+		this.includedScopes.or(itemInfo.includedScopes);
+		//Ownership and urls replace the existing values for the scopes that were copied
+		this.locallyOwnedBy.andNot(itemInfo.includedScopes);
+		this.locallyOwnedBy.or(itemInfo.locallyOwnedBy);
+		this.libraryOwnedBy.andNot(itemInfo.includedScopes);
+		this.libraryOwnedBy.or(itemInfo.libraryOwnedBy);
+		for (int i = itemInfo.includedScopes.nextSetBit(0); i >= 0; i = itemInfo.includedScopes.nextSetBit(i + 1)) {
+			setLocalUrl(i, itemInfo.getLocalUrl(i));
 		}
 	}
 
@@ -532,15 +605,16 @@ public class ItemInfo{
 		recordsIncludedScopes = new StringBuffer("~");
 		locationOwnedNames = new HashSet<>();
 		libraryOwnedNames = new HashSet<>();
-		for (ScopingInfo scope : scopingInfo.values()){
-			if (scope.isLocallyOwned()){
-				locationOwnedScopes.append(scope.getScope().getId()).append("~");
-				locationOwnedNames.add(scope.getScope().getFacetLabel());
-			}else if (scope.isLibraryOwned()){
-				libraryOwnedScopes.append(scope.getScope().getId()).append("~");
-				libraryOwnedNames.add(scope.getScope().getFacetLabel());
+		for (int i = includedScopes.nextSetBit(0); i >= 0; i = includedScopes.nextSetBit(i + 1)){
+			Scope scope = scopeIndex.getScope(i);
+			if (locallyOwnedBy.get(i)){
+				locationOwnedScopes.append(scope.getId()).append("~");
+				locationOwnedNames.add(scope.getFacetLabel());
+			}else if (libraryOwnedBy.get(i)){
+				libraryOwnedScopes.append(scope.getId()).append("~");
+				libraryOwnedNames.add(scope.getFacetLabel());
 			}else {
-				recordsIncludedScopes.append(scope.getScope().getId()).append("~");
+				recordsIncludedScopes.append(scope.getId()).append("~");
 			}
 		}
 	}
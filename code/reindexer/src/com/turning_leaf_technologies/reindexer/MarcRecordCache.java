@@ -0,0 +1,275 @@
+package com.turning_leaf_technologies.reindexer;
+
+import com.turning_leaf_technologies.marc.BinaryMarcCodec;
+import org.apache.logging.log4j.Logger;
+import org.ini4j.Ini;
+import org.marc4j.marc.Record;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of MARC records loaded from (or saved to) ils_records that is bounded by the number of bytes the records use
+ * rather than the number of records.  The cache is created by the main indexer and shared with any workers.
+ *
+ * Records are held in the binary format (see BinaryMarcCodec) and a new Record is decoded each time one is read, so
+ * callers are free to modify the records they get without changing the cached copy.  The serialized records can
+ * optionally be held off heap in direct buffers, which are limited by -XX:MaxDirectMemorySize rather than the heap.
+ *
+ * Eviction is based on W-TinyLFU.  New records go into a small LRU window.  Records leaving the window are only
+ * admitted to the main LRU area if they have been used more often than the record they would replace, so records
+ * that are only used once (i.e. during a full regroup) do not push out records that are used by several works.
+ * Usage is tracked with a small count-min sketch that is aged periodically.
+ */
+class MarcRecordCache {
+	//Rough overhead of an entry in the cache (key, entry and map node) in addition to the record itself
+	private static final int ENTRY_OVERHEAD = 96;
+	//Used to size the frequency sketch based on the number of records that will fit in the cache
+	private static final int AVERAGE_RECORD_SIZE = 2048;
+
+	private final long maxBytes;
+	private final long maxWindowBytes;
+	private final boolean offHeap;
+	private final LinkedHashMap<Key, Entry> window = new LinkedHashMap<>(256, 0.75f, true);
+	private final LinkedHashMap<Key, Entry> main = new LinkedHashMap<>(1024, 0.75f, true);
+	private final FrequencySketch sketch;
+	private long windowBytes = 0;
+	private long mainBytes = 0;
+	private long numHits = 0;
+	private long numMisses = 0;
+	private long numEvictions = 0;
+	private long numRejected = 0;
+
+	MarcRecordCache(long maxBytes, boolean offHeap) {
+		this.maxBytes = Math.max(0, maxBytes);
+		this.maxWindowBytes = Math.max(this.maxBytes / 100, Math.min(this.maxBytes, 64 * 1024));
+		this.offHeap = offHeap;
+		this.sketch = new FrequencySketch((int) Math.min(1 << 24, Math.max(256, this.maxBytes / AVERAGE_RECORD_SIZE)));
+	}
+
+	/**
+	 * Creates a cache based on the Reindex section of the config file.  marcRecordCacheSizeMB sets the size of the cache
+	 * (0 disables it) and marcRecordCacheOffHeap holds the records outside the heap.
+	 */
+	static MarcRecordCache createFromConfig(Ini configIni, Logger logger) {
+		long sizeInMB = 64;
+		String sizeSetting = configIni.get("Reindex", "marcRecordCacheSizeMB");
+		if (sizeSetting != null && sizeSetting.trim().length() > 0) {
+			try {
+				sizeInMB = Long.parseLong(sizeSetting.trim());
+			} catch (NumberFormatException e) {
+				logger.warn("Invalid value for marcRecordCacheSizeMB " + sizeSetting + " using " + sizeInMB);
+			}
+		}
+		String offHeapSetting = configIni.get("Reindex", "marcRecordCacheOffHeap");
+		boolean offHeap = offHeapSetting != null && (offHeapSetting.trim().equals("1") || offHeapSetting.trim().equalsIgnoreCase("true"));
+		return new MarcRecordCache(sizeInMB * 1024 * 1024, offHeap);
+	}
+
+	/**
+	 * @return a new copy of the cached record or null if the record is not cached
+	 */
+	Record get(String source, String identifier) {
+		Key key = new Key(source, identifier);
+		Entry entry;
+		synchronized (this) {
+			sketch.increment(key.hashCode);
+			entry = window.get(key);
+			if (entry == null) {
+				entry = main.get(key);
+			}
+			if (entry == null) {
+				numMisses++;
+				return null;
+			}
+			numHits++;
+		}
+		return BinaryMarcCodec.decode(entry.getData());
+	}
+
+	void put(String source, String identifier, Record record) {
+		put(source, identifier, BinaryMarcCodec.encode(record));
+	}
+
+	/**
+	 * Caches a record that has already been converted to the binary format.  The data must not be changed afterwards.
+	 */
+	void put(String source, String identifier, byte[] marcData) {
+		Key key = new Key(source, identifier);
+		Entry entry = new Entry(marcData, offHeap);
+		synchronized (this) {
+			remove(key);
+			if (entry.size > maxWindowBytes) {
+				//Too large to cache (or the cache is disabled)
+				numRejected++;
+				return;
+			}
+			window.put(key, entry);
+			windowBytes += entry.size;
+			evictFromWindow();
+		}
+	}
+
+	synchronized void remove(String source, String identifier) {
+		remove(new Key(source, identifier));
+	}
+
+	private void remove(Key key) {
+		Entry existing = window.remove(key);
+		if (existing != null) {
+			windowBytes -= existing.size;
+		}
+		existing = main.remove(key);
+		if (existing != null) {
+			mainBytes -= existing.size;
+		}
+	}
+
+	/**
+	 * Moves the least recently used records out of the window once it is full.  Each record is either admitted to the
+	 * main area or dropped.
+	 */
+	private void evictFromWindow() {
+		long maxMainBytes = maxBytes - maxWindowBytes;
+		Iterator<Map.Entry<Key, Entry>> windowIterator = window.entrySet().iterator();
+		while (windowBytes > maxWindowBytes && windowIterator.hasNext()) {
+			Map.Entry<Key, Entry> candidate = windowIterator.next();
+			windowIterator.remove();
+			int candidateSize = candidate.getValue().size;
+			windowBytes -= candidateSize;
+
+			if (candidateSize > maxMainBytes) {
+				numEvictions++;
+				continue;
+			}
+			if (mainBytes + candidateSize > maxMainBytes) {
+				Map.Entry<Key, Entry> victim = main.entrySet().iterator().next();
+				if (sketch.frequency(candidate.getKey().hashCode) <= sketch.frequency(victim.getKey().hashCode)) {
+					numEvictions++;
+					continue;
+				}
+				Iterator<Map.Entry<Key, Entry>> mainIterator = main.entrySet().iterator();
+				while (mainBytes + candidateSize > maxMainBytes && mainIterator.hasNext()) {
+					mainBytes -= mainIterator.next().getValue().size;
+					mainIterator.remove();
+					numEvictions++;
+				}
+			}
+			main.put(candidate.getKey(), candidate.getValue());
+			mainBytes += candidateSize;
+		}
+	}
+
+	synchronized String getStats() {
+		long numRequests = numHits + numMisses;
+		String hitRate = numRequests == 0 ? "0" : String.format("%.1f", 100.0 * numHits / numRequests);
+		return "MARC record cache: hits " + numHits + ", misses " + numMisses + ", hit rate " + hitRate + "%, evictions " + numEvictions +
+				", too large to cache " + numRejected + ", " + (window.size() + main.size()) + " records using " + (windowBytes + mainBytes) +
+				" of " + maxBytes + " bytes" + (offHeap ? " off heap" : "");
+	}
+
+	private static class Key {
+		private final String source;
+		private final String identifier;
+		private final int hashCode;
+
+		Key(String source, String identifier) {
+			this.source = source;
+			this.identifier = identifier;
+			this.hashCode = 31 * source.hashCode() + identifier.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hashCode == other.hashCode && identifier.equals(other.identifier) && source.equals(other.source);
+		}
+	}
+
+	private static class Entry {
+		private final byte[] data;
+		private final ByteBuffer offHeapData;
+		private final int size;
+
+		Entry(byte[] data, boolean offHeap) {
+			if (offHeap) {
+				this.data = null;
+				this.offHeapData = ByteBuffer.allocateDirect(data.length);
+				this.offHeapData.put(data);
+				this.offHeapData.flip();
+			} else {
+				this.data = data;
+				this.offHeapData = null;
+			}
+			this.size = data.length + ENTRY_OVERHEAD;
+		}
+
+		byte[] getData() {
+			if (data != null) {
+				return data;
+			}
+			//The buffer is never changed once it is filled so it can be read from a duplicate without locking
+			byte[] copy = new byte[offHeapData.remaining()];
+			offHeapData.duplicate().get(copy);
+			return copy;
+		}
+	}
+
+	/**
+	 * Count-min sketch of how often records have been requested, with 4 bit counters that are halved periodically so
+	 * records that were popular a long time ago eventually age out.
+	 */
+	private static class FrequencySketch {
+		private static final int[] SEEDS = {0x97cb3127, 0xb3c5a1e5, 0x6d2b79f5, 0x9e3779b9};
+		private final byte[] counters;
+		private final int mask;
+		private final int sampleSize;
+		private int numIncrements = 0;
+
+		FrequencySketch(int expectedEntries) {
+			int width = Integer.highestOneBit(Math.max(16, expectedEntries - 1) << 1);
+			counters = new byte[width * SEEDS.length];
+			mask = width - 1;
+			sampleSize = 10 * width;
+		}
+
+		void increment(int hash) {
+			for (int i = 0; i < SEEDS.length; i++) {
+				int index = indexOf(hash, i);
+				if (counters[index] < 15) {
+					counters[index]++;
+				}
+			}
+			if (++numIncrements >= sampleSize) {
+				for (int i = 0; i < counters.length; i++) {
+					counters[i] >>= 1;
+				}
+				numIncrements /= 2;
+			}
+		}
+
+		int frequency(int hash) {
+			int frequency = 15;
+			for (int i = 0; i < SEEDS.length; i++) {
+				frequency = Math.min(frequency, counters[indexOf(hash, i)]);
+			}
+			return frequency;
+		}
+
+		private int indexOf(int hash, int row) {
+			int spread = (hash ^ SEEDS[row]) * 0x45d9f3b;
+			spread ^= spread >>> 16;
+			return row * (mask + 1) + (spread & mask);
+		}
+	}
+}
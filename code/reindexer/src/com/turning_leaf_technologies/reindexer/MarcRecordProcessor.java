@@ -2,6 +2,7 @@ package com.turning_leaf_technologies.reindexer;
 
 import com.turning_leaf_technologies.indexing.BaseIndexingSettings;
 import com.turning_leaf_technologies.logging.BaseLogEntry;
+import com.turning_leaf_technologies.marc.MarcRecordContext;
 import com.turning_leaf_technologies.marc.MarcUtil;
 import com.turning_leaf_technologies.strings.StringUtils;
 import org.apache.logging.log4j.Logger;
@@ -43,6 +44,9 @@ abstract class MarcRecordProcessor {
 	PreparedStatement marcRecordAsSuppressedNoMarcStmt;
 	PreparedStatement getRecordSuppressionInformationStmt;
 
+	//Field values loaded for the record currently being processed
+	private MarcRecordContext recordContext = null;
+
 	MarcRecordProcessor(GroupedWorkIndexer indexer, String profileType, Connection dbConn, Logger logger) {
 		this.indexer = indexer;
 		this.logger = logger;
@@ -99,15 +103,36 @@ abstract class MarcRecordProcessor {
 			}
 
 			if (record != null) {
+				recordContext = new MarcRecordContext(record);
 				try {
 					updateGroupedWorkSolrDataBasedOnMarc(groupedWork, record, identifier);
 				} catch (Exception e) {
 					logEntry.incErrors("Error updating solr based on marc record", e);
+				} finally {
+					recordContext = null;
 				}
 			}
 		}
 	}
 
+	/**
+	 * Gets the values for a field specification, reusing values that were already loaded if the record is the one
+	 * currently being processed.
+	 */
+	Set<String> getFieldList(Record record, String fieldSpec) {
+		if (recordContext != null && recordContext.getRecord() == record) {
+			return recordContext.getFieldList(fieldSpec);
+		}
+		return MarcUtil.getFieldList(record, fieldSpec);
+	}
+
+	String getFirstFieldVal(Record record, String fieldSpec) {
+		if (recordContext != null && recordContext.getRecord() == record) {
+			return recordContext.getFirstFieldVal(fieldSpec);
+		}
+		return MarcUtil.getFirstFieldVal(record, fieldSpec);
+	}
+
 	private Record loadMarcRecordFromDisk(String identifier, BaseLogEntry logEntry) {
 		String individualFilename = getFileForIlsRecord(identifier);
 		return MarcUtil.readMarcRecordFromFile(new File(individualFilename), logEntry);
@@ -418,13 +443,13 @@ abstract class MarcRecordProcessor {
 		}
 
 
-		groupedWork.addSeries(MarcUtil.getFieldList(record, "830ap:800pqt"));
-		groupedWork.addSeries2(MarcUtil.getFieldList(record, "490a"));
-		groupedWork.addDateSpan(MarcUtil.getFieldList(record, "362a"));
-		groupedWork.addContents(MarcUtil.getFieldList(record, "505a:505t"));
-		groupedWork.addIssns(MarcUtil.getFieldList(record, "022a"));
-		groupedWork.addOclcNumbers(MarcUtil.getFieldList(record, "035a"));
-		groupedWork.addIsbns(MarcUtil.getFieldList(record, "020a"), format);
+		groupedWork.addSeries(getFieldList(record, "830ap:800pqt"));
+		groupedWork.addSeries2(getFieldList(record, "490a"));
+		groupedWork.addDateSpan(getFieldList(record, "362a"));
+		groupedWork.addContents(getFieldList(record, "505a:505t"));
+		groupedWork.addIssns(getFieldList(record, "022a"));
+		groupedWork.addOclcNumbers(getFieldList(record, "035a"));
+		groupedWork.addIsbns(getFieldList(record, "020a"), format);
 		List<DataField> upcFields = MarcUtil.getDataFields(record, "024");
 		for (DataField upcField : upcFields){
 			if (upcField.getIndicator1() == '1' && upcField.getSubfield('a') != null){
@@ -471,7 +496,7 @@ abstract class MarcRecordProcessor {
 	}
 
 	private void loadFountasPinnell(GroupedWorkSolr groupedWork, Record record) {
-		Set<String> targetAudiences = MarcUtil.getFieldList(record, "521a");
+		Set<String> targetAudiences = getFieldList(record, "521a");
 		for (String targetAudience : targetAudiences){
 			if (targetAudience.startsWith("Guided reading level: ")){
 				String fountasPinnellValue = targetAudience.replace("Guided reading level: ", "");
@@ -483,7 +508,7 @@ abstract class MarcRecordProcessor {
 	}
 
 	private void loadAwards(GroupedWorkSolr groupedWork, Record record){
-		Set<String> awardFields = MarcUtil.getFieldList(record, "586a");
+		Set<String> awardFields = getFieldList(record, "586a");
 		HashSet<String> awards = new HashSet<>();
 		for (String award : awardFields){
 			//Normalize the award name
@@ -512,7 +537,7 @@ abstract class MarcRecordProcessor {
 	protected abstract void updateGroupedWorkSolrDataBasedOnMarc(GroupedWorkSolr groupedWork, Record record, String identifier);
 
 	void loadEditions(GroupedWorkSolr groupedWork, Record record, HashSet<RecordInfo> ilsRecords) {
-		Set<String> editions = MarcUtil.getFieldList(record, "250a");
+		Set<String> editions = getFieldList(record, "250a");
 		if (editions.size() > 0) {
 			String edition = editions.iterator().next();
 			for (RecordInfo ilsRecord : ilsRecords) {
@@ -523,7 +548,7 @@ abstract class MarcRecordProcessor {
 	}
 
 	void loadPhysicalDescription(GroupedWorkSolr groupedWork, Record record, HashSet<RecordInfo> ilsRecords) {
-		Set<String> physicalDescriptions = MarcUtil.getFieldList(record, "300abcefg:530abcd");
+		Set<String> physicalDescriptions = getFieldList(record, "300abcefg:530abcd");
 		if (physicalDescriptions.size() > 0){
 			String physicalDescription = physicalDescriptions.iterator().next();
 			for(RecordInfo ilsRecord : ilsRecords){
@@ -534,7 +559,7 @@ abstract class MarcRecordProcessor {
 	}
 
 	private String getCallNumberSubject(Record record) {
-		String val = MarcUtil.getFirstFieldVal(record, "090a:050a");
+		String val = getFirstFieldVal(record, "090a:050a");
 
 		if (val != null) {
 			String[] callNumberSubject = val.toUpperCase().split("[^A-Z]+");
@@ -546,7 +571,7 @@ abstract class MarcRecordProcessor {
 	}
 
 	private String getMpaaRating(Record record) {
-		String val = MarcUtil.getFirstFieldVal(record, "521a");
+		String val = getFirstFieldVal(record, "521a");
 
 		if (val != null) {
 			if (mpaaNotRatedRegex.matcher(val).matches()) {
@@ -703,7 +728,7 @@ abstract class MarcRecordProcessor {
 		}
 
 		//Check the subjects
-		Set<String> subjectFormData = MarcUtil.getFieldList(record, "650v:651v");
+		Set<String> subjectFormData = getFieldList(record, "650v:651v");
 		for(String subjectForm : subjectFormData){
 			subjectForm = StringUtils.trimTrailingPunctuation(subjectForm);
 			if (subjectForm.equalsIgnoreCase("Fiction")
@@ -816,7 +841,7 @@ abstract class MarcRecordProcessor {
 		}
 
 		//Check the subjects
-		Set<String> subjectGenreData = MarcUtil.getFieldList(record, "655a");
+		Set<String> subjectGenreData = getFieldList(record, "655a");
 		for(String subjectForm : subjectGenreData) {
 			subjectForm = StringUtils.trimTrailingPunctuation(subjectForm).toLowerCase();
 			if (subjectForm.startsWith("instructional film")
@@ -889,11 +914,11 @@ abstract class MarcRecordProcessor {
 		}
 		//Try to get from 260
 		if (publicationDates.size() ==0) {
-			publicationDates.addAll(StringUtils.trimTrailingPunctuation(MarcUtil.getFieldList(record, "260c")));
+			publicationDates.addAll(StringUtils.trimTrailingPunctuation(getFieldList(record, "260c")));
 		}
 		//Try to get from 008, but only need to do if we don't have anything else
 		if (publicationDates.size() == 0) {
-			publicationDates.add(StringUtils.trimTrailingPunctuation(MarcUtil.getFirstFieldVal(record, "008[7-10]")));
+			publicationDates.add(StringUtils.trimTrailingPunctuation(getFirstFieldVal(record, "008[7-10]")));
 		}
 
 		return publicationDates;
@@ -913,14 +938,14 @@ abstract class MarcRecordProcessor {
 				}
 			}
 		}
-		publisher.addAll(StringUtils.trimTrailingPunctuation(MarcUtil.getFieldList(record, "260b")));
+		publisher.addAll(StringUtils.trimTrailingPunctuation(getFieldList(record, "260b")));
 		return publisher;
 	}
 
 	String languageFields = "008[35-37]";
 
 	void loadLanguageDetails(GroupedWorkSolr groupedWork, Record record, HashSet<RecordInfo> ilsRecords, String identifier) {
-		Set <String> languages = MarcUtil.getFieldList(record, languageFields);
+		Set <String> languages = getFieldList(record, languageFields);
 		HashSet<String> translatedLanguages = new HashSet<>();
 		boolean isFirstLanguage = true;
 		for (String language : languages){
@@ -967,7 +992,7 @@ abstract class MarcRecordProcessor {
 		groupedWork.setLanguages(translatedLanguages);
 
 		String translationFields = "041b:041d:041h:041j";
-		Set<String> translations = MarcUtil.getFieldList(record, translationFields);
+		Set<String> translations = getFieldList(record, translationFields);
 		translatedLanguages = new HashSet<>();
 		for (String translation : translations) {
 			String translatedLanguage = indexer.translateSystemValue("language", translation, identifier);
@@ -978,19 +1003,19 @@ abstract class MarcRecordProcessor {
 
 	private void loadAuthors(GroupedWorkSolr groupedWork, Record record, String identifier) {
 		//auth_author = 100abcd, first
-		groupedWork.setAuthAuthor(MarcUtil.getFirstFieldVal(record, "100abcd"));
+		groupedWork.setAuthAuthor(getFirstFieldVal(record, "100abcd"));
 		//author = a, first
 		//MDN 2/6/2016 - Do not use 710 because it is not truly the author.  This has the potential
 		//of showing some disconnects with how records are grouped, but improves the display of the author
 		//710 is still indexed as part of author 2 #ARL-146
 		//groupedWork.setAuthor(this.getFirstFieldVal(record, "100abcdq:110ab:710a"));
-		groupedWork.setAuthor(MarcUtil.getFirstFieldVal(record, "100abcdq:110ab"));
+		groupedWork.setAuthor(getFirstFieldVal(record, "100abcdq:110ab"));
 		//auth_author2 = 700abcd
-		groupedWork.addAuthAuthor2(MarcUtil.getFieldList(record, "700abcd"));
+		groupedWork.addAuthAuthor2(getFieldList(record, "700abcd"));
 		//author2 = 110ab:111ab:700abcd:710ab:711ab:800a
-		groupedWork.addAuthor2(MarcUtil.getFieldList(record, "110ab:111ab:700abcd:710ab:711ab:800a"));
+		groupedWork.addAuthor2(getFieldList(record, "110ab:111ab:700abcd:710ab:711ab:800a"));
 		//author_additional = 505r:245c
-		groupedWork.addAuthorAdditional(MarcUtil.getFieldList(record, "505r:245c"));
+		groupedWork.addAuthorAdditional(getFieldList(record, "505r:245c"));
 		//Load contributors with role
 		List<DataField> contributorFields = MarcUtil.getDataFields(record, new String[]{"700","710"});
 		HashSet<String> contributors = new HashSet<>();
@@ -1013,7 +1038,7 @@ abstract class MarcRecordProcessor {
 		//author_display = 100a:110a:260b:710a:245c, first
 		//#ARL-95 Do not show display author from the 710 or from the 245c since neither are truly authors
 		//#ARL-200 Do not show display author from the 260b since it is also not the author
-		String displayAuthor = MarcUtil.getFirstFieldVal(record, "100a:110ab");
+		String displayAuthor = getFirstFieldVal(record, "100a:110ab");
 		if (displayAuthor != null && displayAuthor.indexOf(';') > 0){
 			displayAuthor = displayAuthor.substring(0, displayAuthor.indexOf(';') -1);
 		}
@@ -1024,11 +1049,11 @@ abstract class MarcRecordProcessor {
 		//title (full title done by index process by concatenating short and subtitle
 
 		//title short
-		String subTitle = MarcUtil.getFirstFieldVal(record, "245bfgnp");
-		groupedWork.setTitle(MarcUtil.getFirstFieldVal(record, "245a"), subTitle, MarcUtil.getFirstFieldVal(record, "245abfgnp"), this.getSortableTitle(record), format, formatCategory);
+		String subTitle = getFirstFieldVal(record, "245bfgnp");
+		groupedWork.setTitle(getFirstFieldVal(record, "245a"), subTitle, getFirstFieldVal(record, "245abfgnp"), this.getSortableTitle(record), format, formatCategory);
 		//title full
-		String authorInTitleField = MarcUtil.getFirstFieldVal(record, "245c");
-		String standardAuthorData = MarcUtil.getFirstFieldVal(record, "100abcdq:110ab");
+		String authorInTitleField = getFirstFieldVal(record, "245c");
+		String standardAuthorData = getFirstFieldVal(record, "100abcdq:110ab");
 		if ((authorInTitleField != null && authorInTitleField.length() > 0) || (standardAuthorData == null || standardAuthorData.length() == 0)) {
 			groupedWork.addFullTitles(MarcUtil.getAllSubfields(record, "245", " "));
 		}else{
@@ -1040,16 +1065,16 @@ abstract class MarcRecordProcessor {
 		}
 
 		//title alt
-		groupedWork.addAlternateTitles(MarcUtil.getFieldList(record, "130adfgklnpst:240a:246abfgnp:700tnr:730adfgklnpst:740a"));
+		groupedWork.addAlternateTitles(getFieldList(record, "130adfgklnpst:240a:246abfgnp:700tnr:730adfgklnpst:740a"));
 		//title old
-		groupedWork.addOldTitles(MarcUtil.getFieldList(record, "780ast"));
+		groupedWork.addOldTitles(getFieldList(record, "780ast"));
 		//title new
-		groupedWork.addNewTitles(MarcUtil.getFieldList(record, "785ast"));
+		groupedWork.addNewTitles(getFieldList(record, "785ast"));
 	}
 
 	private void loadBibCallNumbers(GroupedWorkSolr groupedWork, Record record, String identifier) {
-		groupedWork.setCallNumberA(MarcUtil.getFirstFieldVal(record, "099a:090a:050a"));
-		String firstCallNumber = MarcUtil.getFirstFieldVal(record, "099a[0]:090a[0]:050a[0]");
+		groupedWork.setCallNumberA(getFirstFieldVal(record, "099a:090a:050a"));
+		String firstCallNumber = getFirstFieldVal(record, "099a[0]:090a[0]:050a[0]");
 		if (firstCallNumber != null){
 			groupedWork.setCallNumberFirst(indexer.translateSystemValue("callnumber", firstCallNumber, identifier));
 		}
@@ -1091,7 +1116,7 @@ abstract class MarcRecordProcessor {
 
 		int nonFilingInt = getInd2AsInt(titleField);
 
-		String title = MarcUtil.getFirstFieldVal(record, "245abfgnp");
+		String title = getFirstFieldVal(record, "245abfgnp");
 		if (title == null){
 			return "";
 		}
@@ -1206,7 +1231,7 @@ abstract class MarcRecordProcessor {
 	private final HashSet<String> formatsToFilter = new HashSet<>();
 
 	private void getFormatFromDigitalFileCharacteristics(Record record, LinkedHashSet<String> printFormats) {
-		Set<String> fields = MarcUtil.getFieldList(record, "347b");
+		Set<String> fields = getFieldList(record, "347b");
 		for (String curField : fields){
 			if (curField.equalsIgnoreCase("Blu-Ray")){
 				printFormats.add("Blu-ray");
@@ -1385,7 +1410,7 @@ abstract class MarcRecordProcessor {
 	}
 
 	private void getFormatFromTitle(Record record, Set<String> printFormats) {
-		String titleMedium = MarcUtil.getFirstFieldVal(record, "245h");
+		String titleMedium = getFirstFieldVal(record, "245h");
 		if (titleMedium != null){
 			titleMedium = titleMedium.toLowerCase();
 			if (titleMedium.contains("sound recording-cass")){
@@ -1417,7 +1442,7 @@ abstract class MarcRecordProcessor {
 			}
 
 		}
-		String titleForm = MarcUtil.getFirstFieldVal(record, "245k");
+		String titleForm = getFirstFieldVal(record, "245k");
 		if (titleForm != null){
 			titleForm = titleForm.toLowerCase();
 			if (titleForm.contains("sound recording-cass")){
@@ -1428,7 +1453,7 @@ abstract class MarcRecordProcessor {
 				printFormats.add("BookClubKit");
 			}
 		}
-		String titlePart = MarcUtil.getFirstFieldVal(record, "245p");
+		String titlePart = getFirstFieldVal(record, "245p");
 		if (titlePart != null){
 			titlePart = titlePart.toLowerCase();
 			if (titlePart.contains("sound recording-cass")){
@@ -1437,7 +1462,7 @@ abstract class MarcRecordProcessor {
 				printFormats.add("LargePrint");
 			}
 		}
-		String title = MarcUtil.getFirstFieldVal(record, "245a");
+		String title = getFirstFieldVal(record, "245a");
 		if (title != null){
 			title = title.toLowerCase();
 			if (title.contains("book club kit")){
@@ -15,7 +15,11 @@ public class NightlyIndexLogEntry implements BaseLogEntry {
 	private ArrayList<String> notes = new ArrayList<>();
 	private Logger logger;
 	private int numWorksProcessed;
+	private int numDocumentsSent;
+	private int numDocumentsSkipped;
 	private int numErrors;
+	//Counters for sending documents to Solr are read from the sink each time the log is saved
+	private SolrIndexingSink solrIndexingSink;
 
 	private static PreparedStatement insertLogEntry;
 	private static PreparedStatement updateLogEntry;
@@ -25,7 +29,7 @@ public class NightlyIndexLogEntry implements BaseLogEntry {
 		this.startTime = new Date();
 		try {
 			insertLogEntry = dbConn.prepareStatement("INSERT into reindex_log (startTime) VALUES (?)", PreparedStatement.RETURN_GENERATED_KEYS);
-			updateLogEntry = dbConn.prepareStatement("UPDATE reindex_log SET lastUpdate = ?, endTime = ?, notes = ?, numWorksProcessed = ?, numErrors = ? WHERE id = ?", PreparedStatement.RETURN_GENERATED_KEYS);
+			updateLogEntry = dbConn.prepareStatement("UPDATE reindex_log SET lastUpdate = ?, endTime = ?, notes = ?, numWorksProcessed = ?, numDocumentsSent = ?, numDocumentsSkipped = ?, numSolrUpdatesQueued = ?, numSolrUpdatesInFlight = ?, numSolrDocumentsAdded = ?, numSolrUpdatesFailed = ?, numErrors = ? WHERE id = ?", PreparedStatement.RETURN_GENERATED_KEYS);
 		} catch (SQLException e) {
 			logger.error("Error creating prepared statements to update log", e);
 		}
@@ -61,36 +65,51 @@ public class NightlyIndexLogEntry implements BaseLogEntry {
 	}
 
 	@Override
-	public void setFinished() {
+	public synchronized void setFinished() {
 		this.endTime = new Date();
 		this.addNote("Finished Reindex");
 		this.saveResults();
 	}
 
-	public void incErrors(String note) {
+	//Synchronized since works can be processed by multiple threads during a full reindex
+	public synchronized void incErrors(String note) {
 		this.addNote("ERROR: " + note);
 		numErrors++;
 		this.saveResults();
 		logger.error(note);
 	}
 
-	public void incErrors(String note, Exception e){
+	public synchronized void incErrors(String note, Exception e){
 		this.addNote("ERROR: " + note + " " + e.toString());
 		numErrors++;
 		this.saveResults();
 		logger.error(note, e);
 	}
 
-	void incNumWorksProcessed(){
+	synchronized void incNumWorksProcessed(){
 		numWorksProcessed++;
 		if (numWorksProcessed % 5000 == 0){
 			this.saveResults();
 		}
 	}
 
+	//Works sent to Solr
+	synchronized void incNumDocumentsSent(){
+		numDocumentsSent++;
+	}
+
+	//Works that were not sent to Solr because they have not changed since they were last indexed
+	synchronized void incNumDocumentsSkipped(){
+		numDocumentsSkipped++;
+	}
+
+	synchronized void setSolrIndexingSink(SolrIndexingSink solrIndexingSink){
+		this.solrIndexingSink = solrIndexingSink;
+	}
+
 	@Override
 	@SuppressWarnings("UnusedReturnValue")
-	public boolean saveResults() {
+	public synchronized boolean saveResults() {
 		try {
 			if (logEntryId == null){
 				insertLogEntry.setLong(1, startTime.getTime() / 1000);
@@ -109,6 +128,19 @@ public class NightlyIndexLogEntry implements BaseLogEntry {
 				}
 				updateLogEntry.setString(++curCol, getNotesHtml());
 				updateLogEntry.setInt(++curCol, numWorksProcessed);
+				updateLogEntry.setInt(++curCol, numDocumentsSent);
+				updateLogEntry.setInt(++curCol, numDocumentsSkipped);
+				if (solrIndexingSink == null){
+					updateLogEntry.setInt(++curCol, 0);
+					updateLogEntry.setInt(++curCol, 0);
+					updateLogEntry.setInt(++curCol, 0);
+					updateLogEntry.setInt(++curCol, 0);
+				}else{
+					updateLogEntry.setLong(++curCol, solrIndexingSink.getNumQueued());
+					updateLogEntry.setLong(++curCol, solrIndexingSink.getNumInFlight());
+					updateLogEntry.setLong(++curCol, solrIndexingSink.getNumAdded());
+					updateLogEntry.setLong(++curCol, solrIndexingSink.getNumFailed());
+				}
 				updateLogEntry.setInt(++curCol, numErrors);
 				updateLogEntry.setLong(++curCol, logEntryId);
 				updateLogEntry.executeUpdate();
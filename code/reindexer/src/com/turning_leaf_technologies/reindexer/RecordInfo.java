@@ -1,5 +1,7 @@
 package com.turning_leaf_technologies.reindexer;
 
+import com.turning_leaf_technologies.indexing.Scope;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -61,7 +63,7 @@ public class RecordInfo {
 	}
 
 	void setPrimaryLanguage(String primaryLanguage) {
-		this.primaryLanguage = primaryLanguage;
+		this.primaryLanguage = FacetValueDictionary.intern(primaryLanguage);
 	}
 
 	String getPrimaryLanguage(){
@@ -218,10 +220,10 @@ public class RecordInfo {
 		return formatCategories;
 	}
 
-	private HashSet<ItemInfo> getRelatedItemsForScope(String scopeName) {
+	private HashSet<ItemInfo> getRelatedItemsForScope(Scope scope) {
 		HashSet<ItemInfo> values = new HashSet<>();
 		for (ItemInfo curItem : relatedItems){
-			if (curItem.isValidForScope(scopeName)){
+			if (curItem.isValidForScope(scope)){
 				values.add(curItem);
 			}
 		}
@@ -289,19 +291,23 @@ public class RecordInfo {
 	}
 
 	void addFormats(HashSet<String> translatedFormats) {
-		this.formats.addAll(translatedFormats);
+		for (String translatedFormat : translatedFormats){
+			this.formats.add(FacetValueDictionary.intern(translatedFormat));
+		}
 	}
 
 	void addFormat(String translatedFormat){
-		this.formats.add(translatedFormat);
+		this.formats.add(FacetValueDictionary.intern(translatedFormat));
 	}
 
 	void addFormatCategories(HashSet<String> translatedFormatCategories) {
-		this.formatCategories.addAll(translatedFormatCategories);
+		for (String translatedFormatCategory : translatedFormatCategories){
+			this.formatCategories.add(FacetValueDictionary.intern(translatedFormatCategory));
+		}
 	}
 
 	void addFormatCategory(String translatedFormatCategory){
-		this.formatCategories.add(translatedFormatCategory);
+		this.formatCategories.add(FacetValueDictionary.intern(translatedFormatCategory));
 	}
 
 	boolean hasItemFormats() {
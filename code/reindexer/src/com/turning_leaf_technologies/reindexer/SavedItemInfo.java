@@ -89,10 +89,13 @@ public class SavedItemInfo {
 		this.recordIncludedScopes = recordIncludedScopes;
 	}
 
+	/**
+	 * Checks for changes to everything except the circulation information of the item which is checked separately by
+	 * hasCirculationChanged since circulation changes are much more frequent.
+	 */
 	boolean hasChanged(long recordId, long variationId, String itemId, long shelfLocationId, long callNumberId, long sortableCallNumberId,
-	                   int numCopies, boolean isOrderItem, long statusId, Date dateAdded, long locationId, long subLocationId, Date lastCheckInDate,
-	                   long groupedStatusId, boolean available, boolean holdable, boolean inLibraryUseOnly, String locationOwnedScopes,
-	                   String libraryOwnedScopes, String recordIncludedScopes) {
+	                   int numCopies, boolean isOrderItem, Date dateAdded, long locationId, long subLocationId, boolean inLibraryUseOnly,
+	                   String locationOwnedScopes, String libraryOwnedScopes, String recordIncludedScopes) {
 		if (this.recordId != recordId) {
 			return true;
 		}
@@ -117,9 +120,6 @@ public class SavedItemInfo {
 		if (this.isOrderItem != isOrderItem){
 			return true;
 		}
-		if (this.statusId != statusId){
-			return true;
-		}
 		if (dateAdded != null || this.dateAdded != null) {
 			if (dateAdded == null) {
 				return true;
@@ -135,6 +135,25 @@ public class SavedItemInfo {
 		if (this.subLocationCodeId != subLocationId){
 			return true;
 		}
+		if (this.inLibraryUseOnly != inLibraryUseOnly){
+			return true;
+		}
+		if (!StringUtils.compareStrings(locationOwnedScopes, this.locationOwnedScopes)){
+			return true;
+		}
+		if (!StringUtils.compareStrings(libraryOwnedScopes, this.libraryOwnedScopes)){
+			return true;
+		}
+		return !StringUtils.compareStrings(recordIncludedScopes, this.recordIncludedScopes);
+	}
+
+	/**
+	 * Checks for changes to the status and availability of the item.
+	 */
+	boolean hasCirculationChanged(long statusId, Date lastCheckInDate, long groupedStatusId, boolean available, boolean holdable) {
+		if (this.statusId != statusId){
+			return true;
+		}
 		if (lastCheckInDate != null || this.lastCheckInDate != null) {
 			if (lastCheckInDate == null) {
 				return true;
@@ -150,18 +169,6 @@ public class SavedItemInfo {
 		if (this.available != available){
 			return true;
 		}
-		if (this.holdable != holdable){
-			return true;
-		}
-		if (this.inLibraryUseOnly != inLibraryUseOnly){
-			return true;
-		}
-		if (!StringUtils.compareStrings(locationOwnedScopes, this.locationOwnedScopes)){
-			return true;
-		}
-		if (!StringUtils.compareStrings(libraryOwnedScopes, this.libraryOwnedScopes)){
-			return true;
-		}
-		return !StringUtils.compareStrings(recordIncludedScopes, this.recordIncludedScopes);
+		return this.holdable != holdable;
 	}
 }
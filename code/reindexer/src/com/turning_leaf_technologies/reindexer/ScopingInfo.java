@@ -2,12 +2,13 @@ package com.turning_leaf_technologies.reindexer;
 
 import com.turning_leaf_technologies.indexing.Scope;
 
+/**
+ * Information about an item within a scope.  The information is stored by the item using the ordinal of the scope,
+ * this is a lightweight view of it so a ScopingInfo does not need to be kept for every item in every scope.
+ */
 class ScopingInfo{
 	private final ItemInfo item;
 	private final Scope scope;
-	private boolean locallyOwned;
-	private boolean libraryOwned;
-	private String localUrl;
 
 	ScopingInfo(Scope scope, ItemInfo item){
 		this.item = item;
@@ -15,12 +16,12 @@ class ScopingInfo{
 	}
 
 	boolean isLocallyOwned() {
-		return locallyOwned;
+		return item.isLocallyOwned(scope.getOrdinal());
 	}
 
 	void setLocallyOwned(boolean locallyOwned) {
 		if (locallyOwned) {
-			this.locallyOwned = locallyOwned;
+			item.setLocallyOwned(scope.getOrdinal());
 		}
 	}
 
@@ -30,50 +31,40 @@ class ScopingInfo{
 
 
 	boolean isLibraryOwned() {
-		return libraryOwned;
+		return item.isLibraryOwned(scope.getOrdinal());
 	}
 
 	void setLibraryOwned(boolean libraryOwned) {
 		if (libraryOwned){
-			this.libraryOwned = libraryOwned;
+			item.setLibraryOwned(scope.getOrdinal());
 		}
 	}
 
-	String scopingDetails = null;
 	String getScopingDetails(){
-		if (scopingDetails == null) {
-			String itemIdentifier = item.getItemIdentifier();
-			if (itemIdentifier == null) itemIdentifier = "";
-			scopingDetails = item.getFullRecordIdentifier() + "|" +
-					itemIdentifier + "|" +
-					item.getGroupedStatus() + "|" +
-					item.getDetailedStatus() + "|" +
-					locallyOwned + "|" +
-					item.isAvailable() + "|" +
-					item.isHoldable() + "|" +
-					item.isBookable() + "|" +
-					item.isInLibraryUseOnly() + "|" +
-					libraryOwned + "|" +
-					"|" + //holdable PTypes (removed)
-					"|" + //bookable PTypes (removed)
-					Util.getCleanDetailValue(localUrl) + "|"
-					;
-		}
-		return scopingDetails;
+		String itemIdentifier = item.getItemIdentifier();
+		if (itemIdentifier == null) itemIdentifier = "";
+		return item.getFullRecordIdentifier() + "|" +
+				itemIdentifier + "|" +
+				item.getGroupedStatus() + "|" +
+				item.getDetailedStatus() + "|" +
+				isLocallyOwned() + "|" +
+				item.isAvailable() + "|" +
+				item.isHoldable() + "|" +
+				item.isBookable() + "|" +
+				item.isInLibraryUseOnly() + "|" +
+				isLibraryOwned() + "|" +
+				"|" + //holdable PTypes (removed)
+				"|" + //bookable PTypes (removed)
+				Util.getCleanDetailValue(getLocalUrl()) + "|"
+				;
 	}
 
 	void setLocalUrl(String localUrl) {
-		this.localUrl = localUrl;
-	}
-
-	void copyFrom(ScopingInfo scopingInfo) {
-		this.locallyOwned = scopingInfo.locallyOwned;
-		this.libraryOwned = scopingInfo.libraryOwned;
-		this.localUrl = scopingInfo.localUrl;
+		item.setLocalUrl(scope.getOrdinal(), localUrl);
 	}
 
 	public String getLocalUrl() {
-		return localUrl;
+		return item.getLocalUrl(scope.getOrdinal());
 	}
 
 	public ItemInfo getItem(){
@@ -56,7 +56,7 @@ class SideLoadedEContentProcessor extends MarcRecordProcessor{
 			if (primaryFormatCategory == null) primaryFormatCategory = "Unknown";
 			updateGroupedWorkSolrDataBasedOnStandardMarcData(groupedWork, record, recordInfo.getRelatedItems(), identifier, primaryFormat, primaryFormatCategory);
 
-			String fullDescription = Util.getCRSeparatedString(MarcUtil.getFieldList(record, "520a"));
+			String fullDescription = Util.getCRSeparatedString(getFieldList(record, "520a"));
 			groupedWork.addDescription(fullDescription, primaryFormat, primaryFormatCategory);
 
 			loadEditions(groupedWork, record, allRelatedRecords);
@@ -93,7 +93,7 @@ class SideLoadedEContentProcessor extends MarcRecordProcessor{
 				boolean itemPartOfScope = sideLoadScope.isItemPartOfScope(record);
 				if (itemPartOfScope) {
 					ScopingInfo scopingInfo = itemInfo.addScope(curScope);
-					groupedWork.addScopingInfo(curScope.getScopeName(), scopingInfo);
+					groupedWork.addScopingInfo(scopingInfo);
 
 					scopingInfo.setLibraryOwned(true);
 					scopingInfo.setLocallyOwned(true);
@@ -0,0 +1,256 @@
+package com.turning_leaf_technologies.reindexer;
+
+import com.turning_leaf_technologies.logging.BaseLogEntry;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Tracks a hash of the last document sent to Solr for each grouped work so works that have not changed since they
+ * were last indexed do not need to be sent again.
+ *
+ * Hashes are stored in grouped_work_solr_hash.  They are loaded for a batch of works at once.  A hash is only saved
+ * once the indexing sink reports that Solr added the document, so documents that are still queued when the indexer
+ * stops, or that Solr rejected, are sent the next time they are indexed.  Confirmed hashes are saved in batches by
+ * the indexing thread since the sink reports them from its sender threads.
+ */
+class SolrDocumentHashes implements SolrIndexingSink.AddListener {
+	//Fields that change every time a work is indexed and should not be part of the hash
+	private static final Set<String> IGNORED_FIELDS = Collections.singleton("last_indexed");
+
+	private final BaseLogEntry logEntry;
+	private final MessageDigest digest;
+	private final HashMap<String, Long> loadedHashes = new HashMap<>();
+	private final HashSet<String> loadedIds = new HashSet<>();
+	//Hashes of documents that have been queued, but not added to Solr yet
+	private final ConcurrentHashMap<String, QueuedHash> queuedHashes = new ConcurrentHashMap<>();
+	//Hashes of documents that Solr has added which still need to be saved
+	private final ConcurrentLinkedQueue<QueuedHash> addedHashes = new ConcurrentLinkedQueue<>();
+
+	private final PreparedStatement getHashStmt;
+	private final PreparedStatement getHashesStmt;
+	private final PreparedStatement saveHashStmt;
+	private final PreparedStatement removeHashStmt;
+	private final PreparedStatement removeAllHashesStmt;
+
+	SolrDocumentHashes(Connection dbConn, BaseLogEntry logEntry) throws SQLException {
+		this.logEntry = logEntry;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("MD5 is not available", e);
+		}
+		StringBuilder parameters = new StringBuilder();
+		for (int i = 0; i < GroupedWorkEnrichmentLoader.BATCH_SIZE; i++) {
+			parameters.append(i == 0 ? "?" : ", ?");
+		}
+		getHashStmt = dbConn.prepareStatement("SELECT permanent_id, documentHash FROM grouped_work_solr_hash WHERE permanent_id = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		getHashesStmt = dbConn.prepareStatement("SELECT permanent_id, documentHash FROM grouped_work_solr_hash WHERE permanent_id IN (" + parameters + ")", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		saveHashStmt = dbConn.prepareStatement("INSERT INTO grouped_work_solr_hash (permanent_id, documentHash) VALUES (?, ?) ON DUPLICATE KEY UPDATE documentHash = VALUES(documentHash)");
+		removeHashStmt = dbConn.prepareStatement("DELETE FROM grouped_work_solr_hash WHERE permanent_id = ?");
+		removeAllHashesStmt = dbConn.prepareStatement("TRUNCATE TABLE grouped_work_solr_hash");
+	}
+
+	/**
+	 * Loads the hashes for a batch of works.  At most GroupedWorkEnrichmentLoader.BATCH_SIZE ids are loaded at once.
+	 * A single work is loaded with its own statement.
+	 */
+	void loadHashes(List<String> permanentIds) {
+		for (int start = 0; start < permanentIds.size(); start += GroupedWorkEnrichmentLoader.BATCH_SIZE) {
+			List<String> batch = permanentIds.subList(start, Math.min(permanentIds.size(), start + GroupedWorkEnrichmentLoader.BATCH_SIZE));
+			try {
+				PreparedStatement stmt;
+				if (batch.size() == 1) {
+					stmt = getHashStmt;
+					stmt.setString(1, batch.get(0));
+				} else {
+					stmt = getHashesStmt;
+					for (int i = 0; i < GroupedWorkEnrichmentLoader.BATCH_SIZE; i++) {
+						//Pad with the last value so the statement can be reused for partial batches
+						stmt.setString(i + 1, batch.get(Math.min(i, batch.size() - 1)));
+					}
+				}
+				try (ResultSet getHashesRS = stmt.executeQuery()) {
+					while (getHashesRS.next()) {
+						loadedHashes.put(getHashesRS.getString("permanent_id"), getHashesRS.getLong("documentHash"));
+					}
+				}
+				loadedIds.addAll(batch);
+			} catch (SQLException e) {
+				logEntry.incErrors("Error loading Solr document hashes", e);
+			}
+		}
+	}
+
+	/**
+	 * Computes a hash of the document.  Fields are hashed in order of their names so the order fields were added
+	 * to the document does not matter.
+	 */
+	long computeHash(SolrInputDocument document) {
+		ArrayList<String> fieldNames = new ArrayList<>(document.getFieldNames());
+		Collections.sort(fieldNames);
+		for (String fieldName : fieldNames) {
+			if (IGNORED_FIELDS.contains(fieldName)) {
+				continue;
+			}
+			SolrInputField field = document.getField(fieldName);
+			digest.update(fieldName.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			for (Object value : field.getValues()) {
+				if (value instanceof java.util.Date) {
+					value = ((java.util.Date) value).getTime();
+				}
+				digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 1);
+			}
+			digest.update((byte) 2);
+		}
+		byte[] hashBytes = digest.digest();
+		long hash = 0;
+		for (int i = 0; i < 8; i++) {
+			hash = (hash << 8) | (hashBytes[i] & 0xFF);
+		}
+		return hash;
+	}
+
+	/**
+	 * Checks to see if the hash matches the hash of the document that was last sent to Solr for the work.
+	 */
+	boolean isUnchanged(String permanentId, long hash) {
+		if (!loadedIds.contains(permanentId)) {
+			loadHashes(Collections.singletonList(permanentId));
+		}
+		Long existingHash = loadedHashes.get(permanentId);
+		return existingHash != null && existingHash == hash;
+	}
+
+	/**
+	 * Remembers the hash of a document that has been queued to be sent to Solr.  The hash is saved with the first
+	 * flush after Solr has added the document.
+	 */
+	void setHash(String permanentId, SolrInputDocument document, long hash) {
+		loadedHashes.put(permanentId, hash);
+		loadedIds.add(permanentId);
+		queuedHashes.put(permanentId, new QueuedHash(permanentId, document, hash));
+	}
+
+	/**
+	 * Called by the indexing sink once Solr has added documents.  Only the latest document queued for a work is
+	 * saved, an older document being confirmed does not mean the current one has been added.
+	 */
+	@Override
+	public void documentsAdded(List<SolrInputDocument> documents) {
+		for (SolrInputDocument document : documents) {
+			Object permanentId = document.getFieldValue("id");
+			if (permanentId == null) {
+				continue;
+			}
+			QueuedHash queuedHash = queuedHashes.get(permanentId.toString());
+			if (queuedHash != null && queuedHash.document == document && queuedHashes.remove(queuedHash.permanentId, queuedHash)) {
+				addedHashes.add(queuedHash);
+			}
+		}
+	}
+
+	/**
+	 * Removes the hash for a work that has been deleted from Solr (or could not be added) so it is sent the next time
+	 * it is indexed.
+	 */
+	void removeHash(String permanentId) {
+		loadedIds.add(permanentId);
+		loadedHashes.remove(permanentId);
+		queuedHashes.remove(permanentId);
+		try {
+			removeHashStmt.setString(1, permanentId);
+			removeHashStmt.executeUpdate();
+		} catch (SQLException e) {
+			logEntry.incErrors("Error removing Solr document hash for " + permanentId, e);
+		}
+	}
+
+	void removeHashes(Collection<String> permanentIds) {
+		for (String permanentId : permanentIds) {
+			removeHash(permanentId);
+		}
+	}
+
+	void removeAllHashes() {
+		loadedHashes.clear();
+		loadedIds.clear();
+		queuedHashes.clear();
+		addedHashes.clear();
+		try {
+			removeAllHashesStmt.executeUpdate();
+		} catch (SQLException e) {
+			logEntry.incErrors("Error removing Solr document hashes", e);
+		}
+	}
+
+	/**
+	 * Saves the hashes of all documents that Solr has added since the last flush.
+	 */
+	void flush() {
+		int numHashesToSave = 0;
+		try {
+			QueuedHash addedHash;
+			while ((addedHash = addedHashes.poll()) != null) {
+				saveHashStmt.setString(1, addedHash.permanentId);
+				saveHashStmt.setLong(2, addedHash.hash);
+				saveHashStmt.addBatch();
+				numHashesToSave++;
+			}
+			if (numHashesToSave > 0) {
+				saveHashStmt.executeBatch();
+			}
+		} catch (SQLException e) {
+			logEntry.incErrors("Error saving Solr document hashes", e);
+		} finally {
+			if (numHashesToSave > 0) {
+				try {
+					saveHashStmt.clearBatch();
+				} catch (SQLException e) {
+					logEntry.incErrors("Error clearing batch", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Releases the hashes loaded for the last batch.
+	 */
+	void clear() {
+		loadedHashes.clear();
+		loadedIds.clear();
+	}
+
+	void close() {
+		try {
+			getHashStmt.close();
+			getHashesStmt.close();
+			saveHashStmt.close();
+			removeHashStmt.close();
+			removeAllHashesStmt.close();
+		} catch (SQLException e) {
+			logEntry.incErrors("Error closing statements for Solr document hashes", e);
+		}
+	}
+
+	private static class QueuedHash {
+		final String permanentId;
+		final SolrInputDocument document;
+		final long hash;
+
+		QueuedHash(String permanentId, SolrInputDocument document, long hash) {
+			this.permanentId = permanentId;
+			this.document = document;
+			this.hash = hash;
+		}
+	}
+}
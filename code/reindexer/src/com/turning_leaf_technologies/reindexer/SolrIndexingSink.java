@@ -0,0 +1,369 @@
+package com.turning_leaf_technologies.reindexer;
+
+import com.turning_leaf_technologies.logging.BaseLogEntry;
+import org.apache.logging.log4j.Logger;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.BinaryRequestWriter;
+import org.apache.solr.client.solrj.impl.HttpSolrClient;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.ini4j.Ini;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends documents to Solr in batches using a pool of sender threads.
+ *
+ * Each sender thread has its own bounded queue.  Updates are assigned to a sender based on the id of the document so
+ * adds and deletes for the same document are always sent in the order they were made.  When a queue is full, callers
+ * block until the sender catches up.
+ *
+ * Changes are made visible with commitWithin rather than explicit commits.  When the index is being cleared,
+ * commitWithin is disabled so the index is not emptied while the reindex is running.
+ */
+public class SolrIndexingSink {
+	private final HttpSolrClient solrClient;
+	private final BaseLogEntry logEntry;
+	private final Logger logger;
+	private final int batchSize;
+	private final int commitWithin;
+	private final ArrayList<SenderThread> senders = new ArrayList<>();
+
+	private final AtomicLong numQueued = new AtomicLong(0);
+	private final AtomicLong numInFlight = new AtomicLong(0);
+	private final AtomicLong numAdded = new AtomicLong(0);
+	private final AtomicLong numDeleted = new AtomicLong(0);
+	private final AtomicLong numFailed = new AtomicLong(0);
+	//Ids of documents that could not be added
+	private final Set<String> failedAddIds = ConcurrentHashMap.newKeySet();
+	private final CopyOnWriteArrayList<AddListener> addListeners = new CopyOnWriteArrayList<>();
+	//Updates that have been queued, but have not finished sending
+	private final AtomicLong numPending = new AtomicLong(0);
+	private final Object pendingLock = new Object();
+	private volatile boolean closed = false;
+
+	SolrIndexingSink(String solrUrl, int batchSize, int numSenderThreads, int queueSize, int commitWithin, BaseLogEntry logEntry, Logger logger) {
+		this.logEntry = logEntry;
+		this.logger = logger;
+		this.batchSize = Math.max(1, batchSize);
+		this.commitWithin = commitWithin;
+
+		solrClient = new HttpSolrClient.Builder(solrUrl).build();
+		solrClient.setRequestWriter(new BinaryRequestWriter());
+
+		numSenderThreads = Math.max(1, numSenderThreads);
+		int queueSizePerSender = Math.max(this.batchSize, queueSize / numSenderThreads);
+		for (int i = 0; i < numSenderThreads; i++) {
+			SenderThread sender = new SenderThread(queueSizePerSender);
+			sender.setName("Solr Sender " + (i + 1));
+			sender.setDaemon(true);
+			sender.start();
+			senders.add(sender);
+		}
+	}
+
+	/**
+	 * Creates a sink for a Solr core based on the Reindex section of the config file.
+	 *
+	 * @param clearIndex if the index is being cleared, commitWithin is not used so the index is not emptied until the final commit.
+	 */
+	static SolrIndexingSink createFromConfig(Ini configIni, String coreName, boolean clearIndex, BaseLogEntry logEntry, Logger logger) {
+		String solrPort = configIni.get("Reindex", "solrPort");
+		int batchSize = getIntSetting(configIni, "solrBatchSize", 100, logger);
+		int numSenderThreads = getIntSetting(configIni, "solrSenderThreads", 2, logger);
+		int queueSize = getIntSetting(configIni, "solrQueueSize", 1000, logger);
+		int commitWithin = getIntSetting(configIni, "solrCommitWithinMs", 30000, logger);
+		if (clearIndex) {
+			commitWithin = -1;
+		}
+		return new SolrIndexingSink("http://localhost:" + solrPort + "/solr/" + coreName, batchSize, numSenderThreads, queueSize, commitWithin, logEntry, logger);
+	}
+
+	private static int getIntSetting(Ini configIni, String settingName, int defaultValue, Logger logger) {
+		String value = configIni.get("Reindex", settingName);
+		if (value == null || value.trim().length() == 0) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			logger.warn("Invalid value for " + settingName + " " + value + " using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Adds a document to the queue to be sent to Solr, blocking if the queue is full.
+	 */
+	void add(SolrInputDocument document) {
+		String id = (String) document.getFieldValue("id");
+		enqueue(new SolrUpdate(id, document));
+	}
+
+	/**
+	 * The ids of all documents that Solr failed to add.  Only complete once the sink has been flushed.
+	 */
+	Set<String> getFailedAddIds() {
+		return failedAddIds;
+	}
+
+	/**
+	 * Registers a listener that is told which documents Solr has added.
+	 */
+	void addAddListener(AddListener listener) {
+		addListeners.add(listener);
+	}
+
+	void removeAddListener(AddListener listener) {
+		addListeners.remove(listener);
+	}
+
+	/**
+	 * Adds a delete to the queue to be sent to Solr, blocking if the queue is full.
+	 */
+	void deleteById(String id) {
+		enqueue(new SolrUpdate(id, null));
+	}
+
+	/**
+	 * Deletes all documents matching the query.  All queued updates are sent before the delete is done.
+	 */
+	void deleteByQuery(String query) throws IOException, SolrServerException {
+		flush();
+		solrClient.deleteByQuery(query);
+	}
+
+	/**
+	 * Sends all queued updates and then commits them.
+	 */
+	void commit(boolean waitFlush, boolean waitSearcher, boolean softCommit) throws IOException, SolrServerException {
+		flush();
+		solrClient.commit(waitFlush, waitSearcher, softCommit);
+	}
+
+	/**
+	 * Blocks until all queued updates have been sent to Solr.
+	 */
+	void flush() {
+		synchronized (pendingLock) {
+			while (numPending.get() > 0) {
+				try {
+					pendingLock.wait(1000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					logEntry.incErrors("Interrupted waiting for updates to be sent to Solr");
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends all queued updates and stops the sender threads.  No changes are committed.
+	 */
+	void close() {
+		if (closed) {
+			return;
+		}
+		flush();
+		closed = true;
+		for (SenderThread sender : senders) {
+			try {
+				sender.join(5000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		try {
+			solrClient.close();
+		} catch (IOException e) {
+			logger.warn("Error closing Solr client", e);
+		}
+	}
+
+	long getNumQueued() {
+		return numQueued.get();
+	}
+
+	long getNumInFlight() {
+		return numInFlight.get();
+	}
+
+	long getNumAdded() {
+		return numAdded.get();
+	}
+
+	long getNumDeleted() {
+		return numDeleted.get();
+	}
+
+	long getNumFailed() {
+		return numFailed.get();
+	}
+
+	String getStats() {
+		return "Solr updates queued " + numQueued.get() + ", in flight " + numInFlight.get() + ", documents added " + numAdded.get() + ", documents deleted " + numDeleted.get() + ", failed " + numFailed.get();
+	}
+
+	private void enqueue(SolrUpdate update) {
+		if (closed) {
+			logEntry.incErrors("Solr update for " + update.id + " was queued after the update server was closed");
+			numFailed.incrementAndGet();
+			return;
+		}
+		int senderIndex = update.id == null ? 0 : Math.floorMod(update.id.hashCode(), senders.size());
+		numPending.incrementAndGet();
+		try {
+			senders.get(senderIndex).queue.put(update);
+			numQueued.incrementAndGet();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			markFinished(1);
+			numFailed.incrementAndGet();
+			logEntry.incErrors("Interrupted queueing Solr update for " + update.id);
+		}
+	}
+
+	private void markFinished(int numUpdates) {
+		if (numPending.addAndGet(-numUpdates) == 0) {
+			synchronized (pendingLock) {
+				pendingLock.notifyAll();
+			}
+		}
+	}
+
+	private class SenderThread extends Thread {
+		private final ArrayBlockingQueue<SolrUpdate> queue;
+
+		SenderThread(int queueSize) {
+			queue = new ArrayBlockingQueue<>(queueSize);
+		}
+
+		@Override
+		public void run() {
+			ArrayList<SolrUpdate> updates = new ArrayList<>();
+			while (true) {
+				SolrUpdate firstUpdate;
+				try {
+					firstUpdate = queue.poll(250, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					break;
+				}
+				if (firstUpdate == null) {
+					if (closed) {
+						break;
+					}
+					continue;
+				}
+				updates.add(firstUpdate);
+				queue.drainTo(updates, batchSize - 1);
+				numInFlight.addAndGet(updates.size());
+				try {
+					sendUpdates(updates);
+				} catch (Throwable t) {
+					numFailed.addAndGet(updates.size());
+					logEntry.incErrors("Unexpected error sending updates to Solr", new Exception(t));
+				} finally {
+					numInFlight.addAndGet(-updates.size());
+					markFinished(updates.size());
+					updates.clear();
+				}
+			}
+		}
+
+		/**
+		 * Sends the updates to Solr.  Consecutive adds and deletes are grouped so the order of updates is preserved.
+		 */
+		private void sendUpdates(ArrayList<SolrUpdate> updates) {
+			ArrayList<SolrInputDocument> documentsToAdd = new ArrayList<>();
+			ArrayList<String> idsToDelete = new ArrayList<>();
+			for (SolrUpdate update : updates) {
+				if (update.document != null) {
+					if (!idsToDelete.isEmpty()) {
+						sendDeletes(idsToDelete);
+					}
+					documentsToAdd.add(update.document);
+				} else {
+					if (!documentsToAdd.isEmpty()) {
+						sendAdds(documentsToAdd);
+					}
+					idsToDelete.add(update.id);
+				}
+			}
+			if (!documentsToAdd.isEmpty()) {
+				sendAdds(documentsToAdd);
+			}
+			if (!idsToDelete.isEmpty()) {
+				sendDeletes(idsToDelete);
+			}
+		}
+
+		private void sendAdds(ArrayList<SolrInputDocument> documentsToAdd) {
+			try {
+				UpdateRequest request = new UpdateRequest();
+				request.add(documentsToAdd);
+				request.setCommitWithin(commitWithin);
+				request.process(solrClient);
+				numAdded.addAndGet(documentsToAdd.size());
+				for (AddListener listener : addListeners) {
+					listener.documentsAdded(documentsToAdd);
+				}
+			} catch (Exception e) {
+				if (documentsToAdd.size() == 1) {
+					numFailed.incrementAndGet();
+					failedAddIds.add((String) documentsToAdd.get(0).getFieldValue("id"));
+					logEntry.incErrors("Error adding Solr record for " + documentsToAdd.get(0).getFieldValue("id"), e);
+				} else {
+					//Resend each document individually so one bad document does not cause the batch to fail
+					logger.warn("Error adding batch of " + documentsToAdd.size() + " documents to Solr, sending individually", e);
+					for (SolrInputDocument document : documentsToAdd) {
+						ArrayList<SolrInputDocument> singleDocument = new ArrayList<>();
+						singleDocument.add(document);
+						sendAdds(singleDocument);
+					}
+				}
+			}
+			documentsToAdd.clear();
+		}
+
+		private void sendDeletes(ArrayList<String> idsToDelete) {
+			try {
+				UpdateRequest request = new UpdateRequest();
+				request.deleteById(idsToDelete);
+				request.setCommitWithin(commitWithin);
+				request.process(solrClient);
+				numDeleted.addAndGet(idsToDelete.size());
+			} catch (Exception e) {
+				numFailed.addAndGet(idsToDelete.size());
+				logEntry.incErrors("Error deleting " + idsToDelete.size() + " works from the index", e);
+			}
+			idsToDelete.clear();
+		}
+	}
+
+	/**
+	 * Called from the sender threads once Solr has accepted a batch of documents.  The list is only valid during the call.
+	 */
+	interface AddListener {
+		void documentsAdded(List<SolrInputDocument> documents);
+	}
+
+	private static class SolrUpdate {
+		final String id;
+		//Null for deletes
+		final SolrInputDocument document;
+
+		SolrUpdate(String id, SolrInputDocument document) {
+			this.id = id;
+			this.document = document;
+		}
+	}
+}
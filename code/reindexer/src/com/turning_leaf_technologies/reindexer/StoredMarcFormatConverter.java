@@ -0,0 +1,104 @@
+package com.turning_leaf_technologies.reindexer;
+
+import com.turning_leaf_technologies.logging.BaseLogEntry;
+import com.turning_leaf_technologies.marc.BinaryMarcCodec;
+import com.turning_leaf_technologies.marc.MarcUtil;
+import com.turning_leaf_technologies.util.MySQLCompression;
+import org.marc4j.marc.Record;
+
+import java.sql.*;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+
+/**
+ * Converts MARC records stored in ils_records as JSON to the binary format.
+ *
+ * Records are also converted as they are extracted, this converts everything else without waiting for a record to
+ * change.  Records are processed in small batches by id and a record is only updated if its checksum has not changed
+ * since it was read, so the conversion can run while extracts and indexing are running.
+ */
+class StoredMarcFormatConverter {
+	private static final int BATCH_SIZE = 1000;
+
+	private final Connection dbConn;
+	private final BaseLogEntry logEntry;
+	private final CRC32 checksumCalculator = new CRC32();
+
+	StoredMarcFormatConverter(Connection dbConn, BaseLogEntry logEntry) {
+		this.dbConn = dbConn;
+		this.logEntry = logEntry;
+	}
+
+	void convertRecords() {
+		long numRecordsChecked = 0;
+		long numRecordsConverted = 0;
+		try (PreparedStatement getRecordsStmt = dbConn.prepareStatement("SELECT id, ilsId, checksum, sourceData FROM ils_records WHERE id > ? AND sourceData IS NOT NULL ORDER BY id LIMIT " + BATCH_SIZE, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			 PreparedStatement updateRecordStmt = dbConn.prepareStatement("UPDATE ils_records SET checksum = ?, sourceData = ? WHERE id = ? AND checksum = ?")) {
+			long lastId = 0;
+			boolean moreRecords = true;
+			while (moreRecords) {
+				moreRecords = false;
+				int numRecordsToUpdate = 0;
+				getRecordsStmt.setLong(1, lastId);
+				try (ResultSet getRecordsRS = getRecordsStmt.executeQuery()) {
+					while (getRecordsRS.next()) {
+						moreRecords = true;
+						lastId = getRecordsRS.getLong("id");
+						numRecordsChecked++;
+						byte[] convertedRecord = convertRecord(getRecordsRS.getString("ilsId"), getRecordsRS.getBytes("sourceData"));
+						if (convertedRecord != null) {
+							checksumCalculator.reset();
+							checksumCalculator.update(convertedRecord);
+							updateRecordStmt.setLong(1, checksumCalculator.getValue());
+							updateRecordStmt.setBytes(2, MySQLCompression.compress(convertedRecord));
+							updateRecordStmt.setLong(3, lastId);
+							updateRecordStmt.setLong(4, getRecordsRS.getLong("checksum"));
+							updateRecordStmt.addBatch();
+							numRecordsToUpdate++;
+						}
+					}
+				}
+				if (numRecordsToUpdate > 0) {
+					for (int numUpdated : updateRecordStmt.executeBatch()) {
+						//Records that changed while they were being converted will be converted when they are saved
+						if (numUpdated > 0 || numUpdated == Statement.SUCCESS_NO_INFO) {
+							numRecordsConverted++;
+						}
+					}
+					updateRecordStmt.clearBatch();
+				}
+				if (numRecordsChecked % 100000 < BATCH_SIZE && moreRecords) {
+					logEntry.addNote("Checked " + numRecordsChecked + " records, converted " + numRecordsConverted);
+					logEntry.saveResults();
+				}
+			}
+		} catch (SQLException e) {
+			logEntry.incErrors("Error converting MARC records to the binary format", e);
+		}
+		logEntry.addNote("Finished converting MARC records to the binary format, checked " + numRecordsChecked + " records, converted " + numRecordsConverted);
+	}
+
+	/**
+	 * @return the record in the binary format or null if the record is already in the binary format or could not be read
+	 */
+	private byte[] convertRecord(String ilsId, byte[] compressedData) {
+		if (compressedData == null || compressedData.length == 0) {
+			return null;
+		}
+		byte[] marcData;
+		try {
+			marcData = MySQLCompression.uncompress(compressedData);
+		} catch (DataFormatException e) {
+			logEntry.incErrors("Could not uncompress MARC record for " + ilsId, e);
+			return null;
+		}
+		if (marcData.length == 0 || BinaryMarcCodec.isBinaryFormat(marcData)) {
+			return null;
+		}
+		Record marcRecord = MarcUtil.readJsonFormattedRecord(ilsId, marcData, logEntry);
+		if (marcRecord == null) {
+			return null;
+		}
+		return BinaryMarcCodec.encode(marcRecord);
+	}
+}
@@ -0,0 +1,57 @@
+package com.turning_leaf_technologies.grouping;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * The authority tables use the utf8_general_ci collation so lookups must ignore case, accents and trailing spaces the
+ * same way the database did when authorities were queried for each record.
+ */
+public class AuthorityIndexTest {
+	private AuthorityIndex index;
+	private TestLogEntry logEntry;
+
+	@Before
+	public void loadIndex() {
+		StubDatabase database = new StubDatabase();
+		database.addResult("UNIX_TIMESTAMP() as currentTime", new String[]{"currentTime"}, new Object[]{1000L});
+		database.addResult("FROM author_authority_alternative INNER JOIN", new String[]{"id", "alternative", "authority"},
+				new Object[]{1L, "garcía márquez gabriel", "garcia marquez gabriel"},
+				new Object[]{2L, "bronte charlotte  ", "brontë charlotte"});
+		database.addResult("FROM title_authorities WHERE id > ?", new String[]{"id", "originalName", "authoritativeName"},
+				new Object[]{1L, "les misérables ", "les miserables"},
+				new Object[]{2L, "Cien Años De Soledad", "one hundred years of solitude"});
+		database.addResult("FROM grouped_work_alternate_titles WHERE id > ?", new String[]{"id", "alternateTitle", "alternateAuthor", "permanent_id"},
+				new Object[]{1L, "l'étranger ", "camus albert", "4d1c3a3e-8c7a-4f5c-9d7f-2a6e0c1b9e11"});
+		logEntry = new TestLogEntry();
+		index = new AuthorityIndex();
+		index.refresh(database.getConnection(), logEntry);
+	}
+
+	@Test
+	public void authorLookupsIgnoreAccentsCaseAndTrailingSpaces() {
+		assertEquals("garcia marquez gabriel", index.getAuthoritativeAuthor("garcia marquez gabriel"));
+		assertEquals("garcia marquez gabriel", index.getAuthoritativeAuthor("GARCÍA MÁRQUEZ GABRIEL"));
+		assertEquals("brontë charlotte", index.getAuthoritativeAuthor("brontë charlotte"));
+		assertEquals("brontë charlotte", index.getAuthoritativeAuthor("bronte charlotte   "));
+		assertNull(index.getAuthoritativeAuthor(" bronte charlotte"));
+		assertTrue(logEntry.errors.isEmpty());
+	}
+
+	@Test
+	public void titleLookupsIgnoreAccentsCaseAndTrailingSpaces() {
+		assertEquals("les miserables", index.getAuthoritativeTitle("les miserables"));
+		assertEquals("les miserables", index.getAuthoritativeTitle("Les Misérables"));
+		assertEquals("one hundred years of solitude", index.getAuthoritativeTitle("cien anos de soledad "));
+		assertNull(index.getAuthoritativeTitle("cien anos"));
+	}
+
+	@Test
+	public void alternateTitleLookupsIgnoreAccentsCaseAndTrailingSpaces() {
+		assertEquals("4d1c3a3e-8c7a-4f5c-9d7f-2a6e0c1b9e11", index.getPermanentIdForAlternateTitle("l'etranger", "camus albert"));
+		assertEquals("4d1c3a3e-8c7a-4f5c-9d7f-2a6e0c1b9e11", index.getPermanentIdForAlternateTitle("L'Étranger", "Camus Albert "));
+		assertNull(index.getPermanentIdForAlternateTitle("l'etranger", "camus"));
+	}
+}
@@ -0,0 +1,94 @@
+package com.turning_leaf_technologies.grouping;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that titles and authors are normalized exactly the way the original regular expressions normalized them so
+ * permanent ids do not change.  The expected values in grouping_normalization_corpus.tsv were generated with the
+ * original implementation.
+ */
+public class GroupingNormalizationTest {
+	private static RecordGroupingProcessor processor;
+	private static TestLogEntry logEntry;
+
+	@BeforeClass
+	public static void setupProcessor() {
+		StubDatabase database = new StubDatabase();
+		database.addResult("as numAuthorities", new String[]{"numAuthorities"}, new Object[]{1});
+		database.addResult("UNIX_TIMESTAMP() as currentTime", new String[]{"currentTime"}, new Object[]{0L});
+		logEntry = new TestLogEntry();
+		processor = new RecordGroupingProcessor(database.getConnection(), "test", logEntry, LogManager.getLogger(GroupingNormalizationTest.class));
+	}
+
+	@Test
+	public void corpusMatchesOriginalNormalization() throws Exception {
+		ArrayList<String> differences = new ArrayList<>();
+		int numRows = 0;
+		try (InputStream corpusStream = getClass().getResourceAsStream("grouping_normalization_corpus.tsv")) {
+			assertNotNull("Could not find grouping_normalization_corpus.tsv", corpusStream);
+			BufferedReader corpusReader = new BufferedReader(new InputStreamReader(corpusStream, StandardCharsets.UTF_8));
+			String line;
+			while ((line = corpusReader.readLine()) != null) {
+				if (line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("\t", -1);
+				assertEquals("Invalid corpus row " + line, 7, fields.length);
+				for (int i = 0; i < fields.length; i++) {
+					fields[i] = unescape(fields[i]);
+				}
+				numRows++;
+
+				GroupedWork work = new GroupedWork(processor);
+				work.setTitle(fields[0], Integer.parseInt(fields[2]), fields[1], fields[3]);
+				work.setAuthor(fields[4]);
+				if (!work.getTitle().equals(fields[5])) {
+					differences.add("title [" + fields[0] + "] expected [" + fields[5] + "] got [" + work.getTitle() + "]");
+				}
+				if (!work.getAuthor().equals(fields[6])) {
+					differences.add("author [" + fields[4] + "] expected [" + fields[6] + "] got [" + work.getAuthor() + "]");
+				}
+			}
+		}
+		assertTrue("The corpus is empty", numRows > 0);
+		assertTrue(differences.size() + " differences, first: " + (differences.isEmpty() ? "" : differences.get(0)), differences.isEmpty());
+		assertTrue("Errors while normalizing " + logEntry.errors, logEntry.errors.isEmpty());
+	}
+
+	private static String unescape(String value) {
+		if (value.indexOf('\\') < 0) {
+			return value;
+		}
+		StringBuilder unescaped = new StringBuilder();
+		for (int i = 0; i < value.length(); i++) {
+			char curChar = value.charAt(i);
+			if (curChar == '\\' && value.charAt(i + 1) == 'u') {
+				unescaped.append((char) Integer.parseInt(value.substring(i + 2, i + 6), 16));
+				i += 5;
+			} else if (curChar == '\\') {
+				unescaped.append(value.charAt(++i));
+			} else {
+				unescaped.append(curChar);
+			}
+		}
+		return unescaped.toString();
+	}
+
+	@Test
+	public void ordinalsAreReplacedOneAtATime() {
+		GroupedWork work = new GroupedWork(processor);
+		work.setTitle("The 43rd Parallel", 0, null, null);
+		//The original replaced 3rd within 43rd so this must not change
+		assertEquals("fourthird parallel", work.getTitle());
+	}
+}
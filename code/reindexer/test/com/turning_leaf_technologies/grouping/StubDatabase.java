@@ -0,0 +1,121 @@
+package com.turning_leaf_technologies.grouping;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A connection that answers queries from rows registered by a test rather than from MySQL.  Queries are matched by a
+ * fragment of their SQL, queries that do not match anything return no rows and updates do nothing.
+ */
+class StubDatabase {
+	private final ArrayList<StubResult> results = new ArrayList<>();
+
+	/**
+	 * Returns the rows for any query containing sqlFragment.  Each row has a value for each column.
+	 */
+	void addResult(String sqlFragment, String[] columns, Object[]... rows) {
+		results.add(new StubResult(sqlFragment, columns, Arrays.asList(rows)));
+	}
+
+	Connection getConnection() {
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "prepareStatement":
+					return createStatement((String) args[0]);
+				default:
+					return getDefaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	private PreparedStatement createStatement(String sql) {
+		return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{PreparedStatement.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "executeQuery":
+					return createResultSet(getResult(sql));
+				default:
+					return getDefaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	private StubResult getResult(String sql) {
+		for (StubResult result : results) {
+			if (sql.contains(result.sqlFragment)) {
+				return result;
+			}
+		}
+		return null;
+	}
+
+	private ResultSet createResultSet(StubResult result) {
+		List<Object[]> rows = result == null ? new ArrayList<>() : result.rows;
+		int[] currentRow = {-1};
+		return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "next":
+					currentRow[0]++;
+					return currentRow[0] < rows.size();
+				case "getString":
+				case "getLong":
+				case "getInt":
+				case "getBoolean":
+					Object value = getValue(result, rows.get(currentRow[0]), args[0]);
+					if (value == null) {
+						return getDefaultValue(method.getReturnType());
+					} else if (method.getReturnType() == String.class) {
+						return value.toString();
+					} else if (method.getReturnType() == long.class) {
+						return ((Number) value).longValue();
+					} else if (method.getReturnType() == int.class) {
+						return ((Number) value).intValue();
+					}
+					return value;
+				default:
+					return getDefaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	private static Object getValue(StubResult result, Object[] row, Object column) {
+		if (column instanceof Integer) {
+			return row[(Integer) column - 1];
+		}
+		for (int i = 0; i < result.columns.length; i++) {
+			if (result.columns[i].equalsIgnoreCase((String) column)) {
+				return row[i];
+			}
+		}
+		throw new IllegalArgumentException("Unknown column " + column);
+	}
+
+	private static Object getDefaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		} else if (type == int.class) {
+			return 0;
+		} else if (type == long.class) {
+			return 0L;
+		} else if (type.isPrimitive() && type != void.class) {
+			return 0;
+		}
+		return null;
+	}
+
+	private static class StubResult {
+		final String sqlFragment;
+		final String[] columns;
+		final List<Object[]> rows;
+
+		StubResult(String sqlFragment, String[] columns, List<Object[]> rows) {
+			this.sqlFragment = sqlFragment;
+			this.columns = columns;
+			this.rows = rows;
+		}
+	}
+}
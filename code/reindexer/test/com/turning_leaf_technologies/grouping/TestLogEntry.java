@@ -0,0 +1,37 @@
+package com.turning_leaf_technologies.grouping;
+
+import com.turning_leaf_technologies.logging.BaseLogEntry;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps notes and errors in memory so tests can check them.
+ */
+class TestLogEntry implements BaseLogEntry {
+	final ArrayList<String> notes = new ArrayList<>();
+	final ArrayList<String> errors = new ArrayList<>();
+
+	@Override
+	public void addNote(String note) {
+		notes.add(note);
+	}
+
+	@Override
+	public boolean saveResults() {
+		return true;
+	}
+
+	@Override
+	public void setFinished() {
+	}
+
+	@Override
+	public void incErrors(String note) {
+		errors.add(note);
+	}
+
+	@Override
+	public void incErrors(String note, Exception e) {
+		errors.add(note + " " + e);
+	}
+}
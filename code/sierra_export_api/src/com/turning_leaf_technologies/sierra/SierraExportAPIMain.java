@@ -1,9 +1,6 @@
 package com.turning_leaf_technologies.sierra;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -18,6 +15,8 @@ import com.turning_leaf_technologies.reindexer.GroupedWorkIndexer;
 import com.turning_leaf_technologies.config.ConfigUtil;
 import com.turning_leaf_technologies.grouping.MarcRecordGrouper;
 import com.turning_leaf_technologies.logging.LoggingUtil;
+import com.turning_leaf_technologies.net.NetworkUtils;
+import com.turning_leaf_technologies.net.WebServiceResponse;
 import com.turning_leaf_technologies.strings.StringUtils;
 import org.apache.logging.log4j.Logger;
 import org.ini4j.Ini;
@@ -25,8 +24,6 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import javax.net.ssl.HttpsURLConnection;
-import org.apache.commons.codec.binary.Base64;
 import org.marc4j.*;
 import org.marc4j.marc.DataField;
 import org.marc4j.marc.MarcFactory;
@@ -243,6 +240,8 @@ public class SierraExportAPIMain {
 				}
 
 				logEntry.addNote("Finished exporting sierra data " + new Date());
+				logEntry.addNote(NetworkUtils.getEndpointStatistics());
+				NetworkUtils.resetEndpointStatistics();
 				logEntry.setFinished();
 
 				Date currentTime = new Date();
@@ -960,13 +959,25 @@ public class SierraExportAPIMain {
 				}
 
 				RecordIdentifier identifier = getRecordGroupingProcessor().getPrimaryIdentifierFromMarcRecord(marcRecord, indexingProfile);
-				//noinspection unused
+				//Load the last version of the record before it is replaced so we can tell what changed
+				Record existingRecord = getGroupedWorkIndexer().loadMarcRecordFromDatabase(indexingProfile.getName(), identifier.getIdentifier(), logEntry);
 				GroupedWorkIndexer.MarcStatus marcStatus = getGroupedWorkIndexer().saveMarcRecordToDatabase(indexingProfile, identifier.getIdentifier(), marcRecord);
+				if (marcStatus == GroupedWorkIndexer.MarcStatus.UNCHANGED && !indexingProfile.isRunFullUpdate()) {
+					//Nothing has changed since the last time the record was extracted
+					return true;
+				}
 
-				//Set up the grouped work for the record.  This will take care of either adding it to the proper grouped work
-				//or creating a new grouped work
-				String groupedWorkId = groupSierraRecord(marcRecord);
-				if (groupSierraRecord(marcRecord) == null) {
+				String groupedWorkId = null;
+				if (marcStatus == GroupedWorkIndexer.MarcStatus.CHANGED && existingRecord != null && getRecordGroupingProcessor().hasOnlyCirculationChanged(existingRecord, marcRecord)) {
+					//Only the status or due dates of items changed (i.e. a checkout or check in) so the record does not need to be regrouped
+					groupedWorkId = getRecordGroupingProcessor().getPermanentIdForRecord(identifier);
+				}
+				if (groupedWorkId == null) {
+					//Set up the grouped work for the record.  This will take care of either adding it to the proper grouped work
+					//or creating a new grouped work
+					groupedWorkId = groupSierraRecord(marcRecord);
+				}
+				if (groupedWorkId == null) {
 					logger.warn(identifier.getIdentifier() + " was suppressed");
 				}else{
 					getGroupedWorkIndexer().processGroupedWork(groupedWorkId);
@@ -1310,63 +1321,26 @@ public class SierraExportAPIMain {
 			}
 		}
 		//Connect to the API to get our token
-		HttpURLConnection conn;
 		try {
-			URL emptyIndexURL = new URL(baseUrl + "/token");
-			conn = (HttpURLConnection) emptyIndexURL.openConnection();
-			if (conn instanceof HttpsURLConnection){
-				HttpsURLConnection sslConn = (HttpsURLConnection)conn;
-				sslConn.setHostnameVerifier((hostname, session) -> {
-					//Do not verify host names
-					return true;
-				});
-			}
-			conn.setReadTimeout(30000);
-			conn.setConnectTimeout(30000);
-			conn.setRequestMethod("POST");
-			conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded;charset=UTF-8");
 			String clientKey = sierraInstanceInformation.clientKey;
 			String clientSecret = sierraInstanceInformation.clientSecret;
-			String encoded = Base64.encodeBase64String((clientKey + ":" + clientSecret).getBytes());
-			conn.setRequestProperty("Authorization", "Basic "+encoded);
-			conn.setDoOutput(true);
-			OutputStreamWriter wr = new OutputStreamWriter(conn.getOutputStream(), StandardCharsets.UTF_8);
-			wr.write("grant_type=client_credentials");
-			wr.flush();
-			wr.close();
-
-			StringBuilder response = new StringBuilder();
-			if (conn.getResponseCode() == 200) {
-				// Get the response
-				BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-				String line;
-				while ((line = rd.readLine()) != null) {
-					response.append(line);
-				}
-				rd.close();
+			WebServiceResponse response = NetworkUtils.postToURL(baseUrl + "/token", "grant_type=client_credentials", "application/x-www-form-urlencoded", null, logger, clientKey + ":" + clientSecret, 30000, 30000);
+			if (response.getResponseCode() == 200) {
 				try {
-					JSONObject parser = new JSONObject(response.toString());
+					JSONObject parser = new JSONObject(response.getMessage());
 					sierraAPIToken = parser.getString("access_token");
 					sierraAPITokenType = parser.getString("token_type");
 					//logger.debug("Token expires in " + parser.getLong("expires_in") + " seconds");
 					sierraAPIExpiration = new Date().getTime() + (parser.getLong("expires_in") * 1000) - 10000;
 					//logger.debug("Sierra token is " + sierraAPIToken);
 				}catch (JSONException jse){
-					logger.error("Error parsing response to json " + response, jse);
+					logger.error("Error parsing response to json " + response.getMessage(), jse);
 					return false;
 				}
 
 			} else {
-				logger.error("Received error " + conn.getResponseCode() + " connecting to sierra authentication service" );
-				// Get any errors
-				BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getErrorStream()));
-				String line;
-				while ((line = rd.readLine()) != null) {
-					response.append(line);
-				}
-				logger.debug("  Finished reading response\r\n" + response);
-
-				rd.close();
+				logger.error("Received error " + response.getResponseCode() + " connecting to sierra authentication service" );
+				logger.debug("  Finished reading response\r\n" + response.getMessage());
 				return false;
 			}
 
@@ -1379,80 +1353,45 @@ public class SierraExportAPIMain {
 
 	private static JSONObject callSierraApiURL(SierraInstanceInformation sierraInstanceInformation, String baseUrl, String sierraUrl, @SuppressWarnings("SameParameterValue") boolean logErrors) {
 		if (connectToSierraAPI(sierraInstanceInformation, baseUrl)){
-			//Connect to the API to get our token
-			HttpURLConnection conn;
-			try {
-				URL emptyIndexURL = new URL(sierraUrl);
-				conn = (HttpURLConnection) emptyIndexURL.openConnection();
-				if (conn instanceof HttpsURLConnection){
-					HttpsURLConnection sslConn = (HttpsURLConnection)conn;
-					sslConn.setHostnameVerifier((hostname, session) -> {
-						//Do not verify host names
-						return true;
-					});
+			HashMap<String, String> headers = new HashMap<>();
+			headers.put("Accept-Charset", "UTF-8");
+			headers.put("Authorization", sierraAPITokenType + " " + sierraAPIToken);
+			WebServiceResponse response = NetworkUtils.getURL(sierraUrl, logger, headers, 30000, false);
+			if (response.getResponseCode() == 200) {
+				try{
+					return new JSONObject(response.getMessage());
+				}catch (JSONException jse){
+					logger.error("Error parsing response \n" + response.getMessage(), jse);
+					return null;
 				}
-				conn.setRequestMethod("GET");
-				conn.setRequestProperty("Accept-Charset", "UTF-8");
-				conn.setRequestProperty("Authorization", sierraAPITokenType + " " + sierraAPIToken);
-				conn.setReadTimeout(30000);
-				conn.setConnectTimeout(5000);
-
-				StringBuilder response = new StringBuilder();
-				if (conn.getResponseCode() == 200) {
-					// Get the response
-					BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-					String line;
-					while ((line = rd.readLine()) != null) {
-						response.append(line);
-					}
-					//logger.debug("  Finished reading response");
-					rd.close();
-					try{
-						return new JSONObject(response.toString());
-					}catch (JSONException jse){
-						logger.error("Error parsing response \n" + response, jse);
-						return null;
-					}
-
-				} else {
-					//Check to see if we failed due to the grant being invalid.
-					logger.error("Received error " + conn.getResponseCode() + " calling sierra API " + sierraUrl);
-					// Get any errors
-					BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8));
-					String line;
-					while ((line = rd.readLine()) != null) {
-						response.append(line);
-					}
-					try{
-						JSONObject errorResponse = new JSONObject(response.toString());
-						if (errorResponse.has("httpStatus") && errorResponse.has("description") && errorResponse.getInt("httpStatus") == 401 && errorResponse.getString("description").equals("invalid_grant")){
-							sierraAPIToken = null;
-							sierraAPITokenType = null;
-							//pause for a minute to let the api come back
-							logEntry.addNote("Reconnecting to the Sierra API");
-							try {
-								Thread.sleep(60000);
-							} catch (InterruptedException e) {
-								logger.error("Sleep was interrupted", e);
-							}
-							return callSierraApiURL(sierraInstanceInformation, baseUrl, sierraUrl, logErrors);
+			} else if (response.isCallTimedOut()) {
+				logEntry.incErrors("Socket timeout talking to to sierra API (callSierraApiURL) " + sierraUrl);
+			} else if (response.getResponseCode() == -1) {
+				logEntry.incErrors("Error loading data from sierra API (callSierraApiURL) " + sierraUrl + " " + response.getMessage());
+			} else {
+				//Check to see if we failed due to the grant being invalid.
+				logger.error("Received error " + response.getResponseCode() + " calling sierra API " + sierraUrl);
+				try{
+					JSONObject errorResponse = new JSONObject(response.getMessage());
+					if (errorResponse.has("httpStatus") && errorResponse.has("description") && errorResponse.getInt("httpStatus") == 401 && errorResponse.getString("description").equals("invalid_grant")){
+						sierraAPIToken = null;
+						sierraAPITokenType = null;
+						//pause for a minute to let the api come back
+						logEntry.addNote("Reconnecting to the Sierra API");
+						try {
+							Thread.sleep(60000);
+						} catch (InterruptedException e) {
+							logger.error("Sleep was interrupted", e);
 						}
-					}catch (JSONException jse){
-						logger.error("Error parsing response \n" + response, jse);
-					}
-					if (logErrors) {
-						logger.error("  Finished reading response");
-						logger.error(response.toString());
+						return callSierraApiURL(sierraInstanceInformation, baseUrl, sierraUrl, logErrors);
 					}
-					rd.close();
+				}catch (JSONException jse){
+					logger.error("Error parsing response \n" + response.getMessage(), jse);
+				}
+				if (logErrors) {
+					logger.error("  Finished reading response");
+					logger.error(response.getMessage());
 				}
-
-			} catch (java.net.SocketTimeoutException e) {
-				logEntry.incErrors("Socket timeout talking to to sierra API (callSierraApiURL) " + sierraUrl, e);
-			} catch (java.net.ConnectException e) {
-				logEntry.incErrors("Timeout connecting to sierra API (callSierraApiURL) " + sierraUrl, e );
-			} catch (Exception e) {
-				logEntry.incErrors("Error loading data from sierra API (callSierraApiURL) " + sierraUrl , e );
 			}
 		}
 		return null;
@@ -1519,60 +1458,23 @@ public class SierraExportAPIMain {
 
 	private static JSONObject getMarcJSONFromSierraApiURL(SierraInstanceInformation sierraInstanceInformation, String baseUrl, String sierraUrl) {
 		if (connectToSierraAPI(sierraInstanceInformation, baseUrl)){
-			//Connect to the API to get our token
-			HttpURLConnection conn;
-			try {
-				URL emptyIndexURL = new URL(sierraUrl);
-				conn = (HttpURLConnection) emptyIndexURL.openConnection();
-				if (conn instanceof HttpsURLConnection){
-					HttpsURLConnection sslConn = (HttpsURLConnection)conn;
-					sslConn.setHostnameVerifier((hostname, session) -> {
-						//Do not verify host names
-						return true;
-					});
-				}
-				conn.setRequestMethod("GET");
-				conn.setRequestProperty("Accept-Charset", "UTF-8");
-				conn.setRequestProperty("Authorization", sierraAPITokenType + " " + sierraAPIToken);
-				conn.setRequestProperty("Accept", "application/marc-in-json");
-				conn.setReadTimeout(20000);
-				conn.setConnectTimeout(5000);
-
-				StringBuilder response = new StringBuilder();
-				if (conn.getResponseCode() == 200) {
-					// Get the response
-					BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-					String line;
-					while ((line = rd.readLine()) != null) {
-						response.append(line);
-					}
-					//logger.debug("  Finished reading response");
-					rd.close();
-					return new JSONObject(response.toString());
-				} else {
-					// Get any errors
-					BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8));
-					String line;
-					while ((line = rd.readLine()) != null) {
-						response.append(line);
-					}
-
-					rd.close();
-
-					try{
-						return new JSONObject(response.toString());
-					}catch (JSONException jse){
-						logger.error("Received error " + conn.getResponseCode() + " calling sierra API " + sierraUrl);
-						logger.error(response.toString());
-					}
+			HashMap<String, String> headers = new HashMap<>();
+			headers.put("Accept-Charset", "UTF-8");
+			headers.put("Authorization", sierraAPITokenType + " " + sierraAPIToken);
+			headers.put("Accept", "application/marc-in-json");
+			WebServiceResponse response = NetworkUtils.getURL(sierraUrl, logger, headers, 20000, false);
+			if (response.isCallTimedOut()) {
+				logger.error("Socket timeout talking to to sierra API (getMarcJSONFromSierraApiURL) " + sierraUrl);
+			} else if (response.getResponseCode() == -1) {
+				logger.error("Error loading data from sierra API (getMarcJSONFromSierraApiURL) " + response.getMessage());
+			} else {
+				//Errors are also returned as JSON
+				try{
+					return new JSONObject(response.getMessage());
+				}catch (JSONException jse){
+					logger.error("Received error " + response.getResponseCode() + " calling sierra API " + sierraUrl);
+					logger.error(response.getMessage());
 				}
-
-			} catch (java.net.SocketTimeoutException e) {
-				logger.error("Socket timeout talking to to sierra API (getMarcJSONFromSierraApiURL) " + e );
-			} catch (java.net.ConnectException e) {
-				logger.error("Timeout connecting to sierra API (getMarcJSONFromSierraApiURL) " + e );
-			} catch (Exception e) {
-				logger.error("Error loading data from sierra API (getMarcJSONFromSierraApiURL) ", e );
 			}
 		}
 		return null;
@@ -0,0 +1,94 @@
+package com.turning_leaf_technologies.reindexer;
+
+import com.turning_leaf_technologies.util.MaxSizeHashMap;
+import org.apache.logging.log4j.Logger;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+/**
+ * Loads the title and author of grouped works that are on lists.  Works are loaded from solr in batches with a terms
+ * query rather than one query per list entry and recently loaded works are kept since popular titles appear on many
+ * lists.
+ */
+class GroupedWorkTitleCache {
+	private static final int IDS_PER_QUERY = 250;
+	private static final int MAX_CACHED_WORKS = 50000;
+	//Marks works that are not in the index so they are not queried again
+	private static final SolrDocument WORK_NOT_FOUND = new SolrDocument();
+
+	private final SolrClient groupedWorkServer;
+	private final Logger logger;
+	private final MaxSizeHashMap<String, SolrDocument> worksById = new MaxSizeHashMap<>(MAX_CACHED_WORKS, true);
+
+	GroupedWorkTitleCache(SolrClient groupedWorkServer, Logger logger) {
+		this.groupedWorkServer = groupedWorkServer;
+		this.logger = logger;
+	}
+
+	/**
+	 * Loads any of the works that are not already cached.
+	 */
+	void loadWorks(Collection<String> groupedWorkIds) {
+		LinkedHashSet<String> idsToLoad = new LinkedHashSet<>();
+		for (String groupedWorkId : groupedWorkIds) {
+			//Check with get so the work is marked as recently used
+			if (worksById.get(groupedWorkId) == null) {
+				idsToLoad.add(groupedWorkId);
+			}
+		}
+		ArrayList<String> idsForQuery = new ArrayList<>();
+		for (String groupedWorkId : idsToLoad) {
+			idsForQuery.add(groupedWorkId);
+			if (idsForQuery.size() == IDS_PER_QUERY) {
+				loadWorksFromSolr(idsForQuery);
+				idsForQuery.clear();
+			}
+		}
+		if (idsForQuery.size() > 0) {
+			loadWorksFromSolr(idsForQuery);
+		}
+	}
+
+	/**
+	 * @return the title_display and author_display of the work or null if the work is not in the index
+	 */
+	SolrDocument getWork(String groupedWorkId) {
+		SolrDocument work = worksById.get(groupedWorkId);
+		if (work == null) {
+			//Not preloaded, load it now
+			ArrayList<String> idsForQuery = new ArrayList<>();
+			idsForQuery.add(groupedWorkId);
+			loadWorksFromSolr(idsForQuery);
+			work = worksById.get(groupedWorkId);
+		}
+		return work == WORK_NOT_FOUND ? null : work;
+	}
+
+	private void loadWorksFromSolr(ArrayList<String> groupedWorkIds) {
+		SolrQuery query = new SolrQuery();
+		query.setQuery("{!terms f=id}" + String.join(",", groupedWorkIds));
+		query.setFields("id", "title_display", "author_display");
+		query.setRows(groupedWorkIds.size());
+
+		try {
+			//Post since the list of ids can be too long for a url
+			QueryResponse response = groupedWorkServer.query(query, SolrRequest.METHOD.POST);
+			for (SolrDocument curWork : response.getResults()) {
+				worksById.put((String) curWork.getFieldValue("id"), curWork);
+			}
+			for (String groupedWorkId : groupedWorkIds) {
+				worksById.putIfAbsent(groupedWorkId, WORK_NOT_FOUND);
+			}
+		} catch (Exception e) {
+			//Don't cache anything so the works are tried again the next time they are needed
+			logger.error("Error loading information about " + groupedWorkIds.size() + " titles", e);
+		}
+	}
+}
@@ -21,6 +21,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.TreeSet;
@@ -37,6 +38,11 @@ class UserListIndexer {
 	private SolrClient openArchivesServer;
 	private PreparedStatement getListDisplayNameAndAuthorStmt;
 	private final String serverName;
+	private GroupedWorkTitleCache groupedWorkTitleCache;
+
+	//Lists are indexed in batches so the grouped works on them can be loaded from solr together
+	private static final int MAX_LISTS_PER_BATCH = 100;
+	private static final int MAX_GROUPED_WORKS_PER_BATCH = 5000;
 
 	UserListIndexer(String serverName, Ini configIni, Connection dbConn, Logger logger){
 		this.serverName = serverName;
@@ -67,6 +73,7 @@ class UserListIndexer {
 		updateServer.setRequestWriter(new BinaryRequestWriter());
 		HttpSolrClient.Builder groupedWorkHttpBuilder = new HttpSolrClient.Builder("http://localhost:" + solrPort + "/solr/grouped_works");
 		groupedWorkServer = groupedWorkHttpBuilder.build();
+		groupedWorkTitleCache = new GroupedWorkTitleCache(groupedWorkServer, logger);
 		HttpSolrClient.Builder openArchivesHttpBuilder = new HttpSolrClient.Builder("http://localhost:" + solrPort + "/solr/open_archives");
 		openArchivesServer = openArchivesHttpBuilder.build();
 
@@ -78,6 +85,7 @@ class UserListIndexer {
 		try {
 			groupedWorkServer.close();
 			groupedWorkServer = null;
+			groupedWorkTitleCache = null;
 		} catch (IOException e) {
 			logger.error("Could not close grouped work server", e);
 		}
@@ -137,12 +145,20 @@ class UserListIndexer {
 				logEntry.setNumLists(numListsRS.getInt("numLists"));
 			}
 
+			ArrayList<ListToIndex> listsToIndex = new ArrayList<>();
+			HashSet<String> groupedWorkIdsToLoad = new HashSet<>();
 			while (allPublicListsRS.next()){
-				if (updateSolrForList(fullReindex, updateServer, getTitlesForListStmt, allPublicListsRS, lastReindexTime, logEntry)){
-					numListsIndexed++;
+				ListToIndex listToIndex = loadListToIndex(fullReindex, updateServer, getTitlesForListStmt, allPublicListsRS, logEntry);
+				if (listToIndex != null){
+					listsToIndex.add(listToIndex);
+					groupedWorkIdsToLoad.addAll(listToIndex.groupedWorkIds);
+					if (listsToIndex.size() >= MAX_LISTS_PER_BATCH || groupedWorkIdsToLoad.size() >= MAX_GROUPED_WORKS_PER_BATCH){
+						numListsIndexed += updateSolrForLists(listsToIndex, groupedWorkIdsToLoad, updateServer, lastReindexTime, logEntry);
+					}
 				}
 				numListsProcessed++;
 			}
+			numListsIndexed += updateSolrForLists(listsToIndex, groupedWorkIdsToLoad, updateServer, lastReindexTime, logEntry);
 			if (numListsProcessed > 0){
 				updateServer.commit(true, true);
 			}
@@ -154,25 +170,31 @@ class UserListIndexer {
 		return numListsProcessed;
 	}
 
-	private boolean updateSolrForList(boolean fullReindex, ConcurrentUpdateSolrClient updateServer, PreparedStatement getTitlesForListStmt, ResultSet allPublicListsRS, long lastReindexTime, ListIndexingLogEntry logEntry) throws SQLException, SolrServerException, IOException {
-		UserListSolr userListSolr = new UserListSolr(this);
+	/**
+	 * Deletes the list from the index if it should no longer be included, otherwise loads the information about the
+	 * list and the entries on it so the list can be indexed with the rest of the batch.
+	 *
+	 * @return the list to index or null if the list was deleted or skipped
+	 */
+	private ListToIndex loadListToIndex(boolean fullReindex, ConcurrentUpdateSolrClient updateServer, PreparedStatement getTitlesForListStmt, ResultSet allPublicListsRS, ListIndexingLogEntry logEntry) throws SQLException, SolrServerException, IOException {
 		long listId = allPublicListsRS.getLong("id");
 
 		int deleted = allPublicListsRS.getInt("deleted");
 		int isPublic = allPublicListsRS.getInt("public");
 		int isSearchable = allPublicListsRS.getInt("searchable");
 		long userId = allPublicListsRS.getLong("user_id");
-		boolean indexed = false;
 		if (!fullReindex && (deleted == 1 || isPublic == 0 || isSearchable == 0)){
 			updateServer.deleteByQuery("id:" + listId);
 			logEntry.incDeleted();
+			return null;
 		}else{
 			logger.info("Processing list " + listId + " " + allPublicListsRS.getString("title"));
+			ListToIndex listToIndex = new ListToIndex(new UserListSolr(this), listId, allPublicListsRS.getLong("created"));
+			UserListSolr userListSolr = listToIndex.userListSolr;
 			userListSolr.setId(listId);
 			userListSolr.setTitle(allPublicListsRS.getString("title"));
 			userListSolr.setDescription(allPublicListsRS.getString("description"));
-			long created = allPublicListsRS.getLong("created");
-			userListSolr.setCreated(created);
+			userListSolr.setCreated(listToIndex.created);
 
 			try {
 				String displayName = EncryptionUtils.decryptString(allPublicListsRS.getString("displayName"), serverName, logEntry);
@@ -208,85 +230,115 @@ class UserListIndexer {
 				//Don't know the owning location
 				userListSolr.setOwningLocation(locationCodesByHomeLocation.getOrDefault(patronHomeLibrary, ""));
 
-				//Get information about all the list titles.
+				//Get the entries on the list, the information about the titles is loaded for the whole batch
 				getTitlesForListStmt.setLong(1, listId);
 				ResultSet allTitlesRS = getTitlesForListStmt.executeQuery();
 				while (allTitlesRS.next()) {
 					String source = allTitlesRS.getString("source");
 					String sourceId = allTitlesRS.getString("sourceId");
 					if (!allTitlesRS.wasNull()){
+						listToIndex.entries.add(new String[]{source, sourceId});
 						if (sourceId.length() > 0 && source.equals("GroupedWork")) {
-							// Skip archive object Ids
-							SolrQuery query = new SolrQuery();
-							query.setQuery("id:" + sourceId);
-							query.setFields("title_display", "author_display");
+							listToIndex.groupedWorkIds.add(sourceId);
+						}
+					}
+				}
+				allTitlesRS.close();
+				return listToIndex;
+			}catch (Exception e){
+				logEntry.addNote("Could not decrypt user information for " + listId + " - " + e);
+				logEntry.incSkipped();
+				return null;
+			}
+		}
+	}
 
-							try {
-								QueryResponse response = groupedWorkServer.query(query);
-								SolrDocumentList results = response.getResults();
-								//Should only ever get one response
-								if (results.size() >= 1) {
-									SolrDocument curWork = results.get(0);
-									userListSolr.addListTitle("grouped_work", sourceId, curWork.getFieldValue("title_display"), curWork.getFieldValue("author_display"));
-								}
-							} catch (Exception e) {
-								logger.error("Error loading information about title " + sourceId);
-							}
-						}else if (source.equals("OpenArchives")){
-							// Skip archive object Ids
-							SolrQuery query = new SolrQuery();
-							query.setQuery("id:" + sourceId);
-							query.setFields("title", "creator");
+	/**
+	 * Loads the grouped works for a batch of lists from solr and then indexes each list.  The batch is cleared once
+	 * it has been indexed.
+	 *
+	 * @return the number of lists that were added to the index
+	 */
+	private int updateSolrForLists(ArrayList<ListToIndex> listsToIndex, HashSet<String> groupedWorkIdsToLoad, ConcurrentUpdateSolrClient updateServer, long lastReindexTime, ListIndexingLogEntry logEntry) throws SolrServerException, IOException {
+		groupedWorkTitleCache.loadWorks(groupedWorkIdsToLoad);
+		int numListsIndexed = 0;
+		for (ListToIndex listToIndex : listsToIndex){
+			if (updateSolrForList(listToIndex, updateServer, lastReindexTime, logEntry)){
+				numListsIndexed++;
+			}
+		}
+		listsToIndex.clear();
+		groupedWorkIdsToLoad.clear();
+		return numListsIndexed;
+	}
 
-							try {
-								QueryResponse response = openArchivesServer.query(query);
-								SolrDocumentList results = response.getResults();
-								//Should only ever get one response
-								if (results.size() >= 1) {
-									SolrDocument curWork = results.get(0);
-									userListSolr.addListTitle("open_archives", sourceId, curWork.getFieldValue("title"), curWork.getFieldValue("creator"));
-								}
-							} catch (Exception e) {
-								logger.error("Error loading information about title " + sourceId);
-							}
-						}else if (source.equals("Lists")){
-							getListDisplayNameAndAuthorStmt.setString(1, sourceId);
-							ResultSet listDisplayNameAndAuthorRS = getListDisplayNameAndAuthorStmt.executeQuery();
-							if (listDisplayNameAndAuthorRS.next()){
-								String decryptedName = EncryptionUtils.decryptString(listDisplayNameAndAuthorRS.getString("displayName"), serverName, logEntry);
-								userListSolr.addListTitle("lists", sourceId, listDisplayNameAndAuthorRS.getString("title"), decryptedName);
-							}
-							listDisplayNameAndAuthorRS.close();
-						}else{
-							logEntry.incErrors("Unhandled source " + source);
+	private boolean updateSolrForList(ListToIndex listToIndex, ConcurrentUpdateSolrClient updateServer, long lastReindexTime, ListIndexingLogEntry logEntry) throws SolrServerException, IOException {
+		UserListSolr userListSolr = listToIndex.userListSolr;
+		long listId = listToIndex.listId;
+		boolean indexed = false;
+		try {
+			//Get information about all the list titles.
+			for (String[] entry : listToIndex.entries) {
+				String source = entry[0];
+				String sourceId = entry[1];
+				if (sourceId.length() > 0 && source.equals("GroupedWork")) {
+					SolrDocument curWork = groupedWorkTitleCache.getWork(sourceId);
+					if (curWork != null) {
+						userListSolr.addListTitle("grouped_work", sourceId, curWork.getFieldValue("title_display"), curWork.getFieldValue("author_display"));
+					}
+				}else if (source.equals("OpenArchives")){
+					// Skip archive object Ids
+					SolrQuery query = new SolrQuery();
+					query.setQuery("id:" + sourceId);
+					query.setFields("title", "creator");
+
+					try {
+						QueryResponse response = openArchivesServer.query(query);
+						SolrDocumentList results = response.getResults();
+						//Should only ever get one response
+						if (results.size() >= 1) {
+							SolrDocument curWork = results.get(0);
+							userListSolr.addListTitle("open_archives", sourceId, curWork.getFieldValue("title"), curWork.getFieldValue("creator"));
 						}
-						//TODO: Handle other types of objects within a User List
-						//people, etc.
+					} catch (Exception e) {
+						logger.error("Error loading information about title " + sourceId);
 					}
+				}else if (source.equals("Lists")){
+					getListDisplayNameAndAuthorStmt.setString(1, sourceId);
+					ResultSet listDisplayNameAndAuthorRS = getListDisplayNameAndAuthorStmt.executeQuery();
+					if (listDisplayNameAndAuthorRS.next()){
+						String decryptedName = EncryptionUtils.decryptString(listDisplayNameAndAuthorRS.getString("displayName"), serverName, logEntry);
+						userListSolr.addListTitle("lists", sourceId, listDisplayNameAndAuthorRS.getString("title"), decryptedName);
+					}
+					listDisplayNameAndAuthorRS.close();
+				}else{
+					logEntry.incErrors("Unhandled source " + source);
 				}
-				if (userListSolr.getNumTitles() >= 3) {
-					// Index in the solr catalog
-					SolrInputDocument document = userListSolr.getSolrDocument();
-					if (document != null){
-						updateServer.add(document);
-						if (created > lastReindexTime){
-							logEntry.incAdded();
-						}else{
-							logEntry.incUpdated();
-						}
-						indexed = true;
+				//TODO: Handle other types of objects within a User List
+				//people, etc.
+			}
+			if (userListSolr.getNumTitles() >= 3) {
+				// Index in the solr catalog
+				SolrInputDocument document = userListSolr.getSolrDocument();
+				if (document != null){
+					updateServer.add(document);
+					if (listToIndex.created > lastReindexTime){
+						logEntry.incAdded();
 					}else{
-						updateServer.deleteByQuery("id:" + listId);
-						logEntry.incDeleted();
+						logEntry.incUpdated();
 					}
-				} else {
+					indexed = true;
+				}else{
 					updateServer.deleteByQuery("id:" + listId);
 					logEntry.incDeleted();
 				}
-			}catch (Exception e){
-				logEntry.addNote("Could not decrypt user information for " + listId + " - " + e);
-				logEntry.incSkipped();
+			} else {
+				updateServer.deleteByQuery("id:" + listId);
+				logEntry.incDeleted();
 			}
+		}catch (Exception e){
+			logEntry.addNote("Could not decrypt user information for " + listId + " - " + e);
+			logEntry.incSkipped();
 		}
 
 		return indexed;
@@ -295,4 +347,19 @@ class UserListIndexer {
 	TreeSet<Scope> getScopes() {
 		return this.scopes;
 	}
+
+	private static class ListToIndex {
+		private final UserListSolr userListSolr;
+		private final long listId;
+		private final long created;
+		//The source and source id of each entry on the list
+		private final ArrayList<String[]> entries = new ArrayList<>();
+		private final HashSet<String> groupedWorkIds = new HashSet<>();
+
+		ListToIndex(UserListSolr userListSolr, long listId, long created) {
+			this.userListSolr = userListSolr;
+			this.listId = listId;
+			this.created = created;
+		}
+	}
 }
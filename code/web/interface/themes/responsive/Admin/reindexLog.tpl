@@ -28,7 +28,7 @@
 		<div id="econtentAttachLogContainer">
 			<table class="logEntryDetails table table-condensed table-hover" aria-label="Index Log">
 				<thead>
-					<tr><th>{translate text="Id" isAdminFacing=true}</th><th>{translate text="Started" isAdminFacing=true}</th><th>{translate text="Last Update" isAdminFacing=true}</th><th>{translate text="Finished" isAdminFacing=true}</th><th>{translate text="Elapsed" isAdminFacing=true}</th><th>{translate text="Works Processed" isAdminFacing=true}</th><th>{translate text="Num Errors" isAdminFacing=true}</th><th>{translate text="Notes" isAdminFacing=true}</th></tr>
+					<tr><th>{translate text="Id" isAdminFacing=true}</th><th>{translate text="Started" isAdminFacing=true}</th><th>{translate text="Last Update" isAdminFacing=true}</th><th>{translate text="Finished" isAdminFacing=true}</th><th>{translate text="Elapsed" isAdminFacing=true}</th><th>{translate text="Works Processed" isAdminFacing=true}</th><th>{translate text="Works Sent" isAdminFacing=true}</th><th>{translate text="Unchanged Works Skipped" isAdminFacing=true}</th><th>{translate text="Solr Updates Queued" isAdminFacing=true}</th><th>{translate text="Solr Updates In Flight" isAdminFacing=true}</th><th>{translate text="Solr Documents Added" isAdminFacing=true}</th><th>{translate text="Solr Updates Failed" isAdminFacing=true}</th><th>{translate text="Num Errors" isAdminFacing=true}</th><th>{translate text="Notes" isAdminFacing=true}</th></tr>
 				</thead>
 				<tbody>
 					{foreach from=$logEntries item=logEntry}
@@ -39,6 +39,12 @@
 							<td>{$logEntry->endTime|date_format:"%D %T"}</td>
 							<td>{$logEntry->getElapsedTime()}</td>
 							<td>{$logEntry->numWorksProcessed}</td>
+							<td>{$logEntry->numDocumentsSent}</td>
+							<td>{$logEntry->numDocumentsSkipped}</td>
+							<td>{$logEntry->numSolrUpdatesQueued}</td>
+							<td>{$logEntry->numSolrUpdatesInFlight}</td>
+							<td>{$logEntry->numSolrDocumentsAdded}</td>
+							<td>{$logEntry->numSolrUpdatesFailed}</td>
 							<td>{$logEntry->numErrors}</td>
 							<td><a href="#" onclick="return AspenDiscovery.Admin.showReindexNotes('{$logEntry->id}');">{translate text="Show Notes" isAdminFacing=true}</a></td>
 						</tr>
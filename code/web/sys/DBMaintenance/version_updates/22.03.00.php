@@ -153,6 +153,63 @@ function getUpdates22_03_00() : array
 				'ALTER TABLE library add COLUMN holdPlacedAt TINYINT(1) DEFAULT 0'
 			]
 		], //library_holdPlacedAt
+		'reindex_log_solr_counters' => [
+			'title' => 'Reindex Log Solr Counters',
+			'description' => 'Track updates queued, in flight, added and failed when sending grouped works to Solr',
+			'sql' => [
+				'ALTER TABLE reindex_log ADD COLUMN numSolrUpdatesQueued INT(11) DEFAULT 0',
+				'ALTER TABLE reindex_log ADD COLUMN numSolrUpdatesInFlight INT(11) DEFAULT 0',
+				'ALTER TABLE reindex_log ADD COLUMN numSolrDocumentsAdded INT(11) DEFAULT 0',
+				'ALTER TABLE reindex_log ADD COLUMN numSolrUpdatesFailed INT(11) DEFAULT 0',
+			]
+		], //reindex_log_solr_counters
+		'grouped_work_solr_hash' => [
+			'title' => 'Grouped Work Solr Hash',
+			'description' => 'Store a hash of the last document sent to Solr for each grouped work so unchanged works can be skipped',
+			'sql' => [
+				'CREATE TABLE IF NOT EXISTS grouped_work_solr_hash (
+					permanent_id CHAR(36) NOT NULL PRIMARY KEY,
+					documentHash BIGINT NOT NULL
+				) ENGINE INNODB',
+				'ALTER TABLE reindex_log ADD COLUMN numDocumentsSent INT(11) DEFAULT 0',
+				'ALTER TABLE reindex_log ADD COLUMN numDocumentsSkipped INT(11) DEFAULT 0',
+			]
+		], //grouped_work_solr_hash
+		'authorities_last_updated' => [
+			'title' => 'Authorities Last Updated',
+			'description' => 'Track when authorities and alternate titles change so grouping can refresh them without reloading everything',
+			'sql' => [
+				'ALTER TABLE author_authority ADD COLUMN lastUpdated TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP',
+				'ALTER TABLE author_authority_alternative ADD COLUMN lastUpdated TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP',
+				'ALTER TABLE title_authorities ADD COLUMN lastUpdated TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP',
+				'ALTER TABLE grouped_work_alternate_titles ADD COLUMN lastUpdated TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP',
+			]
+		], //authorities_last_updated
+		'overdrive_max_requests_per_second' => [
+			'title' => 'OverDrive Max Requests Per Second',
+			'description' => 'Limit the rate of requests to OverDrive when extracting with multiple threads',
+			'sql' => [
+				'ALTER TABLE overdrive_settings ADD COLUMN maxRequestsPerSecond INT DEFAULT 25',
+			]
+		], //overdrive_max_requests_per_second
+		'overdrive_bulk_availability' => [
+			'title' => 'OverDrive Bulk Availability',
+			'description' => 'Allow availability to be loaded for several products at once',
+			'sql' => [
+				'ALTER TABLE overdrive_settings ADD COLUMN useBulkAvailability TINYINT(1) DEFAULT 0',
+			]
+		], //overdrive_bulk_availability
+		'website_indexing_crawler_settings' => [
+			'title' => 'Website Indexing Crawler Settings',
+			'description' => 'Allow websites to be crawled with multiple threads and only download pages that have changed',
+			'sql' => [
+				'ALTER TABLE website_indexing_settings ADD COLUMN numFetchThreads INT DEFAULT 4',
+				'ALTER TABLE website_indexing_settings ADD COLUMN crawlDelay INT DEFAULT 250',
+				'ALTER TABLE website_pages ADD COLUMN etag VARCHAR(255) DEFAULT NULL',
+				'ALTER TABLE website_pages ADD COLUMN lastModified VARCHAR(255) DEFAULT NULL',
+				'ALTER TABLE website_pages ADD COLUMN links MEDIUMTEXT',
+			]
+		], //website_indexing_crawler_settings
 	];
 }
 
@@ -581,6 +581,64 @@ class File_MARC_Record
 		}
 	}
 
+	/**
+	 * Loads a record stored in the binary format used by the indexer (see BinaryMarcCodec.java).
+	 * The first byte is the format version, followed by the leader, control fields and data fields.
+	 * Strings are stored as a varint length followed by the UTF-8 bytes of the string.
+	 *
+	 * @param string $rawData
+	 */
+	public function binaryDecode($rawData)
+	{
+		if (strlen($rawData) == 0 || ord($rawData[0]) != 1) {
+			return;
+		}
+		$position = 1;
+		$this->leader = $this->readBinaryString($rawData, $position);
+		$numControlFields = $this->readBinaryVarInt($rawData, $position);
+		for ($i = 0; $i < $numControlFields; $i++) {
+			$tag = $this->readBinaryString($rawData, $position);
+			$this->appendField(new File_MARC_Control_Field($tag, $this->readBinaryString($rawData, $position)));
+		}
+		$numDataFields = $this->readBinaryVarInt($rawData, $position);
+		for ($i = 0; $i < $numDataFields; $i++) {
+			$tag = $this->readBinaryString($rawData, $position);
+			$ind1 = $this->readBinaryString($rawData, $position);
+			$ind2 = $this->readBinaryString($rawData, $position);
+			$dataField = new File_MARC_Data_Field($tag, null, $ind1, $ind2);
+			$numSubfields = $this->readBinaryVarInt($rawData, $position);
+			for ($j = 0; $j < $numSubfields; $j++) {
+				$code = $this->readBinaryString($rawData, $position);
+				$dataField->appendSubfield(new File_MARC_Subfield($code, $this->readBinaryString($rawData, $position)));
+			}
+			$this->appendField($dataField);
+		}
+	}
+
+	private function readBinaryVarInt($rawData, &$position)
+	{
+		$value = 0;
+		$shift = 0;
+		$length = strlen($rawData);
+		while ($position < $length) {
+			$curByte = ord($rawData[$position++]);
+			$value |= ($curByte & 0x7F) << $shift;
+			if (($curByte & 0x80) == 0) {
+				break;
+			}
+			$shift += 7;
+		}
+		return $value;
+	}
+
+	private function readBinaryString($rawData, &$position)
+	{
+		$length = $this->readBinaryVarInt($rawData, $position);
+		$value = substr($rawData, $position, $length);
+		$position += $length;
+		return $value === false ? '' : $value;
+	}
+
     // {{{ toJSONHash()
     /**
      * Return the MARC record in Bill Dueber's MARC-HASH JSON format
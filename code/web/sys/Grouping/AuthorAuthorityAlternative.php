@@ -16,4 +16,10 @@ class AuthorAuthorityAlternative extends DataObject
 			'normalized' => ['property' => 'normalized', 'type' => 'text', 'label' => 'Normalized Value', 'description' => 'The normalized value for grouping', 'readOnly' => true],
 		];
 	}
+
+	public function update(){
+		//lastUpdated is maintained by the database so the indexer can tell when the authority changes
+		unset($this->lastUpdated);
+		return parent::update();
+	}
 }
\ No newline at end of file
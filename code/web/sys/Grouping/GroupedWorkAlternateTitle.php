@@ -58,6 +58,8 @@ class GroupedWorkAlternateTitle extends DataObject
 
 	function update()
 	{
+		//lastUpdated is maintained by the database so the indexer can tell when the alternate title changes
+		unset($this->lastUpdated);
 		$ret = parent::update();
 		require_once ROOT_DIR . '/sys/Grouping/GroupedWork.php';
 		$relatedWork = new GroupedWork();
@@ -9,6 +9,12 @@ class ReindexLogEntry extends BaseLogEntry
 	public $lastUpdate;
 	public $notes;
 	public $numWorksProcessed;
+	public $numDocumentsSent;
+	public $numDocumentsSkipped;
+	public $numSolrUpdatesQueued;
+	public $numSolrUpdatesInFlight;
+	public $numSolrDocumentsAdded;
+	public $numSolrUpdatesFailed;
 	public $numErrors;
 
 }
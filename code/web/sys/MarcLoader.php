@@ -48,7 +48,11 @@ class MarcLoader{
 		if ($ilsRecord->find(true)){
 			if (!empty($ilsRecord->sourceData)) {
 				$marcRecord = new File_MARC_Record();
-				$marcRecord->jsonDecode($ilsRecord->sourceData);
+				if (ord($ilsRecord->sourceData[0]) == 1) {
+					$marcRecord->binaryDecode($ilsRecord->sourceData);
+				} else {
+					$marcRecord->jsonDecode($ilsRecord->sourceData);
+				}
 				$checkFileSystem = false;
 			}
 		}
@@ -17,6 +17,8 @@ class OverDriveSetting extends DataObject
 	public $allowLargeDeletes;
 	public $numExtractionThreads;
 	public $numRetriesOnError;
+	public $maxRequestsPerSecond;
+	public $useBulkAvailability;
 	public $productsToUpdate;
 	public $lastUpdateOfChangedRecords;
 	public $lastUpdateOfAllRecords;
@@ -49,6 +51,8 @@ class OverDriveSetting extends DataObject
 			'showLibbyPromo' => array('property' => 'showLibbyPromo', 'type' => 'checkbox', 'label' => 'Show Libby promo in checkout fulfillment interface', 'description' => 'Whether or not to show the Libby promo ad in the fulfillment interface', 'default' => 1),
 			'numExtractionThreads' => array('property' => 'numExtractionThreads', 'type' => 'integer', 'label' => 'Num Extraction Threads', 'description' => 'The number of threads to use when extracting from OverDrive', 'canBatchUpdate'=>false, 'default'=>10, 'min'=>1, 'max'=>10),
 			'numRetriesOnError' => array('property' => 'numRetriesOnError', 'type' => 'integer', 'label' => 'Num Retries', 'description' => 'The number of retries to attempt when errors are returned from OverDrive', 'canBatchUpdate'=>false, 'default'=>1, 'min'=>0, 'max'=>5),
+			'maxRequestsPerSecond' => array('property' => 'maxRequestsPerSecond', 'type' => 'integer', 'label' => 'Max Requests Per Second', 'description' => 'The maximum number of requests to make to each OverDrive server per second while extracting (0 for no limit)', 'canBatchUpdate'=>false, 'default'=>25, 'min'=>0, 'max'=>1000),
+			'useBulkAvailability' => array('property' => 'useBulkAvailability', 'type' => 'checkbox', 'label' => 'Use Bulk Availability', 'description' => 'Whether or not availability is loaded for several products at once while extracting from OverDrive', 'canBatchUpdate'=>false, 'default' => 0),
 			'productsToUpdate' => array('property'=>'productsToUpdate', 'type'=>'textarea', 'label'=>'Products To Reindex', 'description'=>'A list of products to update on the next index', 'canBatchUpdate'=>false, 'hideInLists'=>true),
 			'lastUpdateOfChangedRecords' => array('property' => 'lastUpdateOfChangedRecords', 'type' => 'timestamp', 'label' => 'Last Update of Changed Records', 'description' => 'The timestamp when just changes were loaded', 'default' => 0),
 			'lastUpdateOfAllRecords' => array('property' => 'lastUpdateOfAllRecords', 'type' => 'timestamp', 'label' => 'Last Update of All Records', 'description' => 'The timestamp when just changes were loaded', 'default' => 0),
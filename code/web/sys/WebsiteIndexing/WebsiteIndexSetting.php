@@ -15,6 +15,8 @@ class WebsiteIndexSetting extends DataObject
 	public /** @noinspection PhpUnused */$indexFrequency;
 	public /** @noinspection PhpUnused */$lastIndexed;
 	public $maxPagesToIndex;
+	public /** @noinspection PhpUnused */$numFetchThreads;
+	public /** @noinspection PhpUnused */$crawlDelay;
 	public $deleted;
 
 	public $_libraries;
@@ -39,6 +41,8 @@ class WebsiteIndexSetting extends DataObject
 			'descriptionExpression' => ['property'=>'descriptionExpression', 'type'=>'regularExpression', 'label'=>'Regular Expression to find Description (ok to leave blank)', 'description'=>'A regular expression to use to load the description from.  Will use the value of the first group identified.', 'maxLength'=>255, 'required' => false, 'default' => '', 'hideInLists' => true],
 			'pathsToExclude' => ['property' => 'pathsToExclude', 'type'=>'textarea', 'label'=>'Paths to exclude', 'description'=>'A list of paths to exclude from the index with each on it\'s own line.', 'hideInLists' => true],
 			'maxPagesToIndex' => ['property' => 'maxPagesToIndex', 'type'=>'integer', 'label'=>'Maximum Pages To Index', 'description'=>'A maximum number of pages to index.', 'default' => 2500],
+			'numFetchThreads' => ['property' => 'numFetchThreads', 'type'=>'integer', 'label'=>'Number of Pages to Fetch at Once', 'description'=>'The number of pages to download from the website at the same time.', 'default' => 4, 'min' => 1, 'max' => 16, 'hideInLists' => true],
+			'crawlDelay' => ['property' => 'crawlDelay', 'type'=>'integer', 'label'=>'Delay Between Requests (milliseconds)', 'description'=>'The minimum time between requests to the website.', 'default' => 250, 'min' => 0, 'max' => 10000, 'hideInLists' => true],
 			'indexFrequency' => ['property'=>'indexFrequency', 'type'=>'enum', 'values' => ['hourly'=>'Hourly', 'daily'=>'Daily', 'weekly'=>'Weekly', 'monthly'=>'Monthly', 'yearly'=>'Yearly', 'once'=>'Once'], 'label'=>'Frequency to Fetch', 'description'=>'How often the records should be fetched'],
 			'lastIndexed' => ['property'=>'lastIndexed', 'type'=>'timestamp', 'label'=>'Last Fetched (clear to force a new fetch)', 'description'=>'When the record was last fetched'],
 
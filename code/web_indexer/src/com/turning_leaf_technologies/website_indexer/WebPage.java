@@ -11,6 +11,9 @@ class WebPage {
 	private long checksum;
 	private boolean deleted;
 	private long firstDetected;
+	private String etag;
+	private String lastModified;
+	private String savedLinks;
 
 	private String title;
 	private String pageContents;
@@ -23,6 +26,9 @@ class WebPage {
 		this.checksum = websitePagesRS.getLong("checksum");
 		this.deleted = websitePagesRS.getBoolean("deleted");
 		this.firstDetected = websitePagesRS.getLong("firstDetected");
+		this.etag = websitePagesRS.getString("etag");
+		this.lastModified = websitePagesRS.getString("lastModified");
+		this.savedLinks = websitePagesRS.getString("links");
 	}
 
 	WebPage(String url) {
@@ -54,6 +60,21 @@ class WebPage {
 		return firstDetected;
 	}
 
+	String getEtag() {
+		return etag;
+	}
+
+	String getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * @return the links found on the page the last time it was downloaded, one per line
+	 */
+	String getSavedLinks() {
+		return savedLinks;
+	}
+
 	String getTitle() {
 		return title;
 	}
@@ -64,7 +64,7 @@ class WebsiteIndexLogEntry implements BaseLogEntry {
 
 	private static PreparedStatement insertLogEntry;
 	private static PreparedStatement updateLogEntry;
-	public boolean saveResults() {
+	public synchronized boolean saveResults() {
 		try {
 			if (logEntryId == null){
 				insertLogEntry.setLong(1, startTime.getTime() / 1000);
@@ -102,25 +102,25 @@ class WebsiteIndexLogEntry implements BaseLogEntry {
 		this.addNote("Finished Website extraction for " + websiteName);
 		this.saveResults();
 	}
-	void incAdded(){
+	synchronized void incAdded(){
 		numAdded++;
 		if ((numAdded + numUpdated) % 100 == 0){
 			this.saveResults();
 		}
 	}
-	void incDeleted(){
+	synchronized void incDeleted(){
 		numDeleted++;
 		if ((numDeleted) % 50 == 0){
 			this.saveResults();
 		}
 	}
-	void incUpdated(){
+	synchronized void incUpdated(){
 		numUpdated++;
 		if ((numAdded + numUpdated) % 100 == 0){
 			this.saveResults();
 		}
 	}
-	void incNumPages() {
+	synchronized void incNumPages() {
 		numPages++;
 	}
 
@@ -128,14 +128,14 @@ class WebsiteIndexLogEntry implements BaseLogEntry {
 		return numErrors > 0;
 	}
 
-	public void incErrors(String note) {
+	public synchronized void incErrors(String note) {
 		this.addNote("ERROR: " + note);
 		numErrors++;
 		this.saveResults();
 		logger.error(note);
 	}
 
-	public void incErrors(String note, Exception e){
+	public synchronized void incErrors(String note, Exception e){
 		this.addNote("ERROR: " + note + " " + e.toString());
 		numErrors++;
 		this.saveResults();
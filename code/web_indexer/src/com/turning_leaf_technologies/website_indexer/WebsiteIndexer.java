@@ -2,7 +2,9 @@ package com.turning_leaf_technologies.website_indexer;
 
 import com.turning_leaf_technologies.strings.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.methods.CloseableHttpResponse;
@@ -17,10 +19,12 @@ import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.common.SolrInputDocument;
 
 import java.io.IOException;
+import java.net.URI;
 import java.sql.*;
-import java.util.HashMap;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -39,21 +43,36 @@ class WebsiteIndexer {
 	private final Logger logger;
 	private final Connection aspenConn;
 	private final HashMap<String, WebPage> existingPages = new HashMap<>();
-	private final HashMap<String, Boolean> allLinks = new HashMap<>();
+	//The crawl frontier, all links that have been found and the links that still need to be processed
+	private final HashSet<String> allLinks = new HashSet<>();
+	private final ArrayDeque<String> linksToProcess = new ArrayDeque<>();
+	private int numPagesInProgress = 0;
+	private boolean foundTooManyLinks = false;
+	private final int numFetchThreads;
+	private final long crawlDelay;
+	private final HashMap<String, Long> nextRequestTimeByHost = new HashMap<>();
 	private Pattern pageTitleExpression = null;
 	private Pattern descriptionExpression = null;
 	private final Pattern titlePattern = Pattern.compile("<title>(.*?)</title>", Pattern.DOTALL);
 	private final Pattern bodyPattern = Pattern.compile("<body.*?>(.*?)</body>", Pattern.DOTALL);
 	private final Pattern linkPattern = Pattern.compile("<a\\s.*?href=['\"](.*?)['\"].*?>(.*?)</a>", Pattern.DOTALL);
 	private final ArrayList<Pattern> pathsToExcludePatterns = new ArrayList<>();
-	private static final CRC32 checksumCalculator = new CRC32();
 	private PreparedStatement addPageToStmt;
+	private PreparedStatement updatePageCacheInfoStmt;
 	private PreparedStatement deletePageStmt;
 	private final HashSet<String> scopesToInclude;
+	private int numUnchangedPages = 0;
+
+	//Pages are fetched by multiple threads, but only one thread at a time can update the database and solr
+	private final Object databaseLock = new Object();
+	private final ArrayList<SolrInputDocument> solrDocumentsToAdd = new ArrayList<>();
+	private static final int SOLR_BATCH_SIZE = 100;
 
 	private final ConcurrentUpdateSolrClient solrUpdateServer;
+	//Shared by all pages so connections to the site are kept alive and reused
+	private final CloseableHttpClient httpClient;
 
-	WebsiteIndexer(Long websiteId, String websiteName, String searchCategory, String initialUrl, String pageTitleExpression, String descriptionExpression, String pathsToExclude, long maxPagesToIndex, HashSet<String> scopesToInclude, boolean fullReload, WebsiteIndexLogEntry logEntry, Connection aspenConn, ConcurrentUpdateSolrClient solrUpdateServer, Logger logger) {
+	WebsiteIndexer(Long websiteId, String websiteName, String searchCategory, String initialUrl, String pageTitleExpression, String descriptionExpression, String pathsToExclude, long maxPagesToIndex, int numFetchThreads, long crawlDelay, HashSet<String> scopesToInclude, boolean fullReload, WebsiteIndexLogEntry logEntry, Connection aspenConn, ConcurrentUpdateSolrClient solrUpdateServer, Logger logger) {
 		this.websiteId = websiteId;
 		this.websiteName = websiteName;
 		this.searchCategory = searchCategory;
@@ -65,6 +84,12 @@ class WebsiteIndexer {
 		this.siteUrlShort = siteUrl.replaceAll("http[s]?://", "");
 		this.scopesToInclude = scopesToInclude;
 		this.maxPagesToIndex = maxPagesToIndex;
+		this.numFetchThreads = Math.max(1, numFetchThreads);
+		this.crawlDelay = Math.max(0, crawlDelay);
+		this.httpClient = HttpClients.custom()
+				.setMaxConnPerRoute(this.numFetchThreads)
+				.setMaxConnTotal(this.numFetchThreads)
+				.build();
 
 		this.logEntry = logEntry;
 		this.logger = logger;
@@ -105,7 +130,8 @@ class WebsiteIndexer {
 		}
 
 		try {
-			addPageToStmt = aspenConn.prepareStatement("INSERT INTO website_pages SET websiteId = ?, url = ?, checksum = ?, deleted = 0, firstDetected = ? ON DUPLICATE KEY UPDATE checksum = VALUES(checksum), deleted = 0", Statement.RETURN_GENERATED_KEYS);
+			addPageToStmt = aspenConn.prepareStatement("INSERT INTO website_pages SET websiteId = ?, url = ?, checksum = ?, deleted = 0, firstDetected = ?, etag = ?, lastModified = ?, links = ? ON DUPLICATE KEY UPDATE checksum = VALUES(checksum), deleted = 0, etag = VALUES(etag), lastModified = VALUES(lastModified), links = VALUES(links)", Statement.RETURN_GENERATED_KEYS);
+			updatePageCacheInfoStmt = aspenConn.prepareStatement("UPDATE website_pages SET etag = ?, lastModified = ?, links = ? WHERE id = ?");
 			deletePageStmt = aspenConn.prepareStatement("UPDATE website_pages SET deleted = 1, deleteReason = ? where id = ?");
 		} catch (Exception e) {
 			logEntry.incErrors("Error setting up statements ", e);
@@ -143,26 +169,27 @@ class WebsiteIndexer {
 		if (initialUrl.endsWith("/")) {
 			initialUrl = initialUrl.substring(0, initialUrl.length() - 1);
 		}
-		allLinks.put(initialUrl, false);
-		logEntry.incNumPages();
-		boolean moreToProcess = true;
-		while (moreToProcess) {
-			String urlToProcess = null;
-			for (String link : allLinks.keySet()) {
-				if (!allLinks.get(link)) {
-					urlToProcess = link;
+		addLinks(Collections.singletonList(initialUrl));
+		ExecutorService fetchers = Executors.newFixedThreadPool(numFetchThreads);
+		for (int i = 0; i < numFetchThreads; i++) {
+			fetchers.execute(this::processPages);
+		}
+		fetchers.shutdown();
+		while (true) {
+			try {
+				boolean terminated = fetchers.awaitTermination(15, TimeUnit.SECONDS);
+				if (terminated){
 					break;
 				}
+			} catch (InterruptedException e) {
+				logger.error("Error waiting for all pages to be processed");
 			}
-			if (urlToProcess != null) {
-				processPage(urlToProcess);
-				allLinks.put(urlToProcess, true);
-			} else {
-				moreToProcess = false;
-			}
-			if (allLinks.size() > this.maxPagesToIndex){
-				logEntry.incErrors("Error processing website, found more than " + this.maxPagesToIndex + " links in the site");
-			}
+		}
+		synchronized (databaseLock) {
+			addSolrDocuments(true);
+		}
+		if (numUnchangedPages > 0) {
+			logEntry.addNote(numUnchangedPages + " pages were not modified since they were last indexed");
 		}
 
 		//If we are not doing a full reload, remove any pages that we didn't find on this go round.
@@ -187,22 +214,141 @@ class WebsiteIndexer {
 		} catch (Exception e) {
 			logEntry.incErrors("Error in final commit ", e);
 		}
+
+		try {
+			httpClient.close();
+		} catch (IOException e) {
+			logger.warn("Error closing http client", e);
+		}
+	}
+
+	/**
+	 * Run by each fetch thread, processes pages until there are no more links to process and no other thread is
+	 * processing a page which could find more.
+	 */
+	private void processPages() {
+		try {
+			String pageToProcess;
+			while ((pageToProcess = getNextLinkToProcess()) != null) {
+				try {
+					waitForCrawlDelay(pageToProcess);
+					processPage(pageToProcess);
+				} finally {
+					finishedProcessingLink();
+				}
+			}
+		} catch (InterruptedException e) {
+			logEntry.incErrors("Interrupted while processing pages for " + websiteName, e);
+		}
+	}
+
+	private synchronized String getNextLinkToProcess() throws InterruptedException {
+		while (linksToProcess.isEmpty()) {
+			if (numPagesInProgress == 0) {
+				return null;
+			}
+			wait();
+		}
+		numPagesInProgress++;
+		return linksToProcess.poll();
+	}
+
+	private synchronized void finishedProcessingLink() {
+		numPagesInProgress--;
+		notifyAll();
+	}
+
+	/**
+	 * Adds any links that have not been found before to the frontier.
+	 */
+	private synchronized void addLinks(Collection<String> links) {
+		for (String link : links) {
+			if (!allLinks.contains(link)) {
+				//There are too many pages to process, quit
+				if (allLinks.size() >= maxPagesToIndex) {
+					if (!foundTooManyLinks) {
+						foundTooManyLinks = true;
+						logEntry.incErrors("Error processing website, found more than " + this.maxPagesToIndex + " links in the site");
+					}
+					break;
+				}
+				allLinks.add(link);
+				linksToProcess.add(link);
+				logEntry.incNumPages();
+			}
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Waits until the crawl delay has passed since the last request to the host.  Each request reserves the next open
+	 * time for the host and then waits outside the lock so other threads can make their reservations.
+	 */
+	private void waitForCrawlDelay(String url) throws InterruptedException {
+		if (crawlDelay == 0) {
+			return;
+		}
+		String host;
+		try {
+			host = URI.create(url.replaceAll("\\s", "%20")).getHost();
+		} catch (IllegalArgumentException e) {
+			host = null;
+		}
+		if (host == null) {
+			host = siteUrlShort;
+		}
+		long waitTime;
+		synchronized (nextRequestTimeByHost) {
+			long now = System.currentTimeMillis();
+			long requestTime = Math.max(now, nextRequestTimeByHost.getOrDefault(host, now));
+			nextRequestTimeByHost.put(host, requestTime + crawlDelay);
+			waitTime = requestTime - now;
+		}
+		if (waitTime > 0) {
+			Thread.sleep(waitTime);
+		}
 	}
 
 	private void processPage(String pageToProcess) {
 		try {
-			CloseableHttpClient httpclient = HttpClients.createDefault();
 			pageToProcess = pageToProcess.replaceAll("\\s", "%20");
 			logger.info("Processing page " + pageToProcess);
 			HttpGet httpGet = new HttpGet(pageToProcess);
-			try{
-				CloseableHttpResponse response1 = httpclient.execute(httpGet);
+			WebPage existingPage;
+			synchronized (databaseLock) {
+				existingPage = existingPages.get(pageToProcess);
+			}
+			//Ask the site to only return the page if it changed since it was last downloaded
+			if (existingPage != null && !existingPage.isDeleted() && !fullReload && existingPage.getSavedLinks() != null) {
+				if (existingPage.getEtag() != null) {
+					httpGet.addHeader("If-None-Match", existingPage.getEtag());
+				}
+				if (existingPage.getLastModified() != null) {
+					httpGet.addHeader("If-Modified-Since", existingPage.getLastModified());
+				}
+			}
+			try (CloseableHttpResponse response1 = httpClient.execute(httpGet)) {
 				StatusLine status = response1.getStatusLine();
-				if (status.getStatusCode() == 200) {
+				if (status.getStatusCode() == HttpStatus.SC_NOT_MODIFIED && existingPage != null) {
+					logger.info("Page has not been modified");
+					EntityUtils.consume(response1.getEntity());
+					//Nothing to update, but follow the links that were on the page last time
+					ArrayList<String> savedLinks = new ArrayList<>();
+					for (String link : existingPage.getSavedLinks().split("\n")) {
+						if (link.length() > 0 && isPathIncluded(link)) {
+							savedLinks.add(link);
+						}
+					}
+					addLinks(savedLinks);
+					synchronized (databaseLock) {
+						existingPages.remove(pageToProcess);
+						numUnchangedPages++;
+					}
+				} else if (status.getStatusCode() == 200) {
 					logger.info("Got successful response");
 					WebPage page;
-					if (existingPages.containsKey(pageToProcess)) {
-						page = existingPages.get(pageToProcess);
+					if (existingPage != null) {
+						page = existingPage;
 					} else {
 						page = new WebPage(pageToProcess);
 					}
@@ -212,6 +358,8 @@ class WebsiteIndexer {
 					String mimeType = contentType.getMimeType();
 					if (!mimeType.equals("text/html")) {
 						logger.info("Non HTML page, skipping");
+						//Read the rest of the response so the connection can be reused
+						EntityUtils.consume(entity1);
 						//TODO: Index PDFs
 						//Don't log this for now since it just distracts from actual errors
 //						if (!mimeType.equals("application/pdf")) {
@@ -250,72 +398,8 @@ class WebsiteIndexer {
 						}
 
 						//Extract the related links
-						try {
-							Matcher regexMatcher = linkPattern.matcher(response);
-							while (regexMatcher.find()) {
-								for (int i = 1; i <= regexMatcher.groupCount(); i++) {
-									String linkUrl = regexMatcher.group(1).trim();
-									if (linkUrl.contains("&#x")){
-										linkUrl = StringEscapeUtils.unescapeHtml4(linkUrl);
-									}
-									if (linkUrl.contains("#")) {
-										linkUrl = linkUrl.substring(0, linkUrl.lastIndexOf("#"));
-									}
-									//TODO: DO we want to trim off parameters always, this could be a setting?
-									if (linkUrl.contains("?")) {
-										linkUrl = linkUrl.substring(0, linkUrl.lastIndexOf("?"));
-									}
-									if (linkUrl.endsWith("/")) {
-										linkUrl = linkUrl.substring(0, linkUrl.length() - 1);
-									}
-									if (linkUrl.length() == 0 || linkUrl.startsWith(".")) {
-										continue;
-									}
-									if (linkUrl.startsWith("http://")) {
-										if (!linkUrl.startsWith(initialUrl)) {
-											continue;
-										}
-									} else if (linkUrl.startsWith("https://")) {
-										if (!linkUrl.startsWith(initialUrl)) {
-											continue;
-										}
-									} else if (linkUrl.startsWith("mailto:") || linkUrl.startsWith("tel:") || linkUrl.startsWith("javascript:")) {
-										continue;
-									} else if (linkUrl.contains("/..") || linkUrl.contains("../")) {
-										//Ignore relative paths for now
-										continue;
-									} else if (linkUrl.startsWith(siteUrlShort)) {
-										linkUrl = "https://" + linkUrl;
-									} else {
-										if (!linkUrl.startsWith("/")) {
-											linkUrl = "/" + linkUrl;
-										}
-										linkUrl = siteUrl + linkUrl;
-									}
-									if (!linkUrl.startsWith(initialUrl)) {
-										continue;
-									}
-									//Make sure that we shouldn't be ignoring the path.
-									boolean includePath = true;
-									for (Pattern curPattern : pathsToExcludePatterns){
-										if (curPattern.matcher(linkUrl).matches()){
-											includePath = false;
-										}
-									}
-									if (includePath && !allLinks.containsKey(linkUrl)) {
-										page.getLinks().add(linkUrl);
-										allLinks.put(linkUrl, false);
-										//There are too many pages to process, quit
-										if (allLinks.size() > maxPagesToIndex){
-											return;
-										}
-										logEntry.incNumPages();
-									}
-								}
-							}
-						} catch (PatternSyntaxException ex) {
-							logEntry.incErrors("Error in pattern ", ex);
-						}
+						page.getLinks().addAll(getLinksOnPage(response));
+						addLinks(page.getLinks());
 
 						//Get the description
 						String description = response;
@@ -340,56 +424,75 @@ class WebsiteIndexer {
 							logEntry.incErrors("Error in pattern ", ex);
 						}
 
-						checksumCalculator.reset();
+						CRC32 checksumCalculator = new CRC32();
 						checksumCalculator.update(response.getBytes());
 						long checksum = checksumCalculator.getValue();
 
-						existingPages.remove(pageToProcess);
+						String etag = getHeaderValue(response1, "ETag");
+						String lastModified = getHeaderValue(response1, "Last-Modified");
+						String links = String.join("\n", page.getLinks());
 
-						if (checksum != page.getChecksum() || fullReload || page.isDeleted()) {
-							//Save the page to the database
-							addPageToStmt.setLong(1, websiteId);
-							addPageToStmt.setString(2, pageToProcess);
-							addPageToStmt.setLong(3, checksum);
-							addPageToStmt.setLong(4, page.getFirstDetected() / 1000);
-							addPageToStmt.executeUpdate();
-							ResultSet generatedIds = addPageToStmt.getGeneratedKeys();
-							if (generatedIds.next()) {
-								page.setId(generatedIds.getLong(1));
-								logEntry.incAdded();
-							} else {
-								logEntry.incUpdated();
-							}
+						synchronized (databaseLock) {
+							existingPages.remove(pageToProcess);
+
+							if (checksum != page.getChecksum() || fullReload || page.isDeleted()) {
+								//Save the page to the database
+								addPageToStmt.setLong(1, websiteId);
+								addPageToStmt.setString(2, pageToProcess);
+								addPageToStmt.setLong(3, checksum);
+								addPageToStmt.setLong(4, page.getFirstDetected() / 1000);
+								addPageToStmt.setString(5, etag);
+								addPageToStmt.setString(6, lastModified);
+								addPageToStmt.setString(7, links);
+								addPageToStmt.executeUpdate();
+								ResultSet generatedIds = addPageToStmt.getGeneratedKeys();
+								if (generatedIds.next()) {
+									page.setId(generatedIds.getLong(1));
+									logEntry.incAdded();
+								} else {
+									logEntry.incUpdated();
+								}
 
-							//Add to the solr index
-							SolrInputDocument solrDocument = new SolrInputDocument();
-							solrDocument.addField("id", "WebPage:" + page.getId());
-							solrDocument.addField("recordtype", "WebPage");
-							solrDocument.addField("website_name", websiteName);
-							solrDocument.addField("search_category", searchCategory);
-							solrDocument.addField("source_url", pageToProcess);
-							solrDocument.addField("title", page.getTitle());
-							solrDocument.addField("title_display", page.getTitle());
-							solrDocument.addField("title_sort", StringUtils.makeValueSortable(page.getTitle()));
-							//TODO: Make table of contents from header tags
-							//Strip tags from body to get the text of the page, this is done using Solr to remove tags.
-							solrDocument.addField("keywords", response);
-							solrDocument.addField("description", description.trim());
-							solrDocument.addField("scope_has_related_records", scopesToInclude);
-
-							//TODO: Add popularity
-							solrUpdateServer.add(solrDocument);
+								//Add to the solr index
+								SolrInputDocument solrDocument = new SolrInputDocument();
+								solrDocument.addField("id", "WebPage:" + page.getId());
+								solrDocument.addField("recordtype", "WebPage");
+								solrDocument.addField("website_name", websiteName);
+								solrDocument.addField("search_category", searchCategory);
+								solrDocument.addField("source_url", pageToProcess);
+								solrDocument.addField("title", page.getTitle());
+								solrDocument.addField("title_display", page.getTitle());
+								solrDocument.addField("title_sort", StringUtils.makeValueSortable(page.getTitle()));
+								//TODO: Make table of contents from header tags
+								//Strip tags from body to get the text of the page, this is done using Solr to remove tags.
+								solrDocument.addField("keywords", response);
+								solrDocument.addField("description", description.trim());
+								solrDocument.addField("scope_has_related_records", scopesToInclude);
+
+								//TODO: Add popularity
+								solrDocumentsToAdd.add(solrDocument);
+								addSolrDocuments(false);
+							} else if (!Objects.equals(etag, page.getEtag()) || !Objects.equals(lastModified, page.getLastModified()) || !links.equals(page.getSavedLinks())) {
+								//The content has not changed, just save what is needed to check for changes next time
+								updatePageCacheInfoStmt.setString(1, etag);
+								updatePageCacheInfoStmt.setString(2, lastModified);
+								updatePageCacheInfoStmt.setString(3, links);
+								updatePageCacheInfoStmt.setLong(4, page.getId());
+								updatePageCacheInfoStmt.executeUpdate();
+							}
 						}
 					}
 				} else{
 					logger.info("Got error processing the page");
-					WebPage existingPage = existingPages.get(pageToProcess);
+					EntityUtils.consume(response1.getEntity());
 					if (existingPage != null && !existingPage.isDeleted()){
-						deletePageStmt.setString(1, "Received " + status.getStatusCode() + " error code");
-						deletePageStmt.setLong(2, existingPage.getId());
-						deletePageStmt.executeUpdate();
-						solrUpdateServer.deleteByQuery("id:" + existingPage.getId() + "AND website_name:\"" + websiteName + "\"");
-						existingPages.remove(pageToProcess);
+						synchronized (databaseLock) {
+							deletePageStmt.setString(1, "Received " + status.getStatusCode() + " error code");
+							deletePageStmt.setLong(2, existingPage.getId());
+							deletePageStmt.executeUpdate();
+							solrUpdateServer.deleteByQuery("id:" + existingPage.getId() + "AND website_name:\"" + websiteName + "\"");
+							existingPages.remove(pageToProcess);
+						}
 					}
 				}
 			}catch (ClientProtocolException e2){
@@ -403,4 +506,98 @@ class WebsiteIndexer {
 			logEntry.incErrors("Error parsing page " + pageToProcess, e);
 		}
 	}
+
+	/**
+	 * @return the links on the page that are part of the site and are not excluded
+	 */
+	private LinkedHashSet<String> getLinksOnPage(String response) {
+		LinkedHashSet<String> linksOnPage = new LinkedHashSet<>();
+		try {
+			Matcher regexMatcher = linkPattern.matcher(response);
+			while (regexMatcher.find()) {
+				String linkUrl = regexMatcher.group(1).trim();
+				if (linkUrl.contains("&#x")){
+					linkUrl = StringEscapeUtils.unescapeHtml4(linkUrl);
+				}
+				if (linkUrl.contains("#")) {
+					linkUrl = linkUrl.substring(0, linkUrl.lastIndexOf("#"));
+				}
+				//TODO: DO we want to trim off parameters always, this could be a setting?
+				if (linkUrl.contains("?")) {
+					linkUrl = linkUrl.substring(0, linkUrl.lastIndexOf("?"));
+				}
+				if (linkUrl.endsWith("/")) {
+					linkUrl = linkUrl.substring(0, linkUrl.length() - 1);
+				}
+				if (linkUrl.length() == 0 || linkUrl.startsWith(".")) {
+					continue;
+				}
+				if (linkUrl.startsWith("http://")) {
+					if (!linkUrl.startsWith(initialUrl)) {
+						continue;
+					}
+				} else if (linkUrl.startsWith("https://")) {
+					if (!linkUrl.startsWith(initialUrl)) {
+						continue;
+					}
+				} else if (linkUrl.startsWith("mailto:") || linkUrl.startsWith("tel:") || linkUrl.startsWith("javascript:")) {
+					continue;
+				} else if (linkUrl.contains("/..") || linkUrl.contains("../")) {
+					//Ignore relative paths for now
+					continue;
+				} else if (linkUrl.startsWith(siteUrlShort)) {
+					linkUrl = "https://" + linkUrl;
+				} else {
+					if (!linkUrl.startsWith("/")) {
+						linkUrl = "/" + linkUrl;
+					}
+					linkUrl = siteUrl + linkUrl;
+				}
+				if (!linkUrl.startsWith(initialUrl)) {
+					continue;
+				}
+				if (isPathIncluded(linkUrl)) {
+					linksOnPage.add(linkUrl);
+				}
+			}
+		} catch (PatternSyntaxException ex) {
+			logEntry.incErrors("Error in pattern ", ex);
+		}
+		return linksOnPage;
+	}
+
+	/**
+	 * Make sure that we shouldn't be ignoring the path.
+	 */
+	private boolean isPathIncluded(String linkUrl) {
+		for (Pattern curPattern : pathsToExcludePatterns){
+			if (curPattern.matcher(linkUrl).matches()){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String getHeaderValue(CloseableHttpResponse response, String headerName) {
+		Header header = response.getFirstHeader(headerName);
+		if (header == null || header.getValue().length() == 0 || header.getValue().length() > 255) {
+			return null;
+		}
+		return header.getValue();
+	}
+
+	/**
+	 * Sends the pending documents to solr once there is a full batch or when all pages have been processed.
+	 * Must be called while holding the database lock.
+	 */
+	private void addSolrDocuments(boolean finalBatch) {
+		if (solrDocumentsToAdd.size() >= SOLR_BATCH_SIZE || (finalBatch && solrDocumentsToAdd.size() > 0)) {
+			try {
+				solrUpdateServer.add(solrDocumentsToAdd);
+			} catch (Exception e) {
+				logEntry.incErrors("Error adding pages to the index ", e);
+			}
+			solrDocumentsToAdd.clear();
+		}
+	}
 }